@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.ddf.message.provider.FeedSamples;
+
+/**
+ * {@link MsgDeframerDDF} over an in memory feed stream; one frame per
+ * operation, stream is rewound when exhausted.
+ * <p>
+ * synthetic : one sample of each feed message type, xml included; recorded :
+ * KCH5 feed log, mostly book top updates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeframerBenchmark {
+
+	/** about a socket receive buffer worth of stream */
+	static final int STREAM_SIZE = 64 * 1024;
+
+	@Param({ "synthetic", "recorded" })
+	public String stream;
+
+	MsgDeframerDDF deframer;
+
+	ChannelBuffer buffer;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+
+		final List<byte[]> frames;
+
+		if ("recorded".equals(stream)) {
+			frames = FeedSamples.recorded();
+		} else {
+			frames = new ArrayList<byte[]>(FeedSamples.messages().values());
+		}
+
+		buffer = ChannelBuffers.wrappedBuffer(FeedSamples.stream(frames,
+				STREAM_SIZE));
+
+		deframer = new MsgDeframerDDF();
+
+	}
+
+	@Benchmark
+	public Object frame() throws Exception {
+
+		Object frame = deframer.decode(null, null, buffer);
+
+		if (frame == null) {
+			buffer.readerIndex(0);
+			frame = deframer.decode(null, null, buffer);
+		}
+
+		return frame;
+
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.market.provider;
+
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.api.MarketObserver;
+import com.barchart.feed.api.connection.Connection;
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.data.Market;
+import com.barchart.feed.api.model.data.MarketData;
+import com.barchart.feed.api.model.data.Trade;
+import com.barchart.feed.ddf.datalink.api.FeedClient;
+import com.barchart.feed.ddf.datalink.api.FeedEvent;
+import com.barchart.feed.ddf.datalink.provider.DDF_SubscriptionHandler;
+import com.barchart.feed.ddf.datalink.provider.util.DummyFuture;
+import com.barchart.feed.ddf.instrument.provider.DDF_MetadataServiceWrapper;
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+import com.barchart.feed.ddf.message.provider.FeedSamples;
+
+/**
+ * {@link DDF_Marketplace#make(DDF_MarketBase)} with agents attached: market
+ * lookup, mapping, freeze and callback fan-out, as on the feed thread.
+ * <p>
+ * Half the agents observe {@link Market}, the other half the data type of
+ * the message; callbacks only count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+	@Param({ "27", "28", "3B" })
+	public String type;
+
+	@Param({ "1", "8", "64" })
+	public int agents;
+
+	DDF_Marketplace marketplace;
+
+	DDF_MarketBase message;
+
+	long delivered;
+
+	final class Counter<V extends MarketData<V>> implements MarketObserver<V> {
+		@Override
+		public void onNext(final V value) {
+			delivered++;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+
+		FeedSamples.offline();
+
+		message = MapperBenchmark.decode(Collections
+				.singletonList(FeedSamples.message(type)))[0];
+
+		/* resolves instrument stub, agents then find it in cache */
+		final String symbol = message.getInstrument().symbol();
+
+		marketplace = DDF_Marketplace.newInstance(new DDF_SubscriptionHandler(
+				new NullFeedClient(), new DDF_MetadataServiceWrapper()));
+
+		for (int k = 0; k < agents; k++) {
+			if (k % 2 == 0) {
+				attach(Market.class, symbol);
+			} else if ("27".equals(type)) {
+				attach(Trade.class, symbol);
+			} else {
+				attach(Book.class, symbol);
+			}
+		}
+
+		/* agents attach asynchronously; wait for market agents at least */
+		final int expected = (agents + 1) / 2;
+
+		final long deadline = System.currentTimeMillis() + 5000;
+
+		while (true) {
+
+			delivered = 0;
+			marketplace.make(message);
+
+			if (delivered >= expected) {
+				break;
+			}
+
+			if (System.currentTimeMillis() > deadline) {
+				throw new IllegalStateException("agents not attached : "
+						+ delivered + " / " + expected);
+			}
+
+			Thread.sleep(10);
+
+		}
+
+	}
+
+	private <V extends MarketData<V>> void attach(final Class<V> dataType,
+			final String symbol) {
+		marketplace.newAgent(dataType, new Counter<V>()).include(symbol)
+				.subscribe();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		marketplace.clearAll();
+	}
+
+	@Benchmark
+	public long make() {
+		marketplace.make(message);
+		return delivered;
+	}
+
+	/** feed client which is never online; subscriptions go nowhere */
+	static class NullFeedClient implements FeedClient {
+
+		@Override
+		public Future<Boolean> write(final String message) {
+			return new DummyFuture();
+		}
+
+		@Override
+		public void startup() {
+		}
+
+		@Override
+		public void startUpProxy() {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public void bindStateListener(final Connection.Monitor stateListener) {
+		}
+
+		@Override
+		public void bindMessageListener(final DDF_MessageListener msgListener) {
+		}
+
+		@Override
+		public void setPolicy(final FeedEvent event, final EventPolicy policy) {
+		}
+
+	}
+
+}
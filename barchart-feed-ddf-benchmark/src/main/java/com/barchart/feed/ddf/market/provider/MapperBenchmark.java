@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.market.provider;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.base.market.api.MarketDo;
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+import com.barchart.feed.ddf.message.provider.DDF_MessageService;
+import com.barchart.feed.ddf.message.provider.FeedSamples;
+
+/**
+ * {@link MapperDDF} visits onto a single {@link VarMarketEntityDDF};
+ * messages are decoded once during setup, so only mapping is measured.
+ * <p>
+ * "fire" variant adds {@link VarMarketEntityDDF#fireCallbacks()} without
+ * agents, which is the floor of the per message callback cost; see
+ * {@link FanOutBenchmark} for agent fan-out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+	@Param({ "20", "21", "27", "28", "3B", "XQ", "XC", "XB", "recorded" })
+	public String type;
+
+	MapperDDF mapper;
+
+	MarketDo market;
+
+	DDF_MarketBase[] messages;
+
+	int index;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+
+		FeedSamples.offline();
+
+		final List<byte[]> frames;
+
+		if ("recorded".equals(type)) {
+			frames = FeedSamples.recorded();
+		} else {
+			frames = Collections.singletonList(FeedSamples.message(type));
+		}
+
+		messages = decode(frames);
+
+		mapper = new MapperDDF();
+
+		market = new VarMarketEntityDDF(messages[0].getInstrument());
+
+	}
+
+	/** market messages only, in feed order */
+	static DDF_MarketBase[] decode(final List<byte[]> frames) throws Exception {
+
+		final DDF_MarketBase[] messages = new DDF_MarketBase[frames.size()];
+
+		int count = 0;
+
+		for (final byte[] frame : frames) {
+			final Object message = DDF_MessageService.decode(frame);
+			if (message instanceof DDF_MarketBase) {
+				messages[count++] = (DDF_MarketBase) message;
+			}
+		}
+
+		final DDF_MarketBase[] result = new DDF_MarketBase[count];
+		System.arraycopy(messages, 0, result, 0, count);
+
+		return result;
+
+	}
+
+	/** next message in feed order, wraps around */
+	private DDF_MarketBase next() {
+		final DDF_MarketBase message = messages[index];
+		index = (index + 1) % messages.length;
+		return message;
+	}
+
+	@Benchmark
+	public MarketDo map() {
+		next().accept(mapper, market);
+		return market;
+	}
+
+	@Benchmark
+	public MarketDo fire() {
+		next().accept(mapper, market);
+		market.fireCallbacks();
+		return market;
+	}
+
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.enums;
+
+import static com.barchart.util.common.ascii.ASCII.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+import com.barchart.feed.ddf.message.provider.DDF_MessageService;
+import com.barchart.feed.ddf.message.provider.FeedSamples;
+import com.barchart.feed.ddf.symbol.enums.DDF_Exchange;
+import com.barchart.feed.ddf.symbol.enums.DDF_ExchangeKind;
+import com.barchart.feed.ddf.util.FeedDDF;
+import com.barchart.feed.ddf.util.enums.DDF_Fraction;
+
+/**
+ * per message enum lookups over codes of recorded feed messages;
+ *
+ * table path is current {@link DDF_MessageType#fromPair(byte, byte)},
+ * {@link DDF_Session#fromPair(byte, byte)},
+ * {@link DDF_Fraction#fromBaseCode(byte)} and
+ * {@link DDF_Exchange#fromCode(byte)}; switch and scan paths are previous
+ * implementations, kept here for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumBenchmark {
+
+	/** codes of market messages, in feed order */
+	byte[] records;
+	byte[] subRecords;
+	byte[] baseCodes;
+	byte[] exchCodes;
+	byte[] exchOrds;
+	byte[] sessCodes;
+
+	int index;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+
+		FeedSamples.offline();
+
+		final List<byte[]> frames = FeedSamples.recorded();
+
+		final int size = frames.size();
+
+		records = new byte[size];
+		subRecords = new byte[size];
+		baseCodes = new byte[size];
+		exchCodes = new byte[size];
+		exchOrds = new byte[size];
+		sessCodes = new byte[size];
+
+		int count = 0;
+
+		for (final byte[] frame : frames) {
+			final Object message = DDF_MessageService.decode(frame);
+			if (!(message instanceof DDF_MarketBase)) {
+				continue;
+			}
+			final DDF_MarketBase market = (DDF_MarketBase) message;
+			records[count] = market.getMessageType().record;
+			subRecords[count] = market.getMessageType().subRecord;
+			baseCodes[count] = market.getFraction().baseCode;
+			exchCodes[count] = market.getExchange().code;
+			exchOrds[count] = market.getExchange().ord;
+			sessCodes[count] = market.getSession().code;
+			count++;
+		}
+
+		records = trim(records, count);
+		subRecords = trim(subRecords, count);
+		baseCodes = trim(baseCodes, count);
+		exchCodes = trim(exchCodes, count);
+		exchOrds = trim(exchOrds, count);
+		sessCodes = trim(sessCodes, count);
+
+	}
+
+	static byte[] trim(final byte[] array, final int size) {
+		final byte[] result = new byte[size];
+		System.arraycopy(array, 0, result, 0, size);
+		return result;
+	}
+
+	/** next message in feed order, wraps around */
+	private int next() {
+		final int k = index;
+		index = (k + 1) % records.length;
+		return k;
+	}
+
+	@Benchmark
+	public DDF_MessageType messageTypeTable() {
+		final int k = next();
+		return DDF_MessageType.fromPair(records[k], subRecords[k]);
+	}
+
+	@Benchmark
+	public DDF_MessageType messageTypeSwitch() {
+		final int k = next();
+		return switchMessageType(records[k], subRecords[k]);
+	}
+
+	@Benchmark
+	public DDF_Session sessionTable() {
+		final int k = next();
+		return DDF_Session.fromPair(exchOrds[k], sessCodes[k]);
+	}
+
+	@Benchmark
+	public DDF_Session sessionScan() {
+		final int k = next();
+		return scanSession(exchOrds[k], sessCodes[k]);
+	}
+
+	@Benchmark
+	public DDF_Fraction fractionTable() {
+		final int k = next();
+		return DDF_Fraction.fromBaseCode(baseCodes[k]);
+	}
+
+	@Benchmark
+	public DDF_Fraction fractionScan() {
+		final int k = next();
+		return scanFraction(baseCodes[k]);
+	}
+
+	@Benchmark
+	public DDF_Exchange exchangeTable() {
+		final int k = next();
+		return DDF_Exchange.fromCode(exchCodes[k]);
+	}
+
+	@Benchmark
+	public DDF_Exchange exchangeScan() {
+		final int k = next();
+		return scanExchange(exchCodes[k]);
+	}
+
+	//
+
+	private static final DDF_Session[] SESSIONS = DDF_Session.values();
+	private static final DDF_Fraction[] FRACTIONS = DDF_Fraction.values();
+	private static final DDF_Exchange[] EXCHANGES = DDF_Exchange.values();
+
+	static DDF_Session scanSession(final byte exchOrd, final byte sessCode) {
+		for (final DDF_Session known : SESSIONS) {
+			if (known.code == sessCode) {
+				if (known.code == _G_) {
+					final DDF_Exchange exch = DDF_Exchange.fromOrd(exchOrd);
+					if (exch.kind == DDF_ExchangeKind.FUTURE) {
+						return DDF_Session.$_G_NET;
+					} else {
+						return DDF_Session.$_G_COM;
+					}
+				}
+				return known;
+			}
+		}
+		return DDF_Session.UNKNOWN;
+	}
+
+	static DDF_Fraction scanFraction(final byte baseCode) {
+		for (final DDF_Fraction known : FRACTIONS) {
+			if (known.baseCode == baseCode) {
+				return known;
+			}
+		}
+		return DDF_Fraction.UNKNOWN;
+	}
+
+	static DDF_Exchange scanExchange(final byte code) {
+		for (final DDF_Exchange known : EXCHANGES) {
+			if (known.code == code) {
+				return known;
+			}
+		}
+		return DDF_Exchange.UNKNOWN;
+	}
+
+	static DDF_MessageType switchMessageType(final byte record,
+			final byte subRecord) {
+		switch (record) {
+			case _2_:
+				switch (subRecord) {
+					case _0_:
+						return DDF_MessageType.PARAM;
+					case _1_:
+						return DDF_MessageType.SNAP_FORE_EXCH;
+					case _2_:
+						return DDF_MessageType.SNAP_FORE_PLUS;
+					case _3_:
+						return DDF_MessageType.SNAP_BACK_PLUS_CURR;
+					case _4_:
+						return DDF_MessageType.SNAP_BACK_PLUS_PREV;
+					case _5_:
+						return DDF_MessageType.DDF_25;
+					case _6_:
+						return DDF_MessageType.SNAP_FORE_PLUS_QUOTE;
+					case _7_:
+						return DDF_MessageType.TRADE;
+					case _Z_:
+						return DDF_MessageType.TRADE_VOL;
+					case _8_:
+						return DDF_MessageType.BOOK_TOP;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			case _3_:
+				switch (subRecord) {
+					case _B_:
+						return DDF_MessageType.BOOK_SNAP;
+					case _S_:
+						return DDF_MessageType.EOD_EQTY_FORE;
+					case _C_:
+						return DDF_MessageType.EOD_CMDY;
+					case _I_:
+						return DDF_MessageType.PRIOR_INDIV_CMDY;
+					case _R_:
+						return DDF_MessageType.EOD_CMDY_SPREAD;
+					case _T_:
+						return DDF_MessageType.PRIOR_TOTAL_CMDY;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			case FeedDDF.DDF_TIMESTAMP:
+				switch (subRecord) {
+					case NUL:
+						return DDF_MessageType.TIME_STAMP;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			case FeedDDF.XML_RECORD:
+				switch (subRecord) {
+					case FeedDDF.XML_SUB_BOOK:
+						return DDF_MessageType.BOOK_SNAP_XML;
+					case FeedDDF.XML_SUB_CUVOL:
+						return DDF_MessageType.CUVOL_SNAP_XML;
+					case FeedDDF.XML_SUB_QUOTE:
+						return DDF_MessageType.QUOTE_SNAP_XML;
+					case FeedDDF.XML_SUB_SESSION:
+						return DDF_MessageType.SESSION_SNAP_XML;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			case FeedDDF.TCP_ACCEPT:
+				switch (subRecord) {
+					case NUL:
+						return DDF_MessageType.TCP_ACCEPT;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			case FeedDDF.TCP_REJECT:
+				switch (subRecord) {
+					case NUL:
+						return DDF_MessageType.TCP_REJECT;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			case FeedDDF.TCP_COMMAND:
+				switch (subRecord) {
+					case NUL:
+						return DDF_MessageType.TCP_COMMAND;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			case FeedDDF.TCP_WELCOME:
+				switch (subRecord) {
+					case NUL:
+						return DDF_MessageType.TCP_WELCOME;
+					default:
+						return DDF_MessageType.UNKNOWN;
+				}
+			default:
+				return DDF_MessageType.UNKNOWN;
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+
+/**
+ * {@link DDF_MessageService#decode(ByteBuffer)} per message type, and over
+ * recorded feed frames; one frame per operation.
+ * <p>
+ * "instrument" variants also resolve message instrument, as market update
+ * path does right after decode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+	@Param({ "20", "21", "27", "28", "3B", "XQ", "XC", "XB", "recorded" })
+	public String type;
+
+	ByteBuffer[] frames;
+
+	int index;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+
+		FeedSamples.offline();
+
+		final List<byte[]> list;
+
+		if ("recorded".equals(type)) {
+			list = FeedSamples.recorded();
+		} else {
+			list = Collections.singletonList(FeedSamples.message(type));
+		}
+
+		frames = new ByteBuffer[list.size()];
+
+		for (int k = 0; k < frames.length; k++) {
+			frames[k] = ByteBuffer.wrap(list.get(k));
+		}
+
+		/* prime symbol contexts and instrument stubs */
+		for (int k = 0; k < frames.length; k++) {
+			instrument();
+		}
+
+	}
+
+	/** next frame in feed order, wraps around */
+	private ByteBuffer next() {
+		final ByteBuffer frame = frames[index];
+		index = (index + 1) % frames.length;
+		frame.rewind();
+		return frame;
+	}
+
+	@Benchmark
+	public DDF_BaseMessage decode() throws Exception {
+		return DDF_MessageService.decode(next());
+	}
+
+	@Benchmark
+	public Object instrument() throws Exception {
+		final DDF_BaseMessage message = DDF_MessageService.decode(next());
+		if (message instanceof DDF_MarketBase) {
+			return ((DDF_MarketBase) message).getInstrument();
+		}
+		return message;
+	}
+
+}
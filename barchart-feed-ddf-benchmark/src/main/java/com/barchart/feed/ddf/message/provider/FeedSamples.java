@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.barchart.feed.ddf.instrument.provider.DDF_RxInstrumentProvider;
+import com.barchart.feed.ddf.util.FeedDDF;
+
+/**
+ * shared benchmark input: single message samples by type, and recorded feed
+ * frames; all frames are complete wire frames as passed upstream by the
+ * deframer, without line terminator.
+ */
+public final class FeedSamples {
+
+	/** one sample per line : type, tab, frame */
+	static final String MESSAGES = "/messages.txt";
+
+	/** KCH5 feed log, 2015-02-24, text stamps */
+	static final String RECORDED = "/KCH5-20150224.ddf";
+
+	static final DateTimeFormatter FORMAT = DateTimeFormat.forPattern(
+			"yyyyMMddHHmmssSSS").withZone(DateTimeZone.forID("America/Chicago"));
+
+	private FeedSamples() {
+	}
+
+	/**
+	 * instruments are resolved from cache and stubs only; benchmarks must
+	 * not depend on remote lookup
+	 */
+	public static void offline() {
+		DDF_RxInstrumentProvider.setOffline(true);
+	}
+
+	/**
+	 * @return frames keyed by type : 20, 21, 27, 28, 3B, XQ, XC, XB
+	 */
+	public static Map<String, byte[]> messages() throws IOException {
+
+		final Map<String, byte[]> map = new LinkedHashMap<String, byte[]>();
+
+		for (final byte[] line : lines(MESSAGES)) {
+
+			final int tab = indexOf(line, (byte) '\t', 0);
+
+			final byte[] frame = new byte[line.length - tab - 1];
+			System.arraycopy(line, tab + 1, frame, 0, frame.length);
+
+			map.put(new String(line, 0, tab, "US-ASCII"), frame);
+
+		}
+
+		return map;
+
+	}
+
+	/**
+	 * @return single sample frame of given type
+	 */
+	public static byte[] message(final String type) throws IOException {
+
+		final byte[] frame = messages().get(type);
+
+		if (frame == null) {
+			throw new IllegalArgumentException("unknown sample : " + type);
+		}
+
+		return frame;
+
+	}
+
+	/**
+	 * @return recorded frames in feed order; log text stamps are replaced by
+	 *         binary feed stamps
+	 */
+	public static List<byte[]> recorded() throws IOException {
+
+		final List<byte[]> list = new ArrayList<byte[]>();
+
+		final ByteBuffer stamp = ByteBuffer.allocate(9);
+
+		for (final byte[] line : lines(RECORDED)) {
+
+			final int finish = indexOf(line, (byte) FeedDDF.DDF_FINISH, 0);
+
+			if (line.length == 0 || line[0] != FeedDDF.DDF_START || finish < 0) {
+				continue;
+			}
+
+			final String text = new String(line, finish + 1, line.length
+					- finish - 1, "US-ASCII").trim();
+
+			stamp.clear();
+			CodecHelper.encodeTimeStamp(FORMAT.parseDateTime(text), stamp);
+
+			final byte[] frame = new byte[finish + 1 + 9];
+			System.arraycopy(line, 0, frame, 0, finish + 1);
+			System.arraycopy(stamp.array(), 0, frame, finish + 1, 9);
+
+			list.add(frame);
+
+		}
+
+		return list;
+
+	}
+
+	/**
+	 * @return frames joined into a feed stream, each followed by line feed,
+	 *         repeated until stream has at least given size
+	 */
+	public static byte[] stream(final List<byte[]> frames, final int size) {
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+
+		while (output.size() < size) {
+			for (final byte[] frame : frames) {
+				output.write(frame, 0, frame.length);
+				output.write(FeedDDF.DDF_TERMINATE);
+			}
+		}
+
+		return output.toByteArray();
+
+	}
+
+	static int indexOf(final byte[] array, final byte value, final int start) {
+		for (int k = start; k < array.length; k++) {
+			if (array[k] == value) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	/** resource lines, without line terminator */
+	static List<byte[]> lines(final String resource) throws IOException {
+
+		final InputStream input = FeedSamples.class
+				.getResourceAsStream(resource);
+
+		if (input == null) {
+			throw new IOException("missing resource : " + resource);
+		}
+
+		final List<byte[]> lines = new ArrayList<byte[]>();
+
+		try {
+
+			final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+			int next;
+
+			while ((next = input.read()) != -1) {
+				if (next == '\n') {
+					lines.add(line.toByteArray());
+					line.reset();
+				} else if (next != '\r') {
+					line.write(next);
+				}
+			}
+
+			if (line.size() > 0) {
+				lines.add(line.toByteArray());
+			}
+
+		} finally {
+			input.close();
+		}
+
+		return lines;
+
+	}
+
+}
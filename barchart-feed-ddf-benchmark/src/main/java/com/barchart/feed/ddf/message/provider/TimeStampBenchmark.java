@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ddf time stamp decode / encode over recorded feed stamps;
+ *
+ * joda path is previous {@link CodecHelper} implementation, codec path is
+ * {@link TimeStampCodec}; run with "-prof gc" to see allocation per op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeStampBenchmark {
+
+	static final String STAMPS = "/stamps-20140110-week.txt";
+
+	static final DateTimeFormatter FORMAT = DateTimeFormat
+			.forPattern("yyyyMMddHHmmssSSS");
+
+	@Param({ "America/Chicago", "America/New_York", "UTC" })
+	public String zoneId;
+
+	DateTimeZone zone;
+
+	TimeStampCodec codec;
+
+	/** encoded stamps, 9 bytes each, in feed order */
+	ByteBuffer encoded;
+
+	/** utc millis of same stamps */
+	long[] millis;
+
+	ByteBuffer target;
+
+	int index;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+
+		zone = DateTimeZone.forID(zoneId);
+		codec = TimeStampCodec.of(zone);
+
+		final List<String> lines = load();
+
+		encoded = ByteBuffer.allocate(9 * lines.size());
+		millis = new long[lines.size()];
+
+		final DateTimeFormatter format = FORMAT.withZone(zone);
+
+		for (int k = 0; k < lines.size(); k++) {
+			final DateTime stamp = format.parseDateTime(lines.get(k));
+			millis[k] = stamp.getMillis();
+			CodecHelper.encodeTimeStamp(stamp, encoded);
+		}
+
+		target = ByteBuffer.allocate(9);
+
+	}
+
+	static List<String> load() throws Exception {
+
+		final InputStream input = TimeStampBenchmark.class
+				.getResourceAsStream(STAMPS);
+
+		final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(input, "US-ASCII"));
+
+		final List<String> lines = new ArrayList<String>();
+
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() > 0) {
+					lines.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return lines;
+
+	}
+
+	/** next stamp position in feed order, wraps around */
+	private int next() {
+		final int k = index;
+		index = (k + 1) % millis.length;
+		return k;
+	}
+
+	@Benchmark
+	public long decodeJoda() {
+		final int k = next();
+		encoded.position(9 * k);
+		return CodecHelper.decodeTimeStamp(zone, encoded).getMillis();
+	}
+
+	@Benchmark
+	public long decodeCodec() {
+		final int k = next();
+		encoded.position(9 * k);
+		return codec.decode(encoded);
+	}
+
+	@Benchmark
+	public ByteBuffer encodeJoda() {
+		final int k = next();
+		target.clear();
+		CodecHelper.encodeTimeStamp(new DateTime(millis[k], zone), target);
+		return target;
+	}
+
+	@Benchmark
+	public ByteBuffer encodeCodec() {
+		final int k = next();
+		target.clear();
+		codec.encode(millis[k], target);
+		return target;
+	}
+
+}
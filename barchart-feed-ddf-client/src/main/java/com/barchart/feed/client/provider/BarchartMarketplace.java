@@ -40,6 +40,7 @@ import com.barchart.feed.ddf.datalink.provider.DDF_FeedClientFactory;
 import com.barchart.feed.ddf.datalink.provider.DDF_SubscriptionHandler;
 import com.barchart.feed.ddf.instrument.provider.DDF_MetadataServiceWrapper;
 import com.barchart.feed.ddf.market.provider.DDF_Marketplace;
+import com.barchart.feed.ddf.market.provider.ShardedMakerDDF;
 import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
 import com.barchart.feed.ddf.message.api.DDF_ControlTimestamp;
 import com.barchart.feed.ddf.message.api.DDF_MarketBase;
@@ -60,6 +61,8 @@ public class BarchartMarketplace implements Marketplace {
 
 	protected volatile FeedClient connection;
 	protected volatile DDF_Marketplace maker;
+	/* null unless market updates are sharded */
+	protected volatile ShardedMakerDDF sharded;
 	private final ExecutorService executor;
 	private final SubscriptionHandler subHandler;
 
@@ -69,6 +72,13 @@ public class BarchartMarketplace implements Marketplace {
 	private final CopyOnWriteArrayList<TimestampListener> timeStampListeners =
 			new CopyOnWriteArrayList<TimestampListener>();
 
+	/* agent callback conflation, see ConflatingObserver */
+	private volatile boolean isConflating = false;
+	private volatile boolean isConflatingTrades = false;
+
+	private final CopyOnWriteArrayList<ConflatingObserver<?>> conflaters =
+			new CopyOnWriteArrayList<ConflatingObserver<?>>();
+
 	public BarchartMarketplace(final String username, final String password) {
 		this(username, password, getDefault(), FeedType.CONNECTION, Collections.<Integer> emptyList());
 	}
@@ -79,6 +89,21 @@ public class BarchartMarketplace implements Marketplace {
 			final ExecutorService ex,
 			final FeedType type,
 			final List<Integer> port) {
+		this(username, password, ex, type, port, 0);
+	}
+
+	/**
+	 * @param shards
+	 *            number of market update threads; 0 updates markets on the
+	 *            feed message thread
+	 */
+	protected BarchartMarketplace(
+			final String username, 
+			final String password,
+			final ExecutorService ex,
+			final FeedType type,
+			final List<Integer> port,
+			final int shards) {
 
 		executor = ex;
 
@@ -104,6 +129,10 @@ public class BarchartMarketplace implements Marketplace {
 
 		maker = DDF_Marketplace.newInstance(subHandler);
 
+		if (shards > 0) {
+			sharded = maker.newShardedMaker(shards, executor);
+		}
+
 	}
 
 	public static Builder builder() {
@@ -119,6 +148,9 @@ public class BarchartMarketplace implements Marketplace {
 		private String password = "NULL PASSWORD";
 		private FeedType feedType = FeedType.NULL;
 		private List<Integer> ports = new ArrayList<Integer>();
+		private int shards = 0;
+		private boolean conflate = false;
+		private boolean conflateTrades = false;
 
 		private ExecutorService executor = getDefault();
 
@@ -150,8 +182,39 @@ public class BarchartMarketplace implements Marketplace {
 			return this;
 		}
 
+		/**
+		 * Spread market updates by instrument over this many threads; per
+		 * instrument order is kept. Default 0 updates markets on the feed
+		 * message thread.
+		 */
+		public Builder shards(final int shards) {
+			this.shards = shards;
+			return this;
+		}
+
+		/**
+		 * Agents from {@link BarchartMarketplace#newAgent} get only the newest
+		 * update per instrument when their callback falls behind; trades
+		 * stay un-conflated unless {@link #conflateTrades(boolean)} is set.
+		 */
+		public Builder conflate(final boolean conflate) {
+			this.conflate = conflate;
+			return this;
+		}
+
+		/**
+		 * Conflate trade agents as well; ignored unless conflating.
+		 */
+		public Builder conflateTrades(final boolean conflateTrades) {
+			this.conflateTrades = conflateTrades;
+			return this;
+		}
+
 		public Marketplace build() {
-			return new BarchartMarketplace(username, password, executor, feedType, ports);
+			final BarchartMarketplace marketplace = new BarchartMarketplace(
+					username, password, executor, feedType, ports, shards);
+			marketplace.setConflation(conflate, conflateTrades);
+			return marketplace;
 		}
 
 	}
@@ -226,6 +289,14 @@ public class BarchartMarketplace implements Marketplace {
 
 				log.debug("Startup Runnable starting");
 
+				if (sharded != null) {
+					sharded.startup();
+				}
+
+				for (final ConflatingObserver<?> conflater : conflaters) {
+					conflater.startup();
+				}
+
 				connection.startup();
 
 			} catch (final Throwable t) {
@@ -269,10 +340,19 @@ public class BarchartMarketplace implements Marketplace {
 
 			try {
 
+				/* stop shard writers before clearing their markets */
+				if (sharded != null) {
+					sharded.shutdown();
+				}
+
 				if (maker != null) {
 					maker.clearAll();
 				}
 
+				for (final ConflatingObserver<?> conflater : conflaters) {
+					conflater.shutdown();
+				}
+
 				// dbUpdater.cancel(true);
 
 				connection.shutdown();
@@ -315,13 +395,26 @@ public class BarchartMarketplace implements Marketplace {
 
 			if (message instanceof DDF_MarketBase) {
 				final DDF_MarketBase marketMessage = (DDF_MarketBase) message;
-				maker.make(marketMessage);
+				final ShardedMakerDDF sharded = BarchartMarketplace.this.sharded;
+				if (sharded != null) {
+					sharded.make(marketMessage);
+				} else {
+					maker.make(marketMessage);
+				}
 			}
 
 		}
 
 	};
 
+	/**
+	 * Market update shards, for queue depth and imbalance metrics; null
+	 * unless built with {@link Builder#shards(int)}.
+	 */
+	public ShardedMakerDDF sharded() {
+		return sharded;
+	}
+
 	@Override
 	public void bindConnectionStateListener(final Connection.Monitor listener) {
 
@@ -362,10 +455,39 @@ public class BarchartMarketplace implements Marketplace {
 	public <V extends MarketData<V>> Agent newAgent(final Class<V> dataType,
 			final MarketObserver<V> callback) {
 
-		return maker.newAgent(dataType, callback);
+		if (!isConflating || (dataType == Trade.class && !isConflatingTrades)) {
+			return maker.newAgent(dataType, callback);
+		}
+
+		final ConflatingObserver<V> conflater = new ConflatingObserver<V>(callback, executor);
+
+		conflaters.add(conflater);
+		conflater.startup();
+
+		/* terminated agent releases its delivery task */
+		return conflater.bind(maker.newAgent(dataType, conflater),
+				new Runnable() {
+					@Override
+					public void run() {
+						conflaters.remove(conflater);
+					}
+				});
 
 	}
 
+	/**
+	 * Applies to agents created after this call.
+	 * 
+	 * @param conflate
+	 *            coalesce pending updates per instrument and data type
+	 * @param conflateTrades
+	 *            coalesce trades too; otherwise every trade is delivered
+	 */
+	public void setConflation(final boolean conflate, final boolean conflateTrades) {
+		isConflating = conflate;
+		isConflatingTrades = conflateTrades;
+	}
+
 	/* ***** ***** ***** Helper subscribe methods ***** ***** ***** */
 
 	@Override
@@ -0,0 +1,415 @@
+package com.barchart.feed.client.provider;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rx.Observable;
+
+import com.barchart.feed.api.Agent;
+import com.barchart.feed.api.MarketObserver;
+import com.barchart.feed.api.consumer.MetadataService.Result;
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.data.Market;
+import com.barchart.feed.api.model.data.MarketData;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.api.model.meta.Metadata;
+import com.barchart.feed.api.model.meta.id.MetadataID;
+import com.barchart.feed.ddf.datalink.provider.util.RunnerDDF;
+
+/**
+ * Decouples an agent callback from market update threads and coalesces
+ * updates per instrument while the callback is busy.
+ * <p>
+ * Market threads only replace the pending snapshot of an instrument; the
+ * delivery task hands the newest snapshot to the callback, once per
+ * instrument, in the order instruments became pending. Snapshots are frozen,
+ * so intermediate values are simply dropped. Callbacks implementing
+ * {@link ChangeObserver} also get the union of the change sets of all
+ * snapshots replaced by the delivered one.
+ * <p>
+ * Delivery runs between {@link #startup()} and {@link #shutdown()}; use
+ * {@link #bind} so terminating the agent also stops the observer.
+ */
+public class ConflatingObserver<V extends MarketData<V>> implements
+		MarketObserver<V> {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(ConflatingObserver.class);
+
+	/**
+	 * Conflation aware callback.
+	 */
+	public interface ChangeObserver<V> extends MarketObserver<V> {
+
+		/**
+		 * @param value
+		 *            newest snapshot
+		 * @param change
+		 *            merged {@link Market.Component} or {@link Book.Component}
+		 *            change set; empty for other data types
+		 * @param count
+		 *            number of updates merged into this one, at least 1
+		 */
+		void onNext(V value, Set<Enum<?>> change, int count);
+
+	}
+
+	/** per instrument slot; guarded by itself */
+	private static final class Pending<V> {
+
+		V value;
+
+		final Set<Enum<?>> change = new HashSet<Enum<?>>();
+
+		int count;
+
+		boolean isQueued;
+
+	}
+
+	private static final Object NO_INSTRUMENT = new Object();
+
+	private final MarketObserver<V> callback;
+
+	private final ChangeObserver<V> changeCallback;
+
+	private final ConcurrentMap<Object, Pending<V>> pendingMap =
+			new ConcurrentHashMap<Object, Pending<V>>();
+
+	/** instruments with pending update, each queued at most once */
+	private final BlockingQueue<Pending<V>> queue =
+			new LinkedBlockingQueue<Pending<V>>();
+
+	private final Executor executor;
+
+	private final AtomicLong received = new AtomicLong();
+
+	private final AtomicLong delivered = new AtomicLong();
+
+	private volatile boolean isRunning;
+
+	/** bumped on every start and stop; delivery of older ones exits */
+	private volatile int generation;
+
+	/* current delivery task; null when stopped */
+	private Delivery delivery;
+
+	/* held by delivery task, so callbacks never overlap across restarts */
+	private final Object deliveryLock = new Object();
+
+	/**
+	 * @param executor
+	 *            runs delivery task; one long lived task per observer
+	 */
+	@SuppressWarnings("unchecked")
+	public ConflatingObserver(final MarketObserver<V> callback,
+			final Executor executor) {
+
+		if (callback == null) {
+			throw new NullPointerException("callback");
+		}
+
+		this.callback = callback;
+		this.executor = executor;
+
+		if (callback instanceof ChangeObserver) {
+			changeCallback = (ChangeObserver<V>) callback;
+		} else {
+			changeCallback = null;
+		}
+
+	}
+
+	/**
+	 * Delivers for one start; exits once stopped, even when stop came before
+	 * executor ran it.
+	 */
+	private final class Delivery extends RunnerDDF {
+
+		final int started;
+
+		final Set<Enum<?>> change = new HashSet<Enum<?>>();
+
+		Delivery(final int started) {
+			this.started = started;
+		}
+
+		@Override
+		protected void runCore() {
+
+			/* delivery of previous start may still finish a callback */
+			synchronized (deliveryLock) {
+				deliver();
+			}
+
+			log.debug("conflating delivery terminated");
+
+		}
+
+		private void deliver() {
+
+			while (generation == started) {
+
+				final Pending<V> pending;
+
+				try {
+					pending = queue.take();
+				} catch (final InterruptedException e) {
+					return;
+				}
+
+				final V value;
+				final int count;
+
+				synchronized (pending) {
+					value = pending.value;
+					count = pending.count;
+					change.clear();
+					change.addAll(pending.change);
+					pending.value = null;
+					pending.change.clear();
+					pending.count = 0;
+					pending.isQueued = false;
+				}
+
+				if (value == null) {
+					continue;
+				}
+
+				try {
+					if (changeCallback != null) {
+						changeCallback.onNext(value, change, count);
+					} else {
+						callback.onNext(value);
+					}
+				} catch (final Throwable e) {
+					log.error("conflated callback failed", e);
+				}
+
+				delivered.incrementAndGet();
+
+			}
+
+		}
+
+	}
+
+	public synchronized void startup() {
+
+		if (isRunning) {
+			return;
+		}
+
+		isRunning = true;
+
+		delivery = new Delivery(++generation);
+
+		executor.execute(delivery);
+
+	}
+
+	/**
+	 * Stops delivery; pending updates are discarded, and so are updates
+	 * received until next start.
+	 */
+	public synchronized void shutdown() {
+
+		isRunning = false;
+
+		/* before interrupt; delivery not yet running sees it on start */
+		generation++;
+
+		if (delivery != null) {
+			delivery.interrupt();
+			delivery = null;
+		}
+
+		queue.clear();
+		pendingMap.clear();
+
+	}
+
+	/**
+	 * Agent view which passes every call to given agent, and on
+	 * {@link Agent#terminate()} also stops this observer and runs the
+	 * release action, such as removal from owner registry.
+	 */
+	public Agent bind(final Agent agent, final Runnable release) {
+		return new BoundAgent(agent, release);
+	}
+
+	/**
+	 * Delegates every call; terminate also stops observer and runs release.
+	 */
+	@SuppressWarnings("deprecation")
+	private final class BoundAgent implements Agent {
+
+		private final Agent agent;
+
+		private final Runnable release;
+
+		BoundAgent(final Agent agent, final Runnable release) {
+			this.agent = agent;
+			this.release = release;
+		}
+
+		@Override
+		public State state() {
+			return agent.state();
+		}
+
+		@Override
+		public boolean isActive() {
+			return agent.isActive();
+		}
+
+		@Override
+		public void activate() {
+			agent.activate();
+		}
+
+		@Override
+		public void deactivate() {
+			agent.deactivate();
+		}
+
+		@Override
+		public void terminate() {
+
+			agent.terminate();
+
+			shutdown();
+
+			if (release != null) {
+				release.run();
+			}
+
+		}
+
+		@Override
+		public Observable<Result<Instrument>> include(final String... symbols) {
+			return agent.include(symbols);
+		}
+
+		@Override
+		public void include(final Metadata... metadata) {
+			agent.include(metadata);
+		}
+
+		@Override
+		public void include(final MetadataID<?>... metaIDs) {
+			agent.include(metaIDs);
+		}
+
+		@Override
+		public Observable<Result<Instrument>> exclude(final String... symbols) {
+			return agent.exclude(symbols);
+		}
+
+		@Override
+		public void exclude(final Metadata... metadata) {
+			agent.exclude(metadata);
+		}
+
+		@Override
+		public void exclude(final MetadataID<?>... metaIDs) {
+			agent.exclude(metaIDs);
+		}
+
+		@Override
+		public void clear() {
+			agent.clear();
+		}
+
+		@Override
+		public String toString() {
+			return agent.toString();
+		}
+
+	}
+
+	/** called on market update threads; dropped while not running */
+	@Override
+	public void onNext(final V value) {
+
+		if (!isRunning) {
+			return;
+		}
+
+		received.incrementAndGet();
+
+		final Object key = keyOf(value);
+
+		Pending<V> pending = pendingMap.get(key);
+
+		if (pending == null) {
+			pending = new Pending<V>();
+			final Pending<V> existing = pendingMap.putIfAbsent(key, pending);
+			if (existing != null) {
+				pending = existing;
+			}
+		}
+
+		synchronized (pending) {
+
+			pending.value = value;
+			pending.count++;
+			merge(pending.change, value);
+
+			if (!pending.isQueued) {
+				pending.isQueued = true;
+				queue.offer(pending);
+			}
+
+		}
+
+	}
+
+	static Object keyOf(final MarketData<?> value) {
+		final Instrument instrument = value.instrument();
+		if (instrument == null) {
+			return NO_INSTRUMENT;
+		}
+		return instrument.id();
+	}
+
+	static void merge(final Set<Enum<?>> target, final Object value) {
+		if (value instanceof Market) {
+			target.addAll(((Market) value).change());
+		} else if (value instanceof Book) {
+			target.addAll(((Book) value).change());
+		}
+	}
+
+	/**
+	 * Updates received from market threads.
+	 */
+	public long received() {
+		return received.get();
+	}
+
+	/**
+	 * Updates handed to callback; received minus delivered were conflated
+	 * or are still pending.
+	 */
+	public long delivered() {
+		return delivered.get();
+	}
+
+	/**
+	 * Instruments with pending update.
+	 */
+	public int backlog() {
+		return queue.size();
+	}
+
+}
@@ -0,0 +1,294 @@
+package com.barchart.feed.client.provider;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import rx.Observable;
+
+import com.barchart.feed.api.Agent;
+import com.barchart.feed.api.consumer.MetadataService.Result;
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.api.model.meta.Metadata;
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.api.model.meta.id.MetadataID;
+import com.barchart.feed.base.book.api.MarketBookEntry;
+import com.barchart.feed.base.provider.DefBook;
+import com.barchart.feed.base.provider.MarketConst;
+import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.ddf.instrument.provider.DDF_Instrument;
+
+public class TestConflatingObserver {
+
+	static final Instrument ONE = new DDF_Instrument(new InstrumentID(1));
+
+	static final Instrument TWO = new DDF_Instrument(new InstrumentID(2));
+
+	/** empty book snapshot of instrument */
+	static Book book(final Instrument instrument) {
+		final MarketBookEntry[] none = { MarketBookEntry.NULL };
+		return new DefBook(instrument, ValueBuilder.newTime(0), none, none,
+				MarketBookEntry.NULL, MarketBookEntry.NULL,
+				MarketConst.NULL_BOOK_ENTRY,
+				EnumSet.noneOf(Book.Component.class));
+	}
+
+	/** records lifecycle calls */
+	@SuppressWarnings("deprecation")
+	static class RecordingAgent implements Agent {
+
+		final List<String> calls = new ArrayList<String>();
+
+		@Override
+		public State state() {
+			return null;
+		}
+
+		@Override
+		public boolean isActive() {
+			return calls.contains("activate");
+		}
+
+		@Override
+		public void activate() {
+			calls.add("activate");
+		}
+
+		@Override
+		public void deactivate() {
+			calls.add("deactivate");
+		}
+
+		@Override
+		public void terminate() {
+			calls.add("terminate");
+		}
+
+		@Override
+		public Observable<Result<Instrument>> include(final String... symbols) {
+			return null;
+		}
+
+		@Override
+		public void include(final Metadata... metadata) {
+		}
+
+		@Override
+		public void include(final MetadataID<?>... metaIDs) {
+		}
+
+		@Override
+		public Observable<Result<Instrument>> exclude(final String... symbols) {
+			return null;
+		}
+
+		@Override
+		public void exclude(final Metadata... metadata) {
+		}
+
+		@Override
+		public void exclude(final MetadataID<?>... metaIDs) {
+		}
+
+		@Override
+		public void clear() {
+		}
+
+	}
+
+	/** runs each task on own thread, kept for join */
+	static class Threads implements Executor {
+
+		final List<Thread> threads = new ArrayList<Thread>();
+
+		@Override
+		public void execute(final Runnable task) {
+			final Thread thread = new Thread(task);
+			threads.add(thread);
+			thread.start();
+		}
+
+		void join() throws InterruptedException {
+			for (final Thread thread : threads) {
+				thread.join(5000);
+				assertFalse(thread.isAlive());
+			}
+		}
+
+	}
+
+	/** records deliveries; first one blocks until released */
+	static class Recorder implements ConflatingObserver.ChangeObserver<Book> {
+
+		final List<Book> values = new CopyOnWriteArrayList<Book>();
+
+		final List<Integer> counts = new CopyOnWriteArrayList<Integer>();
+
+		final CountDownLatch entered = new CountDownLatch(1);
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void onNext(final Book value) {
+			onNext(value, null, 1);
+		}
+
+		@Override
+		public void onNext(final Book value, final Set<Enum<?>> change,
+				final int count) {
+			values.add(value);
+			counts.add(count);
+			entered.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+	final Threads executor = new Threads();
+
+	@After
+	public void tearDown() throws Exception {
+		executor.join();
+	}
+
+	static void await(final ConflatingObserver<?> observer, final long count)
+			throws InterruptedException {
+		final long finish = System.currentTimeMillis() + 5000;
+		while (observer.delivered() < count) {
+			assertTrue(System.currentTimeMillis() < finish);
+			Thread.sleep(1);
+		}
+	}
+
+	/** updates arriving while callback is busy merge per instrument */
+	@Test
+	public void testCoalescing() throws Exception {
+
+		final Recorder recorder = new Recorder();
+		final ConflatingObserver<Book> observer = new ConflatingObserver<Book>(
+				recorder, executor);
+
+		observer.startup();
+
+		final Book first = book(ONE);
+		observer.onNext(first);
+
+		assertTrue(recorder.entered.await(5, TimeUnit.SECONDS));
+
+		observer.onNext(book(ONE));
+		observer.onNext(book(TWO));
+		final Book last = book(ONE);
+		observer.onNext(last);
+		final Book other = book(TWO);
+		observer.onNext(other);
+
+		assertEquals(2, observer.backlog());
+
+		recorder.release.countDown();
+
+		await(observer, 3);
+
+		assertEquals(5, observer.received());
+		assertEquals(3, observer.delivered());
+
+		/* instrument order as first became pending, newest value of each */
+		assertSame(first, recorder.values.get(0));
+		assertSame(last, recorder.values.get(1));
+		assertSame(other, recorder.values.get(2));
+
+		assertEquals(1, recorder.counts.get(0).intValue());
+		assertEquals(2, recorder.counts.get(1).intValue());
+		assertEquals(2, recorder.counts.get(2).intValue());
+
+		observer.shutdown();
+
+	}
+
+	/** shutdown before executor ran the delivery task; it must not hang */
+	@Test(timeout = 5000)
+	public void testShutdownBeforeStart() throws Exception {
+
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+
+		final ConflatingObserver<Book> observer = new ConflatingObserver<Book>(
+				new Recorder(), new Executor() {
+					@Override
+					public void execute(final Runnable task) {
+						tasks.add(task);
+					}
+				});
+
+		observer.startup();
+		observer.shutdown();
+
+		assertEquals(1, tasks.size());
+
+		tasks.get(0).run();
+
+	}
+
+	@Test
+	public void testTerminate() throws Exception {
+
+		final Recorder recorder = new Recorder();
+		recorder.release.countDown();
+
+		final ConflatingObserver<Book> observer = new ConflatingObserver<Book>(
+				recorder, executor);
+
+		final RecordingAgent agent = new RecordingAgent();
+		final List<String> calls = agent.calls;
+
+		final CountDownLatch released = new CountDownLatch(1);
+
+		final Agent bound = observer.bind(agent, new Runnable() {
+			@Override
+			public void run() {
+				released.countDown();
+			}
+		});
+
+		observer.startup();
+
+		bound.activate();
+		assertEquals("activate", calls.get(0));
+		assertTrue(bound.isActive());
+
+		/* plain delegate, equal to itself only */
+		assertFalse(bound.equals(agent));
+		assertFalse(agent.equals(bound));
+
+		observer.onNext(book(ONE));
+		await(observer, 1);
+
+		bound.terminate();
+
+		assertEquals("terminate", calls.get(1));
+		assertEquals(0, released.getCount());
+
+		/* delivery thread exits */
+		executor.join();
+
+		observer.onNext(book(ONE));
+
+		assertEquals(1, observer.received());
+		assertEquals(0, observer.backlog());
+
+	}
+
+}
@@ -15,6 +15,8 @@ import org.slf4j.LoggerFactory;
 
 import com.barchart.feed.ddf.datalink.api.FeedClient;
 import com.barchart.feed.ddf.datalink.api.FeedClient.DDF_Transport;
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
 
 /**
  * Factory class for building FeedClientDDF.
@@ -77,6 +79,27 @@ public class DDF_FeedClientFactory {
 
 	}
 
+	/**
+	 * Returns a stateful two way connection to a data source with a user
+	 * specified message hand-off.
+	 * 
+	 * @param handoff
+	 *            Hand-off between the netty io thread and the message task,
+	 *            see {@link com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF}
+	 * @return the DDF_FeedClient
+	 */
+	public static FeedClient newConnectionClient(final DDF_Transport protocol,
+			final String username, final String password,
+			final Executor executor, final boolean isMobile,
+			final HandoffDDF<DDF_BaseMessage> handoff) {
+
+		log.debug("Built new DDF_FeedClient,using to DDF_ServerType.STREAM");
+
+		return new FeedClientDDF(username, password, executor, null, isMobile,
+				handoff);
+
+	}
+
 	/**
 	 * Returns a stateless UDP listener client with a user specified executor
 	 * 
@@ -109,4 +132,36 @@ public class DDF_FeedClientFactory {
 		
 	}
 
+	/**
+	 * Returns a stateless UDP listener client with a user specified executor
+	 * and message hand-off.
+	 * 
+	 * @param handoff
+	 *            Hand-off shared by all bound ports; must support multiple
+	 *            producers
+	 */
+	public static FeedClient newUDPListenerClient(final List<Integer> ports,
+			final boolean filterBySub, final Executor executor,
+			final HandoffDDF<DDF_BaseMessage> handoff) {
+
+		return new UDPListenerClientDDF(ports, filterBySub, executor, handoff);
+
+	}
+
+	/**
+	 * Returns a stateless TCP listener client with a user specified executor
+	 * and message hand-off.
+	 * 
+	 * @param handoff
+	 *            Hand-off shared by all accepted connections; must support
+	 *            multiple producers
+	 */
+	public static FeedClient newStatelessTCPListenerClient(
+			final List<Integer> ports, final boolean filterBySub,
+			final Executor executor, final HandoffDDF<DDF_BaseMessage> handoff) {
+
+		return new TCPListenerClientDDF(ports, filterBySub, executor, handoff);
+
+	}
+
 }
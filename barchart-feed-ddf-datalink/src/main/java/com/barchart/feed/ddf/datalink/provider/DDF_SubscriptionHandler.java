@@ -1,7 +1,10 @@
 package com.barchart.feed.ddf.datalink.provider;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -25,6 +28,7 @@ import com.barchart.feed.base.sub.SubscriptionHandler;
 import com.barchart.feed.ddf.datalink.api.FeedEvent;
 import com.barchart.feed.ddf.datalink.api.FeedClient;
 import com.barchart.feed.ddf.datalink.api.FeedClient.EventPolicy;
+import com.barchart.feed.ddf.datalink.provider.util.BatchFuture;
 import com.barchart.feed.ddf.datalink.provider.util.DummyFuture;
 
 public class DDF_SubscriptionHandler implements SubscriptionHandler {
@@ -32,6 +36,9 @@ public class DDF_SubscriptionHandler implements SubscriptionHandler {
 	private static final Logger log = LoggerFactory.getLogger(
 			DDF_SubscriptionHandler.class);
 	
+	/** JERQ command line limit, in characters, before it is split */
+	public static final int MAX_COMMAND_LENGTH = 1024;
+	
 	private final Map<MetadataID<?>, SubCommand> subscriptions = 
 			new ConcurrentHashMap<MetadataID<?>, SubCommand>();
 	
@@ -140,17 +147,13 @@ public class DDF_SubscriptionHandler implements SubscriptionHandler {
 	
 	private Future<Boolean> subInsts(final Set<SubCommand> subs) {
 		
-		/*
-		 * Creates a single JERQ command from the set, subscriptions are added individually.
-		 */
-		final StringBuffer sb = new StringBuffer();
-		sb.append("GO ");
+		/* Subscriptions are added individually */
+		final List<MetadataID<?>> ids = new ArrayList<MetadataID<?>>();
 		for (final SubCommand sub : subs) {
 
 			if (sub != null) {
 				
 				final MetadataID<?> id = sub.interestID();
-				final String symbol = JERQsymbol(id);
 				
 				/* If we're subscribed already, add new interests, otherwise add new subscription */
 				if(subscriptions.containsKey(id)) {
@@ -159,17 +162,35 @@ public class DDF_SubscriptionHandler implements SubscriptionHandler {
 					subscriptions.put(id, new DDF_Subscription(sub, Metadata.MetaType.INSTRUMENT));
 				}
 				
-				sb.append(symbol);
-				sb.append("=");
-				sb.append(subscriptions.get(id).typeString() + ",");
+				ids.add(id);
 			}
 		}
 		
+		/* Everything is requested again on login */
 		if (!isConnected.get()) {
 			return new DummyFuture();
 		}
 		
-		return feed.write(sb.toString());
+		/*
+		 * Creates JERQ commands from the set, each within line limit, written
+		 * without waiting for previous ones.
+		 */
+		final Map<MetadataID<?>, String> symbols = JERQsymbols(ids);
+		final CommandBatch batch = new CommandBatch(feed, "GO ");
+		
+		for (final MetadataID<?> id : ids) {
+			
+			final SubCommand sub = subscriptions.get(id);
+			final String symbol = symbols.get(id);
+			
+			if (sub == null || symbol == null) {
+				continue;
+			}
+			
+			batch.add(symbol + "=" + sub.typeString() + ",");
+		}
+		
+		return batch.finish();
 		
 	}
 	
@@ -250,20 +271,15 @@ public class DDF_SubscriptionHandler implements SubscriptionHandler {
 
 	private Future<Boolean> unsubInsts(final Set<SubCommand> subs) {
 		
-		/*
-		 * Creates a single JERQ command from the set. Subscriptions are removed
-		 * individually.
-		 */
-		final StringBuffer sb = new StringBuffer();
-		sb.append("STOP ");
+		/* Subscriptions are removed individually */
+		final List<MetadataID<?>> ids = new ArrayList<MetadataID<?>>();
 		for (final SubCommand sub : subs) {
 
 			if (sub != null) {
 				final MetadataID<?> id = sub.interestID();
-				final String symbol = JERQsymbol(id);
 				
 				subscriptions.remove(id);
-				sb.append(symbol + ",");
+				ids.add(id);
 			}
 		}
 		
@@ -271,7 +287,19 @@ public class DDF_SubscriptionHandler implements SubscriptionHandler {
 			return new DummyFuture();
 		}
 		
-		return feed.write(sb.toString());
+		final Map<MetadataID<?>, String> symbols = JERQsymbols(ids);
+		final CommandBatch batch = new CommandBatch(feed, "STOP ");
+		
+		for (final MetadataID<?> id : ids) {
+			
+			final String symbol = symbols.get(id);
+			
+			if (symbol != null) {
+				batch.add(symbol + ",");
+			}
+		}
+		
+		return batch.finish();
 	}
 	
 	private Future<Boolean> unsubExchs(final Set<SubCommand> subs) {
@@ -295,21 +323,49 @@ public class DDF_SubscriptionHandler implements SubscriptionHandler {
 		return subscribe(resubs);
 	}
 	
-	private String JERQsymbol(final MetadataID<?> id) {
+	/**
+	 * JERQ symbols of all instruments, resolved with one metadata lookup;
+	 * unknown instruments are left out.
+	 */
+	private Map<MetadataID<?>, String> JERQsymbols(final List<MetadataID<?>> ids) {
 		
-		switch(id.metaType()) {
+		final Map<MetadataID<?>, String> symbols = new HashMap<MetadataID<?>, String>();
+		final List<InstrumentID> lookup = new ArrayList<InstrumentID>();
 		
-		default:
-			return "";
-		case EXCHANGE:
-			return id.id();
-		case INSTRUMENT:
+		for (final MetadataID<?> id : ids) {
+			
+			switch(id.metaType()) {
+			
+			default:
+				break;
+			case EXCHANGE:
+				symbols.put(id, id.id());
+				break;
+			case INSTRUMENT:
+				lookup.add((InstrumentID) id);
+				break;
+			}
 			
-			final Instrument i = metaService.instrument((InstrumentID)id)
+		}
+		
+		if (lookup.isEmpty()) {
+			return symbols;
+		}
+		
+		final Map<InstrumentID, Instrument> insts = metaService
+				.instrument(lookup.toArray(new InstrumentID[lookup.size()]))
 				.toBlockingObservable()
-				.first()
-				.get(id);
-				
+				.first();
+		
+		for (final InstrumentID id : lookup) {
+			
+			final Instrument i = insts.get(id);
+			
+			if (i == null || i.isNull()) {
+				log.warn("Instrument not found for {}, not requested", id);
+				continue;
+			}
+			
 			String symbol = i.symbol();
 			if(symbol.contains("|")) {
 				symbol = i.vendorSymbols().get(VendorID.BARCHART_SHORT);
@@ -317,8 +373,65 @@ public class DDF_SubscriptionHandler implements SubscriptionHandler {
 				symbol = formatForJERQ(i.symbol());
 			}
 			
-			return symbol;
+			symbols.put(id, symbol);
+			
+		}
+		
+		return symbols;
+		
+	}
+	
+	/**
+	 * Splits a JERQ command over as many lines as needed to keep each line
+	 * within {@link #MAX_COMMAND_LENGTH}; each line is written as soon as it
+	 * is full.
+	 */
+	static final class CommandBatch {
+		
+		private final FeedClient feed;
+		
+		private final String command;
+		
+		private final StringBuilder line = new StringBuilder(MAX_COMMAND_LENGTH);
 		
+		private final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		
+		CommandBatch(final FeedClient feed, final String command) {
+			this.feed = feed;
+			this.command = command;
+			line.append(command);
+		}
+		
+		void add(final String entry) {
+			
+			if (line.length() > command.length() 
+					&& line.length() + entry.length() > MAX_COMMAND_LENGTH) {
+				flush();
+			}
+			
+			line.append(entry);
+			
+		}
+		
+		private void flush() {
+			futures.add(feed.write(line.toString()));
+			line.setLength(0);
+			line.append(command);
+		}
+		
+		/** writes last line; future of all lines written */
+		Future<Boolean> finish() {
+			
+			if (line.length() > command.length()) {
+				flush();
+			}
+			
+			if (futures.size() > 1) {
+				log.debug("Sent {} as {} lines", command.trim(), futures.size());
+			}
+			
+			return new BatchFuture(futures);
+			
 		}
 		
 	}
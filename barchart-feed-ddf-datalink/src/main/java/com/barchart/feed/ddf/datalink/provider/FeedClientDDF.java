@@ -49,7 +49,10 @@ import com.barchart.feed.ddf.datalink.provider.pipeline.MsgDeframerDDF;
 import com.barchart.feed.ddf.datalink.provider.pipeline.MsgEncoderDDF;
 import com.barchart.feed.ddf.datalink.provider.pipeline.PipelineFactoryDDF;
 import com.barchart.feed.ddf.datalink.provider.pipeline.PipelineFactorySocks;
+import com.barchart.feed.ddf.datalink.provider.pipeline.RecorderDDF;
 import com.barchart.feed.ddf.datalink.provider.util.CommandFuture;
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
+import com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF;
 import com.barchart.feed.ddf.datalink.provider.util.RunnerDDF;
 import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
 import com.barchart.feed.ddf.message.api.DDF_ControlTimestamp;
@@ -85,6 +88,9 @@ public class FeedClientDDF implements FeedClient {
 
 	private static final long HEARTBEAT_TIMEOUT = 30 * 1000;
 
+	/** max messages delivered per hand-off drain */
+	private static final int MESSAGE_BATCH = 256;
+
 	//
 
 	private final Map<FeedEvent, EventPolicy> eventPolicy = new ConcurrentHashMap<FeedEvent, EventPolicy>();
@@ -99,7 +105,7 @@ public class FeedClientDDF implements FeedClient {
 
 	private final BlockingQueue<FeedEvent> eventQueue = new LinkedBlockingQueue<FeedEvent>();
 
-	private final BlockingQueue<DDF_BaseMessage> messageQueue = new LinkedBlockingQueue<DDF_BaseMessage>();
+	private HandoffDDF<DDF_BaseMessage> messageQueue;
 
 	private final AtomicLong lastHeartbeat = new AtomicLong(0);
 
@@ -124,6 +130,8 @@ public class FeedClientDDF implements FeedClient {
 	private final DDF_ServerType serverType = DDF_ServerType.STREAM;
 	private Executor executor;
 
+	private volatile RecorderDDF recorder = null;
+
 	// SOCKS5
 
 	private DDF_SocksProxy proxySettings = null;
@@ -133,25 +141,57 @@ public class FeedClientDDF implements FeedClient {
 
 	FeedClientDDF(final String username, final String password, final Executor executor) {
 
-		startup(username, password, executor, null, false);
+		startup(username, password, executor, null, false, newHandoff());
 
 	}
 
 	public FeedClientDDF(String username, String password, Executor executor, DDF_SocksProxy proxySettings) {
 
-		startup(username, password, executor, proxySettings, false);
+		startup(username, password, executor, proxySettings, false, newHandoff());
 
 	}
 
 	public FeedClientDDF(String username, String password, Executor executor, DDF_SocksProxy proxySettings,
 			boolean isMobile) {
 
-		startup(username, password, executor, proxySettings, isMobile);
+		startup(username, password, executor, proxySettings, isMobile, newHandoff());
+
+	}
+
+	/**
+	 * @param handoff
+	 *            hand-off between netty io thread and message task; a
+	 *            dropping {@link RingHandoffDDF.Overflow} loses incremental
+	 *            updates, and market state, while the ring is full
+	 */
+	public FeedClientDDF(String username, String password, Executor executor, DDF_SocksProxy proxySettings,
+			boolean isMobile, HandoffDDF<DDF_BaseMessage> handoff) {
+
+		startup(username, password, executor, proxySettings, isMobile, handoff);
+
+	}
 
+	/**
+	 * Default hand-off; lossless, so market state stays correct.
+	 * <p>
+	 * When the message task falls behind by a full ring, the io thread waits
+	 * for it, which also holds reads and heartbeats of that channel. A closing
+	 * channel may still produce while a reconnect does, so producers are
+	 * not assumed single.
+	 */
+	static HandoffDDF<DDF_BaseMessage> newHandoff() {
+		return new RingHandoffDDF<DDF_BaseMessage>(RingHandoffDDF.DEFAULT_CAPACITY,
+				RingHandoffDDF.WaitStrategy.PARK, RingHandoffDDF.Overflow.BLOCK, true);
 	}
 
 	private void startup(final String username, final String password, final Executor exec, final DDF_SocksProxy proxy,
-			final Boolean isMobile) {
+			final Boolean isMobile, final HandoffDDF<DDF_BaseMessage> handoff) {
+
+		if (handoff == null) {
+			throw new NullPointerException("handoff");
+		}
+
+		this.messageQueue = handoff;
 
 		this.username = username;
 		this.password = password;
@@ -207,6 +247,15 @@ public class FeedClientDDF implements FeedClient {
 		hardRestart("setProxySettings: " + proxy.getProxyAddress() + ":" + proxy.getProxyPort());
 	}
 
+	/**
+	 * Record received frames on next connection; null to stop recording.
+	 * Recorder is not closed by this client.
+	 */
+	public void setRecorder(final RecorderDDF recorder) {
+		this.recorder = recorder;
+		initBoot();
+	}
+
 	public void clearProxySettings() {
 		this.proxySettings = null;
 		initBoot();
@@ -222,7 +271,7 @@ public class FeedClientDDF implements FeedClient {
 			 */
 			final SimpleChannelHandler ddfHandler = new ChannelHandlerDDF(eventQueue, messageQueue);
 
-			final ChannelPipelineFactory pipelineFactory = new PipelineFactoryDDF(ddfHandler);
+			final ChannelPipelineFactory pipelineFactory = new PipelineFactoryDDF(ddfHandler, recorder);
 
 			boot.setPipelineFactory(pipelineFactory);
 
@@ -422,29 +471,7 @@ public class FeedClientDDF implements FeedClient {
 
 			while (!Thread.currentThread().isInterrupted()) {
 				try {
-					final DDF_BaseMessage message = messageQueue.take();
-					if (msgListener != null) {
-
-						/*
-						 * We set the clock by the timestamp messages, however,
-						 * we also set the clock by market messages, but this
-						 * has to happen in the message decoding
-						 */
-						// XXX For now, we have removed the setting of time by
-						// market
-						// messages because delayed messages were making real
-						// time
-						// data look delayed
-						if (message instanceof DDF_ControlTimestamp) {
-							ClockDDF.clock.set(((DDF_ControlTimestamp) message).getStampUTC().asMillisUTC());
-						}
-
-						// #######################
-						// log.debug(message.toString());
-						// #######################
-
-						msgListener.handleMessage(message);
-					}
+					messageQueue.drain(messageSink, MESSAGE_BATCH);
 				} catch (final InterruptedException e) {
 
 					log.warn("# DDF-MessageTask InterruptedException {}", threadNumber);
@@ -460,6 +487,36 @@ public class FeedClientDDF implements FeedClient {
 		}
 	};
 
+	/* Delivers drained messages on the message task thread */
+	private final HandoffDDF.Sink<DDF_BaseMessage> messageSink = new HandoffDDF.Sink<DDF_BaseMessage>() {
+
+		@Override
+		public void handle(final DDF_BaseMessage message) {
+
+			final DDF_MessageListener listener = msgListener;
+
+			if (listener == null) {
+				return;
+			}
+
+			/*
+			 * We set the clock by the timestamp messages, however, we also set
+			 * the clock by market messages, but this has to happen in the
+			 * message decoding
+			 */
+			// XXX For now, we have removed the setting of time by market
+			// messages because delayed messages were making real time
+			// data look delayed
+			if (message instanceof DDF_ControlTimestamp) {
+				ClockDDF.clock.set(((DDF_ControlTimestamp) message).getStampUTC().asMillisUTC());
+			}
+
+			listener.handleMessage(message);
+
+		}
+
+	};
+
 	@Override
 	public void setPolicy(final FeedEvent event, final EventPolicy policy) {
 		log.debug("Setting policy for :{}", event.name());
@@ -1061,6 +1118,11 @@ public class FeedClientDDF implements FeedClient {
 
 			channel.getPipeline().addLast("ddf frame decoder", new MsgDeframerDDF());
 
+			final RecorderDDF recorder = this.recorder;
+			if (recorder != null) {
+				channel.getPipeline().addLast("ddf recorder", recorder);
+			}
+
 			channel.getPipeline().addLast("ddf message decoder", new MsgDecoderDDF());
 
 			// ### Encoders ###
@@ -10,11 +10,9 @@ package com.barchart.feed.ddf.datalink.provider;
 import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.channel.ChannelFactory;
@@ -35,6 +33,8 @@ import com.barchart.feed.ddf.datalink.api.FeedClient;
 import com.barchart.feed.ddf.datalink.api.FeedEvent;
 import com.barchart.feed.ddf.datalink.provider.pipeline.PipelineFactoryDDF;
 import com.barchart.feed.ddf.datalink.provider.util.DummyFuture;
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
+import com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF;
 import com.barchart.feed.ddf.datalink.provider.util.RunnerDDF;
 import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
 import com.barchart.feed.ddf.message.api.DDF_MarketBase;
@@ -50,6 +50,9 @@ public class TCPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 
 	private static final Logger log = LoggerFactory.getLogger(TCPListenerClientDDF.class);
 
+	/** max messages delivered per hand-off drain */
+	private static final int MESSAGE_BATCH = 256;
+
 	private final ServerBootstrap boot;
 
 	private volatile DDF_MessageListener msgListener = null;
@@ -59,11 +62,24 @@ public class TCPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 	private final List<Integer> socketAddress;
 	private final boolean filterBySub;
 
+	private final HandoffDDF<DDF_BaseMessage> messageQueue;
+
 	private final Map<String, SubCommand> subscriptions =
 			new ConcurrentHashMap<String, SubCommand>();
 
 	TCPListenerClientDDF(final List<Integer> socketAddress, final boolean filterBySub,
 			final Executor executor) {
+		this(socketAddress, filterBySub, executor, newHandoff());
+	}
+
+	TCPListenerClientDDF(final List<Integer> socketAddress, final boolean filterBySub,
+			final Executor executor, final HandoffDDF<DDF_BaseMessage> handoff) {
+
+		if (handoff == null) {
+			throw new NullPointerException("handoff");
+		}
+
+		messageQueue = handoff;
 
 		this.socketAddress = socketAddress;
 		this.filterBySub = filterBySub;
@@ -74,14 +90,42 @@ public class TCPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 
 		boot = new ServerBootstrap(channelFactory);
 
-		final ChannelPipelineFactory pipelineFactory = new PipelineFactoryDDF(this);
+		/* body of messages dropped by subscription filter is never parsed */
+		final ChannelPipelineFactory pipelineFactory = new PipelineFactoryDDF(
+				this, null, filterBySub);
 
 		boot.setPipelineFactory(pipelineFactory);
 
 	}
 
-	private final BlockingQueue<DDF_BaseMessage> messageQueue =
-			new LinkedBlockingQueue<DDF_BaseMessage>();
+	/**
+	 * Default hand-off; one io thread per accepted connection. Lossless, io
+	 * threads wait while ring is full.
+	 */
+	static HandoffDDF<DDF_BaseMessage> newHandoff() {
+		return new RingHandoffDDF<DDF_BaseMessage>(
+				RingHandoffDDF.DEFAULT_CAPACITY,
+				RingHandoffDDF.WaitStrategy.PARK,
+				RingHandoffDDF.Overflow.BLOCK, true);
+	}
+
+	private final HandoffDDF.Sink<DDF_BaseMessage> messageSink =
+			new HandoffDDF.Sink<DDF_BaseMessage>() {
+
+		@Override
+		public void handle(final DDF_BaseMessage message) {
+
+			final DDF_MessageListener listener = msgListener;
+
+			if (listener != null) {
+				if (!filterBySub || filter(message)) {
+					listener.handleMessage(message);
+				}
+			}
+
+		}
+
+	};
 
 	private final RunnerDDF messageTask = new RunnerDDF() {
 
@@ -90,15 +134,7 @@ public class TCPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 			while (true) {
 
 				try {
-					final DDF_BaseMessage message = messageQueue.take();
-
-					if (msgListener != null) {
-						if (!filterBySub || filter(message)) {
-							msgListener.handleMessage(message);
-						}
-
-					}
-					
+					messageQueue.drain(messageSink, MESSAGE_BATCH);
 				} catch (final InterruptedException e) {
 					log.trace("terminated");
 					return;
@@ -13,11 +13,9 @@ package com.barchart.feed.ddf.datalink.provider;
 import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import org.jboss.netty.bootstrap.ConnectionlessBootstrap;
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -40,6 +38,8 @@ import com.barchart.feed.ddf.datalink.api.FeedClient;
 import com.barchart.feed.ddf.datalink.api.FeedEvent;
 import com.barchart.feed.ddf.datalink.provider.pipeline.PipelineFactoryDDF;
 import com.barchart.feed.ddf.datalink.provider.util.DummyFuture;
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
+import com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF;
 import com.barchart.feed.ddf.datalink.provider.util.RunnerDDF;
 import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
 import com.barchart.feed.ddf.message.api.DDF_MarketBase;
@@ -59,6 +59,9 @@ public class UDPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 	private static final Logger log = LoggerFactory
 			.getLogger(UDPListenerClientDDF.class);
 
+	/** max messages delivered per hand-off drain */
+	private static final int MESSAGE_BATCH = 256;
+
 	private final ConnectionlessBootstrap boot;
 
 	private DatagramChannel channel;
@@ -70,11 +73,24 @@ public class UDPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 	private final List<Integer> socketAddress;
 	private final boolean filterBySub;
 
+	private final HandoffDDF<DDF_BaseMessage> messageQueue;
+
 	private final Map<String, SubCommand> subscriptions = 
 			new ConcurrentHashMap<String, SubCommand>();
 	
-	UDPListenerClientDDF(final List<Integer> socketAddress, final boolean filterBySub, 
+	UDPListenerClientDDF(final List<Integer> socketAddress, final boolean filterBySub,
 			final Executor executor) {
+		this(socketAddress, filterBySub, executor, newHandoff());
+	}
+
+	UDPListenerClientDDF(final List<Integer> socketAddress, final boolean filterBySub,
+			final Executor executor, final HandoffDDF<DDF_BaseMessage> handoff) {
+
+		if (handoff == null) {
+			throw new NullPointerException("handoff");
+		}
+
+		messageQueue = handoff;
 
 		this.socketAddress = socketAddress;
 		this.filterBySub = filterBySub;
@@ -85,8 +101,9 @@ public class UDPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 
 		boot = new ConnectionlessBootstrap(channelFactory);
 
+		/* body of messages dropped by subscription filter is never parsed */
 		final ChannelPipelineFactory pipelineFactory = new PipelineFactoryDDF(
-				this);
+				this, null, filterBySub);
 
 		boot.setPipelineFactory(pipelineFactory);
 
@@ -96,7 +113,35 @@ public class UDPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 
 	}
 
-	private final BlockingQueue<DDF_BaseMessage> messageQueue = new LinkedBlockingQueue<DDF_BaseMessage>();
+	/**
+	 * Default hand-off; datagrams are lossy anyway, so a slow consumer
+	 * drops oldest messages instead of stalling io threads; one io thread per
+	 * bound port.
+	 */
+	static HandoffDDF<DDF_BaseMessage> newHandoff() {
+		return new RingHandoffDDF<DDF_BaseMessage>(
+				RingHandoffDDF.DEFAULT_CAPACITY,
+				RingHandoffDDF.WaitStrategy.PARK,
+				RingHandoffDDF.Overflow.DROP_OLDEST, true);
+	}
+
+	private final HandoffDDF.Sink<DDF_BaseMessage> messageSink =
+			new HandoffDDF.Sink<DDF_BaseMessage>() {
+
+		@Override
+		public void handle(final DDF_BaseMessage message) {
+
+			final DDF_MessageListener listener = msgListener;
+
+			if (listener != null) {
+				if (!filterBySub || filter(message)) {
+					listener.handleMessage(message);
+				}
+			}
+
+		}
+
+	};
 
 	private final RunnerDDF messageTask = new RunnerDDF() {
 
@@ -104,16 +149,7 @@ public class UDPListenerClientDDF extends SimpleChannelHandler implements FeedCl
 		protected void runCore() {
 			while (true) {
 				try {
-					final DDF_BaseMessage message = messageQueue.take();
-
-					if (msgListener != null) {
-						
-						if(!filterBySub || filter(message)) {
-							msgListener.handleMessage(message);
-						}
-						
-					}
-
+					messageQueue.drain(messageSink, MESSAGE_BATCH);
 				} catch (final InterruptedException e) {
 					log.trace("terminated");
 					return;
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.barchart.feed.ddf.datalink.api.FeedEvent;
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
 import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
 import com.barchart.feed.ddf.message.api.DDF_ControlResponse;
 import com.barchart.feed.ddf.message.enums.DDF_MessageType;
@@ -41,10 +42,10 @@ public class ChannelHandlerDDF extends SimpleChannelHandler {
 
 	private final BlockingQueue<FeedEvent> eventQueue;
 
-	private final BlockingQueue<DDF_BaseMessage> messageQueue;
+	private final HandoffDDF<DDF_BaseMessage> messageQueue;
 
 	public ChannelHandlerDDF(final BlockingQueue<FeedEvent> eventQueue,
-			final BlockingQueue<DDF_BaseMessage> messageQueue) {
+			final HandoffDDF<DDF_BaseMessage> messageQueue) {
 
 		this.eventQueue = eventQueue;
 		this.messageQueue = messageQueue;
@@ -7,6 +7,7 @@
  */
 package com.barchart.feed.ddf.datalink.provider.pipeline;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -18,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.ddf.message.provider.DDF_MessagePool;
 import com.barchart.feed.ddf.message.provider.DDF_MessageService;
 import com.barchart.feed.ddf.message.provider.DDF_SpreadParser;
 import com.barchart.util.common.ascii.ASCII;
@@ -25,19 +27,54 @@ import com.barchart.util.common.ascii.ASCII;
 /**
  * convert DDF message frames into {@link DDF_BaseMessage} messages
  * <p>
- * Note on performance: DDF_MessageService decodes a byte array. It should be
- * faster to parse the ByteBuffer itself, saving the array creation, copy, and
- * GC.
+ * Note on performance: frames are decoded in place through a
+ * {@link ByteBuffer} view of the incoming {@link ChannelBuffer} slice, saving
+ * the array creation, copy, and GC.
  */
 public class MsgDecoderDDF extends SimpleChannelHandler {
 
 	static final Logger log = LoggerFactory.getLogger(MsgDecoderDDF.class);
 
+	/** null when messages are allocated per frame */
+	private final DDF_MessagePool pool;
+
+	/** defer body of market messages until first read */
+	private final boolean isLazy;
+
 	/**
 	 * Instantiates a new msg decoder ddf.
 	 */
 	public MsgDecoderDDF() {
+		this(false);
+	}
+
+	/**
+	 * Instantiates a new msg decoder ddf.
+	 *
+	 * @param isPooled decode into reused messages, see
+	 *            {@link DDF_MessagePool}; only for pipelines where every
+	 *            upstream handler is done with a message when it returns,
+	 *            unlike {@code FeedClientDDF}, which hands messages off to
+	 *            another thread
+	 */
+	public MsgDecoderDDF(final boolean isPooled) {
+		this(isPooled, false);
+	}
 
+	/**
+	 * Instantiates a new msg decoder ddf.
+	 *
+	 * @param isPooled see {@link #MsgDecoderDDF(boolean)}
+	 * @param isLazy decode only head of market messages here and the rest on
+	 *            first access, see
+	 *            {@link DDF_MessageService#decode(ByteBuffer, DDF_MessagePool, boolean)}
+	 *            ; for handlers which drop most messages by symbol; malformed
+	 *            bodies then fail in the handler rather than being dropped
+	 *            here
+	 */
+	public MsgDecoderDDF(final boolean isPooled, final boolean isLazy) {
+		pool = isPooled ? new DDF_MessagePool() : null;
+		this.isLazy = isLazy;
 	}
 
 	/*
@@ -62,29 +99,35 @@ public class MsgDecoderDDF extends SimpleChannelHandler {
 			 */
 			final ChannelBuffer frameBuffer = (ChannelBuffer) messageRAW;
 
-			/* underlying frame array */
-			byte[] array = frameBuffer.array();
-
 			/*
 			 * silent ignore of invalid chunks sometimes sent by JERQ; DDF must
 			 * have at least 1 command char and 1 terminator
 			 */
-			if (array.length < 2) {
+			if (frameBuffer.readableBytes() < 2) {
 				return;
 			}
 
-			/* If message is a spread, rebuild headder */
-			if (array[1] == ASCII._S_) {
-				array = DDF_SpreadParser.stripSpreadPreamble(array);
+			final ByteBuffer buffer;
+
+			/* If message is a spread, rebuild headder; rare, so copy is ok */
+			if (frameBuffer.getByte(frameBuffer.readerIndex() + 1) == ASCII._S_) {
+				final byte[] array = new byte[frameBuffer.readableBytes()];
+				frameBuffer.getBytes(frameBuffer.readerIndex(), array);
+				buffer = ByteBuffer.wrap(DDF_SpreadParser
+						.stripSpreadPreamble(array));
+			} else {
+				/* view of frame slice; no copy for heap or direct buffers */
+				buffer = frameBuffer.toByteBuffer();
 			}
 
 			final DDF_BaseMessage messageDDF;
 
 			try {
-				messageDDF = DDF_MessageService.decode(array);
+				messageDDF = DDF_MessageService.decode(buffer, pool, isLazy);
 			} catch (final Exception e) {
-				log.debug("decode failed : {} ", new String(array));
-				log.debug(new String(Arrays.toString(array)));
+				final String text = frameBuffer.toString(ASCII.ASCII_CHARSET);
+				log.debug("decode failed : {} ", text);
+				log.debug(Arrays.toString(text.getBytes(ASCII.ASCII_CHARSET)));
 				return;
 			}
 
@@ -7,6 +7,8 @@
  */
 package com.barchart.feed.ddf.datalink.provider.pipeline;
 
+import java.nio.ByteOrder;
+
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -19,7 +21,12 @@ import com.barchart.feed.ddf.util.FeedDDF;
 /**
  * implements minimal DDF TCP protocol validating state machine;
  * 
- * splits stream into DDF message frames;
+ * splits stream into DDF message frames; frames are passed upstream as
+ * zero-copy slices of the receive buffer;
+ * 
+ * message body, text line and time stamp bytes which can not change state
+ * are skipped 8 bytes at a time; scan position is kept across partial
+ * reads, so received bytes are not scanned again;
  * 
  * TODO re-implement w/o "synchronized"
  */
@@ -55,9 +62,14 @@ public class MsgDeframerDDF extends FrameDecoder {
 		this.count = 0;
 	}
 
+	/**
+	 * frame is a slice of the cumulation buffer, not a copy; it is consumed
+	 * synchronously by the next upstream handler before decode() is called
+	 * again, and netty 3 never recycles buffer memory in place
+	 */
 	private ChannelBuffer init(final ChannelBuffer buffer, final int count) {
 
-		final ChannelBuffer frame = buffer.readBytes(count);
+		final ChannelBuffer frame = buffer.readSlice(count);
 
 		// Keep for debugging
 		// log.debug("###############################################");
@@ -93,6 +105,28 @@ public class MsgDeframerDDF extends FrameDecoder {
 				return null;
 			}
 
+			/* skip over bytes which can not change state */
+
+			switch (stage) {
+				case S1_DDF_START:
+					count = skip(buffer, (byte) FeedDDF.DDF_FINISH);
+					break;
+				case S3_DDF_TIMESTAMP:
+					/* stamp bytes are only counted, up to the last one */
+					final int stamp = Math.min(TIME_STAMP_SIZE - ender,
+							buffer.readableBytes() - count);
+					count += stamp;
+					ender += stamp;
+					break;
+				case S4_PRINTABLE:
+					count = skip(buffer, (byte) FeedDDF.DDF_TERMINATE);
+					break;
+			}
+
+			if (buffer.readableBytes() <= count) {
+				return null;
+			}
+
 			/* read next byte; do not advance buffer */
 			final int index = buffer.readerIndex() + count++;
 			final byte alpha = buffer.getByte(index);
@@ -152,7 +186,7 @@ public class MsgDeframerDDF extends FrameDecoder {
 						} else if (alpha == FeedDDF.DDF_START) {
 							return init(buffer, count - 1);
 						} else {
-							buffer.readBytes(count);
+							buffer.skipBytes(count);
 							this.stage = S0_INIT;
 							this.count = 0;
 							return null;
@@ -179,6 +213,57 @@ public class MsgDeframerDDF extends FrameDecoder {
 
 	}
 
+	/** new count, at next message start or marker byte, or at buffer end */
+	private int skip(final ChannelBuffer buffer, final byte marker) {
+		final int start = buffer.readerIndex();
+		return scan(buffer, start + count, buffer.writerIndex(), marker)
+				- start;
+	}
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+	private static final long START_WORD = ONES * FeedDDF.DDF_START;
+
+	/** high bit set in each zero byte of word; exact, no false positives */
+	static long zeroBytes(final long word) {
+		return ~(((word & LOW7) + LOW7) | word | LOW7);
+	}
+
+	/**
+	 * index of first {@link FeedDDF#DDF_START} or marker byte in range, or
+	 * limit if none; compares 8 bytes at a time, then byte by byte
+	 */
+	static int scan(final ChannelBuffer buffer, int index, final int limit,
+			final byte marker) {
+
+		final long markerWord = ONES * marker;
+		final boolean isBigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+
+		while (limit - index >= 8) {
+			final long word = buffer.getLong(index);
+			final long found = zeroBytes(word ^ START_WORD)
+					| zeroBytes(word ^ markerWord);
+			if (found != 0) {
+				final int bits = isBigEndian ? Long.numberOfLeadingZeros(found)
+						: Long.numberOfTrailingZeros(found);
+				return index + (bits >>> 3);
+			}
+			index += 8;
+		}
+
+		while (index < limit) {
+			final byte alpha = buffer.getByte(index);
+			if (alpha == FeedDDF.DDF_START || alpha == marker) {
+				return index;
+			}
+			index++;
+		}
+
+		return limit;
+
+	}
+
 	//
 
 	private Thread thread;
@@ -18,8 +18,35 @@ public class PipelineFactoryDDF implements ChannelPipelineFactory {
 
 	private final ChannelHandler handler;
 
+	private final RecorderDDF recorder;
+
+	private final boolean isLazy;
+
 	public PipelineFactoryDDF(final ChannelHandler handler) {
+		this(handler, null);
+	}
+
+	/**
+	 * @param recorder
+	 *            optional raw frame recorder, shared by all pipelines
+	 */
+	public PipelineFactoryDDF(final ChannelHandler handler,
+			final RecorderDDF recorder) {
+		this(handler, recorder, false);
+	}
+
+	/**
+	 * @param recorder
+	 *            optional raw frame recorder, shared by all pipelines
+	 * @param isLazy
+	 *            defer market message body decode until first read, for
+	 *            handlers which filter by symbol; see {@link MsgDecoderDDF}
+	 */
+	public PipelineFactoryDDF(final ChannelHandler handler,
+			final RecorderDDF recorder, final boolean isLazy) {
 		this.handler = handler;
+		this.recorder = recorder;
+		this.isLazy = isLazy;
 	}
 
 	/*
@@ -39,10 +66,15 @@ public class PipelineFactoryDDF implements ChannelPipelineFactory {
 
 		pipeline.addLast("ddf frame decoder", new MsgDeframerDDF());
 
+		if (recorder != null) {
+			pipeline.addLast("ddf recorder", recorder);
+		}
+
 		// remove after debug
 		// pipeline.addLast("ddf logger", new LoggerDDF());
 
-		pipeline.addLast("ddf message decoder", new MsgDecoderDDF());
+		pipeline.addLast("ddf message decoder", new MsgDecoderDDF(false,
+				isLazy));
 
 		// ### Encoders ###
 
@@ -0,0 +1,366 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider.pipeline;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.ChannelHandler.Sharable;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.ddf.util.FeedDDF;
+
+/**
+ * records raw DDF frames, as passed upstream by {@link MsgDeframerDDF}, into
+ * rolling gzip files, in the text log layout read by replay tools:
+ * <p>
+ * one frame per CRLF terminated line, binary time stamp suffix written as 17
+ * digits "yyyyMMddHHmmssSSS"; receive time, in UTC millis, is written as a
+ * "#millis" line before the first frame received at that millisecond;
+ * <p>
+ * frames are copied and queued on the io thread; a dedicated recorder thread
+ * writes them, so the io thread never waits for disk; frames which do not fit
+ * in the queue are dropped and counted as overruns;
+ * <p>
+ * one recorder can be shared by consecutive connections; call
+ * {@link #close()} when done.
+ */
+@Sharable
+public class RecorderDDF extends SimpleChannelHandler {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(RecorderDDF.class);
+
+	/** default uncompressed bytes per file */
+	public static final long DEFAULT_ROLL_SIZE = 256 * 1024 * 1024;
+
+	/** default queued frame limit */
+	public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+	public static final String EXTENSION = ".ddf.gz";
+
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	/** binary stamp suffix : ETX, century, 6 fields, 2 millis bytes, LF */
+	private static final int STAMP_SUFFIX = 11;
+
+	/** queued frame */
+	private static final class Record {
+
+		final long received;
+		final byte[] frame;
+
+		Record(final long received, final byte[] frame) {
+			this.received = received;
+			this.frame = frame;
+		}
+
+	}
+
+	private final File folder;
+
+	private final String prefix;
+
+	private final long rollSize;
+
+	private final BlockingQueue<Record> queue;
+
+	private final Thread thread;
+
+	private volatile boolean isRunning = true;
+
+	private final AtomicLong recorded = new AtomicLong();
+
+	private final AtomicLong overruns = new AtomicLong();
+
+	private final AtomicLong files = new AtomicLong();
+
+	/* recorder thread state */
+
+	private OutputStream output;
+
+	private long written;
+
+	private long lastReceived;
+
+	private final byte[] line = new byte[64 * 1024];
+
+	public RecorderDDF(final File folder, final String prefix) {
+		this(folder, prefix, DEFAULT_ROLL_SIZE, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param folder
+	 *            target folder, created if missing
+	 * @param prefix
+	 *            file name prefix, followed by UTC start time and file
+	 *            sequence
+	 * @param rollSize
+	 *            uncompressed bytes per file, before starting next one
+	 * @param capacity
+	 *            queued frame limit
+	 */
+	public RecorderDDF(final File folder, final String prefix,
+			final long rollSize, final int capacity) {
+
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			throw new IllegalArgumentException("can not create " + folder);
+		}
+
+		this.folder = folder;
+		this.prefix = prefix;
+		this.rollSize = rollSize;
+		this.queue = new ArrayBlockingQueue<Record>(capacity);
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runWriter();
+			}
+		}, "DDF recorder " + prefix);
+
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	@Override
+	public void messageReceived(final ChannelHandlerContext ctx,
+			final MessageEvent e) throws Exception {
+
+		final Object message = e.getMessage();
+
+		if (message instanceof ChannelBuffer && isRunning) {
+
+			/* frame is a slice of receive buffer; must copy */
+			final ChannelBuffer buffer = (ChannelBuffer) message;
+			final byte[] frame = new byte[buffer.readableBytes()];
+			buffer.getBytes(buffer.readerIndex(), frame);
+
+			if (!queue.offer(new Record(System.currentTimeMillis(), frame))) {
+				overruns.incrementAndGet();
+			}
+
+		}
+
+		ctx.sendUpstream(e);
+
+	}
+
+	/** frames written so far */
+	public long recorded() {
+		return recorded.get();
+	}
+
+	/** frames dropped because queue was full */
+	public long overruns() {
+		return overruns.get();
+	}
+
+	/** files started so far */
+	public long files() {
+		return files.get();
+	}
+
+	/** writes queued frames, closes current file, stops recorder thread */
+	public void close() {
+
+		isRunning = false;
+
+		try {
+			thread.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	//
+
+	private void runWriter() {
+
+		try {
+
+			while (isRunning || !queue.isEmpty()) {
+
+				final Record record = queue.poll(100, TimeUnit.MILLISECONDS);
+
+				if (record == null) {
+					continue;
+				}
+
+				write(record);
+
+				recorded.incrementAndGet();
+
+			}
+
+		} catch (final InterruptedException e) {
+			log.debug("recorder interrupted");
+		} catch (final IOException e) {
+			log.error("recorder failed", e);
+			isRunning = false;
+		} finally {
+			closeFile();
+		}
+
+	}
+
+	private void write(final Record record) throws IOException {
+
+		if (output == null || written >= rollSize) {
+			closeFile();
+			openFile(record.received);
+		}
+
+		if (record.received != lastReceived) {
+			lastReceived = record.received;
+			final byte[] stamp = ("#" + record.received).getBytes("US-ASCII");
+			output.write(stamp);
+			output.write(CRLF);
+			written += stamp.length + CRLF.length;
+		}
+
+		final int size = format(record.frame, line);
+
+		if (size < 0) {
+			/* oversize frame, no time stamp rewrite */
+			output.write(record.frame);
+			output.write(CRLF);
+			written += record.frame.length + CRLF.length;
+		} else {
+			output.write(line, 0, size);
+			written += size;
+		}
+
+	}
+
+	/**
+	 * frame as log line, with text time stamp and CRLF terminator; -1 if
+	 * frame does not fit
+	 */
+	static int format(final byte[] frame, final byte[] line) {
+
+		int size = frame.length;
+
+		/* drop frame terminator, if any */
+		if (size > 0 && frame[size - 1] == FeedDDF.DDF_TERMINATE) {
+			size--;
+		}
+
+		final boolean hasStamp = frame.length >= STAMP_SUFFIX
+				&& frame[frame.length - 1] == FeedDDF.DDF_TERMINATE
+				&& frame[frame.length - STAMP_SUFFIX] == FeedDDF.DDF_FINISH
+				&& frame[frame.length - STAMP_SUFFIX + 1] == FeedDDF.DDF_CENTURY;
+
+		if (hasStamp) {
+			/* keep finish marker */
+			size = frame.length - STAMP_SUFFIX + 1;
+		}
+
+		if (size + 17 + CRLF.length > line.length) {
+			return -1;
+		}
+
+		System.arraycopy(frame, 0, line, 0, size);
+
+		if (hasStamp) {
+
+			final int base = frame.length - STAMP_SUFFIX + 1;
+
+			final int year = frame[base] * 100 + field(frame[base + 1]);
+
+			size = digits(line, size, year, 4);
+			size = digits(line, size, field(frame[base + 2]), 2); // month
+			size = digits(line, size, field(frame[base + 3]), 2); // day
+			size = digits(line, size, field(frame[base + 4]), 2); // hours
+			size = digits(line, size, field(frame[base + 5]), 2); // minutes
+			size = digits(line, size, field(frame[base + 6]), 2); // seconds
+
+			final int millis = (frame[base + 7] & 0xFF)
+					| (frame[base + 8] & 0xFF) << 8;
+			size = digits(line, size, millis, 3);
+
+		}
+
+		line[size++] = CRLF[0];
+		line[size++] = CRLF[1];
+
+		return size;
+
+	}
+
+	private static int field(final byte value) {
+		return value & ~0x40;
+	}
+
+	private static int digits(final byte[] line, final int offset, int value,
+			final int count) {
+		for (int index = offset + count - 1; index >= offset; index--) {
+			line[index] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return offset + count;
+	}
+
+	private void openFile(final long time) throws IOException {
+
+		final SimpleDateFormat format = new SimpleDateFormat(
+				"yyyyMMdd-HHmmss-SSS");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+		/* sequence keeps names unique when rolling within a millisecond */
+		final File file = new File(folder, prefix + "-"
+				+ format.format(new Date(time)) + "-" + files.get()
+				+ EXTENSION);
+
+		output = new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(file), 64 * 1024), 64 * 1024);
+
+		written = 0;
+		lastReceived = 0;
+
+		files.incrementAndGet();
+
+		log.debug("recording into {}", file);
+
+	}
+
+	private void closeFile() {
+
+		if (output == null) {
+			return;
+		}
+
+		try {
+			output.close();
+		} catch (final IOException e) {
+			log.error("recorder close failed", e);
+		}
+
+		output = null;
+
+	}
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future over a batch of commands written back to back; done when every
+ * command is done, true when every command was written.
+ * <p>
+ * Individual command futures are available from {@link #commands()}, in
+ * write order.
+ */
+public class BatchFuture implements Future<Boolean> {
+
+	private final List<Future<Boolean>> commands;
+
+	public BatchFuture(final List<Future<Boolean>> commands) {
+		this.commands = Collections.unmodifiableList(commands);
+	}
+
+	/** per command futures, in write order */
+	public List<Future<Boolean>> commands() {
+		return commands;
+	}
+
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		boolean isCancelled = true;
+		for (final Future<Boolean> future : commands) {
+			isCancelled &= future.cancel(mayInterruptIfRunning);
+		}
+		return isCancelled;
+	}
+
+	@Override
+	public Boolean get() throws InterruptedException, ExecutionException {
+		boolean isSuccess = true;
+		for (final Future<Boolean> future : commands) {
+			isSuccess &= future.get();
+		}
+		return isSuccess;
+	}
+
+	/** timeout applies to whole batch */
+	@Override
+	public Boolean get(final long timeout, final TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean isSuccess = true;
+		for (final Future<Boolean> future : commands) {
+			final long remaining = deadline - System.nanoTime();
+			isSuccess &= future.get(Math.max(0, remaining),
+					TimeUnit.NANOSECONDS);
+		}
+		return isSuccess;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		for (final Future<Boolean> future : commands) {
+			if (future.isCancelled()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		for (final Future<Boolean> future : commands) {
+			if (!future.isDone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
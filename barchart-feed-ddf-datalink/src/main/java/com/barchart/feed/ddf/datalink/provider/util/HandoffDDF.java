@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider.util;
+
+/**
+ * Hand-off stage between a netty io thread, which produces decoded messages,
+ * and the message task thread, which delivers them to the listener.
+ */
+public interface HandoffDDF<E> {
+
+	/**
+	 * Receives drained elements on consumer thread.
+	 */
+	public interface Sink<E> {
+
+		void handle(E element);
+
+	}
+
+	/**
+	 * Consulted by producer when hand-off is full, before overflow policy is
+	 * applied; lets owner conflate or park the element elsewhere.
+	 */
+	public interface Conflater<E> {
+
+		/**
+		 * @return true if element was absorbed and must not be queued.
+		 */
+		boolean conflate(E element);
+
+	}
+
+	/**
+	 * Producer side; never blocks.
+	 *
+	 * @return false if full.
+	 */
+	boolean offer(E element);
+
+	/**
+	 * Producer side; applies overflow policy when full.
+	 */
+	void put(E element) throws InterruptedException;
+
+	/**
+	 * Consumer side; never blocks.
+	 *
+	 * @return null if empty.
+	 */
+	E poll();
+
+	/**
+	 * Consumer side; waits for next element.
+	 */
+	E take() throws InterruptedException;
+
+	/**
+	 * Consumer side; waits for first element, then hands up to limit elements
+	 * to sink without waiting. Each element is removed before sink is called,
+	 * so sink exception leaves the rest of the batch queued.
+	 *
+	 * @return number of delivered elements.
+	 */
+	int drain(Sink<? super E> sink, int limit) throws InterruptedException;
+
+	/**
+	 * Discards all queued elements; safe to call from any thread.
+	 */
+	void clear();
+
+	int size();
+
+	int capacity();
+
+	/**
+	 * Number of elements discarded by overflow policy.
+	 */
+	long dropped();
+
+	/**
+	 * Number of elements absorbed by conflater.
+	 */
+	long conflated();
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider.util;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Unbounded hand-off backed by {@link LinkedBlockingQueue}; previous
+ * behavior, one node allocation and one lock hand-off per element.
+ */
+public class QueueHandoffDDF<E> implements HandoffDDF<E> {
+
+	private final BlockingQueue<E> queue = new LinkedBlockingQueue<E>();
+
+	@Override
+	public boolean offer(final E element) {
+		return queue.offer(element);
+	}
+
+	@Override
+	public void put(final E element) throws InterruptedException {
+		queue.put(element);
+	}
+
+	@Override
+	public E poll() {
+		return queue.poll();
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		return queue.take();
+	}
+
+	@Override
+	public int drain(final Sink<? super E> sink, final int limit)
+			throws InterruptedException {
+
+		E element = queue.take();
+		int count = 1;
+		sink.handle(element);
+
+		while (count < limit && (element = queue.poll()) != null) {
+			count++;
+			sink.handle(element);
+		}
+
+		return count;
+
+	}
+
+	@Override
+	public void clear() {
+		queue.clear();
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int capacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public long dropped() {
+		return 0;
+	}
+
+	@Override
+	public long conflated() {
+		return 0;
+	}
+
+}
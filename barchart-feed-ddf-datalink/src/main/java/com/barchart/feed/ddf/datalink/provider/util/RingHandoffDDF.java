@@ -0,0 +1,409 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded hand-off backed by a preallocated ring; no allocation and no locks
+ * per element.
+ * <p>
+ * Each slot carries a sequence number which tells producer and consumer whose
+ * turn it is, so a single producer publishes with an ordered store only.
+ * Consumers claim slots with an uncontended compare and set, which keeps
+ * {@link #clear()}, drop-oldest overflow and message task restart safe. Use
+ * multi producer mode when more than one io thread feeds the ring, for
+ * example a listener bound to several ports.
+ */
+public class RingHandoffDDF<E> implements HandoffDDF<E> {
+
+	/**
+	 * How consumer waits for next element.
+	 */
+	public enum WaitStrategy {
+
+		/** lowest latency, burns a core while idle */
+		BUSY_SPIN, //
+
+		/** spin, then yield */
+		YIELD, //
+
+		/** spin, yield, then park until producer signals */
+		PARK, //
+
+	}
+
+	/**
+	 * What producer does when ring is full and conflater did not absorb.
+	 */
+	public enum Overflow {
+
+		/** wait for consumer; back pressure into the io thread */
+		BLOCK, //
+
+		/** discard oldest queued element */
+		DROP_OLDEST, //
+
+		/** discard incoming element */
+		DROP_NEWEST, //
+
+	}
+
+	public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+	static final int SPIN_TRIES = 100;
+	static final int YIELD_TRIES = 100;
+
+	/** producer back off while blocked on full ring */
+	static final long BACKOFF_NANOS = 100 * 1000;
+
+	private final int mask;
+
+	private final Object[] buffer;
+
+	/** slot is free for position p when p; full for position p when p + 1 */
+	private final AtomicLongArray sequence;
+
+	/** next position to consume */
+	private final AtomicLong head = new AtomicLong();
+
+	/** next position to produce */
+	private final AtomicLong tail = new AtomicLong();
+
+	private final boolean isMultiProducer;
+
+	private final WaitStrategy wait;
+
+	private final Overflow overflow;
+
+	private final Conflater<? super E> conflater;
+
+	/** parked consumer */
+	private volatile Thread waiter;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final AtomicLong conflated = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            rounded up to power of 2
+	 */
+	public RingHandoffDDF(final int capacity, final WaitStrategy wait,
+			final Overflow overflow, final boolean isMultiProducer) {
+		this(capacity, wait, overflow, isMultiProducer, null);
+	}
+
+	/**
+	 * @param capacity
+	 *            rounded up to power of 2
+	 * @param conflater
+	 *            consulted on full ring before overflow policy; can be null
+	 */
+	public RingHandoffDDF(final int capacity, final WaitStrategy wait,
+			final Overflow overflow, final boolean isMultiProducer,
+			final Conflater<? super E> conflater) {
+
+		if (capacity < 2 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("invalid capacity : "
+					+ capacity);
+		}
+
+		if (wait == null || overflow == null) {
+			throw new NullPointerException("wait strategy and overflow");
+		}
+
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+
+		this.mask = size - 1;
+		this.buffer = new Object[size];
+		this.sequence = new AtomicLongArray(size);
+		for (int index = 0; index < size; index++) {
+			sequence.set(index, index);
+		}
+
+		this.wait = wait;
+		this.overflow = overflow;
+		this.isMultiProducer = isMultiProducer;
+		this.conflater = conflater;
+
+	}
+
+	@Override
+	public boolean offer(final E element) {
+
+		if (element == null) {
+			throw new NullPointerException("element");
+		}
+
+		long pos = tail.get();
+
+		while (true) {
+
+			final int index = (int) pos & mask;
+			final long delta = sequence.get(index) - pos;
+
+			if (delta == 0) {
+
+				if (isMultiProducer) {
+					if (!tail.compareAndSet(pos, pos + 1)) {
+						pos = tail.get();
+						continue;
+					}
+				} else {
+					tail.lazySet(pos + 1);
+				}
+
+				buffer[index] = element;
+				publish(index, pos + 1);
+				return true;
+
+			}
+
+			if (delta < 0) {
+				return false;
+			}
+
+			pos = tail.get();
+
+		}
+
+	}
+
+	private void publish(final int index, final long value) {
+
+		if (wait != WaitStrategy.PARK) {
+			sequence.lazySet(index, value);
+			return;
+		}
+
+		/* full fence; pairs with waiter store and re-check in idle() */
+		sequence.set(index, value);
+
+		final Thread thread = waiter;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+
+	}
+
+	@Override
+	public void put(final E element) throws InterruptedException {
+
+		if (offer(element)) {
+			return;
+		}
+
+		if (conflater != null && conflater.conflate(element)) {
+			conflated.incrementAndGet();
+			return;
+		}
+
+		switch (overflow) {
+
+		case DROP_NEWEST:
+			dropped.incrementAndGet();
+			return;
+
+		case DROP_OLDEST:
+			while (!offer(element)) {
+				if (poll() != null) {
+					dropped.incrementAndGet();
+				}
+			}
+			return;
+
+		default:
+			int counter = 0;
+			while (!offer(element)) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				counter = backoff(counter);
+			}
+			return;
+
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E poll() {
+
+		long pos = head.get();
+
+		while (true) {
+
+			final int index = (int) pos & mask;
+			final long delta = sequence.get(index) - (pos + 1);
+
+			if (delta == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					final E element = (E) buffer[index];
+					buffer[index] = null;
+					sequence.lazySet(index, pos + mask + 1);
+					return element;
+				}
+			} else if (delta < 0) {
+				return null;
+			}
+
+			pos = head.get();
+
+		}
+
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+
+		int counter = 0;
+
+		while (true) {
+
+			final E element = poll();
+
+			if (element != null) {
+				return element;
+			}
+
+			counter = idle(counter);
+
+		}
+
+	}
+
+	@Override
+	public int drain(final Sink<? super E> sink, final int limit)
+			throws InterruptedException {
+
+		E element = take();
+		int count = 1;
+		sink.handle(element);
+
+		while (count < limit && (element = poll()) != null) {
+			count++;
+			sink.handle(element);
+		}
+
+		return count;
+
+	}
+
+	@Override
+	public void clear() {
+
+		final long finish = tail.get();
+
+		while (head.get() < finish && poll() != null) {
+			// discard
+		}
+
+	}
+
+	private boolean isEmpty() {
+		final long pos = head.get();
+		return sequence.get((int) pos & mask) != pos + 1;
+	}
+
+	/** consumer wait step */
+	private int idle(final int counter) throws InterruptedException {
+
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+
+		switch (wait) {
+
+		case BUSY_SPIN:
+			return counter;
+
+		case YIELD:
+			if (counter < SPIN_TRIES) {
+				return counter + 1;
+			}
+			Thread.yield();
+			return counter;
+
+		default:
+			if (counter < SPIN_TRIES) {
+				return counter + 1;
+			}
+			if (counter < SPIN_TRIES + YIELD_TRIES) {
+				Thread.yield();
+				return counter + 1;
+			}
+			waiter = Thread.currentThread();
+			try {
+				if (isEmpty()) {
+					LockSupport.park(this);
+				}
+			} finally {
+				waiter = null;
+			}
+			return counter;
+
+		}
+
+	}
+
+	/** producer wait step while ring is full */
+	private static int backoff(final int counter) {
+
+		if (counter < SPIN_TRIES) {
+			return counter + 1;
+		}
+
+		if (counter < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+			return counter + 1;
+		}
+
+		LockSupport.parkNanos(BACKOFF_NANOS);
+		return counter;
+
+	}
+
+	@Override
+	public int size() {
+		final long size = tail.get() - head.get();
+		if (size < 0) {
+			return 0;
+		}
+		return (int) Math.min(size, buffer.length);
+	}
+
+	@Override
+	public int capacity() {
+		return buffer.length;
+	}
+
+	@Override
+	public long dropped() {
+		return dropped.get();
+	}
+
+	@Override
+	public long conflated() {
+		return conflated.get();
+	}
+
+	@Override
+	public String toString() {
+		return "RingHandoffDDF [capacity=" + capacity() + ", size=" + size()
+				+ ", wait=" + wait + ", overflow=" + overflow + ", dropped="
+				+ dropped() + ", conflated=" + conflated() + "]";
+	}
+
+}
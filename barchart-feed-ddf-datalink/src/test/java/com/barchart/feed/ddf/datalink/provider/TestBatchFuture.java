@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.barchart.feed.ddf.datalink.provider.util.BatchFuture;
+
+public class TestBatchFuture {
+
+	static FutureTask<Boolean> command(final Boolean result) {
+		return new FutureTask<Boolean>(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return result;
+			}
+		});
+	}
+
+	static BatchFuture batch(final FutureTask<?>... commands) {
+		final List<Future<Boolean>> list = new ArrayList<Future<Boolean>>();
+		for (final FutureTask<?> command : commands) {
+			@SuppressWarnings("unchecked")
+			final Future<Boolean> future = (Future<Boolean>) command;
+			list.add(future);
+		}
+		return new BatchFuture(list);
+	}
+
+	@Test
+	public void testDone() throws Exception {
+
+		final FutureTask<Boolean> one = command(true);
+		final FutureTask<Boolean> two = command(true);
+		final FutureTask<Boolean> three = command(true);
+
+		final BatchFuture batch = batch(one, two, three);
+
+		assertEquals(3, batch.commands().size());
+		assertSame(two, batch.commands().get(1));
+
+		assertFalse(batch.isDone());
+
+		one.run();
+		three.run();
+		assertFalse(batch.isDone());
+
+		try {
+			batch.get(10, TimeUnit.MILLISECONDS);
+			fail("second command pending");
+		} catch (final TimeoutException e) {
+		}
+
+		two.run();
+		assertTrue(batch.isDone());
+		assertTrue(batch.get());
+		assertTrue(batch.get(0, TimeUnit.MILLISECONDS));
+
+	}
+
+	/** false if any command was not written */
+	@Test
+	public void testFailed() throws Exception {
+
+		final FutureTask<Boolean> one = command(true);
+		final FutureTask<Boolean> two = command(false);
+
+		one.run();
+		two.run();
+
+		assertFalse(batch(one, two).get());
+
+	}
+
+	@Test
+	public void testError() throws Exception {
+
+		final FutureTask<Boolean> one = command(true);
+		final FutureTask<Boolean> two = new FutureTask<Boolean>(
+				new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						throw new IllegalStateException("closed");
+					}
+				});
+
+		one.run();
+		two.run();
+
+		try {
+			batch(one, two).get();
+			fail("command error");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+
+		final FutureTask<Boolean> one = command(true);
+		final FutureTask<Boolean> two = command(true);
+
+		one.run();
+
+		final BatchFuture batch = batch(one, two);
+
+		assertFalse(batch.isCancelled());
+
+		/* written command can not be cancelled */
+		assertFalse(batch.cancel(false));
+
+		assertTrue(two.isCancelled());
+		assertTrue(batch.isCancelled());
+		assertTrue(batch.isDone());
+
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+
+		final BatchFuture batch = batch();
+
+		assertTrue(batch.isDone());
+		assertFalse(batch.isCancelled());
+		assertTrue(batch.get());
+
+	}
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider;
+
+import static com.barchart.feed.ddf.datalink.provider.DDF_SubscriptionHandler.MAX_COMMAND_LENGTH;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.Observable;
+import rx.subjects.ReplaySubject;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.api.model.meta.Metadata;
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.base.sub.SubCommand;
+import com.barchart.feed.base.sub.SubscriptionType;
+import com.barchart.feed.ddf.datalink.provider.DDF_SubscriptionHandler.CommandBatch;
+import com.barchart.feed.ddf.datalink.provider.TestableMarketService.TestableFeedClient;
+import com.barchart.feed.ddf.datalink.provider.util.BatchFuture;
+import com.barchart.feed.ddf.instrument.provider.DDF_Instrument;
+import com.barchart.feed.ddf.instrument.provider.DDF_MetadataServiceWrapper;
+
+public class TestCommandBatch {
+
+	private TestableFeedClient feed;
+
+	@Before
+	public void setUp() {
+		feed = new TestableFeedClient();
+	}
+
+	static String entry(final int index) {
+		return "SYM" + (10000 + index) + "=Ss,";
+	}
+
+	@Test
+	public void testSplit() throws Exception {
+
+		final int count = 300;
+
+		final CommandBatch batch = new CommandBatch(feed, "GO ");
+
+		final StringBuilder all = new StringBuilder();
+
+		for (int index = 0; index < count; index++) {
+			batch.add(entry(index));
+			all.append(entry(index));
+		}
+
+		final Future<Boolean> future = batch.finish();
+
+		final List<String> lines = feed.getWrites();
+
+		assertTrue(lines.size() > 1);
+		assertEquals(lines.size(), ((BatchFuture) future).commands().size());
+
+		final StringBuilder joined = new StringBuilder();
+
+		for (final String line : lines) {
+			assertTrue(line, line.length() <= MAX_COMMAND_LENGTH);
+			assertTrue(line.startsWith("GO "));
+			/* never split inside an entry */
+			assertTrue(line.endsWith(","));
+			joined.append(line.substring(3));
+		}
+
+		assertEquals(all.toString(), joined.toString());
+
+		/* full lines, next entry would not fit */
+		final int entryLength = entry(0).length();
+		for (final String line : lines.subList(0, lines.size() - 1)) {
+			assertTrue(line.length() + entryLength > MAX_COMMAND_LENGTH);
+		}
+
+		assertTrue(future.get());
+
+	}
+
+	/** entry longer than limit still goes out, on a line of its own */
+	@Test
+	public void testLongEntry() throws Exception {
+
+		final StringBuilder longEntry = new StringBuilder();
+		while (longEntry.length() <= MAX_COMMAND_LENGTH) {
+			longEntry.append("LONG");
+		}
+		longEntry.append(",");
+
+		final CommandBatch batch = new CommandBatch(feed, "STOP ");
+
+		batch.add(entry(1));
+		batch.add(longEntry.toString());
+		batch.add(entry(2));
+
+		batch.finish();
+
+		final List<String> lines = feed.getWrites();
+
+		assertEquals(3, lines.size());
+		assertEquals("STOP " + entry(1), lines.get(0));
+		assertEquals("STOP " + longEntry, lines.get(1));
+		assertEquals("STOP " + entry(2), lines.get(2));
+
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+
+		final Future<Boolean> future = new CommandBatch(feed, "GO ").finish();
+
+		assertEquals("NULL", feed.getLastWrite());
+		assertTrue(((BatchFuture) future).commands().isEmpty());
+		assertTrue(future.isDone());
+		assertTrue(future.get());
+
+	}
+
+	/* ***** ***** lookup ***** ***** */
+
+	/** instrument known only by id and symbol */
+	static class SymbolInstrument extends DDF_Instrument {
+
+		SymbolInstrument(final InstrumentID id, final String symbol) {
+			super(id);
+			this.symbol = symbol;
+		}
+
+	}
+
+	/** answers every id lookup from one map; counts lookups */
+	static class Lookup extends DDF_MetadataServiceWrapper {
+
+		final Map<InstrumentID, Instrument> known = new HashMap<InstrumentID, Instrument>();
+
+		int calls;
+
+		void add(final InstrumentID id, final String symbol) {
+			known.put(id, new SymbolInstrument(id, symbol));
+		}
+
+		@Override
+		public Observable<Map<InstrumentID, Instrument>> instrument(
+				final InstrumentID... ids) {
+
+			calls++;
+
+			final Map<InstrumentID, Instrument> result = new HashMap<InstrumentID, Instrument>();
+			for (final InstrumentID id : ids) {
+				if (known.containsKey(id)) {
+					result.put(id, known.get(id));
+				}
+			}
+
+			final ReplaySubject<Map<InstrumentID, Instrument>> sub = ReplaySubject
+					.create();
+			sub.onNext(result);
+			sub.onCompleted();
+
+			return sub;
+
+		}
+
+	}
+
+	static SubCommand sub(final InstrumentID id) {
+		return new DDF_Subscription(id, Metadata.MetaType.INSTRUMENT,
+				EnumSet.of(SubscriptionType.QUOTE_UPDATE));
+	}
+
+	/** one lookup for all, unresolved instruments left out */
+	@Test
+	public void testLookup() throws Exception {
+
+		final Lookup lookup = new Lookup();
+
+		final InstrumentID one = new InstrumentID(1);
+		final InstrumentID two = new InstrumentID(2);
+		final InstrumentID unknown = new InstrumentID(3);
+
+		lookup.add(one, "ESZ2014");
+		lookup.add(two, "GOOG");
+
+		final DDF_SubscriptionHandler handler = new DDF_SubscriptionHandler(
+				feed, lookup);
+
+		feed.setOnline();
+
+		final Set<SubCommand> subs = new HashSet<SubCommand>();
+		subs.add(sub(one));
+		subs.add(sub(two));
+		subs.add(sub(unknown));
+
+		final String type = sub(one).typeString();
+
+		handler.subscribe(subs);
+
+		assertEquals(1, lookup.calls);
+
+		final List<String> lines = feed.getWrites();
+		assertEquals(1, lines.size());
+
+		final String line = lines.get(0);
+		assertTrue(line.startsWith("GO "));
+
+		final List<String> entries = new ArrayList<String>();
+		for (final String entry : line.substring(3).split(",")) {
+			entries.add(entry);
+		}
+
+		assertEquals(2, entries.size());
+		assertTrue(entries.contains("ESZ4=" + type));
+		assertTrue(entries.contains("GOOG=" + type));
+
+		/* still subscribed, requested again once resolvable */
+		assertEquals(3, handler.subscriptions().size());
+
+		handler.unsubscribe(subs);
+
+		assertEquals(2, lookup.calls);
+		assertEquals("STOP ", feed.getLastWrite().substring(0, 5));
+
+	}
+
+}
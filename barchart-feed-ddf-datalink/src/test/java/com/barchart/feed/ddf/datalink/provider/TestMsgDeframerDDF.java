@@ -9,6 +9,7 @@ package com.barchart.feed.ddf.datalink.provider;
 
 import static org.junit.Assert.*;
 
+import java.nio.charset.Charset;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -62,7 +63,8 @@ public class TestMsgDeframerDDF {
 			/* parent frame decoder does this sometimes */
 			// buffer.discardReadBytes();
 
-			list.add(new String(frame.array()));
+			/* frame is a slice; do not use backing array */
+			list.add(frame.toString(Charset.defaultCharset()));
 
 		}
 
@@ -71,7 +73,7 @@ public class TestMsgDeframerDDF {
 
 	static void log(final ChannelBuffer buffer) {
 
-		log.debug("target : {}", new String(buffer.array()));
+		log.debug("target : {}", buffer.toString(Charset.defaultCharset()));
 
 	}
 
@@ -0,0 +1,382 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.junit.Test;
+
+import com.barchart.feed.ddf.datalink.provider.pipeline.MsgDeframerDDF;
+import com.barchart.feed.ddf.util.FeedDDF;
+
+/**
+ * {@link MsgDeframerDDF} against previous byte at a time state machine, over
+ * same streams delivered in same chunks; frames and left over bytes must be
+ * identical.
+ */
+public class TestMsgDeframerParity {
+
+	static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+	/** recorded feed, text time stamps */
+	static final String LOG = "/XF-20140110-week.ddf.gz";
+
+	static byte[] unzip(final URL source) throws IOException {
+		final InputStream input = new GZIPInputStream(source.openStream());
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] block = new byte[8192];
+			int count;
+			while ((count = input.read(block)) != -1) {
+				bytes.write(block, 0, count);
+			}
+			return bytes.toByteArray();
+		} finally {
+			input.close();
+		}
+	}
+
+	/** previous implementation, verbatim */
+	static class Reference extends MsgDeframerDDF {
+
+		private static final int S0_INIT = 0;
+		private static final int S1_DDF_START = 1;
+		private static final int S2_DDF_FINISH = 2;
+		private static final int S3_DDF_TIMESTAMP = 3;
+		private static final int S4_PRINTABLE = 4;
+
+		private static final int TIME_STAMP_SIZE = 9;
+
+		private int stage;
+		private int count;
+		private int ender;
+
+		private void init() {
+			this.stage = S0_INIT;
+			this.count = 0;
+		}
+
+		private ChannelBuffer init(final ChannelBuffer buffer, final int count) {
+			final ChannelBuffer frame = buffer.readSlice(count);
+			this.stage = S0_INIT;
+			this.count = 0;
+			return frame;
+		}
+
+		@Override
+		public synchronized Object decode(final ChannelHandlerContext ctx,
+				final Channel channel, final ChannelBuffer buffer)
+				throws Exception {
+
+			while (true) {
+
+				if (buffer.readableBytes() <= count) {
+					return null;
+				}
+
+				final int index = buffer.readerIndex() + count++;
+				final byte alpha = buffer.getByte(index);
+
+				if (alpha == FeedDDF.DDF_START && count != 1
+						&& stage != S3_DDF_TIMESTAMP) {
+					return init(buffer, count - 1);
+				}
+
+				switch (stage) {
+
+					case S0_INIT:
+						switch (alpha) {
+							case FeedDDF.DDF_START:
+								stage = S1_DDF_START;
+								continue;
+							case FeedDDF.DDF_TERMINATE:
+								return init(buffer, count);
+							default:
+								stage = S4_PRINTABLE;
+								continue;
+						}
+
+					case S1_DDF_START:
+						switch (alpha) {
+							case FeedDDF.DDF_FINISH:
+								stage = S2_DDF_FINISH;
+								continue;
+							default:
+								continue;
+						}
+
+					case S2_DDF_FINISH:
+						switch (alpha) {
+							case FeedDDF.DDF_CENTURY:
+								stage = S3_DDF_TIMESTAMP;
+								ender = 1;
+								continue;
+							case FeedDDF.DDF_TERMINATE:
+								return init(buffer, count);
+						}
+
+					case S3_DDF_TIMESTAMP:
+						ender++;
+						if (ender == TIME_STAMP_SIZE + 1) {
+							if (alpha == FeedDDF.DDF_TERMINATE) {
+								return init(buffer, count);
+							} else if (alpha == FeedDDF.DDF_START) {
+								return init(buffer, count - 1);
+							} else {
+								buffer.skipBytes(count);
+								this.stage = S0_INIT;
+								this.count = 0;
+								return null;
+							}
+						} else {
+							continue;
+						}
+
+					case S4_PRINTABLE:
+						switch (alpha) {
+							case FeedDDF.DDF_TERMINATE:
+								return init(buffer, count);
+							default:
+								continue;
+						}
+
+					default:
+						init();
+						continue;
+				}
+
+			}
+
+		}
+
+	}
+
+	/** cases of TestMsgDeframerDDF */
+	static final String[] CASES = {
+			" part 1   part 2 JFTKDw9\n next ",
+			" part 1   part 2 23456789\n",
+			" part 1   part 2 \n",
+			" ddfplus  buffer \n with no time stamp",
+			" time stamp \n and more",
+			"broken  text  fragment  from ddf hell \n",
+			" part 1   part 2 JFtime\n next \njunk  text\n ddfplus  buffer \n",
+			"\n", "\n\n", "\n\n\n", "\n1", "\n2\n", "\n3\n3\n" };
+
+	/**
+	 * frames, as text, then left over byte count; chunk sizes from random,
+	 * or whole stream at once if null; read bytes are discarded at random, as
+	 * cumulation buffer does
+	 */
+	static List<String> frames(final MsgDeframerDDF deframer,
+			final byte[] stream, final Random random, final ByteOrder order)
+			throws Exception {
+
+		final List<String> frames = new ArrayList<String>();
+
+		final ChannelBuffer cumulation = ChannelBuffers.dynamicBuffer(order,
+				256);
+
+		int offset = 0;
+
+		while (offset < stream.length) {
+
+			final int size = random == null ? stream.length : Math.min(
+					1 + random.nextInt(100), stream.length - offset);
+
+			cumulation.writeBytes(stream, offset, size);
+			offset += size;
+
+			while (true) {
+				final Object frame = deframer.decode(null, null, cumulation);
+				if (frame == null) {
+					break;
+				}
+				frames.add(((ChannelBuffer) frame).toString(LATIN_1));
+			}
+
+			if (random != null && random.nextInt(4) == 0) {
+				cumulation.discardReadBytes();
+			}
+
+		}
+
+		frames.add("left over : " + cumulation.readableBytes());
+
+		return frames;
+
+	}
+
+	static void assertParity(final byte[] stream, final long seed)
+			throws Exception {
+
+		for (final ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN,
+				ByteOrder.LITTLE_ENDIAN }) {
+
+			assertEquals(frames(new Reference(), stream, null, order),
+					frames(new MsgDeframerDDF(), stream, null, order));
+
+			assertEquals(
+					frames(new Reference(), stream, new Random(seed), order),
+					frames(new MsgDeframerDDF(), stream, new Random(seed),
+							order));
+
+		}
+
+	}
+
+	static byte[] bytes(final String text) {
+		return text.getBytes();
+	}
+
+	/** log lines, with text time stamps replaced by binary suffix */
+	static byte[] binaryStamps(final byte[] log) {
+
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		int start = 0;
+
+		for (int index = 0; index < log.length; index++) {
+
+			if (log[index] != '\n') {
+				continue;
+			}
+
+			final byte[] line = Arrays.copyOfRange(log, start, index + 1);
+			start = index + 1;
+
+			final int finish = indexOf(line, (byte) FeedDDF.DDF_FINISH);
+
+			if (finish < 0 || line.length < finish + 19) {
+				stream.write(line, 0, line.length);
+				continue;
+			}
+
+			final String stamp = new String(line, finish + 1, 17);
+
+			stream.write(line, 0, finish + 1);
+			stream.write(FeedDDF.DDF_CENTURY);
+			stream.write(Integer.parseInt(stamp.substring(2, 4)) | 0x40);
+			stream.write(Integer.parseInt(stamp.substring(4, 6)) | 0x40);
+			stream.write(Integer.parseInt(stamp.substring(6, 8)) | 0x40);
+			stream.write(Integer.parseInt(stamp.substring(8, 10)) | 0x40);
+			stream.write(Integer.parseInt(stamp.substring(10, 12)) | 0x40);
+			stream.write(Integer.parseInt(stamp.substring(12, 14)) | 0x40);
+			final int millis = Integer.parseInt(stamp.substring(14, 17));
+			stream.write(millis & 0xFF);
+			stream.write(millis >>> 8);
+			stream.write(FeedDDF.DDF_TERMINATE);
+
+		}
+
+		stream.write(log, start, log.length - start);
+
+		return stream.toByteArray();
+
+	}
+
+	static int indexOf(final byte[] array, final byte value) {
+		for (int index = 0; index < array.length; index++) {
+			if (array[index] == value) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	@Test
+	public void testCases() throws Exception {
+
+		final StringBuilder all = new StringBuilder();
+
+		for (final String text : CASES) {
+			assertParity(bytes(text), 1);
+			all.append(text);
+		}
+
+		assertParity(bytes(all.toString()), 1);
+
+	}
+
+	@Test
+	public void testRecorded() throws Exception {
+
+		final byte[] log = unzip(getClass().getResource(LOG));
+
+		/* text stamps with CR LF, as logged */
+		assertParity(log, 2);
+
+		/* binary stamps, as sent by JERQ */
+		final byte[] binary = binaryStamps(log);
+		assertTrue(binary.length < log.length);
+		assertParity(binary, 3);
+
+	}
+
+	/** UDP: frames back to back, with and without stamp, no terminators */
+	@Test
+	public void testConcatenated() throws Exception {
+
+		final byte[] log = binaryStamps(unzip(getClass().getResource(LOG)));
+
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		for (final byte alpha : Arrays.copyOf(log,
+				Math.min(log.length, 1024 * 1024))) {
+			if (alpha != FeedDDF.DDF_TERMINATE) {
+				stream.write(alpha);
+			}
+		}
+
+		assertParity(stream.toByteArray(), 4);
+
+	}
+
+	/** random streams over marker heavy alphabet, to cover odd transitions */
+	@Test
+	public void testRandom() throws Exception {
+
+		final byte[] alphabet = { FeedDDF.DDF_START, FeedDDF.DDF_FINISH,
+				FeedDDF.DDF_TERMINATE, FeedDDF.DDF_CENTURY, 'A', '2', ',',
+				(byte) 0xC1, 0x00 };
+
+		final Random random = new Random(5);
+
+		for (int round = 0; round < 500; round++) {
+
+			final byte[] stream = new byte[1 + random.nextInt(400)];
+
+			for (int index = 0; index < stream.length; index++) {
+				stream[index] = random.nextInt(3) == 0 ? alphabet[random
+						.nextInt(alphabet.length)] : (byte) ('a' + random
+						.nextInt(26));
+			}
+
+			assertParity(stream, round);
+
+		}
+
+	}
+
+}
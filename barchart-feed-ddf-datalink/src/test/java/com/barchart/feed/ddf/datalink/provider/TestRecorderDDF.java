@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.junit.Test;
+
+import com.barchart.feed.ddf.datalink.provider.pipeline.RecorderDDF;
+
+public class TestRecorderDDF {
+
+	/** trade with binary time stamp 2014-01-10 09:30:01.258 */
+	static final byte[] STAMPED = bytes("\u00012IBM,Z\u0002AN15188,20,0I\u0003",
+			0x14, 14 | 0x40, 1 | 0x40, 10 | 0x40, 9 | 0x40, 30 | 0x40,
+			1 | 0x40, 258 & 0xFF, 258 >>> 8, '\n');
+
+	static final byte[] PLAIN = bytes("\u00012IBM,Z\u0002AN15188,20,0I\u0003\n");
+
+	static final String LINES = "\u00012IBM,Z\u0002AN15188,20,0I\u0003"
+			+ "20140110093001258\r\n"
+			+ "\u00012IBM,Z\u0002AN15188,20,0I\u0003\r\n";
+
+	static byte[] bytes(final String text, final int... suffix) {
+		final byte[] head = text.getBytes();
+		final byte[] array = Arrays.copyOf(head, head.length + suffix.length);
+		for (int k = 0; k < suffix.length; k++) {
+			array[head.length + k] = (byte) suffix[k];
+		}
+		return array;
+	}
+
+	static File folder() throws Exception {
+		final File folder = File.createTempFile("recorder", "");
+		folder.delete();
+		folder.mkdirs();
+		folder.deleteOnExit();
+		return folder;
+	}
+
+	static String read(final File folder) throws Exception {
+
+		final File[] files = folder.listFiles();
+		Arrays.sort(files);
+
+		final ByteArrayOutputStream text = new ByteArrayOutputStream();
+
+		for (final File file : files) {
+			final InputStream input = new GZIPInputStream(new FileInputStream(
+					file));
+			final byte[] block = new byte[1024];
+			int count;
+			while ((count = input.read(block)) != -1) {
+				text.write(block, 0, count);
+			}
+			input.close();
+			file.deleteOnExit();
+		}
+
+		return text.toString("ISO-8859-1");
+
+	}
+
+	/** without receive time lines */
+	static String frames(final String text) {
+		final StringBuilder frames = new StringBuilder();
+		for (final String line : text.split("(?<=\r\n)")) {
+			if (!line.startsWith("#")) {
+				frames.append(line);
+			}
+		}
+		return frames.toString();
+	}
+
+	@Test
+	public void testRecord() throws Exception {
+
+		final File folder = folder();
+
+		final RecorderDDF recorder = new RecorderDDF(folder, "test");
+
+		final DecoderEmbedder<ChannelBuffer> embedder = new DecoderEmbedder<ChannelBuffer>(
+				recorder);
+
+		final long before = System.currentTimeMillis();
+
+		embedder.offer(ChannelBuffers.wrappedBuffer(STAMPED));
+		embedder.offer(ChannelBuffers.wrappedBuffer(PLAIN));
+
+		/* frames pass through */
+		assertArrayEquals(STAMPED, embedder.poll().array());
+		assertArrayEquals(PLAIN, embedder.poll().array());
+
+		recorder.close();
+
+		assertEquals(2, recorder.recorded());
+		assertEquals(0, recorder.overruns());
+		assertEquals(1, recorder.files());
+
+		final String text = read(folder);
+
+		assertTrue(text.startsWith("#"));
+		final long received = Long.parseLong(text.substring(1,
+				text.indexOf('\r')));
+		assertTrue(received >= before);
+
+		assertEquals(LINES, frames(text));
+
+	}
+
+	@Test
+	public void testRoll() throws Exception {
+
+		final File folder = folder();
+
+		final RecorderDDF recorder = new RecorderDDF(folder, "test", 1, 16);
+
+		final DecoderEmbedder<ChannelBuffer> embedder = new DecoderEmbedder<ChannelBuffer>(
+				recorder);
+
+		embedder.offer(ChannelBuffers.wrappedBuffer(STAMPED));
+		embedder.offer(ChannelBuffers.wrappedBuffer(PLAIN));
+
+		recorder.close();
+
+		assertEquals(2, recorder.files());
+		assertEquals(2, folder.listFiles().length);
+		assertEquals(LINES, frames(read(folder)));
+
+	}
+
+	@Test
+	public void testOverrun() throws Exception {
+
+		final File folder = folder();
+
+		final RecorderDDF recorder = new RecorderDDF(folder, "test",
+				RecorderDDF.DEFAULT_ROLL_SIZE, 1);
+
+		final DecoderEmbedder<ChannelBuffer> embedder = new DecoderEmbedder<ChannelBuffer>(
+				recorder);
+
+		final int count = 10000;
+
+		for (int k = 0; k < count; k++) {
+			embedder.offer(ChannelBuffers.wrappedBuffer(PLAIN));
+			embedder.poll();
+		}
+
+		recorder.close();
+
+		assertEquals(count, recorder.recorded() + recorder.overruns());
+
+		read(folder);
+
+	}
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.datalink.provider;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
+import com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF;
+import com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF.Overflow;
+import com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF.WaitStrategy;
+
+public class TestRingHandoffDDF {
+
+	static RingHandoffDDF<Integer> ring(final int capacity,
+			final Overflow overflow) {
+		return new RingHandoffDDF<Integer>(capacity, WaitStrategy.PARK,
+				overflow, false);
+	}
+
+	@Test
+	public void testOrder() throws Exception {
+
+		final RingHandoffDDF<Integer> ring = ring(4, Overflow.BLOCK);
+
+		assertEquals(4, ring.capacity());
+		assertNull(ring.poll());
+
+		for (int round = 0; round < 10; round++) {
+			for (int k = 0; k < 4; k++) {
+				assertTrue(ring.offer(round * 4 + k));
+			}
+			assertFalse(ring.offer(-1));
+			assertEquals(4, ring.size());
+			for (int k = 0; k < 4; k++) {
+				assertEquals(Integer.valueOf(round * 4 + k), ring.poll());
+			}
+			assertNull(ring.poll());
+		}
+
+	}
+
+	@Test
+	public void testCapacity() {
+
+		assertEquals(8, ring(5, Overflow.BLOCK).capacity());
+
+		try {
+			ring(1, Overflow.BLOCK);
+			fail("must throw");
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+
+		final RingHandoffDDF<Integer> ring = ring(4, Overflow.DROP_OLDEST);
+
+		for (int k = 0; k < 6; k++) {
+			ring.put(k);
+		}
+
+		assertEquals(2, ring.dropped());
+		assertEquals(Integer.valueOf(2), ring.poll());
+		assertEquals(Integer.valueOf(3), ring.take());
+		assertEquals(Integer.valueOf(4), ring.poll());
+		assertEquals(Integer.valueOf(5), ring.poll());
+		assertNull(ring.poll());
+
+	}
+
+	@Test
+	public void testDropNewest() throws Exception {
+
+		final RingHandoffDDF<Integer> ring = ring(4, Overflow.DROP_NEWEST);
+
+		for (int k = 0; k < 6; k++) {
+			ring.put(k);
+		}
+
+		assertEquals(2, ring.dropped());
+		assertEquals(Integer.valueOf(0), ring.poll());
+
+	}
+
+	@Test
+	public void testConflater() throws Exception {
+
+		final List<Integer> absorbed = new ArrayList<Integer>();
+
+		final RingHandoffDDF<Integer> ring = new RingHandoffDDF<Integer>(4,
+				WaitStrategy.YIELD, Overflow.DROP_NEWEST, false,
+				new HandoffDDF.Conflater<Integer>() {
+					@Override
+					public boolean conflate(final Integer element) {
+						if (element % 2 == 0) {
+							absorbed.add(element);
+							return true;
+						}
+						return false;
+					}
+				});
+
+		for (int k = 0; k < 8; k++) {
+			ring.put(k);
+		}
+
+		assertEquals(2, ring.conflated());
+		assertEquals(2, ring.dropped());
+		assertEquals(4, ring.size());
+		assertEquals(2, absorbed.size());
+
+	}
+
+	@Test
+	public void testClear() throws Exception {
+
+		final RingHandoffDDF<Integer> ring = ring(8, Overflow.BLOCK);
+
+		for (int k = 0; k < 5; k++) {
+			ring.put(k);
+		}
+
+		ring.clear();
+
+		assertEquals(0, ring.size());
+		assertNull(ring.poll());
+
+		ring.put(7);
+		assertEquals(Integer.valueOf(7), ring.take());
+
+	}
+
+	/**
+	 * Sink failure must leave rest of batch queued.
+	 */
+	@Test
+	public void testDrainFailure() throws Exception {
+
+		final RingHandoffDDF<Integer> ring = ring(8, Overflow.BLOCK);
+
+		for (int k = 0; k < 5; k++) {
+			ring.put(k);
+		}
+
+		final List<Integer> list = new ArrayList<Integer>();
+
+		try {
+			ring.drain(new HandoffDDF.Sink<Integer>() {
+				@Override
+				public void handle(final Integer element) {
+					if (element == 2) {
+						throw new IllegalStateException();
+					}
+					list.add(element);
+				}
+			}, 100);
+			fail("must throw");
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+
+		assertEquals(2, list.size());
+		assertEquals(2, ring.size());
+		assertEquals(Integer.valueOf(3), ring.poll());
+
+	}
+
+	@Test
+	public void testInterrupt() throws Exception {
+
+		final RingHandoffDDF<Integer> ring = ring(8, Overflow.BLOCK);
+
+		Thread.currentThread().interrupt();
+
+		try {
+			ring.take();
+			fail("must throw");
+		} catch (final InterruptedException e) {
+			// expected
+		}
+
+		assertFalse(Thread.interrupted());
+
+	}
+
+	/**
+	 * Blocking producer and parking consumer must keep order without loss.
+	 */
+	@Test
+	public void testSingleProducer() throws Exception {
+
+		for (final WaitStrategy wait : WaitStrategy.values()) {
+
+			final int count = 100 * 1000;
+
+			final RingHandoffDDF<Integer> ring = new RingHandoffDDF<Integer>(
+					64, wait, Overflow.BLOCK, false);
+
+			final Thread producer = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int k = 0; k < count; k++) {
+							ring.put(k);
+						}
+					} catch (final InterruptedException e) {
+						// fails below
+					}
+				}
+			};
+
+			producer.start();
+
+			final int[] next = new int[1];
+
+			while (next[0] < count) {
+				ring.drain(new HandoffDDF.Sink<Integer>() {
+					@Override
+					public void handle(final Integer element) {
+						assertEquals(next[0], element.intValue());
+						next[0]++;
+					}
+				}, 16);
+			}
+
+			producer.join();
+
+			assertEquals(0, ring.size());
+			assertEquals(0, ring.dropped());
+
+		}
+
+	}
+
+	@Test
+	public void testMultiProducer() throws Exception {
+
+		final int producers = 4;
+		final int count = 25 * 1000;
+
+		final RingHandoffDDF<Integer> ring = new RingHandoffDDF<Integer>(64,
+				WaitStrategy.PARK, Overflow.BLOCK, true);
+
+		final Thread[] threads = new Thread[producers];
+
+		for (int p = 0; p < producers; p++) {
+			threads[p] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int k = 0; k < count; k++) {
+							ring.put(k);
+						}
+					} catch (final InterruptedException e) {
+						// fails below
+					}
+				}
+			};
+			threads[p].start();
+		}
+
+		final AtomicLong sum = new AtomicLong();
+
+		for (int k = 0; k < producers * count; k++) {
+			sum.addAndGet(ring.take());
+		}
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals((long) producers * count * (count - 1) / 2, sum.get());
+		assertNull(ring.poll());
+
+	}
+
+}
@@ -46,16 +46,25 @@ public class TestableMarketService extends MarketProviderBase<DDF_MarketBase> {
 	public static class TestableFeedClient implements FeedClient {
 
 		private String lastWrite = "NULL";
+		private final List<String> writes = new ArrayList<String>();
 		private final List<Monitor> listeners = new ArrayList<Monitor>();
 
 		@Override
 		public Future<Boolean> write(final String message) {
 
 			lastWrite = message;
+			writes.add(message);
 
 			return new DummyFuture();
 		}
 
+		/** all writes since last call, oldest first */
+		public List<String> getWrites() {
+			final List<String> temp = new ArrayList<String>(writes);
+			writes.clear();
+			return temp;
+		}
+
 		public String getLastWrite() {
 			final String temp = new String(lastWrite);
 			lastWrite = "NULL";
@@ -0,0 +1,23 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.api;
+
+/**
+ * Push style consumer of streamed historical entries; called on the reading
+ * thread, so next line is not read until handler returns.
+ *
+ * @param <E> the element type
+ */
+public interface DDF_EntryHandler<E extends DDF_Entry> {
+
+	/**
+	 * @return false to stop the query and drop the connection
+	 */
+	boolean onEntry(E entry);
+
+}
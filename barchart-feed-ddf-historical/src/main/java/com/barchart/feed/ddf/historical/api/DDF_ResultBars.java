@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.api;
+
+/**
+ * Bar result held in primitive columns, one array per field, rather than
+ * one object per bar.
+ * <p>
+ * Column arrays are shared, not copied; they are valid for indexes below
+ * {@link #size()} and must not be modified. Entries passed to
+ * {@link #runLoop} are a single reused view, so they must not be retained;
+ * {@link #get(int)} returns a view of its own.
+ *
+ * @param <E> the element type
+ */
+public interface DDF_ResultBars<E extends DDF_EntryBar> extends DDF_Result<E> {
+
+	/** shared price exponent */
+	int priceExponent();
+
+	//
+
+	long[] millisUTC();
+
+	/** {@link com.barchart.feed.ddf.message.enums.DDF_TradeDay} ord */
+	byte[] tradeDays();
+
+	long[] priceOpenMantissas();
+
+	long[] priceHighMantissas();
+
+	long[] priceLowMantissas();
+
+	long[] priceCloseMantissas();
+
+	long[] sizeVolumes();
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.api;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import com.barchart.feed.ddf.historical.enums.DDF_ResultStatus;
+
+/**
+ * Streaming alternative to {@link DDF_Result}; entries are decoded one line
+ * at a time, as the server response is read, and are not retained.
+ * <p>
+ * Status is null while the response is still being read, and has the same
+ * meaning as {@link DDF_Result#getStatus()} once the cursor is exhausted or
+ * closed. Closing an unfinished cursor drops the connection and reports
+ * {@link DDF_ResultStatus#INTERRUPTED}.
+ *
+ * @param <E> the element type
+ */
+public interface DDF_ResultCursor<E extends DDF_Entry> extends Iterator<E>,
+		Closeable {
+
+	DDF_Query<E> getQuery();
+
+	String getQueryURL();
+
+	//
+
+	/** null until finished */
+	DDF_ResultStatus getStatus();
+
+	String getStatusComment();
+
+	//
+
+	/** number of entries decoded so far */
+	int count();
+
+	/** stops reading; safe to call more than once */
+	@Override
+	void close();
+
+}
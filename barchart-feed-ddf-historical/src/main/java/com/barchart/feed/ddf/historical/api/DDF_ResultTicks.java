@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.api;
+
+/**
+ * Tick result held in primitive columns, one array per field, rather than
+ * one object per tick.
+ * <p>
+ * Column arrays are shared, not copied; they are valid for indexes below
+ * {@link #size()} and must not be modified. Entries passed to
+ * {@link #runLoop} are a single reused view, so they must not be retained;
+ * {@link #get(int)} returns a view of its own.
+ */
+public interface DDF_ResultTicks extends DDF_Result<DDF_EntryTick> {
+
+	/** shared price exponent */
+	int priceExponent();
+
+	//
+
+	long[] millisUTC();
+
+	/** {@link com.barchart.feed.ddf.message.enums.DDF_TradeDay} ord */
+	byte[] tradeDays();
+
+	/** {@link com.barchart.feed.ddf.message.enums.DDF_Session} ord */
+	byte[] sessions();
+
+	long[] priceTradeMantissas();
+
+	long[] sizeTrades();
+
+}
@@ -9,77 +9,49 @@ package com.barchart.feed.ddf.historical.provider;
 
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.ddf.historical.api.DDF_Entry;
-import com.barchart.feed.ddf.historical.api.DDF_EntryBarMin;
-import com.barchart.feed.ddf.historical.api.DDF_EntryTick;
-import com.barchart.feed.ddf.historical.api.DDF_EntryTickFormT;
-import com.barchart.feed.ddf.historical.api.DDF_EntryTrend;
 import com.barchart.feed.ddf.historical.enums.DDF_QueryType;
 
 enum Builder {
 
 	TICKS {
 		@Override
-		public DDF_EntryTick newEntry(final int index, final String inputLine,
-				final Instrument instrument) {
-			final EntryTicksDetail entry = new EntryTicksDetail(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryTicksDetail newEntry(final Instrument instrument) {
+			return new EntryTicksDetail(instrument);
 		}
 	}, //
 	
 	TICKS_FORM_T {
 		@Override
-		public DDF_EntryTickFormT newEntry(final int index, final String inputLine,
-				final Instrument instrument) {
-			final EntryTicksFormT entry = new EntryTicksFormT(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryTicksFormT newEntry(final Instrument instrument) {
+			return new EntryTicksFormT(instrument);
 		}
 	}, //
 
 	MINUTES {
 		@Override
-		public DDF_EntryBarMin newEntry(final int index,
-				final String inputLine, final Instrument instrument) {
-			final EntryMins entry = new EntryMins(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryMins newEntry(final Instrument instrument) {
+			return new EntryMins(instrument);
 		}
 	}, //
 
 	MINUTES_NEARBY {
 		@Override
-		public EntryMinsNearby newEntry(final int index,
-				final String inputLine, final Instrument instrument) {
-			final EntryMinsNearby entry = new EntryMinsNearby(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryMinsNearby newEntry(final Instrument instrument) {
+			return new EntryMinsNearby(instrument);
 		}
 	}, //
 
 	MINUTES_FORM_T {
 		@Override
-		public EntryMinsFormT newEntry(final int index, final String inputLine,
-				final Instrument instrument) {
-			final EntryMinsFormT entry = new EntryMinsFormT(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryMinsFormT newEntry(final Instrument instrument) {
+			return new EntryMinsFormT(instrument);
 		}
 	}, //
 
 	END_OF_DAY {
 		@Override
-		public EntryEod newEntry(final int index, final String inputLine,
-				final Instrument instrument) {
-			final EntryEod entry = new EntryEod(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryEod newEntry(final Instrument instrument) {
+			return new EntryEod(instrument);
 		}
 	}, //
 
@@ -87,41 +59,46 @@ enum Builder {
 
 	TICKS_TREND {
 		@Override
-		public DDF_EntryTrend newEntry(final int index, final String inputLine,
-				final Instrument instrument) {
-			final EntryTicksTrend entry = new EntryTicksTrend(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryTicksTrend newEntry(final Instrument instrument) {
+			return new EntryTicksTrend(instrument);
 		}
 	}, //
 
 	MINUTES_TREND {
 		@Override
-		public DDF_EntryTrend newEntry(final int index, final String inputLine,
-				final Instrument instrument) {
-			final EntryMinsTrend entry = new EntryMinsTrend(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryMinsTrend newEntry(final Instrument instrument) {
+			return new EntryMinsTrend(instrument);
 		}
 	}, //
 
 	END_OF_DAY_TREND {
 		@Override
-		public DDF_EntryTrend newEntry(final int index, final String inputLine,
-				final Instrument instrument) {
-			final EntryEodTrend entry = new EntryEodTrend(instrument);
-			entry.decode(inputLine);
-			entry.index = index;
-			return entry;
+		EntryEodTrend newEntry(final Instrument instrument) {
+			return new EntryEodTrend(instrument);
 		}
 	}, //
 
 	;
 
-	abstract DDF_Entry newEntry(int index, final String inputLine,
-			final Instrument instrument);
+	/** empty entry of builder type */
+	abstract Entry newEntry(final Instrument instrument);
+
+	DDF_Entry newEntry(final int index, final String inputLine,
+			final Instrument instrument) {
+		final Entry entry = newEntry(instrument);
+		entry.decode(inputLine);
+		entry.index = index;
+		return entry;
+	}
+
+	/** same as {@link #newEntry(int, String, Instrument)}, from line bytes */
+	DDF_Entry decodeEntry(final int index, final CsvLine line,
+			final Instrument instrument) {
+		final Entry entry = newEntry(instrument);
+		entry.decode(line);
+		entry.index = index;
+		return entry;
+	}
 
 	static final Builder from(final DDF_QueryType<?> queryType) {
 
@@ -0,0 +1,318 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.provider;
+
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.RESULT_TIME_EOD;
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.RESULT_TIME_MINS;
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.RESULT_TIME_TICKS;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.barchart.util.common.anno.NotThreadSafe;
+
+/**
+ * One response line as ascii bytes, split into comma separated fields;
+ * fields are decoded in place, with the same results as the string decoders
+ * in {@link CodecHelper}.
+ * <p>
+ * Line bytes are not copied; they are valid until next
+ * {@link ZipReader#readLine(CsvLine)}.
+ */
+@NotThreadSafe
+final class CsvLine {
+
+	private static final Chronology UTC = ISOChronology.getInstanceUTC();
+
+	static final int FIELD_LIMIT = 32;
+
+	private final DateTimeZone zone;
+
+	private byte[] array;
+
+	private int start;
+
+	private int finish;
+
+	/** field count, after split */
+	private int count;
+
+	private final int[] fieldStart = new int[FIELD_LIMIT];
+
+	private final int[] fieldFinish = new int[FIELD_LIMIT];
+
+	/** @param timeZoneName instrument time zone, for time fields */
+	CsvLine(final String timeZoneName) {
+		this.zone = DateTimeZone.forID(timeZoneName);
+	}
+
+	/** wrap bytes [start, finish) and split into fields */
+	void wrap(final byte[] array, final int start, final int finish) {
+
+		this.array = array;
+		this.start = start;
+		this.finish = finish;
+
+		count = 0;
+
+		if (start == finish) {
+			return;
+		}
+
+		int field = start;
+
+		for (int index = start; index < finish; index++) {
+			if (array[index] == ',') {
+				add(field, index);
+				field = index + 1;
+			}
+		}
+
+		add(field, finish);
+
+	}
+
+	private void add(final int from, final int upto) {
+		if (count == FIELD_LIMIT) {
+			return;
+		}
+		fieldStart[count] = from;
+		fieldFinish[count] = upto;
+		count++;
+	}
+
+	int length() {
+		return finish - start;
+	}
+
+	boolean isEmpty() {
+		return start == finish;
+	}
+
+	int fieldCount() {
+		return count;
+	}
+
+	private int from(final int field) {
+		if (field >= count) {
+			throw new ArrayIndexOutOfBoundsException(field);
+		}
+		return fieldStart[field];
+	}
+
+	/** true if line contains given ascii keyword */
+	boolean contains(final String keyword) {
+		final int size = keyword.length();
+		outer: for (int index = start; index <= finish - size; index++) {
+			for (int k = 0; k < size; k++) {
+				if (array[index + k] != keyword.charAt(k)) {
+					continue outer;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return ascii(start, finish);
+	}
+
+	private String ascii(final int from, final int upto) {
+		final char[] chars = new char[upto - from];
+		for (int index = from; index < upto; index++) {
+			chars[index - from] = (char) (array[index] & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	// fields ///////////////////////////
+
+	String string(final int field) {
+		return ascii(from(field), fieldFinish[field]);
+	}
+
+	/** same field as known string, without making a new one */
+	String string(final int field, final String known) {
+
+		final int from = from(field);
+		final int upto = fieldFinish[field];
+
+		if (known != null && known.length() == upto - from) {
+			boolean same = true;
+			for (int index = from; index < upto; index++) {
+				if (array[index] != known.charAt(index - from)) {
+					same = false;
+					break;
+				}
+			}
+			if (same) {
+				return known;
+			}
+		}
+
+		return ascii(from, upto);
+
+	}
+
+	/** first byte; zero when empty */
+	byte decodeByte(final int field) {
+		final int from = from(field);
+		return from == fieldFinish[field] ? 0 : array[from];
+	}
+
+	int decodeInt(final int field) {
+		return (int) decodeLong(field);
+	}
+
+	/** zero when empty */
+	long decodeLong(final int field) {
+		return parseLong(from(field), fieldFinish[field]);
+	}
+
+	private long parseLong(int from, final int upto) {
+
+		if (from == upto) {
+			return 0;
+		}
+
+		final boolean negative = array[from] == '-';
+
+		if (negative || array[from] == '+') {
+			from++;
+		}
+
+		long value = 0;
+
+		for (int index = from; index < upto; index++) {
+			value = value * 10 + digit(index);
+		}
+
+		return negative ? -value : value;
+
+	}
+
+	private int digit(final int index) {
+		final int digit = array[index] - '0';
+		if (digit < 0 || digit > 9) {
+			throw new NumberFormatException("not a digit : "
+					+ ascii(start, finish));
+		}
+		return digit;
+	}
+
+	/** see {@link CodecHelper#decodeMantissa(String, int)} */
+	long decodeMantissa(final int field, final int exponent) {
+
+		final int from = from(field);
+		final int upto = fieldFinish[field];
+
+		int point = upto;
+
+		for (int index = from; index < upto; index++) {
+			if (array[index] == '.') {
+				point = index;
+				break;
+			}
+		}
+
+		final boolean negative = point > from && array[from] == '-';
+
+		long whole = parseLong(from, point);
+
+		final int spaces = point == upto ? 0 : upto - point - 1;
+
+		long part = spaces == 0 ? 0 : parseLong(point + 1, upto);
+
+		for (int k = 0; k < spaces; k++) {
+			whole *= 10;
+		}
+
+		if (whole < 0 || (whole == 0 && negative)) {
+			part = -part;
+		}
+
+		long mantissa = whole + part;
+
+		int thisExp = -spaces;
+
+		while (thisExp < exponent) {
+			mantissa /= 10;
+			thisExp++;
+		}
+
+		while (thisExp > exponent) {
+			mantissa *= 10;
+			thisExp--;
+		}
+
+		return mantissa;
+
+	}
+
+	/**
+	 * one of {@link CodecHelper#RESULT_TIME_TICKS},
+	 * {@link CodecHelper#RESULT_TIME_MINS}, {@link CodecHelper#RESULT_TIME_EOD}
+	 * in instrument time zone; other layouts go through the formatter
+	 */
+	long decodeTime(final int field, final DateTimeFormatter format) {
+
+		final int from = from(field);
+		final int size = fieldFinish[field] - from;
+
+		final boolean isTicks = format == RESULT_TIME_TICKS && size == 23;
+		final boolean isMins = format == RESULT_TIME_MINS && size == 16;
+		final boolean isEod = format == RESULT_TIME_EOD && size == 10;
+
+		if (!(isTicks || isMins || isEod) || !isDate(from)) {
+			return format.withZone(zone).parseMillis(string(field));
+		}
+
+		final int year = number(from, 4);
+		final int month = number(from + 5, 2);
+		final int day = number(from + 8, 2);
+
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		int millis = 0;
+
+		if (isTicks || isMins) {
+			hour = number(from + 11, 2);
+			minute = number(from + 14, 2);
+		}
+
+		if (isTicks) {
+			second = number(from + 17, 2);
+			millis = number(from + 20, 3);
+		}
+
+		final long local = UTC.getDateTimeMillis(year, month, day, hour,
+				minute, second, millis);
+
+		return zone.convertLocalToUTC(local, false);
+
+	}
+
+	/** yyyy-MM-dd at given offset */
+	private boolean isDate(final int from) {
+		return array[from + 4] == '-' && array[from + 7] == '-';
+	}
+
+	private int number(final int from, final int size) {
+		int value = 0;
+		for (int index = from; index < from + size; index++) {
+			value = value * 10 + digit(index);
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,337 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.provider;
+
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.checkNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * Local disk cache of historical response pages, for
+ * {@link DDF_HistoricalFetcher}; one gzip file per page, named by digest of
+ * the query url without server and credentials.
+ * <p>
+ * Only pages of closed days are kept: sub range must end before start of
+ * previous day, in instrument time zone. Least recently used pages are
+ * removed when size limit is reached.
+ */
+@ThreadSafe
+public final class DDF_HistoricalCache {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(DDF_HistoricalCache.class);
+
+	static final String SUFFIX = ".gz";
+
+	private final File folder;
+
+	private final long sizeLimit;
+
+	/** file name to file size, least recently used first */
+	private final LinkedHashMap<String, Long> pageMap = //
+	new LinkedHashMap<String, Long>(256, 0.75f, true);
+
+	private long size;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong stores = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param folder
+	 *            cache folder, created when missing; existing pages are kept
+	 * @param sizeLimit
+	 *            bytes on disk
+	 */
+	public DDF_HistoricalCache(final File folder, final long sizeLimit) {
+
+		checkNull(folder, "folder is null");
+
+		if (sizeLimit <= 0) {
+			throw new IllegalArgumentException("sizeLimit=" + sizeLimit);
+		}
+
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			throw new IllegalArgumentException("can not create " + folder);
+		}
+
+		this.folder = folder;
+		this.sizeLimit = sizeLimit;
+
+		load();
+
+	}
+
+	/** index existing pages, oldest first */
+	private synchronized void load() {
+
+		final File[] fileArray = folder.listFiles();
+
+		if (fileArray == null) {
+			return;
+		}
+
+		Arrays.sort(fileArray, new Comparator<File>() {
+			@Override
+			public int compare(final File one, final File two) {
+				final long diff = one.lastModified() - two.lastModified();
+				return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+			}
+		});
+
+		for (final File file : fileArray) {
+			final String name = file.getName();
+			if (!file.isFile() || !name.endsWith(SUFFIX)) {
+				continue;
+			}
+			pageMap.put(name, file.length());
+			size += file.length();
+		}
+
+		evict();
+
+	}
+
+	// key ///////////////////////////
+
+	/**
+	 * query url without server address, which can change between primary
+	 * and secondary, and without user name and password
+	 */
+	static String key(final String stringURL) {
+
+		final int page = stringURL.lastIndexOf('/',
+				stringURL.indexOf('?') < 0 ? stringURL.length() : stringURL
+						.indexOf('?'));
+
+		final String path = stringURL.substring(page + 1);
+
+		final int mark = path.indexOf('?');
+
+		if (mark < 0) {
+			return path;
+		}
+
+		final StringBuilder text = new StringBuilder(path.length());
+
+		text.append(path, 0, mark + 1);
+
+		boolean first = true;
+
+		for (final String param : path.substring(mark + 1).split("&")) {
+			if (param.startsWith("username=") || param.startsWith("password=")) {
+				continue;
+			}
+			if (!first) {
+				text.append('&');
+			}
+			text.append(param);
+			first = false;
+		}
+
+		return text.toString();
+
+	}
+
+	static String fileName(final String key) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+					key.getBytes("UTF-8"));
+			final StringBuilder text = new StringBuilder(48);
+			for (final byte octet : digest) {
+				text.append(Character.forDigit((octet >> 4) & 0xF, 16));
+				text.append(Character.forDigit(octet & 0xF, 16));
+			}
+			return text.append(SUFFIX).toString();
+		} catch (final Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** true when sub range ends before start of previous day */
+	static boolean isClosed(final DDF_Query<?> query, final long millisNow) {
+
+		if (query.timeEnd == null || query.instrument == null) {
+			return false;
+		}
+
+		final DateTimeZone zone = DateTimeZone.forID(query.instrument
+				.timeZoneName());
+
+		final DateTime closed = new DateTime(millisNow, zone)
+				.withTimeAtStartOfDay().minusDays(1);
+
+		return !query.timeEnd.isAfter(closed);
+
+	}
+
+	// pages ///////////////////////////
+
+	/** gzip page stream, or null on miss */
+	InputStream open(final String key) {
+
+		final String name = fileName(key);
+
+		synchronized (this) {
+			if (pageMap.get(name) == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+		}
+
+		final File file = new File(folder, name);
+
+		try {
+			final InputStream stream = new FileInputStream(file);
+			file.setLastModified(System.currentTimeMillis());
+			hits.incrementAndGet();
+			return stream;
+		} catch (final Exception e) {
+			/* evicted meanwhile */
+			misses.incrementAndGet();
+			return null;
+		}
+
+	}
+
+	/** keep gzip page; written aside first, so readers never see a partial page */
+	void store(final String key, final byte[] page) {
+
+		final String name = fileName(key);
+
+		final File temp = new File(folder, name + ".tmp"
+				+ Thread.currentThread().getId());
+
+		final File file = new File(folder, name);
+
+		try {
+
+			final FileOutputStream output = new FileOutputStream(temp);
+			try {
+				output.write(page);
+			} finally {
+				output.close();
+			}
+
+			synchronized (this) {
+
+				file.delete();
+
+				if (!temp.renameTo(file)) {
+					throw new IllegalStateException("rename failed " + file);
+				}
+
+				final Long past = pageMap.put(name, (long) page.length);
+
+				if (past != null) {
+					size -= past;
+				}
+
+				size += page.length;
+
+				evict();
+
+			}
+
+			stores.incrementAndGet();
+
+		} catch (final Exception e) {
+
+			log.error("page store failed " + file, e);
+
+			temp.delete();
+
+		}
+
+	}
+
+	/** must hold lock */
+	private void evict() {
+
+		final Iterator<Map.Entry<String, Long>> iterator = pageMap.entrySet()
+				.iterator();
+
+		while (size > sizeLimit && iterator.hasNext()) {
+
+			final Map.Entry<String, Long> entry = iterator.next();
+
+			iterator.remove();
+
+			size -= entry.getValue();
+
+			new File(folder, entry.getKey()).delete();
+
+			evictions.incrementAndGet();
+
+		}
+
+	}
+
+	/** remove all pages */
+	public synchronized void clear() {
+		for (final String name : pageMap.keySet()) {
+			new File(folder, name).delete();
+		}
+		pageMap.clear();
+		size = 0;
+	}
+
+	// metrics ///////////////////////////
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public long stores() {
+		return stores.get();
+	}
+
+	public long evictions() {
+		return evictions.get();
+	}
+
+	/** bytes on disk */
+	public synchronized long size() {
+		return size;
+	}
+
+	public synchronized int pageCount() {
+		return pageMap.size();
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + hits() + " misses=" + misses() + " stores="
+				+ stores() + " evictions=" + evictions() + " pages="
+				+ pageCount() + " size=" + size();
+	}
+
+}
@@ -0,0 +1,498 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.provider;
+
+import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.MINUTES;
+import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.MINUTES_FORM_T;
+import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.MINUTES_NEARBY;
+import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.MINUTES_TREND;
+import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.TICKS;
+import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.TICKS_FORM_T;
+import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.TICKS_TREND;
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.checkNull;
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.urlQuery;
+import static com.barchart.feed.ddf.historical.provider.ConstHistorical.STATUS_COUNT;
+import static com.barchart.feed.ddf.historical.provider.ConstHistorical.STATUS_EMPTY;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.ddf.historical.api.DDF_Entry;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.api.DDF_Result;
+import com.barchart.feed.ddf.historical.api.DDF_ResultInterruptedException;
+import com.barchart.feed.ddf.historical.api.DDF_ResultListener;
+import com.barchart.feed.ddf.historical.enums.DDF_QueryOrder;
+import com.barchart.feed.ddf.historical.enums.DDF_ResultStatus;
+import com.barchart.feed.ddf.historical.provider.ZipReader.ZipType;
+import com.barchart.feed.ddf.settings.api.DDF_Settings;
+import com.barchart.util.common.anno.ThreadSafe;
+
+/**
+ * Splits a query time range into day (ticks) or week (minutes) sub ranges,
+ * fetches them concurrently and merges them back into one result, in query
+ * order; end of day queries and queries without both start and end time are
+ * fetched as is.
+ * <p>
+ * Threads are shared by all queries of this fetcher; connections per server
+ * host are limited separately, so one fetcher can serve many contracts
+ * without flooding the server.
+ * <p>
+ * With a {@link DDF_HistoricalCache}, sub ranges of closed days are served
+ * from disk when present, and kept after download otherwise; a query over
+ * a partly cached range only downloads the missing sub ranges.
+ */
+@ThreadSafe
+public final class DDF_HistoricalFetcher {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(DDF_HistoricalFetcher.class);
+
+	private final DDF_Settings settings;
+
+	private final ExecutorService executor;
+
+	private final int connectionsPerHost;
+
+	/** null when not caching */
+	private final DDF_HistoricalCache cache;
+
+	private final ConcurrentMap<String, Semaphore> hostMap = //
+	new ConcurrentHashMap<String, Semaphore>();
+
+	/**
+	 * @param threads
+	 *            concurrent sub range requests, for all queries
+	 * @param connectionsPerHost
+	 *            concurrent requests to any one server host
+	 */
+	public DDF_HistoricalFetcher(final DDF_Settings settings,
+			final int threads, final int connectionsPerHost) {
+		this(settings, threads, connectionsPerHost, null);
+	}
+
+	/**
+	 * @param cache
+	 *            pages of closed days are read from and kept in cache; can
+	 *            be null
+	 */
+	public DDF_HistoricalFetcher(final DDF_Settings settings,
+			final int threads, final int connectionsPerHost,
+			final DDF_HistoricalCache cache) {
+
+		checkNull(settings, "settings is null");
+
+		if (threads < 1 || connectionsPerHost < 1) {
+			throw new IllegalArgumentException("threads=" + threads
+					+ " connectionsPerHost=" + connectionsPerHost);
+		}
+
+		this.settings = settings;
+		this.connectionsPerHost = connectionsPerHost;
+		this.cache = cache;
+
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			final AtomicLong counter = new AtomicLong(0);
+
+			@Override
+			public Thread newThread(final Runnable r) {
+
+				final Thread t = new Thread(r, "Historical thread "
+						+ counter.getAndIncrement());
+
+				t.setDaemon(true);
+
+				return t;
+			}
+
+		});
+
+	}
+
+	/** stops fetch threads; queries in progress are interrupted */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	// plan ///////////////////////////
+
+	/** sub range length in days for query type; zero when not split */
+	static int chunkDays(final DDF_Query<?> query) {
+
+		if (query.timeStart == null || query.timeEnd == null) {
+			return 0;
+		}
+
+		if (query.type.isIn(TICKS, TICKS_FORM_T, TICKS_TREND)) {
+			return 1;
+		}
+
+		if (query.type.isIn(MINUTES, MINUTES_NEARBY, MINUTES_FORM_T,
+				MINUTES_TREND)) {
+			return 7;
+		}
+
+		return 0;
+
+	}
+
+	/**
+	 * contiguous sub range queries in ascending time order; each has the
+	 * inclusive start and exclusive end of the query, so nothing is fetched
+	 * twice
+	 * <p>
+	 * Inner boundaries fall on midnight, or on monday midnight for weeks, in
+	 * instrument time zone, so different queries share sub ranges, for
+	 * {@link DDF_HistoricalCache}.
+	 */
+	static <E extends DDF_Entry> List<DDF_Query<E>> split(
+			final DDF_Query<E> query) {
+
+		final List<DDF_Query<E>> list = new ArrayList<DDF_Query<E>>();
+
+		final int days = chunkDays(query);
+
+		if (days == 0 || !query.timeStart.isBefore(query.timeEnd)) {
+			list.add(query);
+			return list;
+		}
+
+		final DateTimeZone zone = DateTimeZone.forID(query.instrument
+				.timeZoneName());
+
+		DateTime start = query.timeStart;
+
+		while (start.isBefore(query.timeEnd)) {
+
+			final DateTime day = start.withZone(zone).withTimeAtStartOfDay();
+
+			DateTime end;
+
+			if (days == 7) {
+				end = day.withDayOfWeek(DateTimeConstants.MONDAY).plusWeeks(1);
+			} else {
+				end = day.plusDays(days);
+			}
+
+			if (end.isAfter(query.timeEnd)) {
+				end = query.timeEnd;
+			}
+
+			final DDF_Query<E> part = copy(query);
+			part.timeStart = start;
+			part.timeEnd = end;
+
+			list.add(part);
+
+			start = end;
+
+		}
+
+		return list;
+
+	}
+
+	private static <E extends DDF_Entry> DDF_Query<E> copy(
+			final DDF_Query<E> query) {
+
+		final DDF_Query<E> that = new DDF_Query<E>(query.type);
+
+		that.initFrom(query);
+
+		/* not covered by initFrom */
+		that.resultOrder = query.resultOrder;
+		that.backadjust = query.backadjust;
+		that.daystoexpiration = query.daystoexpiration;
+		that.contractroll = query.contractroll;
+
+		return that;
+
+	}
+
+	// fetch ///////////////////////////
+
+	/** entries of one sub range, with its final status */
+	static final class Chunk<E extends DDF_Entry> {
+
+		final List<E> entryList = new ArrayList<E>();
+
+		DDF_ResultStatus status;
+
+		String statusComment;
+
+	}
+
+	private Semaphore hostLimit(final String stringURL) {
+
+		String host;
+		try {
+			final URL url = new URL(stringURL);
+			host = url.getHost() + ":" + url.getPort();
+		} catch (final Exception e) {
+			host = "";
+		}
+
+		Semaphore limit = hostMap.get(host);
+
+		if (limit == null) {
+			final Semaphore fresh = new Semaphore(connectionsPerHost);
+			limit = hostMap.putIfAbsent(host, fresh);
+			if (limit == null) {
+				limit = fresh;
+			}
+		}
+
+		return limit;
+
+	}
+
+	private <E extends DDF_Entry> Callable<Chunk<E>> task(
+			final DDF_Query<E> part) {
+
+		final String stringURL = urlQuery(settings, part);
+
+		final Semaphore limit = hostLimit(stringURL);
+
+		/* null when page is not cached */
+		final String key;
+
+		if (cache != null
+				&& DDF_HistoricalCache.isClosed(part,
+						System.currentTimeMillis())) {
+			key = DDF_HistoricalCache.key(stringURL);
+		} else {
+			key = null;
+		}
+
+		return new Callable<Chunk<E>>() {
+
+			@Override
+			public Chunk<E> call() throws Exception {
+
+				final ResultCursor<E> cursor = new ResultCursor<E>(part,
+						stringURL, null);
+
+				final InputStream cached = key == null ? null : cache
+						.open(key);
+
+				if (cached != null) {
+					return drain(cursor.open(new ZipReader(ZipType.GZIP,
+							cached)));
+				}
+
+				final byte[] page;
+
+				limit.acquire();
+
+				try {
+
+					if (key == null) {
+						return drain(cursor.open());
+					}
+
+					page = ZipReader.readGzip(stringURL);
+
+				} catch (final InterruptedException e) {
+					throw e;
+				} catch (final Exception e) {
+					log.error("query lookup failed", e);
+					final Chunk<E> chunk = new Chunk<E>();
+					chunk.status = DDF_ResultStatus.ERROR;
+					chunk.statusComment = e.getMessage();
+					return chunk;
+				} finally {
+					limit.release();
+				}
+
+				final Chunk<E> chunk = drain(cursor.open(new ZipReader(
+						ZipType.GZIP, new ByteArrayInputStream(page))));
+
+				/* error pages and cut off pages are not kept */
+				if (chunk.status == DDF_ResultStatus.SUCCESS) {
+					cache.store(key, page);
+				}
+
+				return chunk;
+
+			}
+
+		};
+
+	}
+
+	private static <E extends DDF_Entry> Chunk<E> drain(
+			final ResultCursor<E> cursor) {
+
+		final Chunk<E> chunk = new Chunk<E>();
+
+		try {
+			while (cursor.hasNext()) {
+				chunk.entryList.add(cursor.next());
+			}
+		} finally {
+			cursor.close();
+		}
+
+		chunk.status = cursor.getStatus();
+		chunk.statusComment = cursor.getStatusComment();
+
+		return chunk;
+
+	}
+
+	/**
+	 * Same result as {@link DDF_HistoricalService#newResult}, from sub range
+	 * requests made in parallel; blocks until merged.
+	 * <p>
+	 * Max records applies to the merged result; sub ranges which are not
+	 * needed to reach it are cancelled. First failed sub range fails the
+	 * result.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends DDF_Entry> DDF_Result<E> newResult(
+			final DDF_Query<E> query, final DDF_ResultListener listener)
+			throws RuntimeException {
+
+		checkNull(query, "query is null");
+		checkNull(query.type, "query type is null");
+		checkNull(query.instrument, "query instrument is null");
+
+		final String stringURL = urlQuery(settings, query);
+		log.debug("stringURL : \n\t {}", stringURL);
+
+		final E entryReference = (E) Builder.from(query.type).newEntry(0,
+				null, query.instrument);
+
+		final Result<E> result = new Result<E>(query, entryReference, listener);
+
+		result.urlQuery = stringURL;
+
+		final List<DDF_Query<E>> partList = split(query);
+
+		final List<Future<Chunk<E>>> futureList = //
+		new ArrayList<Future<Chunk<E>>>(partList.size());
+
+		for (final DDF_Query<E> part : partList) {
+			futureList.add(executor.submit(task(part)));
+		}
+
+		/* sub ranges are in ascending time order */
+		if (query.resultOrder == DDF_QueryOrder.DESCENDING) {
+			Collections.reverse(futureList);
+		}
+
+		final int maxRecords = query.maxRecords;
+
+		int index = 0;
+
+		try {
+
+			for (final Future<Chunk<E>> future : futureList) {
+
+				if (result.status != null
+						|| (maxRecords > 0 && index >= maxRecords)) {
+					future.cancel(true);
+					continue;
+				}
+
+				final Chunk<E> chunk = future.get();
+
+				if (chunk.status != DDF_ResultStatus.SUCCESS) {
+					result.status = chunk.status;
+					result.statusComment = chunk.statusComment;
+					continue;
+				}
+
+				for (final E entry : chunk.entryList) {
+
+					if (maxRecords > 0 && index >= maxRecords) {
+						break;
+					}
+
+					((Entry) entry).index = index;
+
+					result.add(index, entry);
+
+					index++;
+
+				}
+
+			}
+
+			if (result.status == null) {
+				result.status = DDF_ResultStatus.SUCCESS;
+				result.statusComment = index == 0 ? STATUS_EMPTY
+						: STATUS_COUNT + index;
+			}
+
+		} catch (final InterruptedException e) {
+
+			interrupted(query, futureList, result, "fetch interrupted", index);
+
+			Thread.currentThread().interrupt();
+
+		} catch (final DDF_ResultInterruptedException e) {
+
+			interrupted(query, futureList, result, e.getMessage(), index);
+
+		} catch (final ExecutionException e) {
+
+			log.error("query lookup failed", e.getCause());
+
+			cancel(futureList);
+
+			result.status = DDF_ResultStatus.ERROR;
+			result.statusComment = e.getCause().getMessage();
+
+		}
+
+		return result;
+
+	}
+
+	private static void interrupted(final DDF_Query<?> query,
+			final List<? extends Future<?>> futureList, final Result<?> result,
+			final String message, final int index) {
+
+		log.debug("query lookup interrupted; query={}", query);
+
+		cancel(futureList);
+
+		result.status = DDF_ResultStatus.INTERRUPTED;
+		result.statusComment = message + " at " + index;
+
+	}
+
+	private static void cancel(final List<? extends Future<?>> futureList) {
+		for (final Future<?> future : futureList) {
+			future.cancel(true);
+		}
+	}
+
+}
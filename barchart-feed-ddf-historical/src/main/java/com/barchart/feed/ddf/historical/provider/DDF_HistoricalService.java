@@ -16,11 +16,8 @@ import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.MINUTES_TREND
 import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.TICKS;
 import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.TICKS_FORM_T;
 import static com.barchart.feed.ddf.historical.enums.DDF_QueryType.TICKS_TREND;
-import static com.barchart.feed.ddf.historical.provider.CodecHelper.KEYWORD_ERROR;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.checkNull;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.urlQuery;
-import static com.barchart.feed.ddf.historical.provider.ConstHistorical.STATUS_COUNT;
-import static com.barchart.feed.ddf.historical.provider.ConstHistorical.STATUS_EMPTY;
 
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -32,14 +29,17 @@ import com.barchart.feed.ddf.historical.api.DDF_EntryBarEod;
 import com.barchart.feed.ddf.historical.api.DDF_EntryBarMin;
 import com.barchart.feed.ddf.historical.api.DDF_EntryBarMinFormT;
 import com.barchart.feed.ddf.historical.api.DDF_EntryBarMinNearby;
+import com.barchart.feed.ddf.historical.api.DDF_EntryHandler;
 import com.barchart.feed.ddf.historical.api.DDF_EntryTick;
 import com.barchart.feed.ddf.historical.api.DDF_EntryTickFormT;
 import com.barchart.feed.ddf.historical.api.DDF_EntryTrend;
 import com.barchart.feed.ddf.historical.api.DDF_Query;
 import com.barchart.feed.ddf.historical.api.DDF_Result;
-import com.barchart.feed.ddf.historical.api.DDF_ResultEmptyException;
+import com.barchart.feed.ddf.historical.api.DDF_ResultBars;
+import com.barchart.feed.ddf.historical.api.DDF_ResultCursor;
 import com.barchart.feed.ddf.historical.api.DDF_ResultInterruptedException;
 import com.barchart.feed.ddf.historical.api.DDF_ResultListener;
+import com.barchart.feed.ddf.historical.api.DDF_ResultTicks;
 import com.barchart.feed.ddf.historical.enums.DDF_QueryEodType;
 import com.barchart.feed.ddf.historical.enums.DDF_QueryEodVolume;
 import com.barchart.feed.ddf.historical.enums.DDF_QueryOrder;
@@ -141,6 +141,7 @@ public final class DDF_HistoricalService {
 
 		checkNull(query, "query is null");
 		checkNull(query.type, "query type is null");
+		checkNull(query.instrument, "query instrument is null");
 
 		// detach from source
 		//query = query.clone();
@@ -159,70 +160,41 @@ public final class DDF_HistoricalService {
 		// set url query for debugging
 		
 		result.urlQuery = stringURL;
-		
-		String firstLine = "";
+
+		/* result reports progress and interruption of its own */
+		final ResultCursor<E> cursor = new ResultCursor<E>(query, stringURL,
+				null);
+
 		int index = 0;
 
 		try {
 
-			final ZipReader reader = ZipReader.fromURL(stringURL);
+			cursor.open();
 
-			while (true) {
-				final String inputLine = reader.readLine();
-				
-				if (inputLine == null) {
-					break;
-				}
-				if (inputLine.length() == 0) {
-					continue;
-				}
-				// log.info("inputLine : {}", inputLine);
-				if (index == 0) {
-					firstLine = inputLine;
-					if (firstLine.contains(KEYWORD_ERROR)) {
-						index++;
-						break;
-					}
-				}
-				final E entry = (E) builder.newEntry(index, inputLine,
-						instrument);
-				result.add(index, entry);
-				
+			while (cursor.hasNext()) {
+				result.add(index, cursor.next());
 				index++;
 			}
 
-			reader.close();
-
-			if (index == 0) {
-				result.status = DDF_ResultStatus.SUCCESS;
-				result.statusComment = STATUS_EMPTY;
-			} else if (firstLine.contains(KEYWORD_ERROR)) {
-				result.status = DDF_ResultStatus.ERROR;
-				result.statusComment = firstLine;
-			} else {
-				result.status = DDF_ResultStatus.SUCCESS;
-				result.statusComment = STATUS_COUNT + index;
-			}
+			result.status = cursor.getStatus();
+			result.statusComment = cursor.getStatusComment();
 
 		} catch (final DDF_ResultInterruptedException e) {
 
 			log.debug("query lookup interrupted; query={}", query);
 
+			cursor.close();
+
 			result.status = DDF_ResultStatus.INTERRUPTED;
 			result.statusComment = e.getMessage() + " at " + index;
 
-		} catch (final DDF_ResultEmptyException e) {
-
-			log.debug("got an empty server page; query={}", query);
-
-			result.status = DDF_ResultStatus.SUCCESS;
-			result.statusComment = STATUS_COUNT + 0;
-
 		} catch (final Exception e) {
 
 			log.debug("query lookup failed; query={}", query);
 			log.error("query lookup failed", e);
 
+			cursor.close();
+
 			result.status = DDF_ResultStatus.ERROR;
 			result.statusComment = e.getMessage();
 
@@ -232,6 +204,124 @@ public final class DDF_HistoricalService {
 
 	}
 
+	// streaming result ///////////////////////////
+
+	/**
+	 * Streaming query; entries are decoded as the response is read and are
+	 * not retained, so memory use does not depend on result size.
+	 * <p>
+	 * Caller must exhaust or close the cursor.
+	 *
+	 * @param listener
+	 *            progress, every {@link DDF_ResultListener#PROGRESS_SIZE}
+	 *            entries; can be null
+	 */
+	public static final <E extends DDF_Entry> DDF_ResultCursor<E> newCursor(
+			final DDF_Settings settings, final DDF_Query<E> query,
+			final DDF_ResultListener listener) throws RuntimeException {
+
+		checkNull(query, "query is null");
+		checkNull(query.type, "query type is null");
+		checkNull(query.instrument, "query instrument is null");
+
+		final String stringURL = urlQuery(settings, query);
+		log.debug("stringURL : \n\t {}", stringURL);
+
+		return new ResultCursor<E>(query, stringURL, listener).open();
+
+	}
+
+	/**
+	 * Streaming query with push delivery on the calling thread; returns when
+	 * response is exhausted, or when handler asks to stop.
+	 *
+	 * @return finished cursor, for status
+	 */
+	public static final <E extends DDF_Entry> DDF_ResultCursor<E> scanResult(
+			final DDF_Settings settings, final DDF_Query<E> query,
+			final DDF_ResultListener listener, final DDF_EntryHandler<E> handler)
+			throws RuntimeException {
+
+		checkNull(handler, "handler is null");
+
+		final DDF_ResultCursor<E> cursor = newCursor(settings, query, listener);
+
+		try {
+			while (cursor.hasNext()) {
+				if (!handler.onEntry(cursor.next())) {
+					break;
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+
+		return cursor;
+
+	}
+
+	// column result ///////////////////////////
+
+	/**
+	 * Tick result kept in primitive columns instead of one object per tick;
+	 * for large queries which are scanned or aggregated rather than held as
+	 * entries.
+	 */
+	public static final DDF_ResultTicks newResultTicksColumns(
+			final DDF_Settings settings, final DDF_Query<DDF_EntryTick> query,
+			final DDF_ResultListener listener) throws RuntimeException {
+
+		checkColumns(query, TICKS);
+
+		final ResultTicks result = new ResultTicks(query, listener);
+
+		result.urlQuery = urlQuery(settings, query);
+		log.debug("stringURL : \n\t {}", result.urlQuery);
+
+		result.fill(new ResultCursor<DDF_EntryTick>(query, result.urlQuery,
+				null).open());
+
+		return result;
+
+	}
+
+	/**
+	 * Minute bar result kept in primitive columns instead of one object per
+	 * bar; for large queries which are scanned or aggregated rather than held
+	 * as entries.
+	 */
+	public static final DDF_ResultBars<DDF_EntryBarMin> newResultMinsColumns(
+			final DDF_Settings settings,
+			final DDF_Query<DDF_EntryBarMin> query,
+			final DDF_ResultListener listener) throws RuntimeException {
+
+		checkColumns(query, MINUTES);
+
+		final ResultMins result = new ResultMins(query, listener);
+
+		result.urlQuery = urlQuery(settings, query);
+		log.debug("stringURL : \n\t {}", result.urlQuery);
+
+		result.fill(new ResultCursor<DDF_EntryBarMin>(query,
+				result.urlQuery, null).open());
+
+		return result;
+
+	}
+
+	private static void checkColumns(final DDF_Query<?> query,
+			final DDF_QueryType<?> type) {
+
+		checkNull(query, "query is null");
+		checkNull(query.instrument, "query instrument is null");
+
+		if (query.type != type) {
+			throw new IllegalArgumentException("query type must be " + type
+					+ " : " + query.type);
+		}
+
+	}
+
 	// result ticks ///////////////////////////
 
 	/**
@@ -88,6 +88,23 @@ abstract class Entry implements DDF_Entry, Codec {
 		throw new UnsupportedOperationException();
 	}
 
+	protected void decodeHead(final CsvLine line) {
+		throw new UnsupportedOperationException();
+	}
+
+	protected void decodeTail(final CsvLine line) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** same as {@link #decode(String)}, from line bytes */
+	void decode(final CsvLine line) {
+
+		decodeHead(line);
+
+		decodeTail(line);
+
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
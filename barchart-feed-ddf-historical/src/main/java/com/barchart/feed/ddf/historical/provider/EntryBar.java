@@ -7,6 +7,7 @@
  */
 package com.barchart.feed.ddf.historical.provider;
 
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.RESULT_TIME_MINS;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeInt;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeLong;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeMantissa;
@@ -120,6 +121,22 @@ abstract class EntryBar extends Entry implements DDF_EntryBar {
 
 	}
 
+	@Override
+	void decode(final CsvLine line) {
+
+		millisUTC = line.decodeTime(0, RESULT_TIME_MINS);
+
+		ordTradeDay = DDF_TradeDay.fromDay(line.decodeInt(1)).ord;
+
+		priceOpenMantissa = line.decodeMantissa(2, priceExponent());
+		priceHighMantissa = line.decodeMantissa(3, priceExponent());
+		priceLowMantissa = line.decodeMantissa(4, priceExponent());
+		priceCloseMantissa = line.decodeMantissa(5, priceExponent());
+
+		sizeVolume = line.decodeLong(6);
+
+	}
+
 	/* (non-Javadoc)
 	 * @see com.barchart.feed.ddf.historical.provider.Entry#encode()
 	 */
@@ -7,6 +7,7 @@
  */
 package com.barchart.feed.ddf.historical.provider;
 
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.RESULT_TIME_EOD;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeEodTime;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeLong;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeMantissa;
@@ -86,6 +87,28 @@ class EntryEod extends EntryBar implements DDF_EntryBarEod {
 
 	}
 
+	@Override
+	void decode(final CsvLine line) {
+
+		symbol = line.string(0, symbol);
+
+		millisUTC = line.decodeTime(1, RESULT_TIME_EOD);
+
+		ordTradeDay = DDF_TradeDay.fromMillisUTC(millisUTC).ord;
+
+		priceOpenMantissa = line.decodeMantissa(2, priceExponent());
+		priceHighMantissa = line.decodeMantissa(3, priceExponent());
+		priceLowMantissa = line.decodeMantissa(4, priceExponent());
+		priceCloseMantissa = line.decodeMantissa(5, priceExponent());
+
+		sizeVolume = line.decodeLong(6);
+
+		if (line.fieldCount() >= 8) {
+			sizeInterest = line.decodeLong(7);
+		}
+
+	}
+
 	static final String HEADER = "INDEX,SYMBOL,MILLIS_UTC,DATE_TIME_ISO,"
 			+ "PRICE_OPEN,PRICE_HIGH,PRICE_LOW,PRICE_CLOSE,"
 			+ "SIZE_VOLUME,SIZE_INTEREST";
@@ -7,6 +7,7 @@
  */
 package com.barchart.feed.ddf.historical.provider;
 
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.RESULT_TIME_EOD;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeEodTime;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.decodeMantissa;
 import static com.barchart.feed.ddf.historical.provider.CodecHelper.encodeEodTime;
@@ -85,6 +86,25 @@ class EntryEodTrend extends Entry implements DDF_EntryTrend {
 
 	}
 
+	@Override
+	public void decodeHead(final CsvLine line) {
+
+		symbol = line.string(0, symbol);
+
+		millisUTC = line.decodeTime(1, RESULT_TIME_EOD);
+
+		ordTradeDay = DDF_TradeDay.fromMillisUTC(millisUTC).ord;
+
+	}
+
+	@Override
+	public void decodeTail(final CsvLine line) {
+
+		priceSupport = line.decodeMantissa(2, priceExponent());
+		priceResistance = line.decodeMantissa(3, priceExponent());
+
+	}
+
 	/* (non-Javadoc)
 	 * @see com.barchart.feed.ddf.historical.provider.Entry#encode()
 	 */
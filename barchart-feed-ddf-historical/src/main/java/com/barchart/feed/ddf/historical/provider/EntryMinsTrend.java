@@ -78,6 +78,23 @@ class EntryMinsTrend extends Entry implements DDF_EntryTrend {
 
 	}
 
+	@Override
+	public void decodeHead(final CsvLine line) {
+
+		millisUTC = line.decodeTime(0, RESULT_TIME_MINS);
+
+		ordTradeDay = DDF_TradeDay.fromMillisUTC(millisUTC).ord;
+
+	}
+
+	@Override
+	public void decodeTail(final CsvLine line) {
+
+		priceSupport = line.decodeMantissa(1, priceExponent());
+		priceResistance = line.decodeMantissa(2, priceExponent());
+
+	}
+
 	/* (non-Javadoc)
 	 * @see com.barchart.feed.ddf.historical.provider.Entry#encode()
 	 */
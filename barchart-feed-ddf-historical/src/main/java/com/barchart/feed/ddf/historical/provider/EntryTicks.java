@@ -64,7 +64,20 @@ abstract class EntryTicks extends Entry {
 
 		// FIXME
 		ordSession = DDF_Session.fromPair(//
-				DDF_Exchange.UNKNOWN.code, decodeByte(inputArray[2])).ord;
+				DDF_Exchange.UNKNOWN.ord, decodeByte(inputArray[2])).ord;
+
+	}
+
+	@Override
+	public void decodeHead(final CsvLine line) {
+
+		millisUTC = line.decodeTime(0, RESULT_TIME_TICKS);
+
+		ordTradeDay = DDF_TradeDay.fromDay(line.decodeInt(1)).ord;
+
+		// FIXME
+		ordSession = DDF_Session.fromPair(//
+				DDF_Exchange.UNKNOWN.ord, line.decodeByte(2)).ord;
 
 	}
 
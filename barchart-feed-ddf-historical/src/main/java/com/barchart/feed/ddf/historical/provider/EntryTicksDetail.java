@@ -68,6 +68,15 @@ class EntryTicksDetail extends EntryTicks implements DDF_EntryTick {
 
 	}
 
+	@Override
+	public void decodeTail(final CsvLine line) {
+
+		priceTradeMantissa = line.decodeMantissa(3, priceExponent());
+
+		sizeTrade = line.decodeLong(4);
+
+	}
+
 	/* (non-Javadoc)
 	 * @see com.barchart.feed.ddf.historical.provider.Entry#encode()
 	 */
@@ -69,6 +69,15 @@ class EntryTicksTrend extends EntryTicks implements DDF_EntryTrend {
 
 	}
 
+	@Override
+	public void decodeTail(final CsvLine line) {
+
+		priceSupport = line.decodeMantissa(3, priceExponent());
+
+		priceResistance = line.decodeMantissa(4, priceExponent());
+
+	}
+
 	//
 
 	static final String HEADER = "INDEX,SYMBOL,MILLIS_UTC,DATE_TIME_ISO,TRADE_DAY,TRADE_SESSION,"
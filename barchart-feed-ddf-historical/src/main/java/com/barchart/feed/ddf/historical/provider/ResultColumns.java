@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.provider;
+
+import java.util.List;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.thread.Runner;
+import com.barchart.feed.ddf.historical.api.DDF_Entry;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.api.DDF_Result;
+import com.barchart.feed.ddf.historical.api.DDF_ResultInterruptedException;
+import com.barchart.feed.ddf.historical.api.DDF_ResultListener;
+import com.barchart.feed.ddf.historical.enums.DDF_ResultStatus;
+
+/**
+ * Base for results kept in primitive column arrays; rows are exposed through
+ * flyweight views positioned by index. Progress and interruption follow
+ * {@link Result}.
+ */
+abstract class ResultColumns<E extends DDF_Entry> implements DDF_Result<E> {
+
+	static final int CAPACITY = 1024;
+
+	//
+
+	protected String statusComment;
+	protected DDF_ResultStatus status;
+
+	protected String urlQuery;
+
+	//
+
+	protected final DDF_Query<E> query;
+
+	protected final Instrument inst;
+
+	protected final String symbol;
+
+	protected final int exponent;
+
+	/** number of rows in the columns */
+	protected int size;
+
+	//
+
+	private int progressCount;
+
+	private final DDF_ResultListener progressListener;
+
+	//
+
+	ResultColumns(final DDF_Query<E> query, final Entry entryReference,
+			final DDF_ResultListener listener) {
+		this.query = query;
+		this.inst = query.instrument;
+		this.symbol = entryReference.symbol();
+		this.exponent = entryReference.priceExponent();
+		this.progressListener = listener;
+	}
+
+	/** initial column size; from max records, when given */
+	static int capacity(final DDF_Query<?> query) {
+		if (query.maxRecords > 0 && query.maxRecords < CAPACITY * 1024) {
+			return query.maxRecords;
+		}
+		return CAPACITY;
+	}
+
+	//
+
+	/** copy entry fields into row {@link #size}, growing columns as needed */
+	protected abstract void append(E entry);
+
+	/** new view, not positioned */
+	protected abstract View newView();
+
+	/** row fields loaded into a shared entry, for formatting only */
+	protected abstract Entry load(int row);
+
+	protected abstract String csvHeader();
+
+	//
+
+	/** base of flyweight row views */
+	abstract class View implements DDF_Entry {
+
+		protected int row;
+
+		final View at(final int row) {
+			this.row = row;
+			return this;
+		}
+
+		@Override
+		public Instrument getInstrument() {
+			return inst;
+		}
+
+		@Override
+		public String symbol() {
+			return symbol;
+		}
+
+		@Override
+		public int getIndex() {
+			return row;
+		}
+
+		@Override
+		public int priceExponent() {
+			return exponent;
+		}
+
+		@Override
+		public String csvHeader() {
+			return ResultColumns.this.csvHeader();
+		}
+
+		@Override
+		public String csvEntry() {
+			return load(row).csvEntry();
+		}
+
+		@Override
+		public String toString() {
+			return load(row).encode();
+		}
+
+	}
+
+	//
+
+	/** drain open cursor into the columns; result takes cursor status */
+	final void fill(final ResultCursor<E> cursor) {
+
+		progressStart();
+
+		try {
+
+			while (cursor.hasNext()) {
+				append(cursor.next());
+				size++;
+				progressUpdate("entry list add interrupted");
+			}
+
+			status = cursor.getStatus();
+			statusComment = cursor.getStatusComment();
+
+		} catch (final DDF_ResultInterruptedException e) {
+
+			cursor.close();
+
+			status = DDF_ResultStatus.INTERRUPTED;
+			statusComment = e.getMessage() + " at " + size;
+
+		}
+
+	}
+
+	//
+
+	private void progressStart() {
+		progressCount = 0;
+		if (progressListener == null) {
+			return;
+		}
+		progressListener.onProgressEvent(progressCount);
+	}
+
+	private void progressUpdate(final String message) {
+		if (Thread.interrupted()) {
+			throw new DDF_ResultInterruptedException(message);
+		}
+		if (progressListener == null) {
+			return;
+		}
+		if (progressCount % DDF_ResultListener.PROGRESS_SIZE == 0) {
+			progressListener.onProgressEvent(progressCount);
+		}
+		progressCount++;
+	}
+
+	private void progressFinish() {
+		if (progressListener == null) {
+			return;
+		}
+		progressListener.onProgressEvent(progressCount);
+	}
+
+	//
+
+	@Override
+	public DDF_ResultStatus getStatus() {
+		return status;
+	}
+
+	@Override
+	public String getStatusComment() {
+		return statusComment;
+	}
+
+	@Override
+	public DDF_Query<E> getQuery() {
+		return query;
+	}
+
+	@Override
+	public String getQueryURL() {
+		return urlQuery;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public int priceExponent() {
+		return exponent;
+	}
+
+	/** new view per call, safe to retain */
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index=" + index + " size="
+					+ size);
+		}
+		return (E) newView().at(index);
+	}
+
+	/** task gets the same view for every row; do not retain it */
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R> void runLoop(final Runner<R, E> task, final List<R> list) {
+		progressStart();
+		final View view = newView();
+		for (int row = 0; row < size; row++) {
+			final R result = task.run((E) view.at(row));
+			progressUpdate("run loop interrupted");
+			if (list == null || result == null) {
+				continue;
+			}
+			list.add(result);
+		}
+		progressFinish();
+	}
+
+	@Override
+	public String toString() {
+		progressStart();
+		final StringBuilder text = new StringBuilder(1024);
+		for (int row = 0; row < size; row++) {
+			text.append(load(row).encode());
+			text.append("\n");
+			progressUpdate("export to string interrupted");
+		}
+		progressFinish();
+		return text.toString();
+	}
+
+	@Override
+	public String asCSV() {
+
+		final StringBuilder text = new StringBuilder(64 * (size + 1));
+
+		progressStart();
+
+		text.append(csvHeader());
+		text.append("\n");
+
+		for (int row = 0; row < size; row++) {
+			text.append(load(row).csvEntry());
+			text.append("\n");
+			progressUpdate("export as csv interrupted");
+		}
+
+		progressFinish();
+
+		return text.toString();
+
+	}
+
+}
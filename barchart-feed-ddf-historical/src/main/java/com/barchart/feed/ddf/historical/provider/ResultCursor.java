@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.provider;
+
+import static com.barchart.feed.ddf.historical.provider.CodecHelper.KEYWORD_ERROR;
+import static com.barchart.feed.ddf.historical.provider.ConstHistorical.STATUS_COUNT;
+import static com.barchart.feed.ddf.historical.provider.ConstHistorical.STATUS_EMPTY;
+
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.ddf.historical.api.DDF_Entry;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.api.DDF_ResultCursor;
+import com.barchart.feed.ddf.historical.api.DDF_ResultEmptyException;
+import com.barchart.feed.ddf.historical.api.DDF_ResultInterruptedException;
+import com.barchart.feed.ddf.historical.api.DDF_ResultListener;
+import com.barchart.feed.ddf.historical.enums.DDF_ResultStatus;
+import com.barchart.util.common.anno.NotThreadSafe;
+
+/**
+ * reads and decodes one response line per {@link #next()}; status rules are
+ * those of {@link DDF_HistoricalService#newResult}
+ */
+@NotThreadSafe
+class ResultCursor<E extends DDF_Entry> implements DDF_ResultCursor<E> {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(ResultCursor.class);
+
+	private final DDF_Query<E> query;
+
+	private final String urlQuery;
+
+	private final Builder builder;
+
+	private final Instrument instrument;
+
+	private final DDF_ResultListener progressListener;
+
+	/** reused for every line */
+	private CsvLine line;
+
+	/** null before open and after finish */
+	private ZipReader reader;
+
+	/** decoded, not yet returned */
+	private E next;
+
+	/** number of decoded entries */
+	private int index;
+
+	private DDF_ResultStatus status;
+
+	private String statusComment;
+
+	ResultCursor(final DDF_Query<E> query, final String urlQuery,
+			final DDF_ResultListener listener) {
+		this.query = query;
+		this.urlQuery = urlQuery;
+		this.builder = Builder.from(query.type);
+		this.instrument = query.instrument;
+		this.progressListener = listener;
+	}
+
+	/** connects to server; failure is reported as status */
+	final ResultCursor<E> open() {
+		try {
+			return open(ZipReader.fromURL(urlQuery));
+		} catch (final Exception e) {
+			fail(e);
+			return this;
+		}
+	}
+
+	final ResultCursor<E> open(final ZipReader reader) {
+		this.reader = reader;
+		progress();
+		return this;
+	}
+
+	//
+
+	@SuppressWarnings("unchecked")
+	private void advance() {
+
+		try {
+
+			if (line == null) {
+				line = new CsvLine(instrument.timeZoneName());
+			}
+
+			while (true) {
+
+				if (!reader.readLine(line)) {
+					if (index == 0) {
+						finish(DDF_ResultStatus.SUCCESS, STATUS_EMPTY);
+					} else {
+						finish(DDF_ResultStatus.SUCCESS, STATUS_COUNT + index);
+					}
+					return;
+				}
+
+				if (line.isEmpty()) {
+					continue;
+				}
+
+				if (index == 0 && line.contains(KEYWORD_ERROR)) {
+					finish(DDF_ResultStatus.ERROR, line.toString());
+					return;
+				}
+
+				if (Thread.interrupted()) {
+					/* keep flag for owner of this thread */
+					Thread.currentThread().interrupt();
+					throw new DDF_ResultInterruptedException(
+							"result cursor interrupted");
+				}
+
+				next = (E) builder.decodeEntry(index, line, instrument);
+
+				index++;
+
+				if (index % DDF_ResultListener.PROGRESS_SIZE == 0) {
+					progress();
+				}
+
+				return;
+
+			}
+
+		} catch (final DDF_ResultInterruptedException e) {
+
+			log.debug("query lookup interrupted; query={}", query);
+
+			reader.abort();
+			finish(DDF_ResultStatus.INTERRUPTED, e.getMessage() + " at "
+					+ index);
+
+		} catch (final DDF_ResultEmptyException e) {
+
+			log.debug("got an empty server page; query={}", query);
+
+			finish(DDF_ResultStatus.SUCCESS, STATUS_COUNT + 0);
+
+		} catch (final Exception e) {
+
+			fail(e);
+
+		}
+
+	}
+
+	private void fail(final Exception e) {
+
+		log.debug("query lookup failed; query={}", query);
+		log.error("query lookup failed", e);
+
+		if (reader != null) {
+			reader.abort();
+		}
+
+		finish(DDF_ResultStatus.ERROR, e.getMessage());
+
+	}
+
+	private void finish(final DDF_ResultStatus status, final String comment) {
+
+		if (this.status != null) {
+			return;
+		}
+
+		this.status = status;
+		this.statusComment = comment;
+
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+
+		progress();
+
+	}
+
+	private void progress() {
+		if (progressListener == null) {
+			return;
+		}
+		progressListener.onProgressEvent(index);
+	}
+
+	//
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && reader != null) {
+			advance();
+		}
+		return next != null;
+	}
+
+	@Override
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final E entry = next;
+		next = null;
+		return entry;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		if (reader == null) {
+			return;
+		}
+		reader.abort();
+		reader = null;
+		finish(DDF_ResultStatus.INTERRUPTED, "result cursor closed at "
+				+ index);
+	}
+
+	//
+
+	@Override
+	public DDF_Query<E> getQuery() {
+		return query;
+	}
+
+	@Override
+	public String getQueryURL() {
+		return urlQuery;
+	}
+
+	@Override
+	public DDF_ResultStatus getStatus() {
+		return status;
+	}
+
+	@Override
+	public String getStatusComment() {
+		return statusComment;
+	}
+
+	@Override
+	public int count() {
+		return index;
+	}
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.provider;
+
+import java.util.Arrays;
+
+import com.barchart.feed.ddf.historical.api.DDF_EntryBarMin;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.api.DDF_ResultBars;
+import com.barchart.feed.ddf.historical.api.DDF_ResultListener;
+import com.barchart.feed.ddf.message.enums.DDF_TradeDay;
+
+class ResultMins extends ResultColumns<DDF_EntryBarMin> implements
+		DDF_ResultBars<DDF_EntryBarMin> {
+
+	private final EntryMins entry;
+
+	private long[] millisUTC;
+	private byte[] tradeDays;
+	private long[] priceOpenMantissas;
+	private long[] priceHighMantissas;
+	private long[] priceLowMantissas;
+	private long[] priceCloseMantissas;
+	private long[] sizeVolumes;
+
+	ResultMins(final DDF_Query<DDF_EntryBarMin> query,
+			final DDF_ResultListener listener) {
+		this(query, new EntryMins(query.instrument), listener);
+	}
+
+	private ResultMins(final DDF_Query<DDF_EntryBarMin> query,
+			final EntryMins entry, final DDF_ResultListener listener) {
+
+		super(query, entry, listener);
+
+		this.entry = entry;
+
+		final int capacity = capacity(query);
+
+		millisUTC = new long[capacity];
+		tradeDays = new byte[capacity];
+		priceOpenMantissas = new long[capacity];
+		priceHighMantissas = new long[capacity];
+		priceLowMantissas = new long[capacity];
+		priceCloseMantissas = new long[capacity];
+		sizeVolumes = new long[capacity];
+
+	}
+
+	private void grow() {
+
+		final int capacity = millisUTC.length * 2;
+
+		millisUTC = Arrays.copyOf(millisUTC, capacity);
+		tradeDays = Arrays.copyOf(tradeDays, capacity);
+		priceOpenMantissas = Arrays.copyOf(priceOpenMantissas, capacity);
+		priceHighMantissas = Arrays.copyOf(priceHighMantissas, capacity);
+		priceLowMantissas = Arrays.copyOf(priceLowMantissas, capacity);
+		priceCloseMantissas = Arrays.copyOf(priceCloseMantissas, capacity);
+		sizeVolumes = Arrays.copyOf(sizeVolumes, capacity);
+
+	}
+
+	@Override
+	protected void append(final DDF_EntryBarMin bar) {
+
+		if (size == millisUTC.length) {
+			grow();
+		}
+
+		millisUTC[size] = bar.getMillisUTC();
+		tradeDays[size] = bar.getTradeDay().ord;
+		priceOpenMantissas[size] = bar.priceOpenMantissa();
+		priceHighMantissas[size] = bar.priceHighMantissa();
+		priceLowMantissas[size] = bar.priceLowMantissa();
+		priceCloseMantissas[size] = bar.priceCloseMantissa();
+		sizeVolumes[size] = bar.sizeVolume();
+
+	}
+
+	@Override
+	protected Entry load(final int row) {
+
+		entry.index = row;
+		entry.millisUTC = millisUTC[row];
+		entry.ordTradeDay = tradeDays[row];
+		entry.priceOpenMantissa = priceOpenMantissas[row];
+		entry.priceHighMantissa = priceHighMantissas[row];
+		entry.priceLowMantissa = priceLowMantissas[row];
+		entry.priceCloseMantissa = priceCloseMantissas[row];
+		entry.sizeVolume = sizeVolumes[row];
+
+		return entry;
+
+	}
+
+	@Override
+	protected String csvHeader() {
+		return EntryBar.HEADER;
+	}
+
+	@Override
+	protected View newView() {
+		return new BarView();
+	}
+
+	class BarView extends View implements DDF_EntryBarMin {
+
+		@Override
+		public long getMillisUTC() {
+			return millisUTC[row];
+		}
+
+		@Override
+		public DDF_TradeDay getTradeDay() {
+			return DDF_TradeDay.fromOrd(tradeDays[row]);
+		}
+
+		@Override
+		public long priceOpenMantissa() {
+			return priceOpenMantissas[row];
+		}
+
+		@Override
+		public long priceHighMantissa() {
+			return priceHighMantissas[row];
+		}
+
+		@Override
+		public long priceLowMantissa() {
+			return priceLowMantissas[row];
+		}
+
+		@Override
+		public long priceCloseMantissa() {
+			return priceCloseMantissas[row];
+		}
+
+		@Override
+		public long sizeVolume() {
+			return sizeVolumes[row];
+		}
+
+	}
+
+	//
+
+	@Override
+	public long[] millisUTC() {
+		return millisUTC;
+	}
+
+	@Override
+	public byte[] tradeDays() {
+		return tradeDays;
+	}
+
+	@Override
+	public long[] priceOpenMantissas() {
+		return priceOpenMantissas;
+	}
+
+	@Override
+	public long[] priceHighMantissas() {
+		return priceHighMantissas;
+	}
+
+	@Override
+	public long[] priceLowMantissas() {
+		return priceLowMantissas;
+	}
+
+	@Override
+	public long[] priceCloseMantissas() {
+		return priceCloseMantissas;
+	}
+
+	@Override
+	public long[] sizeVolumes() {
+		return sizeVolumes;
+	}
+
+}
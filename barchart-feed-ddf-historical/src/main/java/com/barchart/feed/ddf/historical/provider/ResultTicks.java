@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.historical.provider;
+
+import java.util.Arrays;
+
+import com.barchart.feed.ddf.historical.api.DDF_EntryTick;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.api.DDF_ResultListener;
+import com.barchart.feed.ddf.historical.api.DDF_ResultTicks;
+import com.barchart.feed.ddf.message.enums.DDF_Session;
+import com.barchart.feed.ddf.message.enums.DDF_TradeDay;
+
+class ResultTicks extends ResultColumns<DDF_EntryTick> implements
+		DDF_ResultTicks {
+
+	private final EntryTicksDetail entry;
+
+	private long[] millisUTC;
+	private byte[] tradeDays;
+	private byte[] sessions;
+	private long[] priceTradeMantissas;
+	private long[] sizeTrades;
+
+	ResultTicks(final DDF_Query<DDF_EntryTick> query,
+			final DDF_ResultListener listener) {
+		this(query, new EntryTicksDetail(query.instrument), listener);
+	}
+
+	private ResultTicks(final DDF_Query<DDF_EntryTick> query,
+			final EntryTicksDetail entry, final DDF_ResultListener listener) {
+
+		super(query, entry, listener);
+
+		this.entry = entry;
+
+		final int capacity = capacity(query);
+
+		millisUTC = new long[capacity];
+		tradeDays = new byte[capacity];
+		sessions = new byte[capacity];
+		priceTradeMantissas = new long[capacity];
+		sizeTrades = new long[capacity];
+
+	}
+
+	private void grow() {
+
+		final int capacity = millisUTC.length * 2;
+
+		millisUTC = Arrays.copyOf(millisUTC, capacity);
+		tradeDays = Arrays.copyOf(tradeDays, capacity);
+		sessions = Arrays.copyOf(sessions, capacity);
+		priceTradeMantissas = Arrays.copyOf(priceTradeMantissas, capacity);
+		sizeTrades = Arrays.copyOf(sizeTrades, capacity);
+
+	}
+
+	@Override
+	protected void append(final DDF_EntryTick tick) {
+
+		if (size == millisUTC.length) {
+			grow();
+		}
+
+		millisUTC[size] = tick.getMillisUTC();
+		tradeDays[size] = tick.getTradeDay().ord;
+		sessions[size] = tick.getSession().ord;
+		priceTradeMantissas[size] = tick.priceTradeMantissa();
+		sizeTrades[size] = tick.sizeTrade();
+
+	}
+
+	@Override
+	protected Entry load(final int row) {
+
+		entry.index = row;
+		entry.millisUTC = millisUTC[row];
+		entry.ordTradeDay = tradeDays[row];
+		entry.ordSession = sessions[row];
+		entry.priceTradeMantissa = priceTradeMantissas[row];
+		entry.sizeTrade = sizeTrades[row];
+
+		return entry;
+
+	}
+
+	@Override
+	protected String csvHeader() {
+		return EntryTicksDetail.HEADER;
+	}
+
+	@Override
+	protected View newView() {
+		return new TickView();
+	}
+
+	class TickView extends View implements DDF_EntryTick {
+
+		@Override
+		public long getMillisUTC() {
+			return millisUTC[row];
+		}
+
+		@Override
+		public DDF_TradeDay getTradeDay() {
+			return DDF_TradeDay.fromOrd(tradeDays[row]);
+		}
+
+		@Override
+		public DDF_Session getSession() {
+			return DDF_Session.fromOrd(sessions[row]);
+		}
+
+		@Override
+		public long priceTradeMantissa() {
+			return priceTradeMantissas[row];
+		}
+
+		@Override
+		public long sizeTrade() {
+			return sizeTrades[row];
+		}
+
+	}
+
+	//
+
+	@Override
+	public long[] millisUTC() {
+		return millisUTC;
+	}
+
+	@Override
+	public byte[] tradeDays() {
+		return tradeDays;
+	}
+
+	@Override
+	public byte[] sessions() {
+		return sessions;
+	}
+
+	@Override
+	public long[] priceTradeMantissas() {
+		return priceTradeMantissas;
+	}
+
+	@Override
+	public long[] sizeTrades() {
+		return sizeTrades;
+	}
+
+}
@@ -7,11 +7,14 @@
  */
 package com.barchart.feed.ddf.historical.provider;
 
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.InflaterInputStream;
 
 import org.slf4j.Logger;
@@ -53,9 +56,13 @@ final class ZipReader {
 
 	private final InputStream zipStream;
 
+	/** null when not reading from http */
+	private HttpURLConnection connection;
+
 	static final ZipType TYPE = ZipType.GZIP;
 
-	static final ZipReader fromURL(final String stringURL) throws Exception {
+	private static HttpURLConnection connect(final String stringURL)
+			throws Exception {
 
 		final URL url = new URL(stringURL);
 
@@ -70,14 +77,82 @@ final class ZipReader {
 
 		connection.connect();
 
+		return connection;
+
+	}
+
+	static final ZipReader fromURL(final String stringURL) throws Exception {
+
+		final HttpURLConnection connection = connect(stringURL);
+
 		final String encoding = connection.getContentEncoding();
 
 		final ZipType type = ZipType.fromEncoding(encoding);
 
 		final InputStream stream = connection.getInputStream();
 
-		return new ZipReader(type, stream);
+		final ZipReader reader = new ZipReader(type, stream);
+
+		reader.connection = connection;
+
+		return reader;
+
+	}
+
+	/**
+	 * whole response body, gzip encoded whatever the content encoding; for
+	 * keeping pages, see {@link DDF_HistoricalCache}
+	 */
+	static final byte[] readGzip(final String stringURL) throws Exception {
+
+		final HttpURLConnection connection = connect(stringURL);
+
+		final ZipType type = ZipType.fromEncoding(connection
+				.getContentEncoding());
+
+		final InputStream stream = connection.getInputStream();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+				64 * 1024);
+
+		try {
+
+			if (type == ZipType.GZIP) {
+				copy(stream, bytes);
+				if (bytes.size() > 0) {
+					return bytes.toByteArray();
+				}
+				/* empty body, still a valid empty page */
+			}
+
+			final GZIPOutputStream output = new GZIPOutputStream(bytes);
+
+			if (type == ZipType.DEFLATE) {
+				copy(new InflaterInputStream(stream), output);
+			} else if (type == ZipType.NONE) {
+				copy(stream, output);
+			}
+
+			output.close();
+
+			return bytes.toByteArray();
+
+		} finally {
+			stream.close();
+		}
+
+	}
 
+	private static void copy(final InputStream input, final OutputStream output)
+			throws Exception {
+		final byte[] array = new byte[8 * 1024];
+		while (true) {
+			final int count = input.read(array);
+			if (count < 0) {
+				return;
+			}
+			output.write(array, 0, count);
+		}
 	}
 
 	ZipReader(final ZipType type, final InputStream stream) {
@@ -106,39 +181,112 @@ final class ZipReader {
 
 	final static int LINE_LIMIT = 8 * 1024;
 
-	private final char[] array = new char[LINE_LIMIT];
-
 	final static int CR = 10;
 	final static int LF = 13;
 	final static int EOS = -1;
 
-	/** treats each CR or LF as line separator */
-	final String readLine() throws Exception {
-		int index = 0;
+	/** decompressed bytes; lines are parsed in place */
+	private final byte[] buffer = new byte[8 * LINE_LIMIT];
+
+	/** next unread byte */
+	private int position;
+
+	/** end of valid bytes */
+	private int limit;
+
+	private boolean isEnd;
+
+	/** move unread bytes to front and read more; false at end of stream */
+	private boolean fill() throws Exception {
+
+		if (isEnd) {
+			return false;
+		}
+
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+
+		if (limit == buffer.length) {
+			throw new IllegalStateException("line longer than "
+					+ buffer.length);
+		}
+
+		final int count;
+		try {
+			count = zipStream.read(buffer, limit, buffer.length - limit);
+		} catch (final EOFException e) {
+			isEnd = true;
+			return false;
+		}
+
+		if (count == EOS) {
+			isEnd = true;
+			return false;
+		}
+
+		limit += count;
+
+		return true;
+
+	}
+
+	/**
+	 * treats each CR or LF as line separator, so a separator right after
+	 * another one gives an empty line
+	 * 
+	 * @return false at end of stream
+	 */
+	final boolean readLine(final CsvLine line) throws Exception {
+
+		int index = position;
+
 		while (true) {
-			final int alpha;
-			try {
-				alpha = zipStream.read();
-			} catch (EOFException e) {
-				break;
-			}
-			if (alpha == CR || alpha == LF) {
-				if (index == 0) {
-					return "";
-				} else {
-					break;
+
+			while (index < limit) {
+				final byte alpha = buffer[index];
+				if (alpha == CR || alpha == LF) {
+					line.wrap(buffer, position, index);
+					position = index + 1;
+					return true;
 				}
+				index++;
 			}
-			if (alpha == EOS) {
+
+			final int scanned = index - position;
+
+			if (!fill()) {
 				break;
 			}
-			array[index++] = (char) alpha;
+
+			index = position + scanned;
+
+		}
+
+		if (position == limit) {
+			return false;
+		}
+
+		/* last line without separator */
+		line.wrap(buffer, position, limit);
+		position = limit;
+		return true;
+
+	}
+
+	private CsvLine scratch;
+
+	/** treats each CR or LF as line separator */
+	final String readLine() throws Exception {
+		if (scratch == null) {
+			scratch = new CsvLine("UTC");
 		}
-		if (index == 0) {
+		if (!readLine(scratch)) {
 			return null;
-		} else {
-			return new String(array, 0, index);
 		}
+		return scratch.toString();
 	}
 
 	final void close() {
@@ -150,4 +298,15 @@ final class ZipReader {
 		}
 	}
 
+	/**
+	 * close before end of response; drops connection instead of draining
+	 * rest of response for keep alive reuse
+	 */
+	final void abort() {
+		if (connection != null) {
+			connection.disconnect();
+		}
+		close();
+	}
+
 }
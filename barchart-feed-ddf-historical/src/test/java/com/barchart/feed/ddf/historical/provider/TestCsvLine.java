@@ -0,0 +1,171 @@
+package com.barchart.feed.ddf.historical.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormatter;
+import org.junit.Test;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.ddf.historical.provider.ZipReader.ZipType;
+
+public class TestCsvLine {
+
+	static final String ZONE = "America/New_York";
+
+	static CsvLine line(final String text) throws Exception {
+		final CsvLine line = new CsvLine(ZONE);
+		final byte[] array = text.getBytes("US-ASCII");
+		line.wrap(array, 0, array.length);
+		return line;
+	}
+
+	@Test
+	public void testFields() throws Exception {
+
+		final CsvLine line = line("IBM,,42,-7");
+
+		assertEquals(4, line.fieldCount());
+		assertEquals("IBM", line.string(0));
+		assertEquals(0, line.decodeLong(1));
+		assertEquals(42, line.decodeInt(2));
+		assertEquals(-7, line.decodeLong(3));
+		assertEquals('I', line.decodeByte(0));
+
+		final String known = "IBM";
+		assertSame(known, line.string(0, known));
+
+		assertTrue(line("Error: unknown symbol").contains("Error"));
+		assertFalse(line("IBM,2014-01-08").contains("Error"));
+
+	}
+
+	@Test
+	public void testMantissa() throws Exception {
+
+		final String[] values = { "189.33", "-1.5", "-0.25", "0", "", "12",
+				"1.23456", "100.5", "0.000001", "-12.0" };
+
+		final int[] exponents = { 0, -1, -2, -4, -6 };
+
+		for (final String value : values) {
+			for (final int exponent : exponents) {
+				assertEquals(value + " " + exponent,
+						CodecHelper.decodeMantissa(value, exponent),
+						line("x," + value).decodeMantissa(1, exponent));
+			}
+		}
+
+	}
+
+	static void assertTime(final String value, final DateTimeFormatter format)
+			throws Exception {
+		assertEquals(value,
+				format.withZone(DateTimeZone.forID(ZONE)).parseMillis(value),
+				line(value).decodeTime(0, format));
+	}
+
+	@Test
+	public void testTime() throws Exception {
+
+		assertTime("2014-01-08 09:30:00.125", CodecHelper.RESULT_TIME_TICKS);
+		assertTime("2014-07-08 16:59:59.999", CodecHelper.RESULT_TIME_TICKS);
+		/* daylight saving overlap */
+		assertTime("2014-11-02 01:30:00.000", CodecHelper.RESULT_TIME_TICKS);
+
+		assertTime("2014-01-08 09:30", CodecHelper.RESULT_TIME_MINS);
+		assertTime("2014-03-09 03:00", CodecHelper.RESULT_TIME_MINS);
+
+		assertTime("2014-01-08", CodecHelper.RESULT_TIME_EOD);
+		assertTime("2014-06-30", CodecHelper.RESULT_TIME_EOD);
+
+	}
+
+	static void assertEntry(final Builder builder, final String text)
+			throws Exception {
+
+		final Instrument instrument = TestResultCursor.instrument();
+
+		final Entry expected = (Entry) builder.newEntry(7, text, instrument);
+		final Entry actual = (Entry) builder.decodeEntry(7, line(text),
+				instrument);
+
+		assertEquals(expected.getIndex(), actual.getIndex());
+		assertEquals(expected.getMillisUTC(), actual.getMillisUTC());
+		assertEquals(expected.getTradeDay(), actual.getTradeDay());
+		assertEquals(expected.symbol(), actual.symbol());
+		assertEquals(expected.encode(), actual.encode());
+		assertEquals(expected.csvEntry(), actual.csvEntry());
+
+	}
+
+	@Test
+	public void testEntries() throws Exception {
+
+		assertEntry(Builder.TICKS, "2014-01-08 09:30:00.125,8,T,189.33,100");
+		assertEntry(Builder.TICKS_FORM_T,
+				"2014-01-08 17:30:00.000,8,T,189.5,25");
+		assertEntry(Builder.MINUTES,
+				"2014-01-08 09:30,8,189.33,189.42,187.26,187.97,4685");
+		assertEntry(Builder.MINUTES_NEARBY,
+				"2014-01-08 09:31,8,189.02,189.50,186.55,187.38,4321");
+		assertEntry(Builder.END_OF_DAY,
+				"IBM,2014-01-08,189.33,189.42,187.26,187.97,4685100");
+		assertEntry(Builder.END_OF_DAY,
+				"IBM,2014-01-09,189.02,189.50,186.55,187.38,4321300,1200");
+
+	}
+
+	@Test
+	public void testReadLine() throws Exception {
+
+		final ZipReader reader = new ZipReader(ZipType.NONE,
+				new ByteArrayInputStream("a,b\r\nc\n\nlast".getBytes()));
+
+		final CsvLine line = new CsvLine(ZONE);
+
+		final String[] expected = { "a,b", "", "c", "", "last" };
+
+		for (final String text : expected) {
+			assertTrue(reader.readLine(line));
+			assertEquals(text, line.toString());
+		}
+
+		assertFalse(reader.readLine(line));
+
+	}
+
+	@Test
+	public void testReadLineRefill() throws Exception {
+
+		final StringBuilder text = new StringBuilder();
+
+		for (int index = 0; index < 20000; index++) {
+			text.append("2014-01-08 09:30:00.125,8,T,189.33,").append(index)
+					.append('\n');
+		}
+
+		final ZipReader reader = new ZipReader(ZipType.GZIP,
+				new ByteArrayInputStream(TestResultCursor.gzip(text
+						.toString())));
+
+		final CsvLine line = new CsvLine(ZONE);
+
+		int count = 0;
+
+		while (reader.readLine(line)) {
+			assertEquals(5, line.fieldCount());
+			assertEquals(count, line.decodeLong(4));
+			count++;
+		}
+
+		assertEquals(20000, count);
+
+	}
+
+}
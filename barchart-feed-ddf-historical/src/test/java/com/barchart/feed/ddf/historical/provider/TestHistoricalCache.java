@@ -0,0 +1,114 @@
+package com.barchart.feed.ddf.historical.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.ddf.historical.api.DDF_EntryTick;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+
+public class TestHistoricalCache {
+
+	File folder;
+
+	@Before
+	public void setUp() {
+		folder = new File(System.getProperty("java.io.tmpdir"),
+				"ddf-historical-" + System.nanoTime());
+	}
+
+	@After
+	public void tearDown() {
+		final File[] fileArray = folder.listFiles();
+		if (fileArray != null) {
+			for (final File file : fileArray) {
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	@Test
+	public void testKey() {
+
+		final String one = DDF_HistoricalCache.key("http://one.example.com/"
+				+ "queryticks.ashx?username=joe&password=secret"
+				+ "&symbol=IBM&start=20140106000000&end=20140107000000");
+
+		final String two = DDF_HistoricalCache.key("http://two.example.com/"
+				+ "queryticks.ashx?username=ann&password=other"
+				+ "&symbol=IBM&start=20140106000000&end=20140107000000");
+
+		assertEquals("queryticks.ashx?symbol=IBM"
+				+ "&start=20140106000000&end=20140107000000", one);
+		assertEquals(one, two);
+
+		assertEquals(DDF_HistoricalCache.fileName(one),
+				DDF_HistoricalCache.fileName(two));
+
+	}
+
+	@Test
+	public void testClosed() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = DDF_HistoricalService
+				.newQueryTicks();
+		query.instrument = TestResultCursor.instrument();
+
+		final DateTimeZone zone = DateTimeZone.forID("America/New_York");
+		final long now = new DateTime(2014, 1, 10, 12, 0, 0, 0, zone)
+				.getMillis();
+
+		query.timeEnd = new DateTime(2014, 1, 9, 0, 0, 0, 0, zone);
+		assertTrue(DDF_HistoricalCache.isClosed(query, now));
+
+		query.timeEnd = new DateTime(2014, 1, 9, 0, 0, 1, 0, zone);
+		assertFalse(DDF_HistoricalCache.isClosed(query, now));
+
+		query.timeEnd = null;
+		assertFalse(DDF_HistoricalCache.isClosed(query, now));
+
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+
+		final DDF_HistoricalCache cache = new DDF_HistoricalCache(folder, 250);
+
+		cache.store("one", new byte[100]);
+		cache.store("two", new byte[100]);
+
+		/* touch first, second becomes least recently used */
+		final InputStream stream = cache.open("one");
+		assertNotNull(stream);
+		stream.close();
+
+		cache.store("three", new byte[100]);
+
+		assertEquals(1, cache.evictions());
+		assertEquals(2, cache.pageCount());
+		assertEquals(200, cache.size());
+
+		assertNull(cache.open("two"));
+		assertEquals(1, cache.misses());
+		assertEquals(1, cache.hits());
+
+		/* pages survive restart */
+		final DDF_HistoricalCache again = new DDF_HistoricalCache(folder, 250);
+		assertEquals(2, again.pageCount());
+		assertEquals(200, again.size());
+
+	}
+
+}
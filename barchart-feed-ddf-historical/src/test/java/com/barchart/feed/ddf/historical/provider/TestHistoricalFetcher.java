@@ -0,0 +1,382 @@
+package com.barchart.feed.ddf.historical.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.ddf.historical.api.DDF_EntryBarEod;
+import com.barchart.feed.ddf.historical.api.DDF_EntryBarMin;
+import com.barchart.feed.ddf.historical.api.DDF_EntryTick;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.api.DDF_Result;
+import com.barchart.feed.ddf.historical.enums.DDF_QueryOrder;
+import com.barchart.feed.ddf.historical.enums.DDF_ResultStatus;
+import com.barchart.feed.ddf.settings.api.DDF_Login;
+import com.barchart.feed.ddf.settings.api.DDF_Server;
+import com.barchart.feed.ddf.settings.api.DDF_Settings;
+import com.barchart.feed.ddf.settings.enums.DDF_ServerType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestHistoricalFetcher {
+
+	static final DateTimeZone ZONE = DateTimeZone.forID("America/New_York");
+
+	/** serves two gzip ticks for the day of the start parameter */
+	static class TickPages implements HttpHandler {
+
+		final AtomicInteger requests = new AtomicInteger();
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger peak = new AtomicInteger();
+
+		@Override
+		public void handle(final HttpExchange exchange) {
+			try {
+
+				requests.incrementAndGet();
+
+				final int count = active.incrementAndGet();
+				if (count > peak.get()) {
+					peak.set(count);
+				}
+
+				final String query = exchange.getRequestURI().getQuery();
+
+				final String start = param(query, "start");
+				final String day = start.substring(0, 4) + "-"
+						+ start.substring(4, 6) + "-" + start.substring(6, 8);
+				final int tradeDay = Integer.parseInt(start.substring(6, 8));
+
+				String page = day + " 10:00:00.000," + tradeDay
+						+ ",T,189.33,100\n" + day + " 11:00:00.000,"
+						+ tradeDay + ",T,189.42,200\n";
+
+				if ("desc".equals(param(query, "order"))) {
+					page = day + " 11:00:00.000," + tradeDay
+							+ ",T,189.42,200\n" + day + " 10:00:00.000,"
+							+ tradeDay + ",T,189.33,100\n";
+				}
+
+				/* let sub range requests overlap */
+				Thread.sleep(50);
+
+				final byte[] body = TestResultCursor.gzip(page);
+
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, body.length);
+
+				final OutputStream output = exchange.getResponseBody();
+				output.write(body);
+				output.close();
+
+				active.decrementAndGet();
+
+			} catch (final Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		static String param(final String query, final String name) {
+			for (final String pair : query.split("&")) {
+				if (pair.startsWith(name + "=")) {
+					return pair.substring(name.length() + 1);
+				}
+			}
+			return "";
+		}
+
+	}
+
+	static DDF_Settings settings(final String server) {
+		return new DDF_Settings() {
+
+			@Override
+			public String getAuthUser() {
+				return "user";
+			}
+
+			@Override
+			public String getAuthPass() {
+				return "pass";
+			}
+
+			@Override
+			public DDF_Login getLogin() {
+				return null;
+			}
+
+			@Override
+			public DDF_Server getServer(final DDF_ServerType type) {
+				return new DDF_Server() {
+
+					@Override
+					public DDF_ServerType getServerType() {
+						return type;
+					}
+
+					@Override
+					public String getPrimary() {
+						return server;
+					}
+
+					@Override
+					public String getSecondary() {
+						return server;
+					}
+
+					@Override
+					public String getRecovery() {
+						return server;
+					}
+
+					@Override
+					public String getPrimaryOrSecondary() {
+						return server;
+					}
+
+					@Override
+					public boolean isValid() {
+						return true;
+					}
+
+				};
+			}
+
+			@Override
+			public boolean isValid(final DDF_ServerType type) {
+				return true;
+			}
+
+			@Override
+			public boolean isValidLogin() {
+				return true;
+			}
+
+			@Override
+			public String getCommentDDF() {
+				return "";
+			}
+
+		};
+	}
+
+	HttpServer server;
+
+	TickPages pages;
+
+	DDF_HistoricalFetcher fetcher;
+
+	@Before
+	public void setUp() throws Exception {
+
+		pages = new TickPages();
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", pages);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		fetcher = new DDF_HistoricalFetcher(settings("http://127.0.0.1:"
+				+ server.getAddress().getPort() + "/"), 4, 2);
+
+	}
+
+	@After
+	public void tearDown() {
+		fetcher.shutdown();
+		server.stop(0);
+	}
+
+	static DDF_Query<DDF_EntryTick> queryTicks(final int days)
+			throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = DDF_HistoricalService
+				.newQueryTicks();
+
+		query.instrument = TestResultCursor.instrument();
+		query.timeStart = new DateTime(2014, 1, 6, 0, 0, 0, 0, ZONE);
+		query.timeEnd = query.timeStart.plusDays(days);
+
+		return query;
+
+	}
+
+	@Test
+	public void testSplit() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> ticks = queryTicks(3);
+
+		final List<DDF_Query<DDF_EntryTick>> tickList = DDF_HistoricalFetcher
+				.split(ticks);
+
+		assertEquals(3, tickList.size());
+		assertEquals(ticks.timeStart, tickList.get(0).timeStart);
+		assertEquals(tickList.get(0).timeEnd, tickList.get(1).timeStart);
+		assertEquals(ticks.timeEnd, tickList.get(2).timeEnd);
+
+		final DDF_Query<DDF_EntryBarMin> mins = DDF_HistoricalService
+				.newQueryMins();
+		mins.instrument = ticks.instrument;
+		mins.timeStart = ticks.timeStart;
+		mins.timeEnd = ticks.timeStart.plusDays(10);
+		mins.groupBy = 5;
+
+		final List<DDF_Query<DDF_EntryBarMin>> minList = DDF_HistoricalFetcher
+				.split(mins);
+
+		assertEquals(2, minList.size());
+		assertEquals(mins.timeEnd, minList.get(1).timeEnd);
+		assertEquals(5, minList.get(1).groupBy);
+
+		final DDF_Query<DDF_EntryBarEod> eod = DDF_HistoricalService
+				.newQueryEod();
+		eod.timeStart = ticks.timeStart;
+		eod.timeEnd = ticks.timeStart.plusYears(1);
+
+		assertEquals(1, DDF_HistoricalFetcher.split(eod).size());
+
+		/* inner boundaries on midnight */
+		final DDF_Query<DDF_EntryTick> noon = queryTicks(2);
+		noon.timeStart = noon.timeStart.plusHours(12);
+
+		final List<DDF_Query<DDF_EntryTick>> noonList = DDF_HistoricalFetcher
+				.split(noon);
+
+		assertEquals(2, noonList.size());
+		assertEquals(noon.timeStart, noonList.get(0).timeStart);
+		assertEquals(new DateTime(2014, 1, 7, 0, 0, 0, 0, ZONE).getMillis(),
+				noonList.get(0).timeEnd.getMillis());
+
+	}
+
+	@Test
+	public void testAscending() throws Exception {
+
+		final DDF_Result<DDF_EntryTick> result = fetcher.newResult(
+				queryTicks(3), null);
+
+		assertEquals(DDF_ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(ConstHistorical.STATUS_COUNT + 6,
+				result.getStatusComment());
+		assertEquals(6, result.size());
+
+		for (int index = 0; index < 6; index++) {
+			assertEquals(index, result.get(index).getIndex());
+			if (index > 0) {
+				assertTrue(result.get(index - 1).getMillisUTC() < result.get(
+						index).getMillisUTC());
+			}
+		}
+
+		assertEquals(3, pages.requests.get());
+		assertTrue(pages.peak.get() <= 2);
+
+	}
+
+	@Test
+	public void testDescending() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = queryTicks(3);
+		query.resultOrder = DDF_QueryOrder.DESCENDING;
+
+		final DDF_Result<DDF_EntryTick> result = fetcher.newResult(query,
+				null);
+
+		assertEquals(6, result.size());
+
+		for (int index = 1; index < 6; index++) {
+			assertTrue(result.get(index - 1).getMillisUTC() > result.get(
+					index).getMillisUTC());
+		}
+
+		assertEquals(new DateTime(2014, 1, 8, 11, 0, 0, 0, ZONE).getMillis(),
+				result.get(0).getMillisUTC());
+
+	}
+
+	@Test
+	public void testMaxRecords() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = queryTicks(3);
+		query.maxRecords = 3;
+
+		final DDF_Result<DDF_EntryTick> result = fetcher.newResult(query,
+				null);
+
+		assertEquals(DDF_ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(3, result.size());
+		assertEquals(2, result.get(2).getIndex());
+		assertEquals(new DateTime(2014, 1, 7, 10, 0, 0, 0, ZONE).getMillis(),
+				result.get(2).getMillisUTC());
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoInstrument() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = queryTicks(3);
+		query.instrument = null;
+
+		fetcher.newResult(query, null);
+
+	}
+
+	@Test
+	public void testCache() throws Exception {
+
+		final File folder = new File(System.getProperty("java.io.tmpdir"),
+				"ddf-historical-" + System.nanoTime());
+
+		final DDF_HistoricalCache cache = new DDF_HistoricalCache(folder,
+				1024 * 1024);
+
+		fetcher.shutdown();
+		fetcher = new DDF_HistoricalFetcher(settings("http://127.0.0.1:"
+				+ server.getAddress().getPort() + "/"), 4, 2, cache);
+
+		try {
+
+			final DDF_Result<DDF_EntryTick> first = fetcher.newResult(
+					queryTicks(3), null);
+
+			assertEquals(3, pages.requests.get());
+			assertEquals(3, cache.misses());
+			assertEquals(3, cache.stores());
+
+			final DDF_Result<DDF_EntryTick> second = fetcher.newResult(
+					queryTicks(3), null);
+
+			assertEquals(3, pages.requests.get());
+			assertEquals(3, cache.hits());
+			assertEquals(first.asCSV(), second.asCSV());
+
+			/* overlapping range downloads only the missing day */
+			final DDF_Result<DDF_EntryTick> third = fetcher.newResult(
+					queryTicks(4), null);
+
+			assertEquals(8, third.size());
+			assertEquals(4, pages.requests.get());
+			assertEquals(6, cache.hits());
+			assertEquals(4, cache.pageCount());
+
+		} finally {
+			cache.clear();
+			folder.delete();
+		}
+
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.barchart.feed.ddf.historical.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.barchart.feed.base.thread.Runner;
+import com.barchart.feed.ddf.historical.api.DDF_Entry;
+import com.barchart.feed.ddf.historical.api.DDF_EntryBarMin;
+import com.barchart.feed.ddf.historical.api.DDF_EntryTick;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.enums.DDF_QueryType;
+import com.barchart.feed.ddf.historical.enums.DDF_ResultStatus;
+import com.barchart.feed.ddf.historical.provider.ZipReader.ZipType;
+
+public class TestResultColumns {
+
+	static final String TICKS = "2014-01-08 09:30:00.125,8,T,189.33,100\n"
+			+ "2014-01-08 09:30:01.250,8,T,189.42,200\n"
+			+ "\n"
+			+ "2014-01-08 09:30:02.500,8,T,189.26,300\n";
+
+	static final String MINS = "2014-01-08 09:30,8,189.33,189.42,187.26,187.97,4685\n"
+			+ "2014-01-08 09:31,8,189.02,189.50,186.55,187.38,4321\n";
+
+	static <E extends DDF_Entry> ResultCursor<E> cursor(
+			final DDF_Query<E> query, final String text) throws Exception {
+		return new ResultCursor<E>(query, "http://test", null)
+				.open(new ZipReader(ZipType.GZIP, new ByteArrayInputStream(
+						TestResultCursor.gzip(text))));
+	}
+
+	static DDF_Query<DDF_EntryTick> queryTicks() throws Exception {
+		final DDF_Query<DDF_EntryTick> query = DDF_HistoricalService
+				.newQueryTicks();
+		query.instrument = TestResultCursor.instrument();
+		return query;
+	}
+
+	static DDF_Query<DDF_EntryBarMin> queryMins() throws Exception {
+		final DDF_Query<DDF_EntryBarMin> query = DDF_HistoricalService
+				.newQueryMins();
+		query.instrument = TestResultCursor.instrument();
+		return query;
+	}
+
+	@Test
+	public void testTicks() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = queryTicks();
+
+		final ResultTicks result = new ResultTicks(query, null);
+		result.fill(cursor(query, TICKS));
+
+		assertEquals(DDF_ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(3, result.size());
+
+		final ResultCursor<DDF_EntryTick> expected = cursor(query, TICKS);
+
+		final StringBuilder csv = new StringBuilder();
+
+		for (int index = 0; index < 3; index++) {
+
+			final DDF_EntryTick entry = expected.next();
+			final DDF_EntryTick view = result.get(index);
+
+			assertEquals(index, view.getIndex());
+			assertEquals(entry.getMillisUTC(), view.getMillisUTC());
+			assertEquals(entry.getMillisUTC(), result.millisUTC()[index]);
+			assertEquals(entry.getTradeDay(), view.getTradeDay());
+			assertEquals(entry.getSession(), view.getSession());
+			assertEquals(entry.priceTradeMantissa(),
+					view.priceTradeMantissa());
+			assertEquals(entry.priceTradeMantissa(),
+					result.priceTradeMantissas()[index]);
+			assertEquals(entry.sizeTrade(), result.sizeTrades()[index]);
+			assertEquals(entry.symbol(), view.symbol());
+			assertEquals(entry.priceExponent(), result.priceExponent());
+			assertEquals(entry.csvEntry(), view.csvEntry());
+			assertEquals(entry.toString(), view.toString());
+
+			csv.append(entry.csvEntry()).append("\n");
+
+		}
+
+		assertEquals(EntryTicksDetail.HEADER + "\n" + csv, result.asCSV());
+
+	}
+
+	@Test
+	public void testMins() throws Exception {
+
+		final DDF_Query<DDF_EntryBarMin> query = queryMins();
+
+		final ResultMins result = new ResultMins(query, null);
+		result.fill(cursor(query, MINS));
+
+		assertEquals(2, result.size());
+
+		final ResultCursor<DDF_EntryBarMin> expected = cursor(query, MINS);
+
+		for (int index = 0; index < 2; index++) {
+
+			final DDF_EntryBarMin entry = expected.next();
+			final DDF_EntryBarMin view = result.get(index);
+
+			assertEquals(entry.getMillisUTC(), view.getMillisUTC());
+			assertEquals(entry.getTradeDay(), view.getTradeDay());
+			assertEquals(entry.priceOpenMantissa(),
+					result.priceOpenMantissas()[index]);
+			assertEquals(entry.priceHighMantissa(), view.priceHighMantissa());
+			assertEquals(entry.priceLowMantissa(), view.priceLowMantissa());
+			assertEquals(entry.priceCloseMantissa(),
+					view.priceCloseMantissa());
+			assertEquals(entry.sizeVolume(), result.sizeVolumes()[index]);
+			assertEquals(entry.csvEntry(), view.csvEntry());
+
+		}
+
+	}
+
+	@Test
+	public void testRunLoop() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = queryTicks();
+
+		final ResultTicks result = new ResultTicks(query, null);
+		result.fill(cursor(query, TICKS));
+
+		final List<DDF_EntryTick> seen = new ArrayList<DDF_EntryTick>();
+		final List<Long> sizes = new ArrayList<Long>();
+
+		result.runLoop(new Runner<Long, DDF_EntryTick>() {
+			@Override
+			public Long run(final DDF_EntryTick entry) {
+				seen.add(entry);
+				return entry.sizeTrade();
+			}
+		}, sizes);
+
+		assertEquals(3, sizes.size());
+		assertEquals(300L, sizes.get(2).longValue());
+
+		/* one flyweight for the loop, fresh view from get() */
+		assertSame(seen.get(0), seen.get(2));
+		assertNotSame(result.get(0), result.get(0));
+
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test(expected = IllegalArgumentException.class)
+	public void testQueryType() throws Exception {
+
+		final DDF_Query<DDF_EntryTick> query = queryTicks();
+		query.type = (DDF_QueryType) DDF_QueryType.TICKS_FORM_T;
+
+		DDF_HistoricalService.newResultTicksColumns(null, query, null);
+
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.barchart.feed.ddf.historical.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.ddf.historical.api.DDF_EntryBarEod;
+import com.barchart.feed.ddf.historical.api.DDF_Query;
+import com.barchart.feed.ddf.historical.api.DDF_ResultListener;
+import com.barchart.feed.ddf.historical.enums.DDF_ResultStatus;
+import com.barchart.feed.ddf.historical.provider.ZipReader.ZipType;
+import com.barchart.feed.ddf.instrument.provider.DDF_Instrument;
+
+public class TestResultCursor {
+
+	static final String IBM = "<instrument id=\"1298146\" symbol_realtime=\"IBM\" "
+			+ "symbol_ddf=\"IBM\" symbol_historical=\"IBM\" symbol_cfi=\"EXXXXX\" "
+			+ "exchange=\"XNYS\" exchange_channel=\"NYSE\" exchange_ddf=\"N\" "
+			+ "time_zone_ddf=\"America/New_York\" tick_increment=\"1\" "
+			+ "unit_code=\"2\" base_code=\"A\" point_value=\"1\"/>";
+
+	static final String EOD = "IBM,2014-01-08,189.33,189.42,187.26,187.97,4685100\n"
+			+ "IBM,2014-01-09,189.02,189.50,186.55,187.38,4321300\n"
+			+ "\n"
+			+ "IBM,2014-01-10,188.31,188.69,186.40,187.26,4022400\n";
+
+	/** stream which records close */
+	static class Source extends ByteArrayInputStream {
+
+		boolean isClosed;
+
+		Source(final byte[] array) {
+			super(array);
+		}
+
+		@Override
+		public void close() throws IOException {
+			isClosed = true;
+		}
+
+	}
+
+	static Instrument instrument() throws Exception {
+
+		final List<Attributes> list = new ArrayList<Attributes>();
+
+		SAXParserFactory.newInstance().newSAXParser()
+				.parse(new InputSource(new StringReader(IBM)), new DefaultHandler() {
+					@Override
+					public void startElement(final String uri,
+							final String localName, final String qName,
+							final Attributes atts) {
+						list.add(new AttributesImpl(atts));
+					}
+				});
+
+		return new DDF_Instrument(list.get(0), new ArrayList<Attributes>());
+
+	}
+
+	static byte[] gzip(final String text) throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final GZIPOutputStream output = new GZIPOutputStream(bytes);
+		output.write(text.getBytes("US-ASCII"));
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	static ResultCursor<DDF_EntryBarEod> cursor(final InputStream input,
+			final ZipType type, final DDF_ResultListener listener)
+			throws Exception {
+
+		final DDF_Query<DDF_EntryBarEod> query = DDF_HistoricalService
+				.newQueryEod();
+		query.instrument = instrument();
+
+		return new ResultCursor<DDF_EntryBarEod>(query, "http://test", listener)
+				.open(new ZipReader(type, input));
+
+	}
+
+	@Test
+	public void testStream() throws Exception {
+
+		final List<Integer> progress = new ArrayList<Integer>();
+
+		final ResultCursor<DDF_EntryBarEod> cursor = cursor(
+				new ByteArrayInputStream(gzip(EOD)), ZipType.GZIP,
+				new DDF_ResultListener() {
+					@Override
+					public void onProgressEvent(final int progressCount) {
+						progress.add(progressCount);
+					}
+				});
+
+		int count = 0;
+
+		while (cursor.hasNext()) {
+			final DDF_EntryBarEod entry = cursor.next();
+			assertEquals(count, entry.getIndex());
+			assertNull(cursor.getStatus());
+			count++;
+		}
+
+		assertEquals(3, count);
+		assertEquals(3, cursor.count());
+		assertEquals(DDF_ResultStatus.SUCCESS, cursor.getStatus());
+		assertEquals(ConstHistorical.STATUS_COUNT + 3,
+				cursor.getStatusComment());
+
+		assertEquals(0, progress.get(0).intValue());
+		assertEquals(3, progress.get(progress.size() - 1).intValue());
+
+	}
+
+	@Test
+	public void testError() throws Exception {
+
+		final ResultCursor<DDF_EntryBarEod> cursor = cursor(
+				new ByteArrayInputStream("Error: unknown symbol\n".getBytes()),
+				ZipType.NONE, null);
+
+		assertFalse(cursor.hasNext());
+		assertEquals(DDF_ResultStatus.ERROR, cursor.getStatus());
+		assertEquals("Error: unknown symbol", cursor.getStatusComment());
+
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+
+		final ResultCursor<DDF_EntryBarEod> cursor = cursor(
+				new ByteArrayInputStream(new byte[0]), ZipType.NONE, null);
+
+		assertFalse(cursor.hasNext());
+		assertEquals(DDF_ResultStatus.SUCCESS, cursor.getStatus());
+		assertEquals(ConstHistorical.STATUS_EMPTY, cursor.getStatusComment());
+
+	}
+
+	@Test
+	public void testClose() throws Exception {
+
+		final Source source = new Source(EOD.getBytes("US-ASCII"));
+
+		final ResultCursor<DDF_EntryBarEod> cursor = cursor(source,
+				ZipType.NONE, null);
+
+		assertTrue(cursor.hasNext());
+		cursor.next();
+
+		cursor.close();
+
+		assertTrue(source.isClosed);
+		assertFalse(cursor.hasNext());
+		assertEquals(DDF_ResultStatus.INTERRUPTED, cursor.getStatus());
+		assertEquals(1, cursor.count());
+
+		/* idempotent */
+		cursor.close();
+		assertEquals(DDF_ResultStatus.INTERRUPTED, cursor.getStatus());
+
+	}
+
+}
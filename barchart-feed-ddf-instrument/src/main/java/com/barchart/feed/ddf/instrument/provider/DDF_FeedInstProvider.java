@@ -7,7 +7,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -34,12 +33,6 @@ public final class DDF_FeedInstProvider {
 	private static final Logger log = LoggerFactory
 			.getLogger(DDF_FeedInstProvider.class);
 
-	private static final ConcurrentMap<String, List<InstrumentState>> symbolMap =
-			DDF_RxInstrumentProvider.symbolMap;
-
-	private static final ConcurrentMap<InstrumentID, InstrumentState> idMap =
-			DDF_RxInstrumentProvider.idMap;
-
 	private static final ArrayBlockingQueue<String> remoteSymbolQueue =
 			new ArrayBlockingQueue<String>(1000 * 1000);
 	
@@ -116,8 +109,12 @@ public final class DDF_FeedInstProvider {
 		/* NOTE id() in ddf is just the realtime symbol, not an actual GUID */
 		final String symbol = Symbology.formatSymbol(inst.symbol());
 
-		if (symbolMap.containsKey(symbol)) {
-			return symbolMap.get(symbol).get(0);
+		final InstrumentCacheDDF cache = DDF_RxInstrumentProvider.cache();
+
+		final List<InstrumentState> cached = cache.symbol(symbol);
+
+		if (cached != null && !cached.isEmpty()) {
+			return cached.get(0);
 		}
 
 		/* New symbol, create stub */
@@ -126,7 +123,11 @@ public final class DDF_FeedInstProvider {
 
 		final List<InstrumentState> list = new CopyOnWriteArrayList<InstrumentState>(); 
 		list.add(instState);
-		symbolMap.put(symbol, list);
+		cache.putSymbol(symbol, list);
+
+		if (DDF_RxInstrumentProvider.isOffline()) {
+			return instState;
+		}
 
 		/* Asnyc lookup */
 		try {
@@ -142,14 +143,17 @@ public final class DDF_FeedInstProvider {
 
 	private static void handleInstLookup(final InstrumentState state) {
 		
-		final InstrumentState iState = idMap.get(state.id());
+		final InstrumentCacheDDF cache = DDF_RxInstrumentProvider.cache();
+		
+		final InstrumentState iState = cache.id(state.id());
 		if (iState == null || iState.isNull()) {
-			idMap.put(iState.id(), state);
+			cache.putID(state.id(), state);
 			final List<InstrumentState> list = new ArrayList<InstrumentState>();
 			list.add(state);
-			symbolMap.put(state.symbol(), list);
+			cache.putSymbol(state.symbol(), list);
 		} else {
 			iState.process(state);
+			cache.putID(state.id(), iState);
 		}
 		
 	}
@@ -176,21 +180,22 @@ public final class DDF_FeedInstProvider {
 				return; 
 			}
 
-			/* This should never be true */
-			if(!symbolMap.containsKey(symbol)) {
-				final InstrumentState i = result.result();
-				symbolMap.put(symbol, Arrays.asList(i));
-				idMap.put(i.id(), i);
-			}
+			final InstrumentCacheDDF cache = DDF_RxInstrumentProvider.cache();
+
+			/* Stub normally still cached, unless evicted meanwhile */
+			final List<InstrumentState> cached = cache.peekSymbol(symbol);
 			
-			final InstrumentState iState = symbolMap.get(symbol).get(0);
+			final InstrumentState iState = cached == null || cached.isEmpty() ? null : cached.get(0);
 
 			if (iState == null || iState.isNull()) {
 				final InstrumentState i = result.result();
-				symbolMap.put(symbol, Arrays.asList(i));
-				idMap.put(i.id(), i);
+				cache.putSymbol(symbol, Arrays.asList(i));
+				cache.putID(i.id(), i);
 			} else {
 				iState.process(result.result());
+				/* Restamp and persist completed definition */
+				cache.putSymbol(symbol, cached);
+				cache.putID(iState.id(), iState);
 			}
 
 		}
@@ -57,6 +57,9 @@ public class DDF_Instrument extends DefaultInstrument implements InstrumentState
 
 	protected Fraction displayFraction = Fraction.NULL;
 
+	/** extras lookup element this was built from; null for stubs */
+	protected String source;
+
 	public DDF_Instrument(final InstrumentID id_) {
 
 		super(id_);
@@ -77,6 +80,8 @@ public class DDF_Instrument extends DefaultInstrument implements InstrumentState
 
 	public DDF_Instrument(final Attributes attr, final List<Attributes> vendors) throws Exception {
 		super(xmlId(attr));
+
+		source = InstrumentFileDDF.encode(attr, vendors);
 		
 		/* vendor */
 		vendor = VendorID.BARCHART;
@@ -315,6 +320,13 @@ public class DDF_Instrument extends DefaultInstrument implements InstrumentState
 
 		copy(inst);
 
+		if (inst instanceof DDF_Instrument) {
+			final String update = ((DDF_Instrument) inst).source;
+			if (update != null) {
+				source = update;
+			}
+		}
+
 		loadState = LoadState.FULL;
 
 	}
@@ -370,6 +382,13 @@ public class DDF_Instrument extends DefaultInstrument implements InstrumentState
 
 	}
 
+	/**
+	 * Lookup element for on-disk cache; null when not built from lookup.
+	 */
+	String source() {
+		return source;
+	}
+
 	@Override
 	public void reset() {
 		loadState = LoadState.NULL;
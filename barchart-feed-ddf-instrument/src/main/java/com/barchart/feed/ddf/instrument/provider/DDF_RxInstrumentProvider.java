@@ -6,6 +6,7 @@ import static com.barchart.feed.ddf.util.HelperXML.xmlFirstChild;
 import static com.barchart.feed.ddf.util.HelperXML.xmlStringDecode;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -55,11 +56,19 @@ public class DDF_RxInstrumentProvider {
 
 	private static final int MAX_URL_LEN = 7500;
 
-	static final ConcurrentMap<String, List<InstrumentState>> symbolMap =
-			new ConcurrentHashMap<String, List<InstrumentState>>();
+	private static final long REFRESH_INTERVAL = 10 * 1000;
 
-	static final ConcurrentMap<InstrumentID, InstrumentState> idMap =
-			new ConcurrentHashMap<InstrumentID, InstrumentState>();
+	private static final int REFRESH_LIMIT = 4000;
+
+	/**
+	 * System property naming on-disk instrument cache file; memory only cache
+	 * when not set.
+	 */
+	public static final String CACHE_FILE_PROPERTY = "barchart.feed.instrument.cache";
+
+	private static volatile InstrumentCacheDDF cache = newCache();
+
+	private static volatile boolean isOffline;
 
 	/* ***** ***** ***** Begin Executor ***** ***** ***** */
 
@@ -84,6 +93,39 @@ public class DDF_RxInstrumentProvider {
 
 	});
 
+	static {
+		executor.submit(new RefreshRunner());
+	}
+
+	/**
+	 * Default cache; backed by file from {@link #CACHE_FILE_PROPERTY}, and
+	 * warmed up from it.
+	 */
+	private static InstrumentCacheDDF newCache() {
+
+		final String path = System.getProperty(CACHE_FILE_PROPERTY);
+
+		if (path == null) {
+			return new InstrumentCacheDDF();
+		}
+
+		try {
+
+			final InstrumentCacheDDF c = new InstrumentCacheDDF(
+					InstrumentCacheDDF.DEFAULT_SIZE,
+					InstrumentCacheDDF.DEFAULT_TTL, new File(path));
+
+			c.warmup();
+
+			return c;
+
+		} catch (final Exception e) {
+			log.error("can not open instrument cache {}", path, e);
+			return new InstrumentCacheDDF();
+		}
+
+	}
+
 	/**
 	 * Bind framework executor.
 	 * @param e
@@ -95,6 +137,114 @@ public class DDF_RxInstrumentProvider {
 		executor.shutdownNow();
 		executor = e;
 		executor.submit(new RemoteRunner());
+		executor.submit(new RefreshRunner());
+
+	}
+
+	/* ***** ***** ***** Begin Cache ***** ***** ***** */
+
+	/**
+	 * Replace instrument cache, for example with one backed by a file, and
+	 * warm it up; previous cache is closed.
+	 */
+	public synchronized static void bindCache(final InstrumentCacheDDF c) {
+
+		if (c == null) {
+			throw new NullPointerException("cache");
+		}
+
+		log.debug("Binding new instrument cache");
+
+		c.warmup();
+
+		final InstrumentCacheDDF previous = cache;
+		cache = c;
+		previous.close();
+
+	}
+
+	public static InstrumentCacheDDF cache() {
+		return cache;
+	}
+
+	/**
+	 * In offline mode lookups are answered from cache only, and nothing is
+	 * refreshed.
+	 */
+	public static void setOffline(final boolean offline) {
+		isOffline = offline;
+	}
+
+	public static boolean isOffline() {
+		return isOffline;
+	}
+
+	/**
+	 * Reloads definitions reported stale by cache.
+	 */
+	static class RefreshRunner implements Runnable {
+
+		@Override
+		public void run() {
+
+			while (!Thread.currentThread().isInterrupted()) {
+
+				try {
+
+					Thread.sleep(REFRESH_INTERVAL);
+
+					final InstrumentCacheDDF c = cache;
+
+					final List<String> symbols = c.drainStale(REFRESH_LIMIT);
+
+					if (isOffline || symbols.isEmpty()) {
+						continue;
+					}
+
+					for (final String query : buildSymbolQueries(symbols)) {
+
+						final Map<String, List<InstrumentState>> lookup = remoteSymbolLookup(query);
+
+						for (final Entry<String, List<InstrumentState>> e : lookup.entrySet()) {
+
+							if (e.getValue().isEmpty()) {
+								continue;
+							}
+
+							/* Update in place, markets hold on to cached instances */
+							final InstrumentState fresh = e.getValue().get(0);
+							final List<InstrumentState> current = c.peekSymbol(e.getKey());
+
+							final InstrumentState updated;
+							if (current != null && !current.isEmpty()) {
+								updated = current.get(0);
+								updated.process(fresh);
+								c.putSymbol(e.getKey(), current);
+							} else {
+								updated = fresh;
+								c.putSymbol(e.getKey(), e.getValue());
+							}
+
+							/* Id entries report their symbol stale too; re-stamp them */
+							final InstrumentState byID = c.peekID(fresh.id());
+							if (byID != null && byID != updated) {
+								byID.process(fresh);
+							}
+							c.putID(fresh.id(), byID == null ? updated : byID);
+
+						}
+
+					}
+
+				} catch (final InterruptedException e) {
+					return;
+				} catch (final Exception e) {
+					log.error("Exception in instrument refresh", e);
+				}
+
+			}
+
+		}
 
 	}
 
@@ -120,6 +270,8 @@ public class DDF_RxInstrumentProvider {
 
 				final List<InstrumentID> toBatch = new ArrayList<InstrumentID>();
 
+				final InstrumentCacheDDF c = cache;
+
 				/* Filter out cached symbols */
 				for(final InstrumentID id : ids) {
 
@@ -127,14 +279,20 @@ public class DDF_RxInstrumentProvider {
 						continue;
 					}
 
-					if(idMap.containsKey(id)) {
-						res.put(id, idMap.get(id));
+					final InstrumentState cached = c.id(id);
+
+					if(cached != null) {
+						res.put(id, cached);
 					} else {
 						toBatch.add(id);
 					}
 
 				}
 
+				if(isOffline) {
+					toBatch.clear();
+				}
+
 				try {
 
 					final List<String> queries = buildIDQueries(toBatch);
@@ -155,18 +313,16 @@ public class DDF_RxInstrumentProvider {
 							
 							final String sym = inst.symbol();
 							
-							idMap.put(id, e.getValue());
+							c.putID(id, e.getValue());
 
-							if(!symbolMap.containsKey(sym)) {
-								symbolMap.put(sym, new ArrayList<InstrumentState>());
-								symbolMap.get(sym).add(inst);
+							if(c.peekSymbol(sym) == null) {
+								c.putSymbol(sym, Collections.singletonList(inst));
 							}
 
 							/* Add alternate options symbol */
 							if(sym.contains("|")) {
 								final String alt = inst.vendorSymbols().get(VendorID.BARCHART_SHORT);
-								symbolMap.put(alt, new ArrayList<InstrumentState>());
-								symbolMap.get(alt).add(inst);
+								c.putSymbol(alt, Collections.singletonList(inst));
 							}
 
 
@@ -175,16 +331,16 @@ public class DDF_RxInstrumentProvider {
 
 						}
 
-						/*
-						 * Populate symbols for which nothing was returned, guarantee every symbol
-						 * requested is in map returned
-						 */
-						for (final InstrumentID i : ids) {
+					}
 
-							if (!res.containsKey(i)) {
-								res.put(i, InstrumentState.NULL);
-							}
+					/*
+					 * Populate symbols for which nothing was returned, guarantee every symbol
+					 * requested is in map returned
+					 */
+					for (final InstrumentID i : ids) {
 
+						if (i != null && !res.containsKey(i)) {
+							res.put(i, InstrumentState.NULL);
 						}
 
 					}
@@ -231,6 +387,8 @@ public class DDF_RxInstrumentProvider {
 				final List<String> toBatch = new ArrayList<String>();
 				final Map<String, String> userSymbols = new HashMap<String, String>();
 
+				final InstrumentCacheDDF c = cache;
+
 				/* Filter out cached symbols */
 				for(final String symbol : symbols) {
 
@@ -240,10 +398,14 @@ public class DDF_RxInstrumentProvider {
 
 					final String formattedSymbol = Symbology.formatSymbol(symbol);
 
-					if (symbolMap.containsKey(formattedSymbol)) {
-						res.put(symbol, symbolMap.get(formattedSymbol));
+					final List<InstrumentState> cached = c.symbol(formattedSymbol);
+
+					if (cached != null) {
+						res.put(symbol, cached);
 					} else {
-						toBatch.add(formattedSymbol);
+						if(!isOffline) {
+							toBatch.add(formattedSymbol);
+						}
 						userSymbols.put(symbol, formattedSymbol);
 					}
 
@@ -259,12 +421,12 @@ public class DDF_RxInstrumentProvider {
 
 						/* Store instruments returned from lookup */
 						for(final Entry<String, List<InstrumentState>> e : lookup.entrySet()) {
-							symbolMap.put(e.getKey(), e.getValue());
+							c.putSymbol(e.getKey(), e.getValue());
 
 							if(!e.getValue().isEmpty()) {
 								final InstrumentState i = e.getValue().get(0);
-								idMap.put(i.id(), i);
-								symbolMap.put(i.symbol(), e.getValue()); 
+								c.putID(i.id(), i);
+								c.putSymbol(i.symbol(), e.getValue()); 
 							}
 
 							/* Add alternate options symbol */
@@ -273,7 +435,7 @@ public class DDF_RxInstrumentProvider {
 								if(inst != null) {
 
 									if(inst.symbol().contains("|")) {
-										symbolMap.put(inst.vendorSymbols().get(VendorID.BARCHART_SHORT), e.getValue());
+										c.putSymbol(inst.vendorSymbols().get(VendorID.BARCHART_SHORT), e.getValue());
 									}
 
 								}
@@ -290,16 +452,16 @@ public class DDF_RxInstrumentProvider {
 
 						}
 
-						/*
-						 * Populate symbols for which nothing was returned, guarantee every symbol
-						 * requested is in map returned
-						 */
-						for (final Map.Entry<String, String> en : userSymbols.entrySet()) {
+					}
 
-							if (!res.containsKey(en.getKey())) {
-								res.put(en.getKey(), Collections.<InstrumentState> emptyList());
-							}
+					/*
+					 * Populate symbols for which nothing was returned, guarantee every symbol
+					 * requested is in map returned
+					 */
+					for (final Map.Entry<String, String> en : userSymbols.entrySet()) {
 
+						if (!res.containsKey(en.getKey())) {
+							res.put(en.getKey(), Collections.<InstrumentState> emptyList());
 						}
 
 					}
@@ -0,0 +1,594 @@
+package com.barchart.feed.ddf.instrument.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+
+/**
+ * Two tier instrument definition cache: a size and age bounded memory tier
+ * in front of an optional append only file, keyed by symbol and by
+ * {@link InstrumentID}.
+ * <p>
+ * Memory entries older than time to live are reloaded from file. Entries
+ * older than half the time to live are still served, but reported by
+ * {@link #drainStale(int)} for background refresh.
+ * <p>
+ * A reload keeps the instance already in memory, updated in place when file
+ * has a newer definition, since markets hold on to it; the reloaded entry is
+ * good for another time to live. Without a file, or a file definition, an
+ * expired entry stays as is, it only turns stale and is never a miss.
+ * <p>
+ * Reads take no lock; the memory tier evicts least recently read entries
+ * in batches when over its size limit.
+ */
+public class InstrumentCacheDDF {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(InstrumentCacheDDF.class);
+
+	public static final int DEFAULT_SIZE = 64 * 1024;
+
+	public static final long DEFAULT_TTL = TimeUnit.DAYS.toMillis(1);
+
+	private static final class Node<V> {
+
+		final V value;
+		final long time;
+
+		/** last read, for eviction order */
+		volatile long used;
+
+		Node(final V value, final long time) {
+			this.value = value;
+			this.time = time;
+			this.used = time;
+		}
+
+	}
+
+	private static final Comparator<Map.Entry<?, ? extends Node<?>>> LEAST_USED =
+			new Comparator<Map.Entry<?, ? extends Node<?>>>() {
+
+		@Override
+		public int compare(final Map.Entry<?, ? extends Node<?>> one,
+				final Map.Entry<?, ? extends Node<?>> two) {
+			final long a = one.getValue().used;
+			final long b = two.getValue().used;
+			return a < b ? -1 : (a == b ? 0 : 1);
+		}
+
+	};
+
+	/** lock free reads; evictions guarded by itself */
+	private final class MemoryTier<K, V> {
+
+		private final ConcurrentHashMap<K, Node<V>> map =
+				new ConcurrentHashMap<K, Node<V>>(1024);
+
+		Node<V> get(final K key) {
+			return map.get(key);
+		}
+
+		void put(final K key, final Node<V> node) {
+			map.put(key, node);
+			if (map.size() > maxSize) {
+				evict();
+			}
+		}
+
+		/** removes least recently read entries, down to below size limit */
+		private synchronized void evict() {
+
+			final int excess = map.size() - maxSize;
+
+			if (excess <= 0) {
+				return;
+			}
+
+			final List<Map.Entry<K, Node<V>>> entries =
+					new ArrayList<Map.Entry<K, Node<V>>>(map.entrySet());
+
+			Collections.sort(entries, LEAST_USED);
+
+			final int count = Math.min(entries.size(),
+					Math.max(excess, maxSize / 16));
+
+			for (int index = 0; index < count; index++) {
+				final Map.Entry<K, Node<V>> e = entries.get(index);
+				if (map.remove(e.getKey(), e.getValue())) {
+					evictions.incrementAndGet();
+				}
+			}
+
+		}
+
+		boolean remove(final K key, final Node<V> node) {
+			return map.remove(key, node);
+		}
+
+		int size() {
+			return map.size();
+		}
+
+	}
+
+	private final int maxSize;
+
+	private final long ttl;
+
+	private final long refreshAfter;
+
+	private final MemoryTier<String, List<InstrumentState>> symbols =
+			new MemoryTier<String, List<InstrumentState>>();
+
+	private final MemoryTier<InstrumentID, InstrumentState> ids =
+			new MemoryTier<InstrumentID, InstrumentState>();
+
+	/** null for memory only cache */
+	private final InstrumentFileDDF file;
+
+	/** symbols waiting for refresh; guarded by itself */
+	private final Set<String> stale = new LinkedHashSet<String>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong fileHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Memory only cache with default limits.
+	 */
+	public InstrumentCacheDDF() {
+		this.maxSize = DEFAULT_SIZE;
+		this.ttl = DEFAULT_TTL;
+		this.refreshAfter = DEFAULT_TTL / 2;
+		this.file = null;
+	}
+
+	/**
+	 * @param maxSize
+	 *            memory tier limit, per key kind
+	 * @param ttlMillis
+	 *            memory tier entry age limit
+	 * @param file
+	 *            on-disk tier; created if missing; null for memory only
+	 */
+	public InstrumentCacheDDF(final int maxSize, final long ttlMillis,
+			final File file) throws IOException {
+
+		if (maxSize < 1 || ttlMillis < 1) {
+			throw new IllegalArgumentException("invalid size or ttl : "
+					+ maxSize + " / " + ttlMillis);
+		}
+
+		this.maxSize = maxSize;
+		this.ttl = ttlMillis;
+		this.refreshAfter = ttlMillis / 2;
+
+		if (file == null) {
+			this.file = null;
+		} else {
+			this.file = new InstrumentFileDDF(file);
+		}
+
+	}
+
+	/* ***** ***** ***** Symbol ***** ***** ***** */
+
+	/**
+	 * @param symbol
+	 *            formatted symbol
+	 * @return cached definitions, or null on miss
+	 */
+	public List<InstrumentState> symbol(final String symbol) {
+
+		final long now = System.currentTimeMillis();
+
+		final Node<List<InstrumentState>> expired = symbols.get(symbol);
+
+		if (expired != null) {
+			if (now - expired.time <= ttl) {
+				expired.used = now;
+				hits.incrementAndGet();
+				checkAge(symbol, expired.time, now);
+				return expired.value;
+			}
+			expirations.incrementAndGet();
+		}
+
+		final InstrumentState current = expired == null
+				|| expired.value.isEmpty() ? null : expired.value.get(0);
+
+		Node<InstrumentState> loaded = reload(InstrumentFileDDF.SYMBOL,
+				symbol, current, expired == null ? 0 : expired.time);
+
+		if (loaded != null) {
+			fileHits.incrementAndGet();
+		} else if (current != null) {
+			/* nothing newer on file; keep instance, refresh in background */
+			hits.incrementAndGet();
+			loaded = new Node<InstrumentState>(current, expired.time);
+		} else {
+			if (expired != null) {
+				symbols.remove(symbol, expired);
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+
+		checkAge(symbol, loaded.time, now);
+
+		final List<InstrumentState> list = current == null ? list(loaded.value)
+				: expired.value;
+
+		symbols.put(symbol, new Node<List<InstrumentState>>(list, now));
+
+		return list;
+
+	}
+
+	/**
+	 * Memory tier only, no metrics and no staleness check.
+	 */
+	List<InstrumentState> peekSymbol(final String symbol) {
+		final Node<List<InstrumentState>> node = symbols.get(symbol);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Stores definitions; first one is written to file when it came from
+	 * a lookup.
+	 */
+	public void putSymbol(final String symbol,
+			final List<InstrumentState> list) {
+
+		if (symbol == null || list == null) {
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+
+		symbols.put(symbol, new Node<List<InstrumentState>>(list, now));
+
+		if (!list.isEmpty()) {
+			store(InstrumentFileDDF.SYMBOL, symbol, list.get(0), now);
+		}
+
+	}
+
+	/* ***** ***** ***** ID ***** ***** ***** */
+
+	/**
+	 * @return cached definition, or null on miss
+	 */
+	public InstrumentState id(final InstrumentID id) {
+
+		final long now = System.currentTimeMillis();
+
+		final Node<InstrumentState> expired = ids.get(id);
+
+		if (expired != null) {
+			if (now - expired.time <= ttl) {
+				expired.used = now;
+				hits.incrementAndGet();
+				checkAge(expired.value.symbol(), expired.time, now);
+				return expired.value;
+			}
+			expirations.incrementAndGet();
+		}
+
+		Node<InstrumentState> loaded = reload(InstrumentFileDDF.ID,
+				id.id(), expired == null ? null : expired.value,
+				expired == null ? 0 : expired.time);
+
+		if (loaded != null) {
+			fileHits.incrementAndGet();
+		} else if (expired != null) {
+			/* nothing newer on file; keep instance, refresh in background */
+			hits.incrementAndGet();
+			loaded = expired;
+		} else {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		checkAge(loaded.value.symbol(), loaded.time, now);
+
+		ids.put(id, new Node<InstrumentState>(loaded.value, now));
+
+		return loaded.value;
+
+	}
+
+	/**
+	 * Memory tier only, no metrics and no staleness check.
+	 */
+	InstrumentState peekID(final InstrumentID id) {
+		final Node<InstrumentState> node = ids.get(id);
+		return node == null ? null : node.value;
+	}
+
+	public void putID(final InstrumentID id, final InstrumentState inst) {
+
+		if (id == null || inst == null) {
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+
+		ids.put(id, new Node<InstrumentState>(inst, now));
+
+		store(InstrumentFileDDF.ID, id.id(), inst, now);
+
+	}
+
+	/* ***** ***** ***** Tiers ***** ***** ***** */
+
+	/**
+	 * File definition of expired memory entry, as current instance; current
+	 * is updated in place only when file has a newer definition, and file
+	 * definition is decoded only then.
+	 *
+	 * @param current
+	 *            instance of expired memory entry, or null
+	 * @return current, or decoded definition when there is none, with time
+	 *         of file definition; null when not in file, or no file
+	 */
+	private Node<InstrumentState> reload(final char kind, final String key,
+			final InstrumentState current, final long time) {
+
+		if (current == null) {
+			return load(kind, key);
+		}
+
+		if (file == null) {
+			return null;
+		}
+
+		final InstrumentFileDDF.Record record = file.get(kind, key);
+
+		if (record == null) {
+			return null;
+		}
+
+		if (record.time > time) {
+			final Node<InstrumentState> loaded = decode(key, record);
+			if (loaded != null) {
+				current.process(loaded.value);
+			}
+		}
+
+		return new Node<InstrumentState>(current, record.time);
+
+	}
+
+	private Node<InstrumentState> load(final char kind, final String key) {
+
+		if (file == null) {
+			return null;
+		}
+
+		final InstrumentFileDDF.Record record = file.get(kind, key);
+
+		if (record == null) {
+			return null;
+		}
+
+		return decode(key, record);
+
+	}
+
+	private static Node<InstrumentState> decode(final String key,
+			final InstrumentFileDDF.Record record) {
+
+		try {
+
+			final InstrumentState inst = InstrumentFileDDF.decode(record.xml);
+
+			if (inst.isNull()) {
+				return null;
+			}
+
+			return new Node<InstrumentState>(inst, record.time);
+
+		} catch (final Exception e) {
+			log.error("can not decode cached instrument {}", key, e);
+			return null;
+		}
+
+	}
+
+	private void store(final char kind, final String key,
+			final InstrumentState inst, final long time) {
+
+		if (file == null || !(inst instanceof DDF_Instrument)) {
+			return;
+		}
+
+		final String source = ((DDF_Instrument) inst).source();
+
+		if (source != null) {
+			file.put(kind, key, time, source);
+		}
+
+	}
+
+	private static List<InstrumentState> list(final InstrumentState inst) {
+		final List<InstrumentState> list =
+				new CopyOnWriteArrayList<InstrumentState>();
+		list.add(inst);
+		return list;
+	}
+
+	private void checkAge(final String symbol, final long time, final long now) {
+		if (now - time > refreshAfter) {
+			synchronized (stale) {
+				stale.add(symbol);
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns symbols due for refresh.
+	 */
+	public List<String> drainStale(final int limit) {
+
+		final List<String> list = new ArrayList<String>();
+
+		synchronized (stale) {
+			final Iterator<String> iter = stale.iterator();
+			while (iter.hasNext() && list.size() < limit) {
+				list.add(iter.next());
+				iter.remove();
+			}
+		}
+
+		return list;
+
+	}
+
+	/**
+	 * Loads on-disk definitions into memory tier, up to its size limit.
+	 *
+	 * @return number of definitions loaded
+	 */
+	public int warmup() {
+
+		if (file == null) {
+			return 0;
+		}
+
+		int count = 0;
+
+		for (final String symbol : file.keys(InstrumentFileDDF.SYMBOL)) {
+
+			if (count >= maxSize) {
+				break;
+			}
+
+			final Node<InstrumentState> loaded = load(
+					InstrumentFileDDF.SYMBOL, symbol);
+
+			if (loaded != null) {
+				symbols.put(symbol, new Node<List<InstrumentState>>(
+						list(loaded.value), loaded.time));
+				count++;
+			}
+
+		}
+
+		log.debug("warmed up {} instruments", count);
+
+		return count;
+
+	}
+
+	/**
+	 * Loads a recorded extras lookup response, for example a test fixture or
+	 * a snapshot shipped with an offline deployment.
+	 *
+	 * @return number of definitions loaded
+	 */
+	public int load(final InputStream lookup) throws Exception {
+
+		final Map<String, List<InstrumentState>> result =
+				new HashMap<String, List<InstrumentState>>();
+
+		final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+
+		parser.parse(lookup, DDF_RxInstrumentProvider.symbolHandler(result));
+
+		int count = 0;
+
+		for (final Entry<String, List<InstrumentState>> e : result.entrySet()) {
+
+			if (e.getValue().isEmpty()) {
+				continue;
+			}
+
+			final InstrumentState inst = e.getValue().get(0);
+			final List<InstrumentState> list = list(inst);
+
+			putSymbol(e.getKey(), list);
+			putSymbol(inst.symbol(), list);
+			putID(inst.id(), inst);
+
+			count++;
+
+		}
+
+		return count;
+
+	}
+
+	public void close() {
+		if (file != null) {
+			file.close();
+		}
+	}
+
+	/* ***** ***** ***** Metrics ***** ***** ***** */
+
+	/** lookups served by memory tier */
+	public long hits() {
+		return hits.get();
+	}
+
+	/** lookups served by on-disk tier */
+	public long fileHits() {
+		return fileHits.get();
+	}
+
+	/** lookups found in neither tier */
+	public long misses() {
+		return misses.get();
+	}
+
+	/** memory entries dropped for age */
+	public long expirations() {
+		return expirations.get();
+	}
+
+	/** memory entries dropped for size */
+	public long evictions() {
+		return evictions.get();
+	}
+
+	/** memory tier entries, symbols and ids */
+	public int size() {
+		return symbols.size() + ids.size();
+	}
+
+	@Override
+	public String toString() {
+		return "InstrumentCacheDDF [size=" + size() + ", file="
+				+ (file == null ? 0 : file.size()) + ", hits=" + hits()
+				+ ", fileHits=" + fileHits() + ", misses=" + misses()
+				+ ", expirations=" + expirations() + ", evictions="
+				+ evictions() + "]";
+	}
+
+}
@@ -0,0 +1,471 @@
+package com.barchart.feed.ddf.instrument.provider;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Append only on-disk instrument tier.
+ * <p>
+ * One line per stored definition: write time, key kind, key and the
+ * instrument element as returned by extras lookup. Later lines supersede
+ * earlier ones. The offset index is rebuilt on open, and the file is
+ * compacted on open when most lines are superseded.
+ */
+class InstrumentFileDDF {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(InstrumentFileDDF.class);
+
+	static final char SYMBOL = 'S';
+	static final char ID = 'I';
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** compact on open when file has this many lines per live record */
+	private static final int COMPACT_RATIO = 2;
+
+	private static final int COMPACT_MINIMUM = 1024;
+
+	/** stored definition */
+	static final class Record {
+
+		final long time;
+		final String xml;
+
+		Record(final long time, final String xml) {
+			this.time = time;
+			this.xml = xml;
+		}
+
+	}
+
+	private static final class Slot {
+
+		final long offset;
+		final int length;
+
+		Slot(final long offset, final int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+	}
+
+	private final File file;
+
+	private final Map<String, Slot> symbols = new HashMap<String, Slot>();
+
+	private final Map<String, Slot> ids = new HashMap<String, Slot>();
+
+	private RandomAccessFile access;
+
+	private long lines;
+
+	InstrumentFileDDF(final File file) throws IOException {
+
+		this.file = file;
+
+		final File folder = file.getAbsoluteFile().getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs()) {
+			throw new IOException("can not create " + folder);
+		}
+
+		/* compaction interrupted in the middle of replace */
+		final File backup = new File(file.getPath() + ".bak");
+		if (!file.exists() && backup.exists() && !backup.renameTo(file)) {
+			throw new IOException("can not restore " + backup);
+		}
+
+		open();
+
+		if (lines > COMPACT_MINIMUM
+				&& lines > COMPACT_RATIO * (symbols.size() + ids.size())) {
+			compact();
+		}
+
+	}
+
+	private void open() throws IOException {
+
+		symbols.clear();
+		ids.clear();
+		lines = 0;
+
+		long valid = 0;
+
+		if (file.exists()) {
+
+			final InputStream input = new BufferedInputStream(
+					new FileInputStream(file));
+
+			try {
+
+				final ByteArrayOutputStream line = new ByteArrayOutputStream(
+						1024);
+
+				long offset = 0;
+				int next;
+
+				while ((next = input.read()) != -1) {
+					offset++;
+					if (next == '\n') {
+						index(line.toByteArray(), valid);
+						line.reset();
+						valid = offset;
+					} else {
+						line.write(next);
+					}
+				}
+
+			} finally {
+				input.close();
+			}
+
+		}
+
+		access = new RandomAccessFile(file, "rw");
+
+		/* drop partial line of interrupted append */
+		if (access.length() > valid) {
+			log.warn("truncating partial record in {}", file);
+			access.setLength(valid);
+		}
+
+	}
+
+	private void index(final byte[] line, final long offset) {
+
+		final String[] fields = split(new String(line, UTF8));
+
+		if (fields == null) {
+			return;
+		}
+
+		lines++;
+
+		final Slot slot = new Slot(offset, line.length);
+
+		if (fields[1].charAt(0) == ID) {
+			ids.put(fields[2], slot);
+		} else {
+			symbols.put(fields[2], slot);
+		}
+
+	}
+
+	/** time, kind, key, xml; null if malformed */
+	private static String[] split(final String line) {
+
+		final String[] fields = line.split("\t", 4);
+
+		if (fields.length != 4 || fields[1].length() != 1) {
+			return null;
+		}
+
+		try {
+			Long.parseLong(fields[0]);
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+
+		return fields;
+
+	}
+
+	private Map<String, Slot> map(final char kind) {
+		return kind == ID ? ids : symbols;
+	}
+
+	/**
+	 * @return stored definition or null
+	 */
+	synchronized Record get(final char kind, final String key) {
+
+		final Slot slot = map(kind).get(key);
+
+		if (slot == null) {
+			return null;
+		}
+
+		try {
+
+			final byte[] bytes = new byte[slot.length];
+
+			access.seek(slot.offset);
+			access.readFully(bytes);
+
+			final String[] fields = split(new String(bytes, UTF8));
+
+			if (fields == null) {
+				return null;
+			}
+
+			return new Record(Long.parseLong(fields[0]), fields[3]);
+
+		} catch (final IOException e) {
+			log.error("instrument file read failed", e);
+			return null;
+		}
+
+	}
+
+	synchronized void put(final char kind, final String key, final long time,
+			final String xml) {
+
+		if (key.indexOf('\t') >= 0 || key.indexOf('\n') >= 0
+				|| xml.indexOf('\n') >= 0) {
+			return;
+		}
+
+		final byte[] bytes = (time + "\t" + kind + "\t" + key + "\t" + xml)
+				.getBytes(UTF8);
+
+		try {
+
+			final long offset = access.length();
+
+			access.seek(offset);
+			access.write(bytes);
+			access.write('\n');
+
+			map(kind).put(key, new Slot(offset, bytes.length));
+			lines++;
+
+		} catch (final IOException e) {
+			log.error("instrument file write failed", e);
+		}
+
+	}
+
+	synchronized Set<String> keys(final char kind) {
+		return new HashSet<String>(map(kind).keySet());
+	}
+
+	synchronized int size() {
+		return symbols.size() + ids.size();
+	}
+
+	/** rewrites live lines only */
+	private void compact() throws IOException {
+
+		final TreeMap<Long, Slot> live = new TreeMap<Long, Slot>();
+		for (final Slot slot : symbols.values()) {
+			live.put(slot.offset, slot);
+		}
+		for (final Slot slot : ids.values()) {
+			live.put(slot.offset, slot);
+		}
+
+		final File temp = new File(file.getPath() + ".tmp");
+
+		final OutputStream output = new FileOutputStream(temp);
+
+		try {
+			for (final Slot slot : live.values()) {
+				final byte[] bytes = new byte[slot.length];
+				access.seek(slot.offset);
+				access.readFully(bytes);
+				output.write(bytes);
+				output.write('\n');
+			}
+		} finally {
+			output.close();
+		}
+
+		access.close();
+
+		if (!replace(temp, file)) {
+			/* previous file is still in place; compact on a later open */
+			log.warn("can not replace {}, not compacted", file);
+			temp.delete();
+			open();
+			return;
+		}
+
+		log.debug("compacted {} : {} lines to {}", new Object[] { file, lines,
+				live.size() });
+
+		open();
+
+	}
+
+	/**
+	 * Rename source over target; target is kept, under its own name, unless
+	 * source took its place.
+	 */
+	static boolean replace(final File source, final File target) {
+
+		if (source.renameTo(target)) {
+			return true;
+		}
+
+		/* platforms which do not rename over existing file */
+		final File backup = new File(target.getPath() + ".bak");
+
+		backup.delete();
+
+		if (!target.renameTo(backup)) {
+			return false;
+		}
+
+		if (!source.renameTo(target)) {
+			backup.renameTo(target);
+			return false;
+		}
+
+		backup.delete();
+
+		return true;
+
+	}
+
+	synchronized void close() {
+		try {
+			access.close();
+		} catch (final IOException e) {
+			log.error("instrument file close failed", e);
+		}
+	}
+
+	/* ***** ***** ***** Record Codec ***** ***** ***** */
+
+	/**
+	 * Single line instrument element, with ticker children.
+	 */
+	static String encode(final Attributes instrument,
+			final List<Attributes> vendors) {
+
+		final StringBuilder text = new StringBuilder(512);
+
+		text.append("<instrument");
+		attributes(instrument, text);
+		text.append('>');
+
+		for (final Attributes vendor : vendors) {
+			text.append("<ticker");
+			attributes(vendor, text);
+			text.append("/>");
+		}
+
+		return text.append("</instrument>").toString();
+
+	}
+
+	private static void attributes(final Attributes atts,
+			final StringBuilder text) {
+
+		for (int index = 0; index < atts.getLength(); index++) {
+
+			text.append(' ').append(atts.getQName(index)).append("=\"");
+
+			final String value = atts.getValue(index);
+
+			for (int k = 0; k < value.length(); k++) {
+				final char c = value.charAt(k);
+				switch (c) {
+				case '&':
+					text.append("&amp;");
+					break;
+				case '<':
+					text.append("&lt;");
+					break;
+				case '>':
+					text.append("&gt;");
+					break;
+				case '"':
+					text.append("&quot;");
+					break;
+				case '\t':
+				case '\n':
+				case '\r':
+					text.append("&#").append((int) c).append(';');
+					break;
+				default:
+					text.append(c);
+					break;
+				}
+			}
+
+			text.append('"');
+
+		}
+
+	}
+
+	/**
+	 * @return instrument parsed from {@link #encode} output
+	 */
+	static InstrumentState decode(final String xml) throws Exception {
+
+		final List<InstrumentState> result = new ArrayList<InstrumentState>(1);
+
+		final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+
+		parser.parse(new InputSource(new StringReader(xml)),
+				new DefaultHandler() {
+
+					private Attributes atts;
+					private final List<Attributes> vendors =
+							new ArrayList<Attributes>();
+
+					@Override
+					public void startElement(final String uri,
+							final String localName, final String qName,
+							final Attributes ats) throws SAXException {
+						if ("instrument".equals(qName)) {
+							atts = new AttributesImpl(ats);
+						} else if ("ticker".equals(qName)) {
+							vendors.add(new AttributesImpl(ats));
+						}
+					}
+
+					@Override
+					public void endDocument() throws SAXException {
+						if (atts == null) {
+							return;
+						}
+						try {
+							result.add(new DDF_Instrument(atts, vendors));
+						} catch (final Exception e) {
+							throw new SAXException(e);
+						}
+					}
+
+				});
+
+		if (result.isEmpty()) {
+			return InstrumentState.NULL;
+		}
+
+		return result.get(0);
+
+	}
+
+}
@@ -0,0 +1,270 @@
+package com.barchart.feed.ddf.instrument.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.observables.BlockingObservable;
+
+import com.barchart.feed.api.consumer.MetadataService.Result;
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.api.model.meta.id.InstrumentID;
+import com.barchart.feed.api.model.meta.id.VendorID;
+
+/**
+ * Runs offline against recorded lookup fixture.
+ */
+public class TestInstrumentCacheDDF {
+
+	static final String FIXTURE = "/instrument-lookup.xml";
+
+	static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("instruments", ".cache");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+
+	static int load(final InstrumentCacheDDF cache) throws Exception {
+		final InputStream input = TestInstrumentCacheDDF.class
+				.getResourceAsStream(FIXTURE);
+		try {
+			return cache.load(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	@Test
+	public void testFileTier() throws Exception {
+
+		final InstrumentCacheDDF writer = new InstrumentCacheDDF(100, HOUR,
+				file);
+		assertEquals(5, load(writer));
+		writer.close();
+
+		final InstrumentCacheDDF reader = new InstrumentCacheDDF(100, HOUR,
+				file);
+
+		final List<InstrumentState> list = reader.symbol("ESZ14");
+
+		assertNotNull(list);
+		assertEquals("ESZ2014", list.get(0).symbol());
+		assertEquals("F.US.EPZ14",
+				list.get(0).vendorSymbols().get(new VendorID("CQG")));
+		assertEquals(1, reader.fileHits());
+
+		assertTrue(list == reader.symbol("ESZ14"));
+		assertEquals(1, reader.hits());
+
+		final InstrumentState option = reader.id(new InstrumentID("274515764"));
+		assertEquals("ESV2014|2045C", option.symbol());
+
+		assertNull(reader.symbol("NOPE"));
+		assertEquals(1, reader.misses());
+
+		reader.close();
+
+	}
+
+	@Test
+	public void testWarmup() throws Exception {
+
+		final InstrumentCacheDDF writer = new InstrumentCacheDDF(100, HOUR,
+				file);
+		load(writer);
+		writer.close();
+
+		final InstrumentCacheDDF reader = new InstrumentCacheDDF(100, HOUR,
+				file);
+
+		assertEquals(7, reader.warmup());
+
+		assertNotNull(reader.symbol("IBM"));
+		assertEquals(1, reader.hits());
+		assertEquals(0, reader.fileHits());
+
+		reader.close();
+
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+
+		final InstrumentCacheDDF cache = new InstrumentCacheDDF(2, HOUR, null);
+
+		load(cache);
+
+		/* 7 symbol keys and 5 ids, 2 of each kept */
+		assertEquals(4, cache.size());
+		assertEquals(8, cache.evictions());
+
+	}
+
+	/** without file, expired entry keeps instance and is reported stale */
+	@Test
+	public void testExpiry() throws Exception {
+
+		final InstrumentCacheDDF cache = new InstrumentCacheDDF(100, 1, null);
+
+		load(cache);
+
+		final List<InstrumentState> list = cache.peekSymbol("IBM");
+		final InstrumentState inst = list.get(0);
+
+		Thread.sleep(10);
+
+		assertSame(list, cache.symbol("IBM"));
+		assertSame(inst, cache.id(inst.id()));
+		assertEquals(2, cache.expirations());
+		assertEquals(0, cache.misses());
+
+		assertTrue(cache.drainStale(10).contains("IBM"));
+
+		assertNull(cache.symbol("NOPE"));
+		assertEquals(1, cache.misses());
+
+	}
+
+	/** expired entry reloaded from file keeps instance, and is fresh again */
+	@Test
+	public void testReload() throws Exception {
+
+		final InstrumentCacheDDF cache = new InstrumentCacheDDF(100, 100, file);
+
+		load(cache);
+
+		final List<InstrumentState> list = cache.symbol("ESZ14");
+		final InstrumentID id = new InstrumentID("274515764");
+		final InstrumentState option = cache.id(id);
+		assertEquals(2, cache.hits());
+
+		Thread.sleep(150);
+
+		assertSame(list, cache.symbol("ESZ14"));
+		assertSame(option, cache.id(id));
+		assertEquals(2, cache.expirations());
+		assertEquals(2, cache.fileHits());
+
+		assertSame(list, cache.symbol("ESZ14"));
+		assertSame(option, cache.id(id));
+		assertEquals(4, cache.hits());
+		assertEquals(2, cache.fileHits());
+
+		/* both report their symbol for refresh */
+		final List<String> stale = cache.drainStale(10);
+		assertTrue(stale.contains("ESZ14"));
+		assertTrue(stale.contains("ESV2014|2045C"));
+
+		cache.close();
+
+	}
+
+	@Test
+	public void testReplace() throws Exception {
+
+		final File source = new File(file.getPath() + ".tmp");
+
+		write(file, "old");
+		write(source, "new");
+
+		assertTrue(InstrumentFileDDF.replace(source, file));
+		assertEquals("new", read(file));
+		assertFalse(source.exists());
+
+		/* failed replace keeps target */
+		assertFalse(InstrumentFileDDF.replace(source, file));
+		assertEquals("new", read(file));
+
+	}
+
+	static void write(final File file, final String text) throws Exception {
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(text.getBytes(InstrumentFileDDF.UTF8));
+		} finally {
+			output.close();
+		}
+	}
+
+	static String read(final File file) throws Exception {
+		final byte[] bytes = new byte[(int) file.length()];
+		final DataInputStream input = new DataInputStream(new FileInputStream(
+				file));
+		try {
+			input.readFully(bytes);
+		} finally {
+			input.close();
+		}
+		return new String(bytes, InstrumentFileDDF.UTF8);
+	}
+
+	@Test
+	public void testStale() throws Exception {
+
+		final InstrumentCacheDDF cache = new InstrumentCacheDDF(100, 200, null);
+
+		load(cache);
+
+		assertTrue(cache.drainStale(10).isEmpty());
+
+		Thread.sleep(120);
+
+		assertNotNull(cache.symbol("IBM"));
+		assertEquals("IBM", cache.drainStale(10).get(0));
+		assertTrue(cache.drainStale(10).isEmpty());
+
+	}
+
+	@Test
+	public void testOffline() throws Exception {
+
+		final InstrumentCacheDDF cache = new InstrumentCacheDDF(100, HOUR,
+				null);
+		load(cache);
+
+		DDF_RxInstrumentProvider.bindCache(cache);
+		DDF_RxInstrumentProvider.setOffline(true);
+
+		try {
+
+			final Result<Instrument> result = BlockingObservable.from(
+					DDF_RxInstrumentProvider.fromString("ESZ14", "NOPE"))
+					.single();
+
+			assertEquals("ESZ2014", result.results().get("ESZ14").get(0)
+					.symbol());
+			assertTrue(result.results().get("NOPE").isEmpty());
+
+		} finally {
+			DDF_RxInstrumentProvider.setOffline(false);
+			DDF_RxInstrumentProvider.bindCache(new InstrumentCacheDDF());
+		}
+
+	}
+
+}
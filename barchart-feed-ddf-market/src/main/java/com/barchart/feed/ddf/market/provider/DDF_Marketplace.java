@@ -1,5 +1,7 @@
 package com.barchart.feed.ddf.market.provider;
 
+import java.util.concurrent.Executor;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +50,17 @@ public class DDF_Marketplace extends MarketplaceBase<DDF_MarketBase> implements
 		
 	}
 
+	/**
+	 * Optional multi threaded front end; messages must then be passed to
+	 * {@link ShardedMakerDDF#make(DDF_MarketBase)} instead of this marketplace.
+	 * 
+	 * @param shards
+	 *            number of worker threads
+	 */
+	public ShardedMakerDDF newShardedMaker(final int shards, final Executor executor) {
+		return new ShardedMakerDDF(this, shards, ShardedMakerDDF.DEFAULT_QUEUE_DEPTH, executor);
+	}
+
 	@Override
 	protected void make(DDF_MarketBase message, MarketDo market) {
 		message.accept(visitor, market);
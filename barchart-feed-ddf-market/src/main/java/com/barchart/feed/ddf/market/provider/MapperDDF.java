@@ -89,9 +89,16 @@ class MapperDDF implements DDF_MessageVisitor<Void, MarketDo> {
 
 		market.clearChanges();
 
-		final MarketDoBookEntry[] entries = message.entries();
 		final TimeValue time = message.getTime();
 
+		/* skip entry objects, book takes ddf arrays as is */
+		if (market instanceof VarMarketDDF) {
+			((VarMarketDDF) market).setBookSnapshot(message, time);
+			return null;
+		}
+
+		final MarketDoBookEntry[] entries = message.entries();
+
 		market.setBookSnapshot(entries, time);
 
 		return null;
@@ -0,0 +1,332 @@
+package com.barchart.feed.ddf.market.provider;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.base.provider.Symbology;
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
+import com.barchart.feed.ddf.datalink.provider.util.RingHandoffDDF;
+import com.barchart.feed.ddf.datalink.provider.util.RunnerDDF;
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+
+/**
+ * Partitions market messages by feed symbol across worker threads, each
+ * feeding {@link DDF_Marketplace#make} for its own subset of markets.
+ * <p>
+ * All messages of an instrument go through the same shard, so per instrument
+ * order is preserved and every {@link VarMarketEntityDDF} is only ever
+ * mutated by one worker; market state needs no locking. Agent callbacks of
+ * different instruments run concurrently, on shard threads.
+ * <p>
+ * Shard is chosen by formatted feed symbol, the key instrument and market
+ * are resolved by, so raw spellings of one instrument share a shard. The
+ * instrument symbol itself is not used, it can change once instrument lookup
+ * completes and would move a market to another shard mid stream. Shard of
+ * each {@link DDF_MarketBase#getSymbolHandle()} is kept, so symbol is
+ * formatted once per handle.
+ */
+public class ShardedMakerDDF {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(ShardedMakerDDF.class);
+
+	public static final int DEFAULT_QUEUE_DEPTH = 16 * 1024;
+
+	/** max messages applied per shard wake up */
+	private static final int BATCH = 256;
+
+	private final HandoffDDF.Sink<DDF_MarketBase> maker;
+
+	private final Shard[] shards;
+
+	private final Executor executor;
+
+	private volatile boolean isRunning;
+
+	/** bumped on every start and stop; workers of older ones exit */
+	private volatile int generation;
+
+	/** messages passed in while not running */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Shard plus one by symbol handle, zero when not yet known; entries are
+	 * derived from handle only, so racing writers store same value.
+	 */
+	private volatile int[] handleShards = new int[1024];
+
+	/**
+	 * @param shards
+	 *            number of worker threads
+	 * @param queueDepth
+	 *            per shard pending message limit; producer blocks when full
+	 * @param executor
+	 *            runs one long lived task per shard
+	 */
+	public ShardedMakerDDF(final DDF_Marketplace maker, final int shards,
+			final int queueDepth, final Executor executor) {
+		this(new HandoffDDF.Sink<DDF_MarketBase>() {
+			@Override
+			public void handle(final DDF_MarketBase message) {
+				maker.make(message);
+			}
+		}, shards, queueDepth, executor);
+	}
+
+	ShardedMakerDDF(final HandoffDDF.Sink<DDF_MarketBase> maker,
+			final int shards, final int queueDepth, final Executor executor) {
+
+		if (shards < 1) {
+			throw new IllegalArgumentException("invalid shard count : "
+					+ shards);
+		}
+
+		this.maker = maker;
+		this.executor = executor;
+
+		this.shards = new Shard[shards];
+		for (int index = 0; index < shards; index++) {
+			this.shards[index] = new Shard(index, queueDepth);
+		}
+
+	}
+
+	private final class Shard implements HandoffDDF.Sink<DDF_MarketBase> {
+
+		final int index;
+
+		/* feed message task is the producer, but may overlap on restart */
+		final HandoffDDF<DDF_MarketBase> queue;
+
+		/* written by shard thread only */
+		volatile long processed;
+
+		/* current worker; null when stopped */
+		volatile Worker worker;
+
+		Shard(final int index, final int queueDepth) {
+			this.index = index;
+			this.queue = new RingHandoffDDF<DDF_MarketBase>(queueDepth,
+					RingHandoffDDF.WaitStrategy.PARK,
+					RingHandoffDDF.Overflow.BLOCK, true);
+		}
+
+		@Override
+		public void handle(final DDF_MarketBase message) {
+			processed++;
+			maker.handle(message);
+		}
+
+	}
+
+	/**
+	 * Drains one shard for one start; exits once stopped, even when stop came
+	 * before executor ran it.
+	 */
+	private final class Worker extends RunnerDDF {
+
+		final Shard shard;
+
+		final int started;
+
+		Worker(final Shard shard, final int started) {
+			this.shard = shard;
+			this.started = started;
+		}
+
+		@Override
+		protected void runCore() {
+
+			Thread.currentThread().setName("# DDF MARKET SHARD " + shard.index);
+
+			log.debug("# started market shard {}", shard.index);
+
+			while (generation == started) {
+				try {
+					/* worker of previous start may still finish a batch */
+					synchronized (shard) {
+						shard.queue.drain(shard, BATCH);
+					}
+				} catch (final InterruptedException e) {
+					break;
+				} catch (final Throwable e) {
+					log.error("market update failed", e);
+				}
+			}
+
+			log.debug("# market shard {} terminated", shard.index);
+
+		}
+
+	}
+
+	/**
+	 * Starts shard workers.
+	 */
+	public synchronized void startup() {
+
+		if (isRunning) {
+			return;
+		}
+
+		isRunning = true;
+
+		final int started = ++generation;
+
+		for (final Shard shard : shards) {
+			final Worker worker = new Worker(shard, started);
+			shard.worker = worker;
+			executor.execute(worker);
+		}
+
+	}
+
+	/**
+	 * Stops shard workers; pending messages are discarded, and so are
+	 * messages passed in until next start.
+	 */
+	public synchronized void shutdown() {
+
+		isRunning = false;
+
+		/* before interrupt; workers not yet running see it on start */
+		generation++;
+
+		for (final Shard shard : shards) {
+			final Worker worker = shard.worker;
+			shard.worker = null;
+			if (worker != null) {
+				worker.interrupt();
+			}
+			shard.queue.clear();
+		}
+
+	}
+
+	/**
+	 * Queues message on its instrument shard; blocks while shard is full.
+	 * Dropped while not running.
+	 */
+	public void make(final DDF_MarketBase message) {
+
+		if (!isRunning) {
+			dropped.incrementAndGet();
+			return;
+		}
+
+		final Shard shard = shards[shardOf(message)];
+
+		try {
+			shard.queue.put(message);
+		} catch (final InterruptedException e) {
+			log.debug("interrupted while queuing market message");
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	/** handles are dense from zero, in order of first use */
+	int shardOf(final DDF_MarketBase message) {
+
+		final int handle = message.getSymbolHandle();
+
+		int[] known = handleShards;
+
+		if (handle >= 0 && handle < known.length && known[handle] != 0) {
+			return known[handle] - 1;
+		}
+
+		final int shard = shardOf(Symbology.formatSymbol(message
+				.getSymbolName()));
+
+		if (handle >= 0) {
+			if (handle >= known.length) {
+				known = Arrays.copyOf(known,
+						Math.max(handle + 1, known.length * 2));
+				handleShards = known;
+			}
+			known[handle] = shard + 1;
+		}
+
+		return shard;
+
+	}
+
+	int shardOf(final String symbol) {
+		return (symbol.hashCode() & 0x7FFFFFFF) % shards.length;
+	}
+
+	/* ***** ***** ***** Metrics ***** ***** ***** */
+
+	public int shardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * Messages dropped because shards were not running.
+	 */
+	public long dropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Messages waiting on shard.
+	 */
+	public int queueDepth(final int shard) {
+		return shards[shard].queue.size();
+	}
+
+	/**
+	 * Messages applied by shard since creation.
+	 */
+	public long processed(final int shard) {
+		return shards[shard].processed;
+	}
+
+	/**
+	 * Busiest shard load over mean shard load, by processed messages; 1.0
+	 * is perfect balance, shard count means one shard takes everything.
+	 */
+	public double imbalance() {
+
+		long total = 0;
+		long max = 0;
+
+		for (final Shard shard : shards) {
+			final long count = shard.processed;
+			total += count;
+			if (count > max) {
+				max = count;
+			}
+		}
+
+		if (total == 0) {
+			return 1.0;
+		}
+
+		return (double) max * shards.length / total;
+
+	}
+
+	@Override
+	public String toString() {
+
+		final StringBuilder text = new StringBuilder();
+
+		text.append("ShardedMakerDDF [shards=").append(shards.length);
+		text.append(", imbalance=").append(String.format("%.2f", imbalance()));
+
+		for (int index = 0; index < shards.length; index++) {
+			text.append(", ").append(index).append("=");
+			text.append(queueDepth(index)).append("/").append(processed(index));
+		}
+
+		return text.append("]").toString();
+
+	}
+
+}
@@ -7,14 +7,12 @@
  */
 package com.barchart.feed.ddf.market.provider;
 
-import static com.barchart.feed.base.provider.MarketConst.NULL_BOOK_ENTRY;
+import static com.barchart.feed.base.book.enums.MarketBookAction.MODIFY;
 
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,110 +25,148 @@ import com.barchart.feed.base.book.api.MarketDoBook;
 import com.barchart.feed.base.book.api.MarketDoBookEntry;
 import com.barchart.feed.base.book.enums.UniBookResult;
 import com.barchart.feed.base.provider.DefBook;
+import com.barchart.feed.base.provider.DefBookEntry;
 import com.barchart.feed.base.provider.MarketConst;
 import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.SizeValue;
 import com.barchart.feed.base.values.api.TimeValue;
 import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.base.values.provider.ValueConst;
 import com.barchart.feed.base.values.provider.ValueFreezer;
+import com.barchart.feed.ddf.message.api.DDF_MarketBook;
+import com.barchart.feed.ddf.util.HelperDDF;
 import com.barchart.util.common.anno.Mutable;
 import com.barchart.util.common.anno.ThreadSafe;
 import com.barchart.util.value.api.Time;
 
+/**
+ * Price level book kept in fixed primitive arrays, best level first, up to
+ * {@link DDF_MarketBook#ENTRY_LIMIT} levels per side.
+ * <p>
+ * Prices are mantissas in one book wide exponent; {@link #EMPTY} price marks
+ * an empty level, {@link #EMPTY} size a level without size, such as the top
+ * of quote only instruments. Entry objects are only created when read, and
+ * cached until their level changes.
+ */
 @Mutable
 @ThreadSafe(rule = "use in runSafe() only")
 public final class VarBookDDF extends ValueFreezer<MarketBook> implements
 		MarketDoBook {
-	
+
 	private static final Logger log = LoggerFactory.getLogger(VarBookDDF.class);
-	
-	protected volatile MarketBookEntry lastEntry = MarketConst.NULL_BOOK_ENTRY;
-	
-	private final Set<Component> changeSet = EnumSet.noneOf(Component.class);
 
-	@SuppressWarnings("serial")
-	private static class EntryMap extends TreeMap<PriceValue, MarketBookEntry> {
-		public EntryMap(final Comparator<PriceValue> comp) {
-			super(comp);
+	static final int LIMIT = DDF_MarketBook.ENTRY_LIMIT;
+
+	/** no price, or no size, at level */
+	static final long EMPTY = Long.MIN_VALUE;
+
+	private static final long[] POWERS = new long[19];
+
+	static {
+		POWERS[0] = 1;
+		for (int index = 1; index < POWERS.length; index++) {
+			POWERS[index] = POWERS[index - 1] * 10;
 		}
 	}
 
+	protected volatile MarketBookEntry lastEntry = MarketConst.NULL_BOOK_ENTRY;
+
+	private final Set<Component> changeSet = EnumSet.noneOf(Component.class);
+
 	private long millisUTC;
-	
-	private static final Comparator<PriceValue> CMP_ASC = new Comparator<PriceValue>() {
-		@Override
-		public int compare(final PriceValue o1, final PriceValue o2) {
-			return o1.compareTo(o2);
-		}
-	};
 
-	private static final Comparator<PriceValue> CMP_DES = new Comparator<PriceValue>() {
-		@Override
-		public int compare(final PriceValue o1, final PriceValue o2) {
-			return o2.compareTo(o1);
-		}
-	};
+	/** exponent of all price mantissas */
+	private int exponent;
 
-	private final EntryMap bids = new EntryMap(CMP_ASC);
-	private final EntryMap asks = new EntryMap(CMP_DES);
+	private final long[] bidPrices = new long[LIMIT];
+	private final long[] bidSizes = new long[LIMIT];
+	private final long[] askPrices = new long[LIMIT];
+	private final long[] askSizes = new long[LIMIT];
 
-	private volatile MarketBookEntry topBid = MarketBookEntry.NULL;
-	private volatile MarketBookEntry topAsk = MarketBookEntry.NULL;
+	/** per level entry cache; null until read or after level change */
+	private final MarketBookEntry[] bidViews = new MarketBookEntry[LIMIT];
+	private final MarketBookEntry[] askViews = new MarketBookEntry[LIMIT];
 
 	private final Instrument instrument;
-	
+
+	/** last snapshot, shared by freezes until next mutation */
+	private DefBook frozen;
+
+	/** bumped on every mutation */
+	private int revision;
+
 	VarBookDDF(final Instrument instrument) {
 		this.instrument = instrument;
+		Arrays.fill(bidPrices, EMPTY);
+		Arrays.fill(askPrices, EMPTY);
 	}
 
 	// #####################################
 
+	/**
+	 * Sets, or with null price removes, the level at entry place; other
+	 * levels keep their place. Below top, a null or zero size removes too.
+	 */
 	@Override
 	public final UniBookResult setEntry(final MarketDoBookEntry entry) {
 
-		if(entry != null) {
-			lastEntry = entry.freeze();
+		if (entry == null) {
+			return UniBookResult.ERROR;
 		}
-		
+
+		lastEntry = entry.freeze();
+
+		changed();
+
 		changeSet.clear();
-		
+
 		final Book.Side side = entry.side();
 
 		final int place = entry.place();
 
-		// NOTE: This only updates top.  
+		if (side == null || place < ENTRY_TOP || place > LIMIT) {
+			return UniBookResult.ERROR;
+		}
+
+		final int index = place - ENTRY_TOP;
+
+		final PriceValue price = entry.priceValue();
+		final SizeValue size = entry.sizeValue();
+
+		final boolean isRemove = isRemove(place, price, size);
 
 		switch (side) {
 		case BID:
-			if (place == ENTRY_TOP) {
-				
-				if(entry.price().isNull()) {
-					topBid = MarketBookEntry.NULL;
-				} else {
-					topBid = entry;
-				}
-				
-				changeSet.add(Component.TOP_BID);
+			if (isRemove) {
+				bidPrices[index] = EMPTY;
+				bidSizes[index] = 0;
+			} else {
+				bidPrices[index] = mantissa(price);
+				bidSizes[index] = size(size);
 			}
-			
+			bidViews[index] = null;
+			changeSet.add(place == ENTRY_TOP ? Component.TOP_BID
+					: Component.NORMAL_BID);
+			changeSet.add(Component.ANY_BID);
 			break;
-			
+
 		case ASK:
-			if (place == ENTRY_TOP) {
-				
-				if(entry.price().isNull()) {
-					topAsk = MarketBookEntry.NULL;
-				} else {
-					topAsk = entry;
-				}
-				
-				changeSet.add(Component.TOP_ASK);
+			if (isRemove) {
+				askPrices[index] = EMPTY;
+				askSizes[index] = 0;
+			} else {
+				askPrices[index] = mantissa(price);
+				askSizes[index] = size(size);
 			}
+			askViews[index] = null;
+			changeSet.add(place == ENTRY_TOP ? Component.TOP_ASK
+					: Component.NORMAL_ASK);
+			changeSet.add(Component.ANY_ASK);
 			break;
-			
+
 		default:
 			return UniBookResult.ERROR;
-			
+
 		}
 
 		if (place == ENTRY_TOP) {
@@ -141,60 +177,179 @@ public final class VarBookDDF extends ValueFreezer<MarketBook> implements
 
 	}
 
-	private EntryMap map(final Book.Side side) {
-		switch (side) {
-		default:
-		case BID:
-			return bids;
-		case ASK:
-			return asks;
+	/**
+	 * Null price empties a level; top keeps a price without size, deeper
+	 * levels without size are gone.
+	 */
+	private static boolean isRemove(final int place, final PriceValue price,
+			final SizeValue size) {
+
+		if (price == null || price.isNull()) {
+			return true;
 		}
+
+		if (place == ENTRY_TOP) {
+			return false;
+		}
+
+		return size == null || size.isNull() || size.asLong() == 0;
+
+	}
+
+	private static long size(final SizeValue size) {
+		return size == null || size.isNull() ? EMPTY : size.asLong();
+	}
+
+	/** price mantissa in book exponent; rescales book for finer prices */
+	private long mantissa(final PriceValue price) {
+
+		final int priceExponent = price.exponent();
+
+		if (priceExponent == exponent) {
+			return price.mantissa();
+		}
+
+		if (isEmpty()) {
+			exponent = priceExponent;
+			return price.mantissa();
+		}
+
+		if (priceExponent > exponent) {
+			return price.mantissa() * POWERS[priceExponent - exponent];
+		}
+
+		final long factor = POWERS[exponent - priceExponent];
+		for (int index = 0; index < LIMIT; index++) {
+			if (bidPrices[index] != EMPTY) {
+				bidPrices[index] *= factor;
+			}
+			if (askPrices[index] != EMPTY) {
+				askPrices[index] *= factor;
+			}
+		}
+		Arrays.fill(bidViews, null);
+		Arrays.fill(askViews, null);
+		exponent = priceExponent;
+
+		return price.mantissa();
+
+	}
+
+	private boolean isEmpty() {
+		for (int index = 0; index < LIMIT; index++) {
+			if (bidPrices[index] != EMPTY || askPrices[index] != EMPTY) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long[] levelPrices(final Book.Side side) {
+		return side == Book.Side.ASK ? askPrices : bidPrices;
+	}
+
+	private long[] levelSizes(final Book.Side side) {
+		return side == Book.Side.ASK ? askSizes : bidSizes;
+	}
+
+	private MarketBookEntry[] levelViews(final Book.Side side) {
+		return side == Book.Side.ASK ? askViews : bidViews;
+	}
+
+	/** level entry, created on first read; null for empty level */
+	private MarketBookEntry entry(final Book.Side side, final int index) {
+
+		final long price = levelPrices(side)[index];
+
+		if (price == EMPTY) {
+			return null;
+		}
+
+		final MarketBookEntry[] views = levelViews(side);
+
+		MarketBookEntry entry = views[index];
+
+		if (entry == null) {
+			final long size = levelSizes(side)[index];
+			entry = new DefBookEntry(MODIFY, side, Book.Type.DEFAULT, index
+					+ ENTRY_TOP, ValueBuilder.newPrice(price, exponent),
+					size == EMPTY ? ValueConst.NULL_SIZE
+							: ValueBuilder.newSize(size));
+			views[index] = entry;
+		}
+
+		return entry;
+
 	}
 
+	/**
+	 * Non empty levels, deepest first, same order as the former tree maps.
+	 */
 	@Override
 	public final MarketBookEntry[] entries(final Book.Side side) {
 
-		final EntryMap map = map(side);
+		final long[] prices = levelPrices(side);
 
-		final Collection<MarketBookEntry> values = map.values();
+		int size = 0;
+		for (int index = 0; index < LIMIT; index++) {
+			if (prices[index] != EMPTY) {
+				size++;
+			}
+		}
 
-		final int size = values.size();
-		
 		if(size == 0) {
-			if(side == Side.BID) {
-				return new MarketBookEntry[]{topBid};
-			} else {
-				return new MarketBookEntry[]{topAsk};
-			}
+			return new MarketBookEntry[] { MarketBookEntry.NULL };
 		}
 
 		final MarketBookEntry[] array = new MarketBookEntry[size];
 
-		int index = 0;
+		int place = 0;
 
-		for (final MarketBookEntry entry : values) {
-			array[index] = entry;
-			index++;
+		for (int index = LIMIT - 1; index >= 0; index--) {
+			final MarketBookEntry entry = entry(side, index);
+			if (entry != null) {
+				array[place++] = entry;
+			}
 		}
 
 		return array;
 
 	}
 
+	private void changed() {
+		frozen = null;
+		revision++;
+	}
+
+	/**
+	 * Changes on every mutation; lets dependent views cache their snapshots.
+	 */
+	int revision() {
+		return revision;
+	}
+
+	/**
+	 * Unchanged book returns same frozen instance, so market snapshots taken
+	 * between book updates share it.
+	 */
 	@Override
 	public final DefBook freeze() {
-		
-		return new DefBook(
-				instrument, 
-				time(), 
+
+		if (frozen != null) {
+			return frozen;
+		}
+
+		return frozen = new DefBook(
+				instrument,
+				time(),
 				entries(Book.Side.BID),
 				entries(Book.Side.ASK),
-				topBid, 
-				topAsk,
-				lastEntry, 
+				top(Book.Side.BID),
+				top(Book.Side.ASK),
+				lastEntry,
 				EnumSet.copyOf(changeSet));
 	}
-	
+
 	@Override
 	public TimeValue time() {
 		return ValueBuilder.newTime(millisUTC);
@@ -202,6 +357,7 @@ public final class VarBookDDF extends ValueFreezer<MarketBook> implements
 
 	@Override
 	public final void setTime(final TimeValue time) {
+		changed();
 		millisUTC = time.asMillisUTC();
 	}
 
@@ -218,22 +374,13 @@ public final class VarBookDDF extends ValueFreezer<MarketBook> implements
 	@Override
 	public final MarketBookEntry top(final Book.Side side) {
 
-		final MarketBookEntry entry;
-		switch (side) {
-		case BID:
-			entry = topBid;
-			break;
-		case ASK:
-			entry = topAsk;
-			break;
-		default:
-			entry = null;
-			break;
+		if (side == null) {
+			return MarketConst.NULL_BOOK_ENTRY;
 		}
 
-		// System.err.println("### TOP : " + side + " ### " + entry);
+		final MarketBookEntry entry = entry(side, 0);
 
-		return entry == null ? NULL_BOOK_ENTRY : entry;
+		return entry == null ? MarketBookEntry.NULL : entry;
 
 	}
 
@@ -258,7 +405,7 @@ public final class VarBookDDF extends ValueFreezer<MarketBook> implements
 	public SizeValue sizeTop(final Book.Side side) {
 		throw new UnsupportedOperationException("UNUSED");
 	}
-	
+
 	@Override
 	public Top top() {
 		throw new UnsupportedOperationException("UNUSED");
@@ -273,15 +420,31 @@ public final class VarBookDDF extends ValueFreezer<MarketBook> implements
 	public Time updated() {
 		throw new UnsupportedOperationException("UNUSED");
 	}
-	
+
 	/* #################################### */
 
 	@Override
 	public void clear() {
 
-		bids.clear();
-		asks.clear();
+		changed();
 
+		Arrays.fill(bidPrices, EMPTY);
+		Arrays.fill(bidSizes, 0);
+		Arrays.fill(askPrices, EMPTY);
+		Arrays.fill(askSizes, 0);
+
+		Arrays.fill(bidViews, null);
+		Arrays.fill(askViews, null);
+
+	}
+
+	private void snapshotChanged() {
+		changeSet.add(Component.NORMAL_BID);
+		changeSet.add(Component.NORMAL_ASK);
+		changeSet.add(Component.TOP_BID);
+		changeSet.add(Component.TOP_ASK);
+		changeSet.add(Component.ANY_BID);
+		changeSet.add(Component.ANY_ASK);
 	}
 
 	@Override
@@ -291,48 +454,117 @@ public final class VarBookDDF extends ValueFreezer<MarketBook> implements
 			log.error("SetSnapshot called with null book entries");
 			return UniBookResult.ERROR;
 		}
-		
+
 		// log.debug("SetSnapshot called");
-		
+
 		clear();
-		
-		changeSet.add(Component.NORMAL_BID);
-		changeSet.add(Component.NORMAL_ASK);
-		changeSet.add(Component.TOP_BID);
-		changeSet.add(Component.TOP_ASK);
-		changeSet.add(Component.ANY_BID);
-		changeSet.add(Component.ANY_ASK);
+
+		snapshotChanged();
 
 		for (final MarketDoBookEntry entry : entries) {
 
-			if(entry != null && !entry.isNull()) {
-				final EntryMap map = map(entry.side());
-				map.put(entry.priceValue(), entry);
-				
-				/*
-				 * Set top of book from snapshot update
-				 */
-				if(entry.level() == 1) {
-					
-					if(entry.side() == Book.Side.BID) {
-						topBid = entry;
-					} else {
-						topAsk = entry;
-					}
-					
-				}
+			if(entry == null || entry.isNull()) {
+				continue;
 			}
 
+			final int index = entry.place() - ENTRY_TOP;
+
+			if (index < 0 || index >= LIMIT) {
+				continue;
+			}
+
+			final PriceValue priceValue = entry.priceValue();
+			final SizeValue sizeValue = entry.sizeValue();
+
+			/* same as empty level in setEntry() */
+			if (isRemove(entry.place(), priceValue, sizeValue)) {
+				continue;
+			}
+
+			final long price = mantissa(priceValue);
+			final long size = size(sizeValue);
+
+			if (entry.side() == Book.Side.BID) {
+				bidPrices[index] = price;
+				bidSizes[index] = size;
+			} else {
+				askPrices[index] = price;
+				askSizes[index] = size;
+			}
+
+		}
+
+		return UniBookResult.NORMAL;
+
+	}
+
+	/**
+	 * Replaces both sides straight from ddf snapshot arrays, without entry
+	 * objects; takes same levels as {@link DDF_MarketBook#entries()}.
+	 */
+	public UniBookResult setSnapshot(final DDF_MarketBook message) {
+
+		if (message == null) {
+			log.error("SetSnapshot called with null book message");
+			return UniBookResult.ERROR;
 		}
-		
-		/*
-		 * 
-		 */
-		
+
+		clear();
+
+		snapshotChanged();
+
+		exponent = message.getFraction().decimalExponent;
+
+		copy(message.prices(Book.Side.BID), message.sizes(Book.Side.BID),
+				message.count(Book.Side.BID), bidPrices, bidSizes);
+		copy(message.prices(Book.Side.ASK), message.sizes(Book.Side.ASK),
+				message.count(Book.Side.ASK), askPrices, askSizes);
+
 		return UniBookResult.NORMAL;
 
 	}
 
+	/**
+	 * Leading levels up to count; sentinel prices empty a level, as do
+	 * sentinel or zero sizes below top.
+	 */
+	private static void copy(final long[] sourcePrices,
+			final long[] sourceSizes, final int sourceCount,
+			final long[] prices, final long[] sizes) {
+
+		final int count = Math.min(Math.min(LIMIT, sourceCount),
+				Math.min(sourcePrices.length, sourceSizes.length));
+
+		for (int index = 0; index < count; index++) {
+
+			final long price = sourcePrices[index];
+			final long size = sourceSizes[index];
+
+			if (isSentinel(price)) {
+				continue;
+			}
+
+			if (index == 0) {
+				prices[index] = price;
+				sizes[index] = isSentinel(size) ? EMPTY : size;
+				continue;
+			}
+
+			if (isSentinel(size) || size == 0) {
+				continue;
+			}
+
+			prices[index] = price;
+			sizes[index] = size;
+
+		}
+
+	}
+
+	private static boolean isSentinel(final long value) {
+		return value == HelperDDF.DDF_EMPTY || value == HelperDDF.DDF_CLEAR;
+	}
+
 	@Override
 	public List<Entry> entryList(Book.Side side) {
 		throw new UnsupportedOperationException("UNUSED");
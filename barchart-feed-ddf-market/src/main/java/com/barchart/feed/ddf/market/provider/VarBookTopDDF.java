@@ -22,14 +22,27 @@ final class VarBookTopDDF extends ValueFreezer<MarketBookTop> implements
 
 	private final VarBookDDF book;
 
+	/** last snapshot, valid while book revision is unchanged */
+	private DefBookTop frozen;
+	private int frozenRevision;
+
 	VarBookTopDDF(final VarBookDDF book) {
 		this.book = book;
 	}
 
 	@Override
 	public final DefBookTop freeze() {
-		return new DefBookTop(book.instrument(), time(), side(Book.Side.BID), 
-				side(Book.Side.ASK));
+
+		final int revision = book.revision();
+
+		if (frozen == null || frozenRevision != revision) {
+			frozen = new DefBookTop(book.instrument(), time(),
+					side(Book.Side.BID), side(Book.Side.ASK));
+			frozenRevision = revision;
+		}
+
+		return frozen;
+
 	}
 
 	@Override
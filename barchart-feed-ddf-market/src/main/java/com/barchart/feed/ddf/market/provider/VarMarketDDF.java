@@ -65,6 +65,7 @@ import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.SizeValue;
 import com.barchart.feed.base.values.api.TimeValue;
 import com.barchart.feed.base.values.provider.ValueConst;
+import com.barchart.feed.ddf.message.api.DDF_MarketBook;
 import com.barchart.feed.ddf.message.provider.DDF_MessageService;
 import com.barchart.util.common.anno.Mutable;
 
@@ -118,6 +119,33 @@ public class VarMarketDDF extends VarMarket {
 
 		book.setSnapshot(entries);
 
+		applyBookSnapshot(book, time);
+
+	}
+
+	/**
+	 * Applies ddf depth arrays in place when book is a {@link VarBookDDF}.
+	 */
+	public void setBookSnapshot(final DDF_MarketBook message, final TimeValue time) {
+
+		assert message != null;
+		assert time != null;
+
+		final MarketDoBook book = loadBook();
+
+		if (book instanceof VarBookDDF) {
+			((VarBookDDF) book).setSnapshot(message);
+		} else {
+			book.setSnapshot(message.entries());
+		}
+
+		applyBookSnapshot(book, time);
+
+	}
+
+	/** change, events and time of a book snapshot already set on book */
+	private void applyBookSnapshot(final MarketDoBook book, final TimeValue time) {
+
 		setChange(Component.BOOK_COMBINED);
 		eventAdd(NEW_BOOK_SNAPSHOT);
 
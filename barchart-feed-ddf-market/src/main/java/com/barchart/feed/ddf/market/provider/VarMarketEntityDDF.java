@@ -26,6 +26,7 @@ import com.barchart.feed.base.trade.enums.MarketTradeType;
 import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.SizeValue;
 import com.barchart.feed.base.values.api.TimeValue;
+import com.barchart.feed.ddf.message.api.DDF_MarketBook;
 
 public class VarMarketEntityDDF extends VarMarketDDF {
 
@@ -42,6 +43,9 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 
 	private final Set<MKData> toFire = EnumSet.noneOf(MKData.class);
 
+	/** frozen once per fire cycle, on first active agent; null otherwise */
+	private Market snapshot;
+
 	private static final Logger log = LoggerFactory.getLogger(VarMarketEntityDDF.class);
 
 	public VarMarketEntityDDF(final Instrument instrument) {
@@ -50,10 +54,31 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 
 	/* ***** ***** ***** Update State Methods ***** ***** ***** */
 
+	/**
+	 * Applies pending agent commands, then fires active agents of changed data
+	 * types. Market is frozen at most once, and not at all when no active
+	 * agent is interested.
+	 */
 	@Override
 	public void fireCallbacks() {
 
-		final Market market = this.freeze();
+		try {
+			fireAgents();
+		} finally {
+			snapshot = null;
+			toFire.clear();
+		}
+
+	}
+
+	private Market snapshot() {
+		if (snapshot == null) {
+			snapshot = this.freeze();
+		}
+		return snapshot;
+	}
+
+	private void fireAgents() {
 
 		while (!marketCmds.isEmpty()) {
 			final Command<com.barchart.feed.api.model.data.Market> cmd = marketCmds.poll();
@@ -69,9 +94,9 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 		for (final FrameworkAgent<com.barchart.feed.api.model.data.Market> a : marketAgents) {
 			if (a.isActive()) {
 				try {
-					a.callback().onNext(a.data(market));
+					a.callback().onNext(a.data(snapshot()));
 				} catch (final Exception e) {
-					logException("Exception in MARKET agent callback: ", market, e);
+					logException("Exception in MARKET agent callback: ", snapshot, e);
 				}
 			}
 		}
@@ -93,9 +118,9 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 			for (final FrameworkAgent<Book> a : bookAgents) {
 				if (a.isActive()) {
 					try {
-						a.callback().onNext(a.data(market));
+						a.callback().onNext(a.data(snapshot()));
 					} catch (final Exception e) {
-						logException("Exception in BOOK agent callback: ", market, e);
+						logException("Exception in BOOK agent callback: ", snapshot, e);
 					}
 				}
 			}
@@ -118,9 +143,9 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 			for (final FrameworkAgent<Trade> a : tradeAgents) {
 				if (a.isActive()) {
 					try {
-						a.callback().onNext(a.data(market));
+						a.callback().onNext(a.data(snapshot()));
 					} catch (final Exception e) {
-						logException("Exception in TRADE agent callback: ", market, e);
+						logException("Exception in TRADE agent callback: ", snapshot, e);
 					}
 				}
 			}
@@ -142,9 +167,9 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 			for (final FrameworkAgent<Session> a : sessionAgents) {
 				if (a.isActive()) {
 					try {
-						a.callback().onNext(a.data(market));
+						a.callback().onNext(a.data(snapshot()));
 					} catch (final Exception e) {
-						logException("Exception in SESSION agent callback: ", market, e);
+						logException("Exception in SESSION agent callback: ", snapshot, e);
 					}
 				}
 			}
@@ -166,21 +191,23 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 			for (final FrameworkAgent<Cuvol> a : cuvolAgents) {
 				if (a.isActive()) {
 					try {
-						a.callback().onNext(a.data(market));
+						a.callback().onNext(a.data(snapshot()));
 					} catch (final Exception e) {
-						logException("Exception in CUVOL agent callback: ", market, e);
+						logException("Exception in CUVOL agent callback: ", snapshot, e);
 					}
 				}
 			}
 		}
 
-		toFire.clear();
-
 	}
 
 	void logException(String context, Market market, Exception e) {
 		StringBuilder sb = new StringBuilder(context);
-		sb.append("\n\t-------------- MarketID: " + market.instrument() + "--------------------\n\t" + market);
+		if (market == null) {
+			sb.append("\n\t-------------- MarketID: " + instrument + " (freeze failed) --------------------");
+		} else {
+			sb.append("\n\t-------------- MarketID: " + market.instrument() + "--------------------\n\t" + market);
+		}
 		log.error(sb.toString(), e);
 	}
 
@@ -261,6 +288,14 @@ public class VarMarketEntityDDF extends VarMarketDDF {
 		toFire.add(MKData.MARKET);
 	}
 
+	@Override
+	public void setBookSnapshot(final DDF_MarketBook message, final TimeValue time) {
+		super.setBookSnapshot(message, time);
+
+		toFire.add(MKData.BOOK);
+		toFire.add(MKData.MARKET);
+	}
+
 	@Override
 	public void setBookUpdate(final MarketDoBookEntry entry, final TimeValue time) {
 		super.setBookUpdate(entry, time);
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.market.provider;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.base.provider.Symbology;
+import com.barchart.feed.ddf.datalink.provider.util.HandoffDDF;
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+import com.barchart.feed.ddf.message.api.DDF_MarketTrade;
+import com.barchart.feed.ddf.message.provider.DDF_MessageService;
+import com.barchart.util.common.ascii.ASCII;
+
+public class TestShardedMakerDDF {
+
+	static final int SHARDS = 4;
+
+	static DDF_MarketBase trade(final String symbol, final int price)
+			throws Exception {
+		final String frame = "\u00012" + symbol + ",7\u0002CJ10" + price
+				+ ",5,SG\u0003\u0014JFTKDw9\u0002";
+		return (DDF_MarketBase) DDF_MessageService.decode(frame
+				.getBytes(ASCII.ASCII_CHARSET));
+	}
+
+	/** records messages per symbol, and threads which made them */
+	static class Recorder implements HandoffDDF.Sink<DDF_MarketBase> {
+
+		final Map<String, List<Long>> prices = new HashMap<String, List<Long>>();
+
+		final Map<String, Thread> threads = new HashMap<String, Thread>();
+
+		volatile boolean mixed;
+
+		CountDownLatch done;
+
+		@Override
+		public synchronized void handle(final DDF_MarketBase message) {
+
+			final String symbol = message.getSymbolName();
+
+			List<Long> list = prices.get(symbol);
+			if (list == null) {
+				list = new ArrayList<Long>();
+				prices.put(symbol, list);
+				threads.put(symbol, Thread.currentThread());
+			} else if (threads.get(symbol) != Thread.currentThread()) {
+				mixed = true;
+			}
+
+			list.add(((DDF_MarketTrade) message).getPrice().mantissa());
+
+			if (done != null) {
+				done.countDown();
+			}
+
+		}
+
+	}
+
+	/** holds tasks until run explicitly */
+	static class Capture implements Executor {
+
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+
+		@Override
+		public void execute(final Runnable task) {
+			tasks.add(task);
+		}
+
+	}
+
+	ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRouting() throws Exception {
+
+		final ShardedMakerDDF sharded = new ShardedMakerDDF(new Recorder(),
+				SHARDS, 16, executor);
+
+		final boolean[] used = new boolean[SHARDS];
+
+		for (int k = 0; k < 100; k++) {
+
+			final DDF_MarketBase message = trade("RT" + k, 100);
+			final int shard = sharded.shardOf(message);
+
+			assertTrue(shard >= 0 && shard < SHARDS);
+			assertEquals(shard, sharded.shardOf(trade("RT" + k, 200)));
+
+			/* same key as market lookup */
+			assertEquals(shard, sharded.shardOf(Symbology
+					.formatSymbol(message.getSymbolName())));
+
+			used[shard] = true;
+
+		}
+
+		for (final boolean shard : used) {
+			assertTrue(shard);
+		}
+
+		/* negative hash */
+		final String symbol = "polygenelubricants";
+		assertTrue(symbol.hashCode() < 0);
+		final int shard = sharded.shardOf(symbol);
+		assertTrue(shard >= 0 && shard < SHARDS);
+
+	}
+
+	@Test
+	public void testOrdering() throws Exception {
+
+		final int symbols = 8;
+		final int count = 1000;
+
+		final Recorder recorder = new Recorder();
+		recorder.done = new CountDownLatch(symbols * count);
+
+		final ShardedMakerDDF sharded = new ShardedMakerDDF(recorder, SHARDS,
+				16, executor);
+
+		sharded.startup();
+
+		for (int price = 0; price < count; price++) {
+			for (int k = 0; k < symbols; k++) {
+				sharded.make(trade("OR" + k, 1000 + price));
+			}
+		}
+
+		assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+
+		sharded.shutdown();
+
+		assertFalse(recorder.mixed);
+		assertEquals(symbols, recorder.prices.size());
+
+		for (final List<Long> list : recorder.prices.values()) {
+			assertEquals(count, list.size());
+			for (int price = 0; price < count; price++) {
+				assertEquals(1000 + price, list.get(price).longValue());
+			}
+		}
+
+		long processed = 0;
+		for (int shard = 0; shard < SHARDS; shard++) {
+			processed += sharded.processed(shard);
+		}
+		assertEquals(symbols * count, processed);
+
+	}
+
+	/** shutdown before executor ran the workers; they must not hang */
+	@Test(timeout = 5000)
+	public void testShutdownBeforeStart() throws Exception {
+
+		final Capture capture = new Capture();
+
+		final ShardedMakerDDF sharded = new ShardedMakerDDF(new Recorder(),
+				SHARDS, 16, capture);
+
+		sharded.startup();
+		sharded.shutdown();
+
+		assertEquals(SHARDS, capture.tasks.size());
+
+		for (final Runnable task : capture.tasks) {
+			task.run();
+		}
+
+	}
+
+	/** restart before old workers ran; only new ones keep draining */
+	@Test(timeout = 5000)
+	public void testRestart() throws Exception {
+
+		final Capture capture = new Capture();
+		final Recorder recorder = new Recorder();
+
+		final ShardedMakerDDF sharded = new ShardedMakerDDF(recorder, 1, 16,
+				capture);
+
+		sharded.startup();
+		sharded.shutdown();
+		sharded.startup();
+
+		assertEquals(2, capture.tasks.size());
+
+		/* stale worker returns at once */
+		capture.tasks.get(0).run();
+
+		recorder.done = new CountDownLatch(1);
+		sharded.make(trade("RS", 100));
+
+		final Thread worker = new Thread(capture.tasks.get(1));
+		worker.start();
+
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+
+		sharded.shutdown();
+		worker.join();
+
+	}
+
+	@Test
+	public void testDropAfterShutdown() throws Exception {
+
+		final Recorder recorder = new Recorder();
+
+		final ShardedMakerDDF sharded = new ShardedMakerDDF(recorder, SHARDS,
+				2, executor);
+
+		/* never started */
+		sharded.make(trade("DR", 100));
+
+		sharded.startup();
+		sharded.shutdown();
+
+		/* would block forever on full shard if queued */
+		for (int k = 0; k < 10; k++) {
+			sharded.make(trade("DR", 100 + k));
+		}
+
+		assertEquals(11, sharded.dropped());
+		assertEquals(0, sharded.queueDepth(sharded.shardOf(trade("DR", 0))));
+		assertTrue(recorder.prices.isEmpty());
+
+	}
+
+}
@@ -0,0 +1,411 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.market.provider;
+
+import static com.barchart.feed.base.book.enums.MarketBookAction.MODIFY;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.base.book.api.MarketBookEntry;
+import com.barchart.feed.base.book.api.MarketDoBookEntry;
+import com.barchart.feed.base.book.enums.UniBookResult;
+import com.barchart.feed.base.provider.DefBookEntry;
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.api.SizeValue;
+import com.barchart.feed.base.values.api.TextValue;
+import com.barchart.feed.base.values.api.TimeValue;
+import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.base.values.provider.ValueConst;
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.ddf.message.api.DDF_MarketBook;
+import com.barchart.feed.ddf.message.api.DDF_MessageVisitor;
+import com.barchart.feed.ddf.message.enums.DDF_MessageType;
+import com.barchart.feed.ddf.message.enums.DDF_Session;
+import com.barchart.feed.ddf.message.enums.DDF_TradeDay;
+import com.barchart.feed.ddf.message.provider.DDF_MessageService;
+import com.barchart.feed.ddf.symbol.api.DDF_Symbol;
+import com.barchart.feed.ddf.symbol.enums.DDF_Exchange;
+import com.barchart.feed.ddf.symbol.enums.DDF_SpreadType;
+import com.barchart.feed.ddf.util.HelperDDF;
+import com.barchart.feed.ddf.util.enums.DDF_Fraction;
+import com.barchart.util.common.ascii.ASCII;
+
+public class TestVarBookDDF {
+
+	/** 5 bids, 5 asks */
+	static final String BOOK_PART = "\u00013XIZ9,B\u0002BX55,63795K25,63790L5,63780M1000,63775N35,63765O5,63800J20,63815I5,63820H10,63825G5,63830F7\u0003";
+
+	static MarketDoBookEntry entry(final Book.Side side, final int place,
+			final long mantissa, final int exponent, final long size) {
+		return entry(side, place, ValueBuilder.newPrice(mantissa, exponent),
+				ValueBuilder.newSize(size));
+	}
+
+	static MarketDoBookEntry entry(final Book.Side side, final int place,
+			final PriceValue price, final SizeValue size) {
+		return new DefBookEntry(MODIFY, side, Book.Type.DEFAULT, place, price,
+				size);
+	}
+
+	/** price as decimal, independent of mantissa scale */
+	static BigDecimal decimal(final long mantissa, final int exponent) {
+		return BigDecimal.valueOf(mantissa, -exponent);
+	}
+
+	static void assertLevel(final MarketBookEntry entry, final int place,
+			final long mantissa, final int exponent, final long size) {
+		final PriceValue price = entry.priceValue();
+		assertEquals(place, entry.place());
+		assertEquals(0, decimal(mantissa, exponent).compareTo(
+				decimal(price.mantissa(), price.exponent())));
+		assertEquals(size, entry.sizeValue().asLong());
+	}
+
+	static void assertBook(final VarBookDDF expected, final VarBookDDF actual) {
+		for (final Book.Side side : Book.Side.values()) {
+			final MarketBookEntry[] one = expected.entries(side);
+			final MarketBookEntry[] two = actual.entries(side);
+			assertEquals(one.length, two.length);
+			for (int index = 0; index < one.length; index++) {
+				final PriceValue price = one[index].priceValue();
+				assertLevel(two[index], one[index].place(), price.mantissa(),
+						price.exponent(), one[index].sizeValue().asLong());
+			}
+		}
+	}
+
+	/**
+	 * book message with given bid arrays and count, no asks; only the array
+	 * view and fraction are used by the book
+	 */
+	static class BidBook implements DDF_MarketBook {
+
+		final long[] prices;
+		final long[] sizes;
+		final int count;
+
+		BidBook(final long[] prices, final long[] sizes, final int count) {
+			this.prices = prices;
+			this.sizes = sizes;
+			this.count = count;
+		}
+
+		@Override
+		public long[] prices(final Book.Side side) {
+			return side == Book.Side.BID ? prices : new long[0];
+		}
+
+		@Override
+		public long[] sizes(final Book.Side side) {
+			return side == Book.Side.BID ? sizes : new long[0];
+		}
+
+		@Override
+		public int count(final Book.Side side) {
+			return side == Book.Side.BID ? count : 0;
+		}
+
+		@Override
+		public DDF_Fraction getFraction() {
+			return DDF_Fraction.N2;
+		}
+
+		@Override
+		public MarketDoBookEntry[] entries() {
+			return new MarketDoBookEntry[0];
+		}
+
+		@Override
+		public TimeValue getTime() {
+			return null;
+		}
+
+		@Override
+		public DDF_Symbol getSymbol() {
+			return null;
+		}
+
+		@Override
+		public TextValue getId() {
+			return null;
+		}
+
+		@Override
+		public int getSymbolHandle() {
+			return 0;
+		}
+
+		@Override
+		public String getSymbolName() {
+			return null;
+		}
+
+		@Override
+		public DDF_Exchange getExchange() {
+			return null;
+		}
+
+		@Override
+		public DDF_SpreadType getSpreadType() {
+			return null;
+		}
+
+		@Override
+		public DDF_TradeDay getTradeDay() {
+			return null;
+		}
+
+		@Override
+		public DDF_Session getSession() {
+			return null;
+		}
+
+		@Override
+		public int getDelay() {
+			return 0;
+		}
+
+		@Override
+		public DDF_MessageType getMessageType() {
+			return DDF_MessageType.BOOK_SNAP;
+		}
+
+		@Override
+		public <Result, Param> Result accept(
+				final DDF_MessageVisitor<Result, Param> visitor,
+				final Param param) {
+			return visitor.visit(this, param);
+		}
+
+		@Override
+		public DDF_BaseMessage copy() {
+			return new BidBook(prices.clone(), sizes.clone(), count);
+		}
+
+		@Override
+		public String toStringFields() {
+			return toString();
+		}
+
+	}
+
+	static DDF_MarketBook book(final long[] prices, final long[] sizes,
+			final int count) {
+		return new BidBook(prices, sizes, count);
+	}
+
+	@Test
+	public void testSetEntry() {
+
+		final VarBookDDF book = new VarBookDDF(null);
+
+		assertEquals(UniBookResult.TOP,
+				book.setEntry(entry(Book.Side.BID, 1, 100, -2, 5)));
+		assertEquals(UniBookResult.NORMAL,
+				book.setEntry(entry(Book.Side.BID, 2, 99, -2, 3)));
+		assertEquals(UniBookResult.TOP,
+				book.setEntry(entry(Book.Side.ASK, 1, 101, -2, 7)));
+
+		assertLevel(book.top(Book.Side.BID), 1, 100, -2, 5);
+		assertLevel(book.top(Book.Side.ASK), 1, 101, -2, 7);
+
+		/* replace in place */
+		book.setEntry(entry(Book.Side.BID, 1, 100, -2, 8));
+		assertLevel(book.top(Book.Side.BID), 1, 100, -2, 8);
+
+		assertEquals(UniBookResult.ERROR, book.setEntry(null));
+		assertEquals(UniBookResult.ERROR,
+				book.setEntry(entry(Book.Side.BID, VarBookDDF.LIMIT + 1, 1,
+						-2, 1)));
+
+	}
+
+	@Test
+	public void testRemove() {
+
+		final VarBookDDF book = new VarBookDDF(null);
+
+		book.setEntry(entry(Book.Side.BID, 1, 100, -2, 5));
+		book.setEntry(entry(Book.Side.BID, 2, 99, -2, 3));
+		book.setEntry(entry(Book.Side.BID, 3, 98, -2, 2));
+
+		/* empty price removes, other levels keep their place */
+		book.setEntry(entry(Book.Side.BID, 1,
+				HelperDDF.newPriceDDF(HelperDDF.DDF_EMPTY, DDF_Fraction.N2),
+				ValueBuilder.newSize(5)));
+
+		assertEquals(MarketBookEntry.NULL, book.top(Book.Side.BID));
+		assertEquals(2, book.entries(Book.Side.BID).length);
+		assertLevel(book.entries(Book.Side.BID)[1], 2, 99, -2, 3);
+
+		/* zero size removes below top */
+		book.setEntry(entry(Book.Side.BID, 2, 99, -2, 0));
+
+		/* no size removes below top */
+		book.setEntry(entry(Book.Side.BID, 3, ValueBuilder.newPrice(98, -2),
+				ValueConst.NULL_SIZE));
+
+		final MarketBookEntry[] entries = book.entries(Book.Side.BID);
+		assertEquals(1, entries.length);
+		assertEquals(MarketBookEntry.NULL, entries[0]);
+
+	}
+
+	/** top of quote only instruments has a price but no size */
+	@Test
+	public void testTopWithoutSize() {
+
+		final VarBookDDF book = new VarBookDDF(null);
+
+		book.setEntry(entry(Book.Side.BID, 1, ValueBuilder.newPrice(100, -2),
+				ValueConst.NULL_SIZE));
+		book.setEntry(entry(Book.Side.ASK, 1, 101, -2, 0));
+
+		final MarketBookEntry bid = book.top(Book.Side.BID);
+		assertEquals(0, decimal(100, -2).compareTo(
+				decimal(bid.priceValue().mantissa(),
+						bid.priceValue().exponent())));
+		assertTrue(bid.sizeValue().isNull());
+
+		assertLevel(book.top(Book.Side.ASK), 1, 101, -2, 0);
+
+		/* snapshot keeps them too */
+		book.setSnapshot(new MarketDoBookEntry[] {
+				entry(Book.Side.BID, 1, ValueBuilder.newPrice(99, -2),
+						ValueConst.NULL_SIZE),
+				entry(Book.Side.ASK, 1, 102, -2, 0),
+				entry(Book.Side.ASK, 2, 103, -2, 0) });
+
+		assertTrue(book.top(Book.Side.BID).sizeValue().isNull());
+		assertEquals(1, book.entries(Book.Side.ASK).length);
+		assertLevel(book.top(Book.Side.ASK), 1, 102, -2, 0);
+
+	}
+
+	/** finer price rescales levels already in book */
+	@Test
+	public void testRescale() {
+
+		final VarBookDDF book = new VarBookDDF(null);
+
+		book.setEntry(entry(Book.Side.BID, 1, 1005, -1, 5));
+		book.setEntry(entry(Book.Side.ASK, 1, 10075, -2, 7));
+		book.setEntry(entry(Book.Side.ASK, 2, 101, 0, 2));
+
+		assertLevel(book.top(Book.Side.BID), 1, 10050, -2, 5);
+		assertLevel(book.top(Book.Side.ASK), 1, 10075, -2, 7);
+		assertLevel(book.entries(Book.Side.ASK)[0], 2, 10100, -2, 2);
+
+	}
+
+	/** deepest level first */
+	@Test
+	public void testEntriesOrder() {
+
+		final VarBookDDF book = new VarBookDDF(null);
+
+		book.setEntry(entry(Book.Side.BID, 1, 100, -2, 1));
+		book.setEntry(entry(Book.Side.BID, 4, 97, -2, 4));
+		book.setEntry(entry(Book.Side.BID, 2, 99, -2, 2));
+
+		final MarketBookEntry[] entries = book.entries(Book.Side.BID);
+
+		assertEquals(3, entries.length);
+		assertLevel(entries[0], 4, 97, -2, 4);
+		assertLevel(entries[1], 2, 99, -2, 2);
+		assertLevel(entries[2], 1, 100, -2, 1);
+
+		assertEquals(MarketBookEntry.NULL, book.entries(Book.Side.ASK)[0]);
+
+	}
+
+	@Test
+	public void testSnapshotEntries() {
+
+		final VarBookDDF book = new VarBookDDF(null);
+
+		book.setEntry(entry(Book.Side.ASK, 3, 200, -2, 9));
+
+		book.setSnapshot(new MarketDoBookEntry[] {
+				null,
+				entry(Book.Side.BID, 1, 100, -2, 5),
+				entry(Book.Side.BID, VarBookDDF.LIMIT + 1, 90, -2, 5),
+				entry(Book.Side.BID, 2,
+						HelperDDF.newPriceDDF(HelperDDF.DDF_EMPTY,
+								DDF_Fraction.N2), ValueBuilder.newSize(3)),
+				entry(Book.Side.ASK, 1, 101, -2, 7) });
+
+		assertEquals(1, book.entries(Book.Side.BID).length);
+		assertLevel(book.top(Book.Side.BID), 1, 100, -2, 5);
+
+		/* previous levels cleared */
+		assertEquals(1, book.entries(Book.Side.ASK).length);
+		assertLevel(book.top(Book.Side.ASK), 1, 101, -2, 7);
+
+	}
+
+	/** array path and entry path build same book */
+	@Test
+	public void testSnapshotMessage() throws Exception {
+
+		final DDF_MarketBook message = (DDF_MarketBook) DDF_MessageService
+				.decode(BOOK_PART.getBytes(ASCII.ASCII_CHARSET));
+
+		final VarBookDDF arrays = new VarBookDDF(null);
+		arrays.setEntry(entry(Book.Side.BID, 9, 1, -2, 1));
+		arrays.setSnapshot(message);
+
+		final VarBookDDF entries = new VarBookDDF(null);
+		entries.setSnapshot(message.entries());
+
+		assertEquals(5, arrays.entries(Book.Side.BID).length);
+		assertEquals(5, arrays.entries(Book.Side.ASK).length);
+
+		assertBook(entries, arrays);
+
+	}
+
+	/**
+	 * Levels past count and sentinel levels are not taken; top keeps its
+	 * price without size.
+	 */
+	@Test
+	public void testSnapshotCount() {
+
+		final long[] prices = { 10, 9, 8, 7 };
+		final long[] sizes = { 1, HelperDDF.DDF_EMPTY, 3, 4 };
+
+		final VarBookDDF book = new VarBookDDF(null);
+		book.setSnapshot(book(prices, sizes, 3));
+
+		final MarketBookEntry[] entries = book.entries(Book.Side.BID);
+
+		assertEquals(2, entries.length);
+		assertLevel(entries[0], 3, 8, -2, 3);
+		assertLevel(entries[1], 1, 10, -2, 1);
+
+		prices[0] = HelperDDF.DDF_CLEAR;
+		book.setSnapshot(book(prices, sizes, 4));
+
+		assertEquals(2, book.entries(Book.Side.BID).length);
+		assertEquals(MarketBookEntry.NULL, book.top(Book.Side.BID));
+
+		prices[0] = 10;
+		sizes[0] = HelperDDF.DDF_EMPTY;
+		book.setSnapshot(book(prices, sizes, 4));
+
+		assertEquals(3, book.entries(Book.Side.BID).length);
+		assertTrue(book.top(Book.Side.BID).sizeValue().isNull());
+
+	}
+
+}
@@ -29,6 +29,12 @@ public interface DDF_BaseMessage {
 	<Result, Param> Result accept(DDF_MessageVisitor<Result, Param> visitor,
 			Param param);
 
+	/**
+	 * independent copy, for messages retained past listener return, such as
+	 * messages decoded through a {@code DDF_MessagePool}
+	 */
+	DDF_BaseMessage copy();
+
 	/**
 	 * print serialized message form
 	 */
@@ -20,6 +20,11 @@ import com.barchart.util.common.anno.NotMutable;
 
 /**
  * Base type for ddf feed market data messages.
+ * <p>
+ * Messages from lazy decode parse their body on first read of a body or
+ * tail field, such as price, size, time or session; on malformed body that
+ * read throws a runtime exception, so readers of lazy messages should guard
+ * per message. Head fields, symbol, exchange, fraction and type, never do.
  */
 @NotMutable
 public interface DDF_MarketBase extends DDF_BaseMessage, MarketMessage {
@@ -40,6 +45,18 @@ public interface DDF_MarketBase extends DDF_BaseMessage, MarketMessage {
 	/** raw ddf feed symbol, such as MSFT or RJZ1 */
 	TextValue getId();
 
+	/**
+	 * stable small integer for {@link #getId()}, same for all messages of the
+	 * symbol; dense from zero, suitable as array index
+	 */
+	int getSymbolHandle();
+
+	/**
+	 * {@link #getId()} as string; same instance for all messages of the
+	 * symbol
+	 */
+	String getSymbolName();
+
 	/** ddf exchange classifier */
 	DDF_Exchange getExchange();
 
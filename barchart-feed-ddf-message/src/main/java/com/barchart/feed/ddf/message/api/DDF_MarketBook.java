@@ -7,6 +7,7 @@
  */
 package com.barchart.feed.ddf.message.api;
 
+import com.barchart.feed.api.model.data.Book;
 import com.barchart.feed.base.book.api.MarketDoBookEntry;
 import com.barchart.util.common.anno.NotMutable;
 
@@ -23,4 +24,22 @@ public interface DDF_MarketBook extends DDF_MarketBase {
 
 	MarketDoBookEntry[] entries();
 
+	/**
+	 * level prices by place, best first, as mantissa of
+	 * {@link #getFraction()} decimal exponent; shared, do not modify
+	 */
+	long[] prices(Book.Side side);
+
+	/**
+	 * level sizes by place, best first; zero size is an empty level; shared,
+	 * do not modify
+	 */
+	long[] sizes(Book.Side side);
+
+	/**
+	 * number of leading places of {@link #prices} and {@link #sizes} which
+	 * belong to this book; places past it are not part of it
+	 */
+	int count(Book.Side side);
+
 }
\ No newline at end of file
@@ -25,6 +25,8 @@ import static com.barchart.util.common.ascii.ASCII._S_;
 import static com.barchart.util.common.ascii.ASCII._T_;
 import static com.barchart.util.common.ascii.ASCII._Z_;
 
+import java.util.Arrays;
+
 import com.barchart.feed.base.enums.EnumByteOrdinal;
 import com.barchart.feed.base.enums.EnumCodeChar;
 import com.barchart.feed.ddf.message.api.DDF_ControlResponse;
@@ -231,6 +233,28 @@ public enum DDF_MessageType implements EnumCodeChar, EnumByteOrdinal {
 		MathExtra.castIntToByte(ENUM_VALUES.length);
 	}
 
+	/** by record, then by sub record; records not in use share one row */
+	private final static DDF_MessageType[][] PAIR_TABLE = new DDF_MessageType[256][];
+
+	static {
+		final DDF_MessageType[] none = new DDF_MessageType[256];
+		Arrays.fill(none, UNKNOWN);
+		Arrays.fill(PAIR_TABLE, none);
+		for (final DDF_MessageType known : ENUM_VALUES) {
+			if (known == UNKNOWN) {
+				continue;
+			}
+			final int record = known.record & 0xFF;
+			if (PAIR_TABLE[record] == none) {
+				PAIR_TABLE[record] = none.clone();
+			}
+			final DDF_MessageType[] row = PAIR_TABLE[record];
+			if (row[known.subRecord & 0xFF] == UNKNOWN) {
+				row[known.subRecord & 0xFF] = known;
+			}
+		}
+	}
+
 	/**
 	 * From ord.
 	 *
@@ -250,100 +274,7 @@ public enum DDF_MessageType implements EnumCodeChar, EnumByteOrdinal {
 	 */
 	public final static DDF_MessageType fromPair(final byte record,
 			final byte subRecord) {
-		switch (record) {
-			case _2_:
-				switch (subRecord) {
-					case _0_:
-						return PARAM;
-					case _1_:
-						return SNAP_FORE_EXCH;
-					case _2_:
-						return SNAP_FORE_PLUS;
-					case _3_:
-						return SNAP_BACK_PLUS_CURR;
-					case _4_:
-						return SNAP_BACK_PLUS_PREV;
-					case _5_:
-						return DDF_25;
-					case _6_:
-						return SNAP_FORE_PLUS_QUOTE;
-					case _7_:
-						return TRADE;
-					case _Z_:
-						return TRADE_VOL;
-					case _8_:
-						return BOOK_TOP;
-					default:
-						return UNKNOWN;
-				}
-			case _3_:
-				switch (subRecord) {
-					case _B_:
-						return BOOK_SNAP;
-					case _S_:
-						return EOD_EQTY_FORE;
-					case _C_:
-						return EOD_CMDY;
-					case _I_:
-						return PRIOR_INDIV_CMDY;
-					case _R_:
-						return EOD_CMDY_SPREAD;
-					case _T_:
-						return PRIOR_TOTAL_CMDY;
-					default:
-						return UNKNOWN;
-				}
-			case FeedDDF.DDF_TIMESTAMP:
-				switch (subRecord) {
-					case NUL:
-						return TIME_STAMP;
-					default:
-						return UNKNOWN;
-				}
-			case FeedDDF.XML_RECORD:
-				switch (subRecord) {
-					case FeedDDF.XML_SUB_BOOK:
-						return BOOK_SNAP_XML;
-					case FeedDDF.XML_SUB_CUVOL:
-						return CUVOL_SNAP_XML;
-					case FeedDDF.XML_SUB_QUOTE:
-						return QUOTE_SNAP_XML;
-					case FeedDDF.XML_SUB_SESSION:
-						return SESSION_SNAP_XML;
-					default:
-						return UNKNOWN;
-				}
-			case FeedDDF.TCP_ACCEPT:
-				switch (subRecord) {
-					case NUL:
-						return TCP_ACCEPT;
-					default:
-						return UNKNOWN;
-				}
-			case FeedDDF.TCP_REJECT:
-				switch (subRecord) {
-					case NUL:
-						return TCP_REJECT;
-					default:
-						return UNKNOWN;
-				}
-			case FeedDDF.TCP_COMMAND:
-				switch (subRecord) {
-					case NUL:
-						return TCP_COMMAND;
-					default:
-						return UNKNOWN;
-				}
-			case FeedDDF.TCP_WELCOME:
-				switch (subRecord) {
-					case NUL:
-						return TCP_WELCOME;
-					default:
-						return UNKNOWN;
-				}
-			default:
-				return UNKNOWN;
-		}
+		return PAIR_TABLE[record & 0xFF][subRecord & 0xFF];
 	}
 
 	/**
@@ -79,8 +79,10 @@ import static com.barchart.util.common.ascii.ASCII._X_;
 import static com.barchart.util.common.ascii.ASCII._Y_;
 import static com.barchart.util.common.ascii.ASCII._Z_;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -519,16 +521,57 @@ public enum DDF_Session implements EnumCodeByte, EnumByteOrdinal {
 	 */
 	public final static DDF_Session fromPair(final byte exchOrd,
 			final byte sessCode) {
+		if (exchOrd < 0 || exchOrd >= PAIR_TABLE.length) {
+			/* not an exchange ord; resolve as unknown exchange */
+			return PAIR_TABLE[DDF_Exchange.UNKNOWN.ord][sessCode & 0xFF];
+		}
+		return PAIR_TABLE[exchOrd][sessCode & 0xFF];
+	}
+
+	/**
+	 * By exchange ord, then by session code; exchanges which resolve all
+	 * codes the same share one row.
+	 */
+	private final static DDF_Session[][] PAIR_TABLE;
 
+	static {
+
+		/* first declared wins for duplicate codes */
+		final DDF_Session[] codes = new DDF_Session[256];
 		for (final DDF_Session known : ENUM_VALS) {
-			if (known.code == sessCode) {
-				return resolve(known, exchOrd);
+			if (codes[known.code & 0xFF] == null) {
+				codes[known.code & 0xFF] = known;
 			}
 		}
 
-		// log.debug("### UNKNOWN session code : {}", sessCode);
+		final DDF_Exchange[] exchanges = DDF_Exchange.values();
+
+		PAIR_TABLE = new DDF_Session[exchanges.length][];
+
+		final List<DDF_Session[]> rows = new ArrayList<DDF_Session[]>();
 
-		return UNKNOWN;
+		for (final DDF_Exchange exch : exchanges) {
+
+			final DDF_Session[] row = new DDF_Session[256];
+			for (int code = 0; code < 256; code++) {
+				final DDF_Session known = codes[code];
+				row[code] = known == null ? UNKNOWN : resolve(known, exch.ord);
+			}
+
+			DDF_Session[] shared = row;
+			for (final DDF_Session[] other : rows) {
+				if (Arrays.equals(other, row)) {
+					shared = other;
+					break;
+				}
+			}
+			if (shared == row) {
+				rows.add(row);
+			}
+
+			PAIR_TABLE[exch.ord] = shared;
+
+		}
 
 	}
 
@@ -20,7 +20,7 @@ import com.barchart.feed.ddf.util.HelperDDF;
 import com.barchart.feed.ddf.util.HelperXML;
 
 // TODO: Auto-generated Javadoc
-abstract class Base implements DDF_BaseMessage, Codec {
+abstract class Base implements DDF_BaseMessage, Codec, Cloneable {
 
 	protected static final Logger log = LoggerFactory.getLogger(Base.class);
 
@@ -97,11 +97,7 @@ abstract class Base implements DDF_BaseMessage, Codec {
 	 */
 	@Override
 	public final void decodeXML(final ByteBuffer buffer) {
-		final byte[] array = buffer.array();
-		final int start = buffer.position();
-		final int finish = buffer.limit();
-		final Element tag = HelperXML.xmlDocumentDecode(array, start, finish,
-				true);
+		final Element tag = HelperXML.xmlDocumentDecode(buffer, true);
 		decodeXML(tag);
 	}
 
@@ -124,6 +120,14 @@ abstract class Base implements DDF_BaseMessage, Codec {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * decode from scanned xml snapshot; messages without streaming decode go
+	 * through the DOM
+	 */
+	void decodeXML(final XmlScanner xml) {
+		decodeXML(xml.document());
+	}
+
 	/* (non-Javadoc)
 	 * @see com.barchart.feed.ddf.message.provider.Codec#encodeXML(org.w3c.dom.Element)
 	 */
@@ -143,6 +147,26 @@ abstract class Base implements DDF_BaseMessage, Codec {
 		throw new UnsupportedOperationException();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.barchart.feed.ddf.message.api.DDF_BaseMessage#copy()
+	 */
+	@Override
+	public DDF_BaseMessage copy() {
+		try {
+			final Base copy = (Base) clone();
+			copy.detach();
+			return copy;
+		} catch (final CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** make shallow copy independent of its source; see {@link #copy()} */
+	protected void detach() {
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
@@ -17,12 +17,11 @@ import org.joda.time.DateTimeZone;
 import com.barchart.feed.api.model.meta.Exchange;
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.api.model.meta.id.InstrumentID;
-import com.barchart.feed.base.provider.Symbology;
 import com.barchart.feed.base.provider.ValueConverter;
 import com.barchart.feed.base.values.api.TextValue;
 import com.barchart.feed.base.values.api.TimeValue;
 import com.barchart.feed.base.values.provider.ValueBuilder;
-import com.barchart.feed.ddf.instrument.provider.DDF_FeedInstProvider;
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
 import com.barchart.feed.ddf.message.api.DDF_MarketBase;
 import com.barchart.feed.ddf.message.enums.DDF_MessageType;
 import com.barchart.feed.ddf.message.enums.DDF_Session;
@@ -33,6 +32,7 @@ import com.barchart.feed.ddf.symbol.enums.DDF_SpreadType;
 import com.barchart.feed.ddf.symbol.provider.DDF_SymbolService;
 import com.barchart.feed.ddf.symbol.provider.DDF_Symbology;
 import com.barchart.feed.ddf.util.ClockDDF;
+import com.barchart.feed.ddf.util.HelperDDF;
 import com.barchart.feed.ddf.util.enums.DDF_Fraction;
 import com.barchart.feed.meta.instrument.DefaultInstrument;
 import com.barchart.util.common.ascii.ASCII;
@@ -61,9 +61,22 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 
 	protected byte[][] symbolArray;
 
+	/** per symbol decode context; bound to current symbol array */
+	private SymbolContext context;
+	private byte[][] contextSymbol;
+
+	/**
+	 * body and tail of lazy decode, read only view of frame, not parsed yet;
+	 * null once parsed, which also releases frame buffer
+	 */
+	private ByteBuffer pending;
+
+	/** feed clock at lazy decode, for tails which default to it */
+	private long pendingClock = HelperDDF.DDF_EMPTY;
+
 	// //////////////////////////////////////
 
-	// NOTE: invokes resolver
+	// NOTE: invokes resolver only until instrument definition is complete
 	/*
 	 * (non-Javadoc)
 	 *
@@ -72,52 +85,82 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	@Override
 	public Instrument getInstrument() {
 
-		return DDF_FeedInstProvider.fromMessage(stub);
+		return context().instrument(stub);
 
 	}
 
+	protected final SymbolContext context() {
+		if (context == null || contextSymbol != symbolArray) {
+			if (symbolArray != null && symbolArray.length == 1) {
+				context = SymbolContext.lookup(symbolArray[0]);
+			} else {
+				context = SymbolContext.lookup(getSymbolFull());
+			}
+			contextSymbol = symbolArray;
+		}
+		return context;
+	}
+
 	/*
 	 * Lazy eval instrument stub
 	 */
-	private final Instrument stub = new DefaultInstrument(InstrumentID.NULL) {
+	private Instrument stub = newStub();
 
-		/* GUID is symbol for now */
-		@Override
-		public String marketGUID() {
-			return Symbology.formatSymbol(getId().toString());
-		}
+	/** bound to this message; copies need their own */
+	private Instrument newStub() {
+		return new DefaultInstrument(InstrumentID.NULL) {
 
-		@Override
-		public SecurityType securityType() {
-			return getExchange().kind.asSecType();
-		}
+			/* GUID is symbol for now */
+			@Override
+			public String marketGUID() {
+				return context().formatted();
+			}
 
-		@Override
-		public String symbol() {
-			return Symbology.formatSymbol(getId().toString());
-		}
+			@Override
+			public SecurityType securityType() {
+				return getExchange().kind.asSecType();
+			}
 
-		@Override
-		public Exchange exchange() {
-			return getExchange().asExchange();
-		}
+			@Override
+			public String symbol() {
+				return context().formatted();
+			}
 
-		@Override
-		public String exchangeCode() {
-			return new String(new byte[] {
-					getExchange().code
-			});
-		}
+			@Override
+			public Exchange exchange() {
+				return getExchange().asExchange();
+			}
 
-		@Override
-		public Fraction displayFraction() {
-			return ValueConverter.fraction(getFraction().fraction);
-		}
+			@Override
+			public String exchangeCode() {
+				return new String(new byte[] {
+						getExchange().code
+				});
+			}
+
+			@Override
+			public Fraction displayFraction() {
+				return ValueConverter.fraction(getFraction().fraction);
+			}
+
+		};
+	}
+
+	@Override
+	public DDF_BaseMessage copy() {
+		decoded();
+		return super.copy();
+	}
 
-	};
+	@Override
+	protected void detach() {
+		super.detach();
+		stub = newStub();
+	}
 
 	@Override
 	public final TimeValue getTime() {
+		decoded();
 		return ValueBuilder.newTime(millisUTC);
 	}
 
@@ -179,6 +222,7 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	 */
 	@Override
 	public final DDF_Session getSession() {
+		decoded();
 		return DDF_Session.fromOrd(ordSession);
 	}
 
@@ -193,6 +237,7 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	 */
 	@Override
 	public final DDF_TradeDay getTradeDay() {
+		decoded();
 		return DDF_TradeDay.fromOrd(ordTradeDay);
 	}
 
@@ -241,7 +286,17 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	 */
 	@Override
 	public TextValue getId() {
-		return ValueBuilder.newText(getSymbolFull());
+		return context().id;
+	}
+
+	@Override
+	public final int getSymbolHandle() {
+		return context().handle;
+	}
+
+	@Override
+	public final String getSymbolName() {
+		return context().name;
 	}
 
 	// ######################
@@ -261,6 +316,7 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	 */
 	@Override
 	public final void encodeDDF(final ByteBuffer buffer) {
+		decoded();
 		encodeHead(buffer);
 		encodeBody(buffer);
 		encodeTail(buffer);
@@ -313,19 +369,66 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	 */
 	@Override
 	public final void decodeDDF(final ByteBuffer buffer) {
+		pending = null;
+		pendingClock = HelperDDF.DDF_EMPTY;
 		decodeHead(buffer);
 		decodeBody(buffer);
 		decodeTail(buffer);
 		//log.debug(new String(buffer.array()) + getTime().toString());
 	}
 
+	/**
+	 * Decode head only; rest of frame is kept as read only view, not copied,
+	 * and parsed on first access to a body or tail field, see
+	 * {@link #decoded()}. Frame content must stay unchanged until then; netty
+	 * frame slices do, since frame decoder never reuses bytes it handed out.
+	 * <p>
+	 * Symbol, exchange, fraction, delay and message type are available right
+	 * away, which is what subscription and symbol filters look at.
+	 */
+	final void decodeLazy(final ByteBuffer buffer) {
+		decodeHead(buffer);
+		pending = buffer.slice().asReadOnlyBuffer();
+		buffer.position(buffer.limit());
+		pendingClock = ClockDDF.clock.millis();
+	}
+
+	/**
+	 * Parse body and tail left over from {@link #decodeLazy(ByteBuffer)};
+	 * no op for messages decoded in full. Every getter of a body or tail
+	 * field must call this first.
+	 * <p>
+	 * Not synchronized: lazy messages are read by one thread at a time, as
+	 * pipeline hands them over. Malformed body fails here, with a runtime
+	 * exception out of the getter, rather than in decode, and is not parsed
+	 * again.
+	 */
+	protected final void decoded() {
+		final ByteBuffer buffer = pending;
+		if (buffer == null) {
+			return;
+		}
+		pending = null;
+		try {
+			decodeBody(buffer);
+			decodeTail(buffer);
+		} finally {
+			pendingClock = HelperDDF.DDF_EMPTY;
+		}
+	}
+
+	/** true while body and tail are still undecoded */
+	final boolean isPending() {
+		return pending != null;
+	}
+
 	/*
 	 * <soh><rec><symbol>,<subrec><stx><base><exch>(<delay>)(,)(<spread>)||
 	 */
 	protected void decodeHead(final ByteBuffer buffer) {
 		check(buffer.get(), SOH); // <soh>
 		final byte record = buffer.get(); // <rec>
-		final byte[] symbolMain = read(buffer, COMMA); // <symbol>,
+		final SymbolContext symbol = intern(buffer, COMMA); // <symbol>,
 		final byte subRecord = buffer.get(); // <subrec>
 		check(buffer.get(), STX); // <stx>
 		final byte baseCode = buffer.get(); // <base code>
@@ -333,12 +436,34 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 		decodeDelay(buffer); // optional (<delay>)(,)
 		// final byte[][] symbolLegs = decodeSpread(buffer);
 		// setSymbol(symbolMain, symbolLegs);
-		setSymbol(symbolMain, null);
+		setSymbol(symbol);
 		setMessageType(DDF_MessageType.fromPair(record, subRecord));
 		ordFraction = DDF_Fraction.fromBaseCode(baseCode).ord;
 		ordExchange = DDF_Exchange.fromCode(exchCode).ord;
 	}
 
+	/** interned symbol up to marker; consumes marker */
+	protected static final SymbolContext intern(final ByteBuffer buffer,
+			final byte marker) {
+		final int start = buffer.position();
+		final int limit = buffer.limit();
+		int index = start;
+		while (index < limit && buffer.get(index) != marker) {
+			index++;
+		}
+		final SymbolContext symbol = SymbolContext.lookup(buffer, start,
+				index - start);
+		buffer.position(index + 1);
+		return symbol;
+	}
+
+	/** non spread symbol; shares interned symbol array */
+	protected final void setSymbol(final SymbolContext symbol) {
+		symbolArray = symbol.symbols;
+		context = symbol;
+		contextSymbol = symbolArray;
+	}
+
 	protected final void setSymbol(final byte[] symbolMain, final byte[][] symbolLegs) {
 		if (symbolMain == null) {
 			symbolArray = null;
@@ -366,14 +491,8 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	 * ||<day><session><etx>||<time stamp>
 	 */
 	protected void decodeTail(final ByteBuffer buffer) {
-		DateTimeZone zone;
-		if (getInstrument().timeZoneName() == null 
-				|| "Null Time Zone".equals(getInstrument().timeZoneName())) {
-			
-			zone = getExchange().kind.time.zone;
-		} else {
-			zone = DateTimeZone.forID(getInstrument().timeZoneName());
-		}
+		final DateTimeZone zone = context().zone(stub,
+				getExchange().kind.time.zone);
 		//
 		final byte dayCode = buffer.get(); // <day>
 		final byte sessCode = buffer.get(); // <session>
@@ -443,8 +562,10 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 
 	// ######################
 
+	/** feed clock as of decode, even if body was parsed later */
 	protected final void setDecodeDefaults() {
-		setDecodeDefaults(ClockDDF.clock.millis());
+		setDecodeDefaults(pendingClock == HelperDDF.DDF_EMPTY ? ClockDDF.clock
+				.millis() : pendingClock);
 	}
 
 	protected final void setDecodeDefaults(final long millisUTC) {
@@ -458,6 +579,8 @@ abstract class BaseMarket extends Base implements DDF_MarketBase {
 	@Override
 	protected void appedFields(final StringBuilder text) {
 
+		decoded();
+
 		super.appedFields(text);
 
 		text.append("symbol   : ");
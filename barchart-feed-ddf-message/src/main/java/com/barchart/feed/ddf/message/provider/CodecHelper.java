@@ -109,22 +109,38 @@ public class CodecHelper {
 		}
 	}
 
+	/** copy bytes up to marker; works on heap, direct and offset buffers */
 	static final byte[] read(final ByteBuffer buffer, final byte marker) {
-		final byte[] source = buffer.array();
 		final int start = buffer.position();
+		final int limit = buffer.limit();
 		int index = start;
-		while (index < source.length && source[index] != marker) {
+		while (index < limit && buffer.get(index) != marker) {
 			index++;
 		}
-		buffer.position(index + 1);
 		final int size = index - start;
 		final byte[] target = new byte[size];
-		System.arraycopy(source, start, target, 0, size);
+		buffer.get(target);
+		buffer.position(index + 1);
 		return target;
 	}
 
 	static final byte find(final ByteBuffer buffer, final byte marker) {
-		return find(buffer.array(), buffer.position(), marker);
+		return find(buffer, buffer.position(), marker);
+	}
+
+	/** absolute scan; does not move buffer position */
+	static final byte find(final ByteBuffer buffer, final int start,
+			final byte marker) {
+		final int limit = buffer.limit();
+		int index = start;
+		while (index < limit && buffer.get(index) != marker) {
+			index++;
+		}
+		if (index == start || index == limit) {
+			return NUL;
+		} else {
+			return buffer.get(index - 1);
+		}
 	}
 
 	static final byte find(final byte[] source, final int start,
@@ -249,6 +265,25 @@ public class CodecHelper {
 		return null;
 	}
 
+	/** see {@link #xmlDecSymbol(Element, String, boolean)} */
+	static final byte[][] xmlDecSymbol(final XmlScanner xml, final int tag,
+			final String attribute, final boolean isThrow) {
+
+		final String string = xml.string(tag, attribute, false);
+		if (string.length() > 0) {
+			try {
+				return DDF_Symbology.symbolArrayFromSymbolString(string);
+			} catch (final Exception e) {
+				// below
+			}
+		}
+		if (isThrow) {
+			throw new IllegalArgumentException("attribute not valid : "
+					+ attribute);
+		}
+		return null;
+	}
+
 	// byte array
 
 	static final boolean isXmlBook(final Element root) {
@@ -317,16 +352,16 @@ public class CodecHelper {
 
 	}
 
+	/** allocation free; see {@link TimeStampCodec} */
 	static final void encodeMillisUTC(final long millisUTC,
 			final DateTimeZone zone, final ByteBuffer buffer) {
-		final DateTime dateTime = new DateTime(millisUTC, zone);
-		encodeTimeStamp(dateTime, buffer);
+		TimeStampCodec.of(zone).encode(millisUTC, buffer);
 	}
 
+	/** allocation free; see {@link TimeStampCodec} */
 	static final long decodeMillisUTC(final DateTimeZone zone,
 			final ByteBuffer buffer) {
-		final DateTime dateTime = decodeTimeStamp(zone, buffer);
-		return dateTime.getMillis();
+		return TimeStampCodec.of(zone).decode(buffer);
 	}
 
 	//
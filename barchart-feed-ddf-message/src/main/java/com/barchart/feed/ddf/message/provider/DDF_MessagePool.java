@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import com.barchart.feed.ddf.message.enums.DDF_MessageType;
+import com.barchart.util.common.anno.NotThreadSafe;
+
+/**
+ * Flyweight decode mode for {@link DDF_MessageService#decode(java.nio.ByteBuffer, DDF_MessagePool)}:
+ * one mutable message instance per {@link DDF_MessageType}, decoded over in
+ * place, with book arrays reset rather than allocated.
+ * <p>
+ * Lifetime: a pooled message is valid until the listener it is delivered to
+ * returns; the next frame of the same type overwrites it. Use
+ * {@link com.barchart.feed.ddf.message.api.DDF_BaseMessage#copy()} to retain
+ * one, and do not hand pooled messages to another thread.
+ * <p>
+ * Pooled are the ddf line market and time stamp messages, which make up the
+ * live feed; xml snapshots, end of day and control responses are rare and
+ * are still allocated per frame.
+ * <p>
+ * One instance per pipeline thread.
+ */
+@NotThreadSafe
+public final class DDF_MessagePool {
+
+	private final Base[] messages = new Base[DDF_MessageType.values().length];
+
+	/** decoded frames, reused or not */
+	private long decodeCount;
+
+	/** decoded frames into a reused message */
+	private long reuseCount;
+
+	public DDF_MessagePool() {
+	}
+
+	static boolean isPooled(final DDF_MessageType type) {
+		switch (type) {
+			case BOOK_TOP:
+			case BOOK_SNAP:
+			case TRADE:
+			case TRADE_VOL:
+			case PARAM:
+			case DDF_25:
+			case TIME_STAMP:
+			case SNAP_FORE_EXCH:
+			case SNAP_FORE_PLUS:
+			case SNAP_BACK_PLUS_CURR:
+			case SNAP_BACK_PLUS_PREV:
+			case SNAP_FORE_PLUS_QUOTE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/** pooled instance for type, or new one for types not pooled */
+	Base instance(final DDF_MessageType type) {
+
+		decodeCount++;
+
+		if (!isPooled(type)) {
+			return DDF_MessageService.newInstance(type);
+		}
+
+		final Base message = messages[type.ord];
+
+		if (message != null) {
+			reuseCount++;
+			return message;
+		}
+
+		return messages[type.ord] = DDF_MessageService.newInstance(type);
+
+	}
+
+	/** frames decoded through this pool */
+	public long decodeCount() {
+		return decodeCount;
+	}
+
+	/** frames decoded into an already allocated message */
+	public long reuseCount() {
+		return reuseCount;
+	}
+
+}
@@ -31,6 +31,7 @@ import com.barchart.feed.ddf.util.FeedDDF;
 import com.barchart.feed.ddf.util.HelperXML;
 import com.barchart.feed.ddf.util.provider.DDF_ClearVal;
 import com.barchart.feed.ddf.util.provider.DDF_NulVal;
+import com.barchart.util.common.ascii.ASCII;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -212,8 +213,33 @@ public final class DDF_MessageService {
 
 	}
 
+	/** ddf line market messages, which can defer body decode */
+	static final boolean isLazy(final DDF_MessageType type) {
+		switch (type) {
+			case BOOK_TOP:
+			case BOOK_SNAP:
+			case TRADE:
+			case TRADE_VOL:
+			case PARAM:
+			case DDF_25:
+			case SNAP_FORE_EXCH:
+			case SNAP_FORE_PLUS:
+			case SNAP_BACK_PLUS_CURR:
+			case SNAP_BACK_PLUS_PREV:
+			case SNAP_FORE_PLUS_QUOTE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
 	/**
-	 * Decode.
+	 * Decode a single ddf message frame from the remaining bytes of the
+	 * buffer, parsing in place; heap, direct and sliced buffers are supported
+	 * and no intermediate byte array is created.
+	 * <p>
+	 * Buffer position is advanced past the consumed bytes; decoded messages
+	 * do not retain a reference to the buffer.
 	 *
 	 * @param buffer the buffer
 	 * @return the dD f_ base message
@@ -221,21 +247,52 @@ public final class DDF_MessageService {
 	 */
 	public static final DDF_BaseMessage decode(final ByteBuffer buffer)
 			throws Exception {
-		throw new UnsupportedOperationException("TODO");
+		return decode(buffer, null);
 	}
 
 	/**
-	 * Decode.
+	 * Decode a single ddf message frame, as {@link #decode(ByteBuffer)},
+	 * into a message reused from the pool; see {@link DDF_MessagePool} for
+	 * message lifetime.
 	 *
-	 * @param array the array
+	 * @param buffer the buffer
+	 * @param pool the pool, or null to allocate a new message
 	 * @return the dD f_ base message
 	 * @throws Exception the exception
 	 */
-	public static final DDF_BaseMessage decode(final byte[] array)
-			throws Exception {
+	public static final DDF_BaseMessage decode(final ByteBuffer buffer,
+			final DDF_MessagePool pool) throws Exception {
+		return decode(buffer, pool, false);
+	}
+
+	/**
+	 * Decode a single ddf message frame, as
+	 * {@link #decode(ByteBuffer, DDF_MessagePool)}, optionally deferring the
+	 * body.
+	 * <p>
+	 * Lazy decode parses only the head of ddf line market messages: message
+	 * type, symbol, exchange, fraction and delay. Message keeps a read only
+	 * view of the rest of the frame, without copy, and parses it on first
+	 * access to a price, size, time, session or other body field, so frames
+	 * dropped by symbol filters never pay for it; buffer content must not be
+	 * reused until then, which holds for netty frame slices. A malformed body
+	 * then fails on that access, with a runtime exception from the getter in
+	 * the reader thread, rather than here. Xml, end of day and control
+	 * messages are always decoded in full.
+	 *
+	 * @param buffer the buffer
+	 * @param pool the pool, or null to allocate a new message
+	 * @param isLazy defer body of ddf line market messages
+	 * @return the dD f_ base message
+	 * @throws Exception the exception
+	 */
+	public static final DDF_BaseMessage decode(final ByteBuffer buffer,
+			final DDF_MessagePool pool, final boolean isLazy) throws Exception {
+
+		final int start = buffer.position();
 
 		// first byte : classifier
-		final byte kind = array[0];
+		final byte kind = buffer.get(start);
 
 		// for ddf feed & xml message typing
 		final byte record;
@@ -243,16 +300,41 @@ public final class DDF_MessageService {
 
 		// for xml feed
 		final Element element;
+		XmlScanner scanner = null;
 
 		switch (kind) {
 			case FeedDDF.DDF_START:
 				element = null;
-				record = array[1];
-				subRecord = find(array, 2, (byte) FeedDDF.DDF_MIDDLE);
+				record = buffer.get(start + 1);
+				subRecord = find(buffer, start + 2, (byte) FeedDDF.DDF_MIDDLE);
 				break;
 			case FeedDDF.XML_SNAPSHOT:
-				element = HelperXML.xmlDocumentDecode(array, 1, array.length, true);
+				final ByteBuffer xml = buffer.duplicate();
+				xml.position(start + 1);
 				record = FeedDDF.XML_RECORD;
+				/* plain snapshots are decoded in place; rest through DOM */
+				scanner = XmlScanner.local();
+				if (scanner.scan(xml)) {
+					element = null;
+					if (scanner.isRoot(XmlTagBook.TAG)) {
+						subRecord = FeedDDF.XML_SUB_BOOK;
+						break;
+					}
+					if (scanner.isRoot(XmlTagCuvol.TAG)) {
+						subRecord = FeedDDF.XML_SUB_CUVOL;
+						break;
+					}
+					if (scanner.isRoot(XmlTagQuote.TAG)) {
+						subRecord = FeedDDF.XML_SUB_QUOTE;
+						break;
+					}
+					scanner.clear();
+					throw new IllegalArgumentException("unknown xml kind : \n"
+							+ asText(buffer));
+				}
+				scanner.clear();
+				scanner = null;
+				element = HelperXML.xmlDocumentDecode(xml, true);
 				if (isXmlBook(element)) {
 					subRecord = FeedDDF.XML_SUB_BOOK;
 					break;
@@ -266,13 +348,13 @@ public final class DDF_MessageService {
 					break;
 				}
 				throw new IllegalArgumentException("unknown xml kind : \n"
-						+ new String(array));
+						+ asText(buffer));
 			case FeedDDF.TCP_ACCEPT:
 			case FeedDDF.TCP_REJECT:
 			case FeedDDF.TCP_COMMAND:
 			case FeedDDF.TCP_WELCOME:
 				element = null;
-				record = array[0]; // kind
+				record = kind;
 				subRecord = FeedDDF.NUL;
 				break;
 			default:
@@ -283,25 +365,33 @@ public final class DDF_MessageService {
 				break;
 		}
 
-		// System.out.println("array=" + new String(array));
-		// System.out.println("record=" + (char) record);
-		// System.out.println("subRecord=" + (char) subRecord);
-
 		final DDF_MessageType type = DDF_MessageType
 				.fromPair(record, subRecord);
 
-		final Base message = newInstance(type);
-
-		final ByteBuffer buffer = ByteBuffer.wrap(array);
+		final Base message = pool == null ? newInstance(type) : pool
+				.instance(type);
 
 		switch (record) {
 			default:
 				// ddf line message
-				message.decodeDDF(buffer);
+				if (isLazy && isLazy(type)) {
+					((BaseMarket) message).decodeLazy(buffer);
+				} else {
+					message.decodeDDF(buffer);
+				}
 				break;
 			case FeedDDF.XML_RECORD:
 				// xml formatted message
-				message.decodeXML(element);
+				if (scanner == null) {
+					message.decodeXML(element);
+				} else {
+					try {
+						message.decodeXML(scanner);
+					} finally {
+						scanner.clear();
+					}
+				}
+				buffer.position(buffer.limit());
 				break;
 		}
 
@@ -309,6 +399,25 @@ public final class DDF_MessageService {
 
 	}
 
+	/**
+	 * Decode.
+	 *
+	 * @param array the array
+	 * @return the dD f_ base message
+	 * @throws Exception the exception
+	 */
+	public static final DDF_BaseMessage decode(final byte[] array)
+			throws Exception {
+		return decode(ByteBuffer.wrap(array));
+	}
+
+	/** remaining buffer content for diagnostics; does not move position */
+	static final String asText(final ByteBuffer buffer) {
+		final byte[] array = new byte[buffer.remaining()];
+		buffer.duplicate().get(array);
+		return new String(array, ASCII.ASCII_CHARSET);
+	}
+
 	/**
 	 * Market book from url.
 	 *
@@ -384,4 +493,43 @@ public final class DDF_MessageService {
 
 	}
 
+	/**
+	 * Symbol handle of raw ddf feed symbol, as reported by
+	 * {@link com.barchart.feed.ddf.message.api.DDF_MarketBase#getSymbolHandle()}
+	 * ; assigned on first use.
+	 * <p>
+	 * Handles are never reused, so the intern table behind them is never
+	 * evicted: it grows by one entry, a few hundred bytes, for every
+	 * distinct symbol seen by this process, whether decoded from the feed or
+	 * passed here. That is bounded by the symbol universe of the feed, but
+	 * long running processes on a full feed keep expired contract symbols
+	 * too; watch {@link #symbolCount()}.
+	 *
+	 * @param symbol raw feed symbol, such as MSFT or RJZ1
+	 * @return the symbol handle
+	 */
+	public static final int symbolHandle(final String symbol) {
+		return SymbolContext.lookup(symbol.getBytes(ASCII.ASCII_CHARSET)).handle;
+	}
+
+	/**
+	 * Raw ddf feed symbol of symbol handle.
+	 *
+	 * @param handle the symbol handle
+	 * @return the symbol, or null for unknown handle
+	 */
+	public static final String symbolName(final int handle) {
+		final SymbolContext context = SymbolContext.byHandle(handle);
+		return context == null ? null : context.name;
+	}
+
+	/**
+	 * Number of symbol handles assigned so far; handles are below this.
+	 *
+	 * @return the symbol count
+	 */
+	public static final int symbolCount() {
+		return SymbolContext.size();
+	}
+
 }
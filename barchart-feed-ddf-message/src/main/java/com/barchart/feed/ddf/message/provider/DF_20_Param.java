@@ -59,6 +59,7 @@ class DF_20_Param extends BaseMarket implements DDF_MarketParameter {
 	 */
 	@Override
 	public final DDF_ParamType getParamType() {
+		decoded();
 		return DDF_ParamType.fromOrd(ordParam);
 	}
 
@@ -76,6 +77,7 @@ class DF_20_Param extends BaseMarket implements DDF_MarketParameter {
 	 */
 	@Override
 	public final PriceValue getAsPrice() {
+		decoded();
 		return HelperDDF.newPriceDDF(value, getFraction());
 	}
 
@@ -84,6 +86,7 @@ class DF_20_Param extends BaseMarket implements DDF_MarketParameter {
 	 */
 	@Override
 	public final SizeValue getAsSize() {
+		decoded();
 		return HelperDDF.newSizeDDF(value);
 	}
 
@@ -69,76 +69,91 @@ class DF_21_Snap extends BaseMarket implements DDF_MarketSnapshot {
 
 	@Override
 	public PriceValue getPriceAsk() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceAsk, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceBid() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceBid, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceClose2() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceClose2, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceLast() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceLast, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceLastPrevious() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceLastPrevious, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceOpen2() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceOpen2, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceSettle() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceSettle, getFraction());
 	}
 
 	@Override
 	public SizeValue getSizeVolumePrevious() {
+		decoded();
 		return HelperDDF.newSizeDDF(sizeVolumePrevious);
 	}
 
 	@Override
 	public PriceValue getPriceClose() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceClose, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceHigh() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceHigh, getFraction());
 	}
 
 	@Override
 	public SizeValue getSizeInterest() {
+		decoded();
 		return HelperDDF.newSizeDDF(sizeInterest);
 	}
 
 	@Override
 	public PriceValue getPriceLow() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceLow, getFraction());
 	}
 
 	@Override
 	public PriceValue getPriceOpen() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceOpen, getFraction());
 	}
 
 	@Override
 	public SizeValue getSizeVolume() {
+		decoded();
 		return HelperDDF.newSizeDDF(sizeVolume);
 	}
 	
 	@Override
 	public final PriceValue getVWAP() {
+		decoded();
 		return HelperDDF.newPriceDDF(vwap, getFraction());
 	}
 
@@ -46,6 +46,7 @@ public class DF_25_Param extends BaseMarket implements DDF_MarketParameter {
 	
 	@Override
 	public DDF_ParamType getParamType() {
+		decoded();
 		return DDF_ParamType.fromOrd(ordParam);
 	}
 	
@@ -60,11 +61,13 @@ public class DF_25_Param extends BaseMarket implements DDF_MarketParameter {
 
 	@Override
 	public PriceValue getAsPrice() {
+		decoded();
 		return HelperDDF.newPriceDDF(value, getFraction());
 	}
 
 	@Override
 	public SizeValue getAsSize() {
+		decoded();
 		return HelperDDF.newSizeDDF(value);
 	}
 
@@ -52,6 +52,7 @@ class DF_27_Trade extends BaseMarket implements DDF_MarketTrade {
 	 */
 	@Override
 	public final PriceValue getPrice() {
+		decoded();
 		return HelperDDF.newPriceDDF(price, getFraction());
 	}
 
@@ -60,6 +61,7 @@ class DF_27_Trade extends BaseMarket implements DDF_MarketTrade {
 	 */
 	@Override
 	public final SizeValue getSize() {
+		decoded();
 		return HelperDDF.newSizeDDF(size);
 	}
 
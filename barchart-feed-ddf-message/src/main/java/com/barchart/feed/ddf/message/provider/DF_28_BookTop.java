@@ -67,6 +67,7 @@ class DF_28_BookTop extends BaseMarket implements DDF_MarketBookTop {
 	 */
 	@Override
 	public PriceValue getPriceBid() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceBid, getFraction());
 	}
 
@@ -77,6 +78,7 @@ class DF_28_BookTop extends BaseMarket implements DDF_MarketBookTop {
 	 */
 	@Override
 	public SizeValue getSizeBid() {
+		decoded();
 		return HelperDDF.newSizeDDF(sizeBid);
 	}
 
@@ -89,6 +91,7 @@ class DF_28_BookTop extends BaseMarket implements DDF_MarketBookTop {
 	 */
 	@Override
 	public PriceValue getPriceAsk() {
+		decoded();
 		return HelperDDF.newPriceDDF(priceAsk, getFraction());
 	}
 
@@ -99,6 +102,7 @@ class DF_28_BookTop extends BaseMarket implements DDF_MarketBookTop {
 	 */
 	@Override
 	public SizeValue getSizeAsk() {
+		decoded();
 		return HelperDDF.newSizeDDF(sizeAsk);
 	}
 
@@ -23,6 +23,7 @@ import static com.barchart.util.common.ascii.ASCII.ETX;
 import static com.barchart.util.common.ascii.ASCII.NUL;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import com.barchart.feed.api.model.data.Book;
 import com.barchart.feed.base.book.api.MarketBook;
@@ -83,6 +84,7 @@ class DF_3B_Book extends BaseMarket implements DDF_MarketBook {
 	 */
 	@Override
 	public final MarketDoBookEntry[] entries() {
+		decoded();
 
 		final int maximumSize = countBid + countAsk;
 
@@ -138,6 +140,24 @@ class DF_3B_Book extends BaseMarket implements DDF_MarketBook {
 
 	}
 
+	@Override
+	public final long[] prices(final Book.Side side) {
+		decoded();
+		return side == Book.Side.ASK ? priceAskArray : priceBidArray;
+	}
+
+	@Override
+	public final long[] sizes(final Book.Side side) {
+		decoded();
+		return side == Book.Side.ASK ? sizeAskArray : sizeBidArray;
+	}
+
+	@Override
+	public final int count(final Book.Side side) {
+		decoded();
+		return side == Book.Side.ASK ? countAsk : countBid;
+	}
+
 	/*
 	 * <soh>3<symbol>,B<stx><base><exch><#bid><#ask>[,<price-level-size>]<etx>
 	 */
@@ -209,11 +229,19 @@ class DF_3B_Book extends BaseMarket implements DDF_MarketBook {
 
 		final DDF_Fraction frac = getFraction();
 
-		// allocate maximum array size
-		priceBidArray = new long[DDF_BOOK_LIMIT];
-		priceAskArray = new long[DDF_BOOK_LIMIT];
-		sizeBidArray = new long[DDF_BOOK_LIMIT];
-		sizeAskArray = new long[DDF_BOOK_LIMIT];
+		if (priceBidArray == DDF_NO_PRICES) {
+			// allocate maximum array size
+			priceBidArray = new long[DDF_BOOK_LIMIT];
+			priceAskArray = new long[DDF_BOOK_LIMIT];
+			sizeBidArray = new long[DDF_BOOK_LIMIT];
+			sizeAskArray = new long[DDF_BOOK_LIMIT];
+		} else {
+			// pooled message; reset in place
+			Arrays.fill(priceBidArray, 0);
+			Arrays.fill(priceAskArray, 0);
+			Arrays.fill(sizeBidArray, 0);
+			Arrays.fill(sizeAskArray, 0);
+		}
 
 		// sizes
 		countBid = decodeUnsigned_1_book(buffer);
@@ -245,6 +273,17 @@ class DF_3B_Book extends BaseMarket implements DDF_MarketBook {
 
 	}
 
+	@Override
+	protected void detach() {
+		super.detach();
+		if (priceBidArray != DDF_NO_PRICES) {
+			priceBidArray = priceBidArray.clone();
+			priceAskArray = priceAskArray.clone();
+			sizeBidArray = sizeBidArray.clone();
+			sizeAskArray = sizeAskArray.clone();
+		}
+	}
+
 	@Override
 	protected void appedFields(final StringBuilder text) {
 		
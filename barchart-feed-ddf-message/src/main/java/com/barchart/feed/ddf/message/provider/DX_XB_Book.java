@@ -98,6 +98,54 @@ class DX_XB_Book extends DF_3B_Book {
 
 	}
 
+	/** same as {@link #decodeXML(Element)}, without the DOM */
+	@Override
+	final void decodeXML(final XmlScanner xml) {
+
+		xml.checkRoot(TAG);
+
+		final int tag = 0;
+
+		symbolArray = xmlDecSymbol(xml, tag, SYMBOL, XML_STOP);
+
+		updateSpread();
+
+		final byte baseCode = xml.code(tag, FRACTION_DDF, XML_STOP);
+		final DDF_Fraction frac = DDF_Fraction.fromBaseCode(baseCode);
+		setFraction(frac);
+
+		//
+
+		countBid = xml.integer(tag, BID_COUNT, XML_STOP);
+
+		if (countBid > 0) {
+
+			sizeBidArray = xml.longArray(tag, BID_SIZE_ARRAY, COMMA, XML_STOP);
+
+			priceBidArray = xml.decimalArray(tag, BID_PRICE_ARRAY, COMMA,
+					frac, XML_STOP);
+
+		}
+
+		//
+
+		countAsk = xml.integer(tag, ASK_COUNT, XML_STOP);
+
+		if (countAsk > 0) {
+
+			sizeAskArray = xml.longArray(tag, ASK_SIZE_ARRAY, COMMA, XML_STOP);
+
+			priceAskArray = xml.decimalArray(tag, ASK_PRICE_ARRAY, COMMA,
+					frac, XML_STOP);
+
+		}
+
+		//
+
+		setDecodeDefaults();
+
+	}
+
 	/* (non-Javadoc)
 	 * @see com.barchart.feed.ddf.message.provider.Base#encodeXML(org.w3c.dom.Element)
 	 */
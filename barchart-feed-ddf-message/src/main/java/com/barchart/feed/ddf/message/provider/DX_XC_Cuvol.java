@@ -21,7 +21,6 @@ import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.api.model.meta.id.InstrumentID;
 import com.barchart.feed.base.cuvol.api.MarketDoCuvolEntry;
 import com.barchart.feed.base.provider.DefCuvolEntry;
-import com.barchart.feed.base.provider.Symbology;
 import com.barchart.feed.base.provider.ValueConverter;
 import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.SizeValue;
@@ -256,60 +255,113 @@ class DX_XC_Cuvol extends BaseMarket implements DDF_MarketCuvol {
 			final String stringEntries = xmlStringDecode(tag, ENTRY_ARRAY,
 					XML_STOP);
 
-			final String[] stringArray = stringEntries.split(STRING_COLON);
+			assert ValueBuilder.isPureAscii(stringEntries);
 
-			long priceMin = Long.MAX_VALUE;
-			long priceMax = Long.MIN_VALUE;
+			decodeEntries(frac, entryCount,
+					ByteBuffer.wrap(stringEntries.getBytes(ASCII_CHARSET)));
 
-			final long[] prices = new long[entryCount];
-			final int[] sizes = new int[entryCount];
+		}
 
-			int index = 0;
+		final Instrument instrument = getInstrument();
 
-			for (final String stringEntry : stringArray) {
-				assert ValueBuilder.isPureAscii(stringEntry);
-				final ByteBuffer buffer = ByteBuffer.wrap(stringEntry
-						.getBytes(ASCII_CHARSET));
-				final long price = HelperDDF.decimalDecode(frac, buffer, COMMA);
-				final long size = HelperDDF.longDecode(buffer, NUL);
-				priceMin = Math.min(priceMin, price);
-				priceMax = Math.max(priceMax, price);
-				prices[index] = price;
-				sizes[index] = MathExtra.castLongToInt(size);
-				index++;
-			}
+		// FIXME This doesnt work, instrument uses the exchange() method to get it's exchange
+		// so you can't call exchangeCode() on instrument before it's been set in the message;
+		setExchange(DDF_Exchange.fromCode(instrument.exchangeCode().getBytes()[0]));
 
-			assert index == entryCount;
+		final long millisUTC = xmlTimeDecode(getExchange().kind.time.zone, tag,
+				TIME_LAST, XML_PASS);
+		setDecodeDefaults(millisUTC);
 
-			priceFirst = priceMin;
+	}
 
-			final long range = priceMax - priceMin + priceStep;
-			final int length = MathExtra.castLongToInt(range / priceStep);
-			sizeArray = new long[length];
+	/** same as {@link #decodeXML(Element)}, without the DOM */
+	@Override
+	final void decodeXML(final XmlScanner xml) {
 
-			for (index = 0; index < entryCount; index++) {
-				final long price = prices[index];
-				final int size = sizes[index];
-				final int offset = (int) ((price - priceFirst) / priceStep);
-				sizeArray[offset] = size;
-			}
+		xml.checkRoot(TAG);
+
+		final int tag = 0;
+
+		symbolArray = xmlDecSymbol(xml, tag, SYMBOL, XML_STOP);
+
+		updateSpread();
+
+		final byte baseCode = xml.code(tag, FRACTION_DDF, XML_STOP);
+		final DDF_Fraction frac = DDF_Fraction.fromBaseCode(baseCode);
+		setFraction(frac);
+
+		priceStep = xml.decimal(frac, tag, PRICE_TICK_INCREMENT, XML_STOP);
+
+		priceTrade = xml.decimal(frac, tag, PRICE_LAST, XML_STOP);
+		sizeTrade = xml.longValue(tag, SIZE_LAST, XML_STOP);
+		sizeTradeCuvol = xml.longValue(tag, SIZE_LAST_CUVOL, XML_STOP);
+
+		//
 
-			assert index == entryCount;
+		final int entryCount = xml.integer(tag, ENTRY_COUNT, XML_STOP);
 
+		if (entryCount > 0) {
+			decodeEntries(frac, entryCount,
+					xml.bytes(tag, ENTRY_ARRAY, XML_STOP));
 		}
 
 		final Instrument instrument = getInstrument();
 
-		// FIXME This doesnt work, instrument uses the exchange() method to get it's exchange
-		// so you can't call exchangeCode() on instrument before it's been set in the message;
 		setExchange(DDF_Exchange.fromCode(instrument.exchangeCode().getBytes()[0]));
 
-		final long millisUTC = xmlTimeDecode(getExchange().kind.time.zone, tag,
+		final long millisUTC = xml.time(getExchange().kind.time.zone, tag,
 				TIME_LAST, XML_PASS);
 		setDecodeDefaults(millisUTC);
 
 	}
 
+	/**
+	 * price and size entries, as "price,size:price,size:...", into
+	 * {@link #sizeArray} starting from {@link #priceFirst}
+	 */
+	private void decodeEntries(final DDF_Fraction frac, final int entryCount,
+			final ByteBuffer buffer) {
+
+		long priceMin = Long.MAX_VALUE;
+		long priceMax = Long.MIN_VALUE;
+
+		final long[] prices = new long[entryCount];
+		final int[] sizes = new int[entryCount];
+
+		int index = 0;
+
+		while (buffer.hasRemaining()) {
+			final long price = HelperDDF.decimalDecode(frac, buffer, COMMA);
+			final long size = HelperDDF.longDecode(buffer, NUL);
+			priceMin = Math.min(priceMin, price);
+			priceMax = Math.max(priceMax, price);
+			prices[index] = price;
+			sizes[index] = MathExtra.castLongToInt(size);
+			index++;
+			/* skip to next entry */
+			while (buffer.hasRemaining() && buffer.get() != ':') {
+			}
+		}
+
+		assert index == entryCount;
+
+		priceFirst = priceMin;
+
+		final long range = priceMax - priceMin + priceStep;
+		final int length = MathExtra.castLongToInt(range / priceStep);
+		sizeArray = new long[length];
+
+		for (index = 0; index < entryCount; index++) {
+			final long price = prices[index];
+			final int size = sizes[index];
+			final int offset = (int) ((price - priceFirst) / priceStep);
+			sizeArray[offset] = size;
+		}
+
+		assert index == entryCount;
+
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -409,43 +461,54 @@ class DX_XC_Cuvol extends BaseMarket implements DDF_MarketCuvol {
 	/*
 	 * Lazy eval instrument stub
 	 */
-	private final Instrument stub = new DefaultInstrument(InstrumentID.NULL) {
+	private Instrument stub = newStub();
 
-		@Override
-		public String marketGUID() {
-			return Symbology.formatSymbol(getId().toString());
-		}
+	/** bound to this message; copies need their own */
+	private Instrument newStub() {
+		return new DefaultInstrument(InstrumentID.NULL) {
 
-		@Override
-		public SecurityType securityType() {
-			return getExchange().kind.asSecType();
-		}
+			@Override
+			public String marketGUID() {
+				return context().formatted();
+			}
 
-		@Override
-		public String symbol() {
-			return Symbology.formatSymbol(getId().toString());
-		}
+			@Override
+			public SecurityType securityType() {
+				return getExchange().kind.asSecType();
+			}
 
-		@Override
-		public Exchange exchange() {
-			return Exchange.NULL;
-		}
+			@Override
+			public String symbol() {
+				return context().formatted();
+			}
 
-		@Override
-		public String exchangeCode() {
-			return "NULL";
-		}
+			@Override
+			public Exchange exchange() {
+				return Exchange.NULL;
+			}
 
-		@Override
-		public Price tickSize() {
-			return ValueConverter.price(getPriceStep());
-		}
+			@Override
+			public String exchangeCode() {
+				return "NULL";
+			}
 
-		@Override
-		public Fraction displayFraction() {
-			return ValueConverter.fraction(getFraction().fraction);
-		}
+			@Override
+			public Price tickSize() {
+				return ValueConverter.price(getPriceStep());
+			}
+
+			@Override
+			public Fraction displayFraction() {
+				return ValueConverter.fraction(getFraction().fraction);
+			}
 
-	};
+		};
+	}
+
+	@Override
+	protected void detach() {
+		super.detach();
+		stub = newStub();
+	}
 
 }
@@ -20,7 +20,6 @@ import org.w3c.dom.NodeList;
 import com.barchart.feed.api.model.meta.Exchange;
 import com.barchart.feed.api.model.meta.Instrument;
 import com.barchart.feed.api.model.meta.id.InstrumentID;
-import com.barchart.feed.base.provider.Symbology;
 import com.barchart.feed.base.provider.ValueConverter;
 import com.barchart.feed.base.values.api.PriceValue;
 import com.barchart.feed.base.values.api.TextValue;
@@ -293,6 +292,82 @@ class DX_XQ_Quote extends DF_28_BookTop implements DDF_MarketQuote {
 
 	}
 
+	/** same as {@link #decodeXML(Element)}, without the DOM */
+	@Override
+	final void decodeXML(final XmlScanner xml) {
+
+		xml.checkRoot(TAG);
+
+		final int tag = 0;
+
+		symbolArray = xmlDecSymbol(xml, tag, SYMBOL, XML_STOP);
+
+		updateSpread();
+
+		symbolName = xml.ascii(tag, SYMBOL_NAME, XML_PASS);
+
+		exchangeExtra = xml.ascii(tag, EXCHANGE_EXTRA, XML_PASS);
+
+		final byte baseCode = xml.code(tag, FRACTION_DDF, XML_STOP);
+		final DDF_Fraction frac = DDF_Fraction.fromBaseCode(baseCode);
+		setFraction(frac);
+
+		// FIXME, MDEX ddfexchange code missing
+		final byte exchCode = xml.code(tag, EXCHANGE_DDF, XML_PASS);
+		final DDF_Exchange exch = DDF_Exchange.fromCode(exchCode);
+		setExchange(exch);
+
+		final byte modeCode = xml.code(tag, QUOTE_MODE, XML_PASS);
+		final DDF_QuoteMode mode = DDF_QuoteMode.fromCode(modeCode);
+		setMode(mode);
+
+		final byte flagCode = xml.code(tag, QUOTE_STATE, XML_PASS);
+		final DDF_QuoteState flag = DDF_QuoteState.fromCode(flagCode);
+		setState(flag);
+
+		priceStep = xml.decimal(frac, tag, PRICE_TICK_INCREMENT, XML_STOP);
+
+		priceBid = xml.decimal(frac, tag, PRICE_BID, XML_PASS);
+		sizeBid = xml.longValue(tag, SIZE_BID, XML_PASS);
+
+		priceAsk = xml.decimal(frac, tag, PRICE_ASK, XML_PASS);
+		sizeAsk = xml.longValue(tag, SIZE_ASK, XML_PASS);
+
+		pricePoint = xml.price(tag, PRICE_POINT_VALUE, XML_PASS);
+
+		//
+
+		int size = 0;
+		for (int child = 1; child < xml.tagCount(); child++) {
+			if (xml.isTag(child, XmlTagSession.TAG)) {
+				size++;
+			}
+		}
+
+		sessions = new DX_XS_Session[size];
+
+		for (int child = 1, k = 0; child < xml.tagCount(); child++) {
+			if (!xml.isTag(child, XmlTagSession.TAG)) {
+				continue;
+			}
+			final DX_XS_Session session = new DX_XS_Session();
+			// note: session inherits these from quote
+			session.symbolArray = symbolArray;
+			session.setExchange(exch);
+			session.setFraction(frac);
+			//
+			session.decodeXML(xml, child);
+			sessions[k++] = session;
+		}
+
+		//
+
+		final long millisUTC = xml.time(exch.kind.time.zone, tag, TIME_UPDATE,
+				XML_PASS);
+		setDecodeDefaults(millisUTC);
+
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -382,48 +457,59 @@ class DX_XQ_Quote extends DF_28_BookTop implements DDF_MarketQuote {
 	/*
 	 * Lazy eval instrument stub
 	 */
-	private final Instrument stub = new DefaultInstrument(InstrumentID.NULL) {
+	private Instrument stub = newStub();
 
-		@Override
-		public String marketGUID() {
-			return Symbology.formatSymbol(new String(getSymbolFull()));
-		}
+	/** bound to this message; copies need their own */
+	private Instrument newStub() {
+		return new DefaultInstrument(InstrumentID.NULL) {
 
-		@Override
-		public SecurityType securityType() {
-			return getExchange().kind.asSecType();
-		}
+			@Override
+			public String marketGUID() {
+				return context().formatted();
+			}
 
-		@Override
-		public String symbol() {
-			return Symbology.formatSymbol(new String(getSymbolFull()));
-		}
+			@Override
+			public SecurityType securityType() {
+				return getExchange().kind.asSecType();
+			}
 
-		@Override
-		public Exchange exchange() {
-			return getExchange().asExchange();
-		}
+			@Override
+			public String symbol() {
+				return context().formatted();
+			}
 
-		@Override
-		public String exchangeCode() {
-			return new String(new byte[] {getExchange().code});
-		}
+			@Override
+			public Exchange exchange() {
+				return getExchange().asExchange();
+			}
 
-		@Override
-		public Price tickSize() {
-			return ValueConverter.price(getPriceStep());
-		}
+			@Override
+			public String exchangeCode() {
+				return new String(new byte[] {getExchange().code});
+			}
 
-		@Override
-		public Price pointValue() {
-			return ValueConverter.price(getPointValue());
-		}
+			@Override
+			public Price tickSize() {
+				return ValueConverter.price(getPriceStep());
+			}
 
-		@Override
-		public Fraction displayFraction() {
-			return ValueConverter.fraction(getFraction().fraction);
-		}
+			@Override
+			public Price pointValue() {
+				return ValueConverter.price(getPointValue());
+			}
+
+			@Override
+			public Fraction displayFraction() {
+				return ValueConverter.fraction(getFraction().fraction);
+			}
 
-	};
+		};
+	}
+
+	@Override
+	protected void detach() {
+		super.detach();
+		stub = newStub();
+	}
 
 }
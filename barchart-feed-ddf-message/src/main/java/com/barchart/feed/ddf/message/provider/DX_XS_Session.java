@@ -179,6 +179,50 @@ class DX_XS_Session extends DF_21_Snap implements DDF_MarketSession {
 		
 	}
 
+	/** same as {@link #decodeXML(Element)}, for a scanned child tag */
+	final void decodeXML(final XmlScanner xml, final int tag) {
+
+		final DDF_Exchange exch = getExchange();
+		final DDF_Fraction frac = getFraction();
+
+		//
+
+		final String indCode = xml.string(tag, SESSION_INDICATOR, XML_STOP);
+		setIndicator(DDF_Indicator.fromCode(indCode));
+
+		final byte dayCode = xml.code(tag, TRADE_DAY, XML_PASS);
+		setTradeDay(DDF_TradeDay.fromCode(dayCode));
+
+		//
+
+		// last trade today
+		final byte typeCode = xml.code(tag, SESSION, XML_PASS);
+		setSession(DDF_Session.fromPair(exch.ord, typeCode));
+		priceLast = xml.decimal(frac, tag, PRICE_LAST, XML_PASS);
+		sizeLast = xml.longValue(tag, SIZE_LAST, XML_PASS);
+		timeLast = xml.time(exch.kind.time.zone, tag, TIME_LAST, XML_PASS);
+
+		// settle yesterday
+		priceLastPrevious = xml.decimal(frac, tag, PRICE_LAST_PREV, XML_PASS);
+
+		//
+
+		priceOpen = xml.decimal(frac, tag, PRICE_OPEN, XML_PASS);
+		priceHigh = xml.decimal(frac, tag, PRICE_HIGH, XML_PASS);
+		priceLow = xml.decimal(frac, tag, PRICE_LOW, XML_PASS);
+		priceSettle = xml.decimal(frac, tag, PRICE_SETTLE, XML_PASS);
+
+		sizeVolume = xml.longValue(tag, SIZE_VOLUME, XML_PASS);
+		sizeInterest = xml.longValue(tag, SIZE_INTEREST, XML_PASS);
+
+		//
+
+		millisUTC = xml.time(exch.kind.time.zone, tag, TIME_UPDATE, XML_PASS);
+
+		vwap = xml.decimal(frac, tag, VWAP, XML_PASS);
+
+	}
+
 	/* (non-Javadoc)
 	 * @see com.barchart.feed.ddf.message.provider.Base#encodeXML(org.w3c.dom.Element)
 	 */
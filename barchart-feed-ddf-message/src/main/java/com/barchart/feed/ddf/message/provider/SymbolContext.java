@@ -0,0 +1,364 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import java.nio.ByteBuffer;
+
+import org.joda.time.DateTimeZone;
+
+import com.barchart.feed.api.model.meta.Instrument;
+import com.barchart.feed.base.provider.Symbology;
+import com.barchart.feed.base.values.api.TextValue;
+import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.ddf.instrument.provider.DDF_FeedInstProvider;
+import com.barchart.feed.ddf.instrument.provider.InstrumentState;
+import com.barchart.feed.ddf.instrument.provider.InstrumentState.LoadState;
+import com.barchart.util.common.ascii.ASCII;
+
+/**
+ * per symbol decode context shared by all messages of the same symbol;
+ *
+ * holds canonical instrument reference and resolved instrument time zone, so
+ * message decoding does not run symbol formatting, instrument map lookup and
+ * time zone parsing on every message;
+ *
+ * contexts are interned in an open addressing table keyed on raw feed symbol
+ * bytes; lookups are lock free, inserts are serialized.
+ *
+ * each context also gets a stable handle, dense from zero in order of first
+ * use, so downstream code can keep per symbol state in plain arrays; contexts
+ * live for the life of the process: there is no eviction, since an evicted
+ * handle could not be told apart from a reused one, so table size is the
+ * number of distinct symbols ever seen.
+ */
+final class SymbolContext {
+
+	/** time zone name reported by instruments without zone */
+	static final String NULL_ZONE_NAME = "Null Time Zone";
+
+	/** re-resolve interval while instrument definition is still loading */
+	static final long RESOLVE_INTERVAL = 1000;
+
+	/** initial table size; must be power of 2 */
+	static final int TABLE_SIZE = 4 * 1024;
+
+	private static final Object lock = new Object();
+
+	private static volatile SymbolContext[] table = new SymbolContext[TABLE_SIZE];
+
+	private static int count;
+
+	/** contexts by handle; slots past count are null */
+	private static volatile SymbolContext[] handles = new SymbolContext[TABLE_SIZE];
+
+	//
+
+	/** raw feed symbol; never mutated */
+	final byte[] symbol;
+
+	final int hash;
+
+	/** dense intern sequence number */
+	final int handle;
+
+	/** raw feed symbol, as canonical string */
+	final String name;
+
+	/** raw feed symbol, as single entry symbol array; never mutated */
+	final byte[][] symbols;
+
+	/** raw feed symbol, as text value */
+	final TextValue id;
+
+	/** formatted symbol, see {@link Symbology#formatSymbol(String)} */
+	private volatile String formatted;
+
+	private volatile Instrument instrument;
+
+	/** null when instrument has no zone; use exchange zone instead */
+	private volatile DateTimeZone zone;
+
+	/** instrument definition is complete; no more resolving */
+	private volatile boolean isPinned;
+
+	private volatile long resolveMillis;
+
+	private SymbolContext(final byte[] symbol, final int hash,
+			final int handle) {
+		this.symbol = symbol;
+		this.hash = hash;
+		this.handle = handle;
+		this.name = new String(symbol, ASCII.ASCII_CHARSET);
+		this.symbols = new byte[][] { symbol };
+		this.id = ValueBuilder.newText(symbol);
+	}
+
+	/** formatted symbol, computed once */
+	String formatted() {
+		String formatted = this.formatted;
+		if (formatted == null) {
+			formatted = Symbology.formatSymbol(name);
+			this.formatted = formatted;
+		}
+		return formatted;
+	}
+
+	/**
+	 * canonical instrument; stub is used only while definition is not
+	 * complete
+	 */
+	Instrument instrument(final Instrument stub) {
+		if (!isPinned) {
+			resolve(stub);
+		}
+		return instrument;
+	}
+
+	/** instrument time zone, or fallback when instrument has none */
+	DateTimeZone zone(final Instrument stub, final DateTimeZone fallback) {
+		if (!isPinned) {
+			resolve(stub);
+		}
+		final DateTimeZone zone = this.zone;
+		if (zone == null) {
+			return fallback;
+		}
+		return zone;
+	}
+
+	private void resolve(final Instrument stub) {
+
+		final long now = System.currentTimeMillis();
+
+		if (instrument != null && now < resolveMillis) {
+			return;
+		}
+
+		resolveMillis = now + RESOLVE_INTERVAL;
+
+		final Instrument inst = DDF_FeedInstProvider.fromMessage(stub);
+
+		zone = zoneFrom(inst);
+		instrument = inst;
+
+		if (inst instanceof InstrumentState
+				&& ((InstrumentState) inst).loadState() == LoadState.FULL) {
+			isPinned = true;
+		}
+
+	}
+
+	static DateTimeZone zoneFrom(final Instrument inst) {
+		final String name = inst.timeZoneName();
+		if (name == null || NULL_ZONE_NAME.equals(name)) {
+			return null;
+		}
+		return DateTimeZone.forID(name);
+	}
+
+	// ######################
+
+	static int hash(final byte[] array, final int offset, final int length) {
+		int hash = 0x811C9DC5;
+		for (int k = offset; k < offset + length; k++) {
+			hash ^= array[k];
+			hash *= 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	static int hash(final ByteBuffer buffer, final int offset,
+			final int length) {
+		int hash = 0x811C9DC5;
+		for (int k = offset; k < offset + length; k++) {
+			hash ^= buffer.get(k);
+			hash *= 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private boolean isMatch(final int hash, final ByteBuffer buffer,
+			final int offset, final int length) {
+		if (this.hash != hash || symbol.length != length) {
+			return false;
+		}
+		for (int k = 0; k < length; k++) {
+			if (symbol[k] != buffer.get(offset + k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isMatch(final int hash, final byte[] array,
+			final int offset, final int length) {
+		if (this.hash != hash || symbol.length != length) {
+			return false;
+		}
+		for (int k = 0; k < length; k++) {
+			if (symbol[k] != array[offset + k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** interned context for symbol; created on first use */
+	static SymbolContext lookup(final byte[] symbol) {
+		return lookup(symbol, 0, symbol.length);
+	}
+
+	/** interned context for symbol range; created on first use */
+	static SymbolContext lookup(final byte[] array, final int offset,
+			final int length) {
+
+		final int hash = hash(array, offset, length);
+
+		final SymbolContext context = find(table, hash, array, offset, length);
+
+		if (context != null) {
+			return context;
+		}
+
+		return insert(hash, array, offset, length);
+
+	}
+
+	/**
+	 * interned context for absolute symbol range of buffer; created on first
+	 * use; does not allocate when symbol is known
+	 */
+	static SymbolContext lookup(final ByteBuffer buffer, final int offset,
+			final int length) {
+
+		final int hash = hash(buffer, offset, length);
+
+		final SymbolContext[] table = SymbolContext.table;
+		final int mask = table.length - 1;
+		int index = hash & mask;
+		while (true) {
+			final SymbolContext entry = table[index];
+			if (entry == null) {
+				break;
+			}
+			if (entry.isMatch(hash, buffer, offset, length)) {
+				return entry;
+			}
+			index = (index + 1) & mask;
+		}
+
+		final byte[] array = new byte[length];
+		for (int k = 0; k < length; k++) {
+			array[k] = buffer.get(offset + k);
+		}
+
+		return insert(hash, array, 0, length);
+
+	}
+
+	/** context of handle, or null when no such handle */
+	static SymbolContext byHandle(final int handle) {
+		final SymbolContext[] handles = SymbolContext.handles;
+		if (handle < 0 || handle >= handles.length) {
+			return null;
+		}
+		return handles[handle];
+	}
+
+	private static SymbolContext find(final SymbolContext[] table,
+			final int hash, final byte[] array, final int offset,
+			final int length) {
+		final int mask = table.length - 1;
+		int index = hash & mask;
+		while (true) {
+			final SymbolContext entry = table[index];
+			if (entry == null) {
+				return null;
+			}
+			if (entry.isMatch(hash, array, offset, length)) {
+				return entry;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	private static SymbolContext insert(final int hash, final byte[] array,
+			final int offset, final int length) {
+
+		synchronized (lock) {
+
+			SymbolContext[] current = table;
+
+			final SymbolContext existing = find(current, hash, array, offset,
+					length);
+
+			if (existing != null) {
+				return existing;
+			}
+
+			/* keep load factor under 1/2 */
+			if (2 * (count + 1) > current.length) {
+				current = resize(current);
+			}
+
+			final byte[] symbol = new byte[length];
+			System.arraycopy(array, offset, symbol, 0, length);
+
+			final SymbolContext context = new SymbolContext(symbol, hash,
+					count);
+
+			SymbolContext[] byHandle = handles;
+			if (count == byHandle.length) {
+				final SymbolContext[] grown = new SymbolContext[count * 2];
+				System.arraycopy(byHandle, 0, grown, 0, count);
+				byHandle = grown;
+			}
+			byHandle[count] = context;
+			handles = byHandle;
+
+			final int mask = current.length - 1;
+			int index = hash & mask;
+			while (current[index] != null) {
+				index = (index + 1) & mask;
+			}
+			current[index] = context;
+			count++;
+
+			/* publish */
+			table = current;
+
+			return context;
+
+		}
+
+	}
+
+	private static SymbolContext[] resize(final SymbolContext[] source) {
+		final SymbolContext[] target = new SymbolContext[source.length * 2];
+		final int mask = target.length - 1;
+		for (final SymbolContext entry : source) {
+			if (entry == null) {
+				continue;
+			}
+			int index = entry.hash & mask;
+			while (target[index] != null) {
+				index = (index + 1) & mask;
+			}
+			target[index] = entry;
+		}
+		return target;
+	}
+
+	/** number of interned symbols */
+	static int size() {
+		synchronized (lock) {
+			return count;
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import static com.barchart.feed.ddf.message.provider.CodecHelper.DDF_CENTURY;
+import static com.barchart.feed.ddf.message.provider.CodecHelper.decodeTimeStampByte;
+import static com.barchart.feed.ddf.message.provider.CodecHelper.encodeTimeStampByte;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+
+/**
+ * allocation free codec for ddf "magic 9 bytes" feed time stamp;
+ *
+ * keeps last trading day per time zone with its local midnight and utc
+ * offset, so steady state conversion is integer arithmetic only; days which
+ * contain a zone offset transition and out of range fields fall back to joda
+ * {@link DateTime}, which keeps exact previous behavior, including exceptions.
+ */
+final class TimeStampCodec {
+
+	private static final int DAY = DateTimeConstants.MILLIS_PER_DAY;
+	private static final int HOUR = DateTimeConstants.MILLIS_PER_HOUR;
+	private static final int MINUTE = DateTimeConstants.MILLIS_PER_MINUTE;
+	private static final int SECOND = DateTimeConstants.MILLIS_PER_SECOND;
+
+	/** local calendar arithmetic; zone offsets are applied separately */
+	private static final Chronology CHRONO = ISOChronology.getInstanceUTC();
+
+	private static final ConcurrentMap<DateTimeZone, TimeStampCodec> codecs =
+			new ConcurrentHashMap<DateTimeZone, TimeStampCodec>();
+
+	/** codec for zone; one instance per zone */
+	static TimeStampCodec of(final DateTimeZone zone) {
+		TimeStampCodec codec = codecs.get(zone);
+		if (codec == null) {
+			codec = new TimeStampCodec(zone);
+			final TimeStampCodec existing = codecs.putIfAbsent(zone, codec);
+			if (existing != null) {
+				codec = existing;
+			}
+		}
+		return codec;
+	}
+
+	/** immutable local trading day in a zone */
+	static final class Day {
+
+		/** yyyymmdd */
+		final int key;
+
+		final int year;
+		final int month;
+		final int dayOfMonth;
+
+		/** millis of local midnight, as if local time was utc */
+		final long localStart;
+
+		/** utc offset, valid for whole day when fixed */
+		final int offset;
+
+		/** utc millis of local midnight */
+		final long startUTC;
+
+		/** no offset transition during this day */
+		final boolean isFixed;
+
+		Day(final DateTimeZone zone, final int year, final int month,
+				final int dayOfMonth) {
+
+			this.key = key(year, month, dayOfMonth);
+			this.year = year;
+			this.month = month;
+			this.dayOfMonth = dayOfMonth;
+
+			/* will throw RTE if any field is out of range */
+			this.localStart = CHRONO.getDateTimeMillis(year, month,
+					dayOfMonth, 0);
+
+			final int offsetStart = zone.getOffsetFromLocal(localStart);
+			final int offsetFinish = zone.getOffsetFromLocal(localStart + DAY
+					- 1);
+
+			this.offset = offsetStart;
+			this.startUTC = localStart - offsetStart;
+			this.isFixed = offsetStart == offsetFinish
+					&& zone.getOffset(startUTC) == offsetStart
+					&& zone.getOffset(startUTC + DAY - 1) == offsetStart;
+
+		}
+
+	}
+
+	static int key(final int year, final int month, final int dayOfMonth) {
+		return (year * 100 + month) * 100 + dayOfMonth;
+	}
+
+	//
+
+	final DateTimeZone zone;
+
+	/** last seen day; replaced, never mutated */
+	private volatile Day last;
+
+	private TimeStampCodec(final DateTimeZone zone) {
+		this.zone = zone;
+	}
+
+	private Day day(final int year, final int month, final int dayOfMonth) {
+		final Day day = last;
+		if (day != null && day.key == key(year, month, dayOfMonth)) {
+			return day;
+		}
+		final Day next = new Day(zone, year, month, dayOfMonth);
+		last = next;
+		return next;
+	}
+
+	/** consumes 9 bytes */
+	long decode(final ByteBuffer buffer) {
+
+		// base fields
+		buffer.get(); // DDF_CENTURY
+		final int year = 2000 + decodeTimeStampByte(buffer.get());
+		final int month = decodeTimeStampByte(buffer.get());
+		final int dayOfMonth = decodeTimeStampByte(buffer.get());
+		final int hour = decodeTimeStampByte(buffer.get());
+		final int minute = decodeTimeStampByte(buffer.get());
+		final int second = decodeTimeStampByte(buffer.get());
+
+		// milliseconds
+		final byte lo = buffer.get();
+		final byte hi = buffer.get();
+		final int millis = ((hi & 0xFF) << 8) | (lo & 0xFF);
+
+		return millisUTC(year, month, dayOfMonth, hour, minute, second, millis);
+
+	}
+
+	long millisUTC(final int year, final int month, final int dayOfMonth,
+			final int hour, final int minute, final int second,
+			final int millis) {
+
+		final boolean isValid = //
+				1 <= month && month <= 12 && //
+				1 <= dayOfMonth && dayOfMonth <= 31 && //
+				0 <= hour && hour < 24 && //
+				0 <= minute && minute < 60 && //
+				0 <= second && second < 60 && //
+				0 <= millis && millis < 1000;
+
+		if (isValid) {
+			final Day day = day(year, month, dayOfMonth);
+			if (day.isFixed) {
+				final long millisOfDay = hour * HOUR + minute * MINUTE + second
+						* SECOND + millis;
+				return day.startUTC + millisOfDay;
+			}
+		}
+
+		// will throw RTE if any field is out of range
+		return new DateTime(//
+				year, month, dayOfMonth, //
+				hour, minute, second, //
+				millis, zone).getMillis();
+
+	}
+
+	/** produces 9 bytes */
+	void encode(final long millisUTC, final ByteBuffer buffer) {
+
+		Day day = last;
+
+		if (day == null || !day.isFixed || millisUTC < day.startUTC
+				|| millisUTC >= day.startUTC + DAY) {
+
+			final long local = millisUTC + zone.getOffset(millisUTC);
+
+			day = day(CHRONO.year().get(local), //
+					CHRONO.monthOfYear().get(local), //
+					CHRONO.dayOfMonth().get(local));
+
+			if (!day.isFixed) {
+				CodecHelper.encodeTimeStamp(new DateTime(millisUTC, zone),
+						buffer);
+				return;
+			}
+
+		}
+
+		int millisOfDay = (int) (millisUTC - day.startUTC);
+
+		final int hour = millisOfDay / HOUR;
+		millisOfDay -= hour * HOUR;
+		final int minute = millisOfDay / MINUTE;
+		millisOfDay -= minute * MINUTE;
+		final int second = millisOfDay / SECOND;
+		millisOfDay -= second * SECOND;
+
+		// base fields
+		buffer.put(DDF_CENTURY); // century
+		buffer.put(encodeTimeStampByte(day.year % 100)); // year
+		buffer.put(encodeTimeStampByte(day.month)); // month
+		buffer.put(encodeTimeStampByte(day.dayOfMonth)); // day
+		buffer.put(encodeTimeStampByte(hour)); // hours
+		buffer.put(encodeTimeStampByte(minute)); // minutes
+		buffer.put(encodeTimeStampByte(second)); // seconds
+
+		// milliseconds
+		buffer.put((byte) (millisOfDay & 0xFF)); // low byte
+		buffer.put((byte) ((millisOfDay >>> 8) & 0xFF)); // high byte
+
+	}
+
+}
@@ -0,0 +1,866 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import static com.barchart.feed.ddf.util.HelperDDF.DDF_CLEAR;
+import static com.barchart.feed.ddf.util.HelperDDF.DDF_EMPTY;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.joda.time.DateTimeZone;
+import org.w3c.dom.Element;
+
+import com.barchart.feed.base.values.api.PriceValue;
+import com.barchart.feed.base.values.provider.ValueConst;
+import com.barchart.feed.ddf.util.HelperDDF;
+import com.barchart.feed.ddf.util.HelperXML;
+import com.barchart.feed.ddf.util.enums.DDF_Fraction;
+import com.barchart.util.common.anno.NotThreadSafe;
+import com.barchart.util.common.ascii.ASCII;
+
+/**
+ * Streaming attribute scanner for xml snapshot frames; indexes tag and
+ * attribute positions in place, without building a DOM, and decodes
+ * attribute values straight from the frame bytes with the same results as
+ * the {@link HelperXML} element decoders.
+ * <p>
+ * Supports one root tag with attributes, and empty child tags, such as
+ * {@code <QUOTE ...><SESSION .../></QUOTE>}; anything else, such as a prolog,
+ * comments, deeper nesting, or unknown entities, is rejected by
+ * {@link #scan(ByteBuffer)}, and must go through the DOM instead.
+ * <p>
+ * One instance per thread, see {@link #local()}; valid until next scan.
+ */
+@NotThreadSafe
+final class XmlScanner {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final ThreadLocal<XmlScanner> LOCAL = new ThreadLocal<XmlScanner>() {
+		@Override
+		protected XmlScanner initialValue() {
+			return new XmlScanner();
+		}
+	};
+
+	static XmlScanner local() {
+		return LOCAL.get();
+	}
+
+	/** digits which always fit in long / int */
+	private static final int LONG_DIGITS = 18;
+	private static final int INT_DIGITS = 9;
+
+	private ByteBuffer buffer;
+
+	private int index;
+
+	private int limit;
+
+	/* tags, root is zero */
+
+	private int tagCount;
+
+	private int[] tagStart = new int[16];
+	private int[] tagFinish = new int[16];
+	private int[] tagFirst = new int[16];
+	private int[] tagLast = new int[16];
+
+	/* attributes of all tags */
+
+	private int atrCount;
+
+	private int[] atrStart = new int[64];
+	private int[] atrFinish = new int[64];
+	private int[] valueStart = new int[64];
+	private int[] valueFinish = new int[64];
+
+	/** value is ascii w/o entities or white space to normalize */
+	private boolean[] valuePlain = new boolean[64];
+
+	/**
+	 * index remaining bytes of the buffer; buffer position is not changed
+	 *
+	 * @return false if frame must be decoded through the DOM
+	 */
+	boolean scan(final ByteBuffer source) {
+
+		buffer = source;
+		index = source.position();
+		limit = source.limit();
+
+		tagCount = 0;
+		atrCount = 0;
+
+		try {
+
+			skipSpace();
+
+			if (!scanTag(true)) {
+				return false;
+			}
+
+			skipSpace();
+
+			return index == limit;
+
+		} catch (final IndexOutOfBoundsException e) {
+			return false;
+		}
+
+	}
+
+	/** drop reference to last frame */
+	void clear() {
+		buffer = null;
+	}
+
+	/** DOM of last scanned frame */
+	Element document() {
+		final ByteBuffer source = buffer.duplicate();
+		source.limit(limit);
+		return HelperXML.xmlDocumentDecode(source, true);
+	}
+
+	private byte peek() {
+		if (index >= limit) {
+			throw new IndexOutOfBoundsException();
+		}
+		return buffer.get(index);
+	}
+
+	private static boolean isSpace(final byte alpha) {
+		return alpha == ' ' || alpha == '\t' || alpha == '\n' || alpha == '\r';
+	}
+
+	private static boolean isName(final byte alpha) {
+		return (alpha >= 'a' && alpha <= 'z') || (alpha >= 'A' && alpha <= 'Z')
+				|| (alpha >= '0' && alpha <= '9') || alpha == '_'
+				|| alpha == '-' || alpha == '.' || alpha == ':';
+	}
+
+	private void skipSpace() {
+		while (index < limit && isSpace(buffer.get(index))) {
+			index++;
+		}
+	}
+
+	private int scanName() {
+		final int start = index;
+		while (isName(peek())) {
+			index++;
+		}
+		return start;
+	}
+
+	private boolean scanTag(final boolean isRoot) {
+
+		if (peek() != '<') {
+			return false;
+		}
+		index++;
+
+		final int start = scanName();
+		if (start == index) {
+			return false;
+		}
+
+		final int tag = addTag(start, index);
+
+		while (true) {
+
+			final byte alpha = peek();
+
+			if (alpha == '/') {
+				index++;
+				if (peek() != '>') {
+					return false;
+				}
+				index++;
+				return true;
+			}
+
+			if (alpha == '>') {
+				index++;
+				break;
+			}
+
+			/* xml needs space before each attribute */
+			if (!isSpace(alpha)) {
+				return false;
+			}
+
+			skipSpace();
+
+			if (peek() == '/' || peek() == '>') {
+				continue;
+			}
+
+			if (!scanAttribute(tag)) {
+				return false;
+			}
+
+		}
+
+		/* content : root only, empty child tags and white space */
+
+		if (!isRoot) {
+			return false;
+		}
+
+		while (true) {
+
+			skipSpace();
+
+			if (peek() != '<') {
+				return false;
+			}
+
+			final byte next = buffer.get(index + 1);
+
+			if (next == '/') {
+				index += 2;
+				final int close = scanName();
+				if (!isSame(close, index, tagStart[tag], tagFinish[tag])) {
+					return false;
+				}
+				skipSpace();
+				if (peek() != '>') {
+					return false;
+				}
+				index++;
+				return true;
+			}
+
+			if (!isName(next) || !scanTag(false)) {
+				return false;
+			}
+
+		}
+
+	}
+
+	private boolean scanAttribute(final int tag) {
+
+		final int start = scanName();
+		final int finish = index;
+
+		if (start == finish) {
+			return false;
+		}
+
+		skipSpace();
+		if (peek() != '=') {
+			return false;
+		}
+		index++;
+		skipSpace();
+
+		final byte quote = peek();
+		if (quote != '"' && quote != '\'') {
+			return false;
+		}
+		index++;
+
+		final int value = index;
+		boolean isPlain = true;
+
+		while (true) {
+			final byte alpha = peek();
+			if (alpha == quote) {
+				break;
+			}
+			if (alpha == '<') {
+				return false;
+			}
+			if (alpha == '&') {
+				if (!scanEntity()) {
+					return false;
+				}
+				isPlain = false;
+				continue;
+			}
+			if (alpha < 0x20 || alpha >= 0x7F) {
+				isPlain = false;
+			}
+			index++;
+		}
+
+		addAttribute(tag, start, finish, value, index, isPlain);
+
+		index++;
+
+		/* must be followed by space or tag end */
+		final byte alpha = peek();
+		return isSpace(alpha) || alpha == '/' || alpha == '>';
+
+	}
+
+	/** known named or numeric entity */
+	private boolean scanEntity() {
+
+		final int start = index + 1;
+		int finish = start;
+
+		while (peek(finish) != ';') {
+			if (finish - start > 8) {
+				return false;
+			}
+			finish++;
+		}
+
+		index = finish + 1;
+
+		return entity(start, finish) >= 0;
+
+	}
+
+	private byte peek(final int at) {
+		if (at >= limit) {
+			throw new IndexOutOfBoundsException();
+		}
+		return buffer.get(at);
+	}
+
+	/** code point of entity between '&' and ';', or -1 */
+	private int entity(final int start, final int finish) {
+
+		if (isSame(start, finish, "amp")) {
+			return '&';
+		}
+		if (isSame(start, finish, "lt")) {
+			return '<';
+		}
+		if (isSame(start, finish, "gt")) {
+			return '>';
+		}
+		if (isSame(start, finish, "quot")) {
+			return '"';
+		}
+		if (isSame(start, finish, "apos")) {
+			return '\'';
+		}
+
+		if (finish - start < 2 || buffer.get(start) != '#') {
+			return -1;
+		}
+
+		final boolean isHex = buffer.get(start + 1) == 'x';
+		final int radix = isHex ? 16 : 10;
+
+		int code = 0;
+
+		for (int at = start + (isHex ? 2 : 1); at < finish; at++) {
+			final int digit = Character.digit((char) buffer.get(at), radix);
+			if (digit < 0) {
+				return -1;
+			}
+			code = code * radix + digit;
+		}
+
+		return code;
+
+	}
+
+	private int addTag(final int start, final int finish) {
+
+		if (tagCount == tagStart.length) {
+			tagStart = grow(tagStart);
+			tagFinish = grow(tagFinish);
+			tagFirst = grow(tagFirst);
+			tagLast = grow(tagLast);
+		}
+
+		tagStart[tagCount] = start;
+		tagFinish[tagCount] = finish;
+		tagFirst[tagCount] = atrCount;
+		tagLast[tagCount] = atrCount;
+
+		return tagCount++;
+
+	}
+
+	private void addAttribute(final int tag, final int start,
+			final int finish, final int value, final int valueEnd,
+			final boolean isPlain) {
+
+		if (atrCount == atrStart.length) {
+			atrStart = grow(atrStart);
+			atrFinish = grow(atrFinish);
+			valueStart = grow(valueStart);
+			valueFinish = grow(valueFinish);
+			final boolean[] plain = new boolean[atrCount * 2];
+			System.arraycopy(valuePlain, 0, plain, 0, atrCount);
+			valuePlain = plain;
+		}
+
+		atrStart[atrCount] = start;
+		atrFinish[atrCount] = finish;
+		valueStart[atrCount] = value;
+		valueFinish[atrCount] = valueEnd;
+		valuePlain[atrCount] = isPlain;
+
+		atrCount++;
+
+		tagLast[tag] = atrCount;
+
+	}
+
+	private static int[] grow(final int[] array) {
+		final int[] target = new int[array.length * 2];
+		System.arraycopy(array, 0, target, 0, array.length);
+		return target;
+	}
+
+	private boolean isSame(final int start, final int finish,
+			final String name) {
+		if (finish - start != name.length()) {
+			return false;
+		}
+		for (int k = 0; k < name.length(); k++) {
+			if (buffer.get(start + k) != name.charAt(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isSame(final int start, final int finish,
+			final int otherStart, final int otherFinish) {
+		if (finish - start != otherFinish - otherStart) {
+			return false;
+		}
+		for (int k = 0; k < finish - start; k++) {
+			if (buffer.get(start + k) != buffer.get(otherStart + k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// tags
+
+	/** root and child tags */
+	int tagCount() {
+		return tagCount;
+	}
+
+	/** case sensitive, as {@link Element#getElementsByTagName(String)} */
+	boolean isTag(final int tag, final String name) {
+		return isSame(tagStart[tag], tagFinish[tag], name);
+	}
+
+	/** case insensitive, as {@link HelperXML#isXmlNameMatch} */
+	boolean isRoot(final String name) {
+		final int start = tagStart[0];
+		if (tagFinish[0] - start != name.length()) {
+			return false;
+		}
+		for (int k = 0; k < name.length(); k++) {
+			final char alpha = (char) buffer.get(start + k);
+			if (Character.toUpperCase(alpha) != Character.toUpperCase(name
+					.charAt(k))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** see {@link HelperXML#xmlCheckTagName(Element, String)} */
+	void checkRoot(final String name) {
+		if (!isRoot(name)) {
+			throw new IllegalArgumentException("no match;" + " actual="
+					+ text(tagStart[0], tagFinish[0]) + " expected=" + name);
+		}
+	}
+
+	// attributes
+
+	/** attribute index, or -1 if missing */
+	private int find(final int tag, final String attribute) {
+		for (int atr = tagFirst[tag]; atr < tagLast[tag]; atr++) {
+			if (isSame(atrStart[atr], atrFinish[atr], attribute)) {
+				return atr;
+			}
+		}
+		return -1;
+	}
+
+	/** attribute value as DOM would report it; empty when missing */
+	private String text(final int atr) {
+
+		if (atr < 0) {
+			return "";
+		}
+
+		final int start = valueStart[atr];
+		final int finish = valueFinish[atr];
+
+		if (valuePlain[atr]) {
+			final char[] chars = new char[finish - start];
+			for (int at = start; at < finish; at++) {
+				chars[at - start] = (char) buffer.get(at);
+			}
+			return new String(chars);
+		}
+
+		final byte[] array = new byte[finish - start];
+		for (int at = start; at < finish; at++) {
+			array[at - start] = buffer.get(at);
+		}
+
+		final String raw = new String(array, UTF_8);
+		final StringBuilder text = new StringBuilder(raw.length());
+
+		for (int k = 0; k < raw.length(); k++) {
+			final char alpha = raw.charAt(k);
+			switch (alpha) {
+				case '\r':
+					/* line end normalization, then space */
+					if (k + 1 < raw.length() && raw.charAt(k + 1) == '\n') {
+						k++;
+					}
+					text.append(' ');
+					break;
+				case '\n':
+				case '\t':
+					text.append(' ');
+					break;
+				case '&':
+					final int end = raw.indexOf(';', k);
+					final byte[] name = raw.substring(k + 1, end).getBytes(
+							UTF_8);
+					text.appendCodePoint(entity(name));
+					k = end;
+					break;
+				default:
+					text.append(alpha);
+					break;
+			}
+		}
+
+		return text.toString();
+
+	}
+
+	private int entity(final byte[] name) {
+		final ByteBuffer source = buffer;
+		final int sourceLimit = limit;
+		try {
+			buffer = ByteBuffer.wrap(name);
+			limit = name.length;
+			return entity(0, name.length);
+		} finally {
+			buffer = source;
+			limit = sourceLimit;
+		}
+	}
+
+	private int length(final int atr) {
+		return atr < 0 ? 0 : valueFinish[atr] - valueStart[atr];
+	}
+
+	private static IllegalArgumentException invalid(final String attribute) {
+		return new IllegalArgumentException("attribute not valid : "
+				+ attribute);
+	}
+
+	/** see {@link HelperXML#xmlStringDecode(Element, String, boolean)} */
+	String string(final int tag, final String attribute, final boolean isThrow) {
+		final String string = text(find(tag, attribute));
+		if (string.length() > 0) {
+			return string;
+		}
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+		return "";
+	}
+
+	/** see {@link HelperXML#xmlAsciiDecode(Element, String, boolean)} */
+	byte[] ascii(final int tag, final String attribute, final boolean isThrow) {
+		final int atr = find(tag, attribute);
+		if (length(atr) > 0) {
+			if (valuePlain[atr]) {
+				final byte[] array = new byte[length(atr)];
+				for (int k = 0; k < array.length; k++) {
+					array[k] = buffer.get(valueStart[atr] + k);
+				}
+				return array;
+			}
+			return text(atr).getBytes(ASCII.ASCII_CHARSET);
+		}
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+		return null;
+	}
+
+	/** see {@link HelperXML#xmlByteDecode(Element, String, boolean)} */
+	byte code(final int tag, final String attribute, final boolean isThrow) {
+		final int atr = find(tag, attribute);
+		if (atr >= 0 && valuePlain[atr] && length(atr) == 1) {
+			return buffer.get(valueStart[atr]);
+		}
+		if (atr >= 0 && !valuePlain[atr]) {
+			final String string = text(atr);
+			if (string.length() == 1) {
+				return (byte) string.charAt(0);
+			}
+		}
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+		return ASCII.NUL;
+	}
+
+	/**
+	 * plain [-]digits value, when it surely fits; else null, parse as string
+	 */
+	private boolean isNumber(final int atr, final int start,
+			final int finish, final int digits) {
+
+		if (!valuePlain[atr]) {
+			return false;
+		}
+
+		int at = start;
+
+		if (at < finish && buffer.get(at) == '-') {
+			at++;
+		}
+
+		if (at == finish || finish - at > digits) {
+			return false;
+		}
+
+		for (; at < finish; at++) {
+			final byte alpha = buffer.get(at);
+			if (alpha < '0' || alpha > '9') {
+				return false;
+			}
+		}
+
+		return true;
+
+	}
+
+	private long number(final int start, final int finish) {
+		final boolean isNegative = buffer.get(start) == '-';
+		long value = 0;
+		for (int at = isNegative ? start + 1 : start; at < finish; at++) {
+			value = value * 10 + (buffer.get(at) - '0');
+		}
+		return isNegative ? -value : value;
+	}
+
+	/** see {@link HelperXML#xmlIntegerDecode(Element, String, boolean)} */
+	int integer(final int tag, final String attribute, final boolean isThrow) {
+		final int atr = find(tag, attribute);
+		if (length(atr) > 0) {
+			final int start = valueStart[atr];
+			final int finish = valueFinish[atr];
+			if (isNumber(atr, start, finish, INT_DIGITS)) {
+				return (int) number(start, finish);
+			}
+			try {
+				return Integer.parseInt(text(atr));
+			} catch (final Exception e) {
+				// will throw/return below
+			}
+		}
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+		return 0;
+	}
+
+	/** see {@link HelperDDF#longDecode(String)} */
+	private long longValue(final int atr, final int start, final int finish) {
+		if (finish == start) {
+			return DDF_EMPTY;
+		}
+		if (isNumber(atr, start, finish, LONG_DIGITS)) {
+			return number(start, finish);
+		}
+		final char[] chars = new char[finish - start];
+		for (int at = start; at < finish; at++) {
+			chars[at - start] = (char) buffer.get(at);
+		}
+		return HelperDDF.longDecode(valuePlain[atr] ? new String(chars)
+				: text(atr));
+	}
+
+	/** see {@link HelperXML#xmlLongDecode(Element, String, boolean)} */
+	long longValue(final int tag, final String attribute, final boolean isThrow) {
+		final int atr = find(tag, attribute);
+		if (length(atr) > 0) {
+			try {
+				// will return DDF_CLEAR for STRING_DASH
+				return longValue(atr, valueStart[atr], valueFinish[atr]);
+			} catch (final Exception e) {
+				// will throw/return below
+			}
+		}
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+		return DDF_EMPTY;
+	}
+
+	/** see {@link HelperXML#xmlDecimalDecode(DDF_Fraction, Element, String, boolean)} */
+	long decimal(final DDF_Fraction frac, final int tag,
+			final String attribute, final boolean isThrow) {
+		final long mantissa = longValue(tag, attribute, isThrow);
+		return HelperDDF.fromBinaryToDecimal(mantissa, frac);
+	}
+
+	/** see {@link HelperXML#xmlTimeDecode(DateTimeZone, Element, String, boolean)} */
+	long time(final DateTimeZone zone, final int tag, final String attribute,
+			final boolean isThrow) {
+		final long timeValue = longValue(tag, attribute, isThrow);
+		if (timeValue == DDF_EMPTY || timeValue == DDF_CLEAR) {
+			return timeValue;
+		}
+		return HelperDDF.timeDecode(timeValue, zone);
+	}
+
+	/** see {@link HelperXML#xmlPriceDecode(Element, String, boolean)} */
+	PriceValue price(final int tag, final String attribute,
+			final boolean isThrow) {
+		try {
+			return HelperDDF.priceDecode(text(find(tag, attribute)));
+		} catch (final Exception e) {
+			// will return/throw below
+		}
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+		return ValueConst.NULL_PRICE;
+	}
+
+	/** see {@link HelperXML#xmlLongArrayDecode(Element, String, byte, boolean)} */
+	long[] longArray(final int tag, final String attribute, final byte marker,
+			final boolean isThrow) {
+
+		final int atr = find(tag, attribute);
+
+		if (length(atr) > 0) {
+
+			try {
+
+				final int start = valueStart[atr];
+				int finish = valueFinish[atr];
+
+				if (!valuePlain[atr]) {
+					throw new IllegalArgumentException();
+				}
+
+				/* as String.split, drop trailing empty entries */
+				while (finish > start && buffer.get(finish - 1) == marker) {
+					finish--;
+				}
+
+				int size = 1;
+				for (int at = start; at < finish; at++) {
+					if (buffer.get(at) == marker) {
+						size++;
+					}
+				}
+
+				final long[] target = new long[size];
+
+				int entry = start;
+				int k = 0;
+
+				for (int at = start; at <= finish; at++) {
+					if (at == finish || buffer.get(at) == marker) {
+						target[k++] = longValue(atr, entry, at);
+						entry = at + 1;
+					}
+				}
+
+				return target;
+
+			} catch (final Exception e) {
+				return HelperXML.xmlLongArrayDecode(document(tag), attribute,
+						marker, isThrow);
+			}
+
+		}
+
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+
+		return null;
+
+	}
+
+	/** see {@link HelperXML#xmlDecimalArrayDecode(Element, String, byte, DDF_Fraction, boolean)} */
+	long[] decimalArray(final int tag, final String attribute,
+			final byte marker, final DDF_Fraction frac, final boolean isThrow) {
+		final long[] array = longArray(tag, attribute, marker, isThrow);
+		final int size = array.length;
+		if (frac.isBinary) {
+			for (int k = 0; k < size; k++) {
+				array[k] = HelperDDF.fromBinaryToDecimal(array[k], frac);
+			}
+		}
+		return array;
+	}
+
+	/** tag of DOM of last scanned frame, for rare fallback decode */
+	private Element document(final int tag) {
+		final Element root = document();
+		if (tag == 0) {
+			return root;
+		}
+		final String name = text(tagStart[tag], tagFinish[tag]);
+		int count = 0;
+		for (int k = 1; k < tag; k++) {
+			if (isSame(tagStart[k], tagFinish[k], tagStart[tag],
+					tagFinish[tag])) {
+				count++;
+			}
+		}
+		return (Element) root.getElementsByTagName(name).item(count);
+	}
+
+	private String text(final int start, final int finish) {
+		final char[] chars = new char[finish - start];
+		for (int at = start; at < finish; at++) {
+			chars[at - start] = (char) buffer.get(at);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * raw value bytes, as view of the frame, for values without entities;
+	 * null when missing or empty
+	 */
+	ByteBuffer bytes(final int tag, final String attribute,
+			final boolean isThrow) {
+		final int atr = find(tag, attribute);
+		if (length(atr) > 0) {
+			if (!valuePlain[atr]) {
+				return ByteBuffer.wrap(text(atr).getBytes(ASCII.ASCII_CHARSET));
+			}
+			final ByteBuffer value = buffer.duplicate();
+			value.limit(valueFinish[atr]);
+			value.position(valueStart[atr]);
+			return value;
+		}
+		if (isThrow) {
+			throw invalid(attribute);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.enums;
+
+import static com.barchart.util.common.ascii.ASCII.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.barchart.feed.ddf.symbol.enums.DDF_Exchange;
+import com.barchart.feed.ddf.symbol.enums.DDF_ExchangeKind;
+import com.barchart.feed.ddf.util.enums.DDF_Fraction;
+
+/** table lookups return same as linear scan over all byte values */
+public class TestEnumTables {
+
+	static DDF_MessageType scanMessageType(final byte record,
+			final byte subRecord) {
+		for (final DDF_MessageType known : DDF_MessageType.values()) {
+			if (known != DDF_MessageType.UNKNOWN && known.record == record
+					&& known.subRecord == subRecord) {
+				return known;
+			}
+		}
+		return DDF_MessageType.UNKNOWN;
+	}
+
+	static DDF_Session scanSession(final byte exchOrd, final byte sessCode) {
+		for (final DDF_Session known : DDF_Session.values()) {
+			if (known.code == sessCode) {
+				if (known.code == _G_) {
+					final DDF_Exchange exch = DDF_Exchange.fromOrd(exchOrd);
+					return exch.kind == DDF_ExchangeKind.FUTURE ? DDF_Session.$_G_NET
+							: DDF_Session.$_G_COM;
+				}
+				return known;
+			}
+		}
+		return DDF_Session.UNKNOWN;
+	}
+
+	static DDF_Fraction scanFraction(final byte baseCode) {
+		for (final DDF_Fraction known : DDF_Fraction.values()) {
+			if (known.baseCode == baseCode) {
+				return known;
+			}
+		}
+		return DDF_Fraction.UNKNOWN;
+	}
+
+	static DDF_Exchange scanExchange(final byte code) {
+		for (final DDF_Exchange known : DDF_Exchange.values()) {
+			if (known.code == code) {
+				return known;
+			}
+		}
+		return DDF_Exchange.UNKNOWN;
+	}
+
+	@Test
+	public void testMessageType() {
+
+		for (int record = -128; record < 128; record++) {
+			for (int subRecord = -128; subRecord < 128; subRecord++) {
+				assertSame(scanMessageType((byte) record, (byte) subRecord),
+						DDF_MessageType.fromPair((byte) record,
+								(byte) subRecord));
+			}
+		}
+
+		assertSame(DDF_MessageType.TRADE,
+				DDF_MessageType.fromPair((byte) _2_, (byte) _7_));
+		assertSame(DDF_MessageType.BOOK_SNAP,
+				DDF_MessageType.fromCode(DDF_MessageType.BOOK_SNAP.code));
+		assertSame(DDF_MessageType.UNKNOWN,
+				DDF_MessageType.fromPair((byte) _2_, (byte) _X_));
+
+	}
+
+	@Test
+	public void testSession() {
+
+		for (final DDF_Exchange exch : DDF_Exchange.values()) {
+			for (int code = -128; code < 128; code++) {
+				assertSame(scanSession(exch.ord, (byte) code),
+						DDF_Session.fromPair(exch.ord, (byte) code));
+			}
+		}
+
+		/* not an exchange ord, such as exchange code; as unknown exchange */
+		for (final byte exchOrd : new byte[] { DDF_Exchange.UNKNOWN.code,
+				(byte) DDF_Exchange.values().length, -1, Byte.MIN_VALUE,
+				Byte.MAX_VALUE }) {
+			for (int code = -128; code < 128; code++) {
+				assertSame(
+						scanSession(DDF_Exchange.UNKNOWN.ord, (byte) code),
+						DDF_Session.fromPair(exchOrd, (byte) code));
+			}
+		}
+
+	}
+
+	@Test
+	public void testFraction() {
+		for (int code = -128; code < 128; code++) {
+			assertSame(scanFraction((byte) code),
+					DDF_Fraction.fromBaseCode((byte) code));
+		}
+	}
+
+	@Test
+	public void testExchange() {
+		for (int code = -128; code < 128; code++) {
+			assertSame(scanExchange((byte) code),
+					DDF_Exchange.fromCode((byte) code));
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import static com.barchart.feed.ddf.message.provider.TestDDF_MessagePool.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.ddf.message.api.DDF_MarketBook;
+import com.barchart.feed.ddf.message.api.DDF_MarketTrade;
+import com.barchart.feed.ddf.message.enums.DDF_MessageType;
+import com.barchart.feed.ddf.symbol.enums.DDF_Exchange;
+import com.barchart.feed.ddf.util.ClockDDF;
+import com.barchart.feed.ddf.util.enums.DDF_Fraction;
+
+public class TestDDF_MessageLazy {
+
+	static final String PARAM = "\u00012SF0,0\u00022B1010533,D0Q \u0003\u0014JFTKDw9\u0002";
+
+	static final String SNAP = "\u00012HIG,2\u0002AN15,2445,2604,2404,2582,,,,2481,,,2582,,,12196949,3 \u0003\u0014JFTKDw9\u0002";
+
+	static final String BOOK_TOP = "\u00012HOZ9,8\u0002CJ1020911,5,20919,1,SG\u0003\u0014JFTKDw9\u0002";
+
+	static final String[] FRAMES = { TRADE_1, TRADE_2, BOOK_FULL, BOOK_PART,
+			PARAM, SNAP, BOOK_TOP };
+
+	static BaseMarket lazy(final String frame, final DDF_MessagePool pool)
+			throws Exception {
+		return (BaseMarket) DDF_MessageService.decode(buffer(frame), pool,
+				true);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		ClockDDF.reset();
+	}
+
+	@Test
+	public void testHeadOnly() throws Exception {
+
+		final BaseMarket message = lazy(TRADE_1, null);
+
+		assertTrue(message.isPending());
+
+		assertEquals(DDF_MessageType.TRADE, message.getMessageType());
+		assertEquals("HOZ9", message.getSymbolName());
+		assertEquals(DDF_Exchange.CME_NYMEX, message.getExchange());
+		assertEquals(DDF_Fraction.N4, message.getFraction());
+		assertEquals("HOZ9", message.getInstrument().symbol());
+
+		assertTrue(message.isPending());
+
+		final DDF_MarketTrade trade = (DDF_MarketTrade) message;
+		final DDF_MarketTrade eager = (DDF_MarketTrade) decode(TRADE_1, null);
+
+		assertEquals(eager.getPrice(), trade.getPrice());
+		assertFalse(message.isPending());
+
+		assertEquals(eager.getSize(), trade.getSize());
+		assertEquals(eager.getTime(), trade.getTime());
+		assertEquals(eager.getSession(), trade.getSession());
+		assertEquals(eager.getTradeDay(), trade.getTradeDay());
+
+	}
+
+	@Test
+	public void testParity() throws Exception {
+
+		for (final String frame : FRAMES) {
+
+			final DDF_BaseMessage eager = decode(frame, null);
+
+			assertEquals(frame, eager.toString(), lazy(frame, null).toString());
+			assertEquals(frame, eager.toStringFields(), lazy(frame, null)
+					.toStringFields());
+
+		}
+
+	}
+
+	@Test
+	public void testPooled() throws Exception {
+
+		final DDF_MessagePool pool = new DDF_MessagePool();
+
+		/* pending body of first is replaced, never parsed */
+		final BaseMarket first = lazy(BOOK_FULL, pool);
+		final BaseMarket second = lazy(BOOK_PART, pool);
+
+		assertSame(first, second);
+		assertEquals(decode(BOOK_PART, null).toString(), second.toString());
+
+		/* full decode into message left pending */
+		lazy(TRADE_1, pool);
+		final DDF_BaseMessage trade = decode(TRADE_2, pool);
+
+		assertFalse(((BaseMarket) trade).isPending());
+		assertEquals(decode(TRADE_2, null).toString(), trade.toString());
+
+	}
+
+	@Test
+	public void testCopy() throws Exception {
+
+		final DDF_MessagePool pool = new DDF_MessagePool();
+
+		final DDF_MarketBook book = (DDF_MarketBook) lazy(BOOK_FULL, pool);
+		final DDF_MarketBook copy = (DDF_MarketBook) book.copy();
+
+		lazy(BOOK_PART, pool);
+
+		assertEquals(decode(BOOK_FULL, null).toString(), copy.toString());
+
+	}
+
+	/** book snapshot time is feed clock as of decode, not as of first read */
+	@Test
+	public void testClock() throws Exception {
+
+		ClockDDF.clock.set(1000);
+		final DDF_MarketBook book = (DDF_MarketBook) lazy(BOOK_PART, null);
+
+		ClockDDF.clock.set(2000);
+		assertEquals(1000, book.getTime().asMillisUTC());
+
+	}
+
+	@Test
+	public void testNotLazy() throws Exception {
+
+		final String xml = "%" + TestXmlScanner.BOOK;
+
+		assertFalse(lazy(xml, null).isPending());
+
+	}
+
+	/** frame in middle of larger buffer, as netty slice view of receive buffer */
+	@Test
+	public void testSlice() throws Exception {
+
+		for (final String frame : FRAMES) {
+
+			final ByteBuffer buffer = buffer("JUNK" + frame + "\u0001JUNK");
+			buffer.position(4);
+			buffer.limit(4 + frame.length());
+
+			final BaseMarket message = (BaseMarket) DDF_MessageService.decode(
+					buffer, null, true);
+
+			assertEquals(buffer.limit(), buffer.position());
+			assertEquals(frame, decode(frame, null).toString(),
+					message.toString());
+
+		}
+
+	}
+
+	/** malformed body is accepted by decode, fails on first read */
+	@Test
+	public void testMalformed() throws Exception {
+
+		final String frame = TRADE_1.replace(",5,", "\u0003");
+
+		try {
+			decode(frame, null);
+			fail("eager decode must fail");
+		} catch (final RuntimeException e) {
+		}
+
+		final DDF_MarketTrade trade = (DDF_MarketTrade) lazy(frame, null);
+
+		assertEquals("HOZ9", trade.getSymbolName());
+
+		try {
+			trade.getSize();
+			fail("body read must fail");
+		} catch (final RuntimeException e) {
+		}
+
+	}
+
+}
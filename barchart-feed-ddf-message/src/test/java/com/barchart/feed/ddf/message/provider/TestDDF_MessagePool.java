@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import static com.barchart.util.common.ascii.ASCII.ASCII_CHARSET;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barchart.feed.api.model.data.Book;
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.ddf.message.api.DDF_MarketBook;
+import com.barchart.feed.ddf.message.api.DDF_MarketTrade;
+import com.barchart.feed.ddf.util.ClockDDF;
+
+public class TestDDF_MessagePool {
+
+	/** 10 bids, 10 asks */
+	static final String BOOK_FULL = "\u00013ESZ1,B\u0002AMAA,118925K114,118900L1242,118875M952,118850N1216,118825O1021,118800P1058,118775Q1135,118750R1031,118725S866,118700T1345,118950J333,118975I853,119000H2551,119025G1221,119050F1323,119075E1401,119100D1656,119125C1150,119150B1192,119175A1050\u0003";
+
+	/** 5 bids, 5 asks */
+	static final String BOOK_PART = "\u00013XIZ9,B\u0002BX55,63795K25,63790L5,63780M1000,63775N35,63765O5,63800J20,63815I5,63820H10,63825G5,63830F7\u0003";
+
+	static final String TRADE_1 = "\u00012HOZ9,7\u0002CJ1021371,5,SG\u0003\u0014JFTKDw9\u0002";
+
+	static final String TRADE_2 = "\u00012HOZ9,7\u0002CJ1021380,9,SG\u0003\u0014JFTKDw9\u0002";
+
+	static ByteBuffer buffer(final String frame) {
+		return ByteBuffer.wrap(frame.getBytes(ASCII_CHARSET));
+	}
+
+	static DDF_BaseMessage decode(final String frame,
+			final DDF_MessagePool pool) throws Exception {
+		return DDF_MessageService.decode(buffer(frame), pool);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		ClockDDF.reset();
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+
+		final DDF_MessagePool pool = new DDF_MessagePool();
+
+		final DDF_BaseMessage first = decode(TRADE_1, pool);
+		final DDF_BaseMessage second = decode(TRADE_2, pool);
+
+		assertSame(first, second);
+		assertEquals(2, pool.decodeCount());
+		assertEquals(1, pool.reuseCount());
+
+		assertEquals(decode(TRADE_2, null).toString(), second.toString());
+
+	}
+
+	@Test
+	public void testBookReset() throws Exception {
+
+		final DDF_MessagePool pool = new DDF_MessagePool();
+
+		final DDF_MarketBook full = (DDF_MarketBook) decode(BOOK_FULL, pool);
+		final long[] prices = full.prices(Book.Side.BID);
+
+		final DDF_MarketBook part = (DDF_MarketBook) decode(BOOK_PART, pool);
+
+		assertSame(full, part);
+
+		/* arrays reused, with stale levels cleared */
+		assertSame(prices, part.prices(Book.Side.BID));
+		assertEquals(decode(BOOK_PART, null).toString(), part.toString());
+
+	}
+
+	@Test
+	public void testCopy() throws Exception {
+
+		final DDF_MessagePool pool = new DDF_MessagePool();
+
+		final DDF_MarketBook book = (DDF_MarketBook) decode(BOOK_FULL, pool);
+		final DDF_MarketBook bookCopy = (DDF_MarketBook) book.copy();
+
+		final DDF_MarketTrade trade = (DDF_MarketTrade) decode(TRADE_1, pool);
+		final DDF_MarketTrade tradeCopy = (DDF_MarketTrade) trade.copy();
+
+		decode(BOOK_PART, pool);
+		decode(TRADE_2, pool);
+
+		assertNotSame(book, bookCopy);
+		assertNotSame(book.prices(Book.Side.BID),
+				bookCopy.prices(Book.Side.BID));
+
+		assertEquals(decode(BOOK_FULL, null).toString(), bookCopy.toString());
+		assertEquals(decode(TRADE_1, null).toString(), tradeCopy.toString());
+
+		assertEquals("ESZ1", bookCopy.getSymbolName());
+		assertEquals("HOZ9", tradeCopy.getSymbolName());
+
+	}
+
+	@Test
+	public void testNotPooled() throws Exception {
+
+		final DDF_MessagePool pool = new DDF_MessagePool();
+
+		final String xml = "%" + TestXmlScanner.BOOK;
+
+		assertNotSame(decode(xml, pool), decode(xml, pool));
+		assertEquals(0, pool.reuseCount());
+
+	}
+
+	@Test
+	public void testAllocate() throws Exception {
+		assertNotSame(decode(TRADE_1, null), decode(TRADE_1, null));
+	}
+
+}
@@ -8,14 +8,19 @@
 package com.barchart.feed.ddf.message.provider;
 
 import static com.barchart.util.common.ascii.ASCII.ASCII_CHARSET;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.barchart.feed.base.values.provider.ValueConst;
 import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
 import com.barchart.feed.ddf.message.api.DDF_MarketBook;
 import com.barchart.feed.ddf.message.api.DDF_MarketBookTop;
 import com.barchart.feed.ddf.message.api.DDF_MarketCuvol;
@@ -139,6 +144,52 @@ public class TestDDF_MessageService {
 
 	}
 
+	/**
+	 * Test decode from direct and offset heap buffers.
+	 * 
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Test
+	public void testDecodeBuffer() throws Exception {
+
+		final byte[][] frames = { ba20, ba21, ba27, ba28, ba3B, baXB, baXC,
+				baXQ };
+
+		for (final byte[] frame : frames) {
+
+			final DDF_BaseMessage expected = DDF_MessageService.decode(frame);
+
+			/* direct */
+			final ByteBuffer direct = ByteBuffer.allocateDirect(frame.length);
+			direct.put(frame);
+			direct.flip();
+			final DDF_BaseMessage msgDirect = DDF_MessageService.decode(direct);
+			assertEquals(expected.getMessageType(), msgDirect.getMessageType());
+			assertSameMarket(expected, msgDirect);
+
+			/* heap slice with junk on both sides */
+			final byte[] array = new byte[frame.length + 6];
+			Arrays.fill(array, (byte) '#');
+			System.arraycopy(frame, 0, array, 3, frame.length);
+			final ByteBuffer heap = ByteBuffer.wrap(array, 3, frame.length);
+			final DDF_BaseMessage msgHeap = DDF_MessageService.decode(heap);
+			assertEquals(expected.getMessageType(), msgHeap.getMessageType());
+			assertSameMarket(expected, msgHeap);
+
+		}
+
+	}
+
+	static void assertSameMarket(final DDF_BaseMessage expected,
+			final DDF_BaseMessage actual) {
+		final DDF_MarketBase left = (DDF_MarketBase) expected;
+		final DDF_MarketBase right = (DDF_MarketBase) actual;
+		assertEquals(left.getId().toString(), right.getId().toString());
+		assertEquals(left.getExchange(), right.getExchange());
+		assertEquals(left.getFraction(), right.getFraction());
+	}
+
 	/**
 	 * Test constants.
 	 * 
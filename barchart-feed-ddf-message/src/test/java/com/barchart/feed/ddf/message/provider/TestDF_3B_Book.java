@@ -24,6 +24,7 @@ import com.barchart.feed.api.model.data.Book;
 import com.barchart.feed.base.book.api.MarketBookEntry;
 import com.barchart.feed.base.provider.DefBookEntry;
 import com.barchart.feed.base.values.provider.ValueBuilder;
+import com.barchart.feed.ddf.message.api.DDF_MarketBook;
 import com.barchart.feed.ddf.message.enums.DDF_MessageType;
 import com.barchart.feed.ddf.message.enums.DDF_Session;
 import com.barchart.feed.ddf.message.enums.DDF_TradeDay;
@@ -173,6 +174,37 @@ public class TestDF_3B_Book extends TestDDFBase {
 
 	}
 
+	/**
+	 * Test level arrays.
+	 */
+	@Test
+	public void testLevels() {
+
+		final DF_3B_Book msg = new DF_3B_Book();
+
+		msg.decodeDDF(ByteBuffer.wrap(ba3B));
+
+		final long[] bidPrices = msg.prices(Book.Side.BID);
+		final long[] bidSizes = msg.sizes(Book.Side.BID);
+		final long[] askPrices = msg.prices(Book.Side.ASK);
+		final long[] askSizes = msg.sizes(Book.Side.ASK);
+
+		assertEquals(DDF_MarketBook.ENTRY_LIMIT, bidPrices.length);
+
+		assertEquals(63795, bidPrices[0]);
+		assertEquals(25, bidSizes[0]);
+		assertEquals(63765, bidPrices[4]);
+		assertEquals(5, bidSizes[4]);
+		assertEquals(0, bidSizes[5]);
+
+		assertEquals(63800, askPrices[0]);
+		assertEquals(20, askSizes[0]);
+		assertEquals(63830, askPrices[4]);
+		assertEquals(7, askSizes[4]);
+		assertEquals(0, askSizes[5]);
+
+	}
+
 	static MarketBookEntry newEntry(final Book.Side side, final int place,
 			final long mant, final int exp, final int size) {
 		return new DefBookEntry(MODIFY, side, 
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import static com.barchart.util.common.ascii.ASCII.ASCII_CHARSET;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * The Class TestSymbolContext.
+ */
+public class TestSymbolContext {
+
+	/**
+	 * Same symbol bytes must resolve to same context.
+	 */
+	@Test
+	public void testIntern() {
+
+		final byte[] esm4 = "ESM4".getBytes(ASCII_CHARSET);
+		final byte[] frame = "2ESM4,7".getBytes(ASCII_CHARSET);
+
+		final SymbolContext one = SymbolContext.lookup(esm4);
+		final SymbolContext two = SymbolContext.lookup(esm4.clone());
+		final SymbolContext three = SymbolContext.lookup(frame, 1, 4);
+
+		assertSame(one, two);
+		assertSame(one, three);
+		assertArrayEquals(esm4, one.symbol);
+
+		assertNotSame(one, SymbolContext.lookup("ESM5".getBytes(ASCII_CHARSET)));
+		assertNotSame(one, SymbolContext.lookup("ESM".getBytes(ASCII_CHARSET)));
+
+	}
+
+	/**
+	 * Table growth must keep all contexts reachable.
+	 */
+	@Test
+	public void testResize() {
+
+		final int size = 3 * SymbolContext.TABLE_SIZE;
+
+		final SymbolContext[] contexts = new SymbolContext[size];
+
+		for (int k = 0; k < size; k++) {
+			contexts[k] = SymbolContext.lookup(("TEST" + k)
+					.getBytes(ASCII_CHARSET));
+		}
+
+		for (int k = 0; k < size; k++) {
+			assertSame(contexts[k],
+					SymbolContext.lookup(("TEST" + k).getBytes(ASCII_CHARSET)));
+		}
+
+	}
+
+	/**
+	 * Buffer range must resolve to same context as array range.
+	 */
+	@Test
+	public void testBuffer() {
+
+		final byte[] frame = "2ESM4,7".getBytes(ASCII_CHARSET);
+
+		final ByteBuffer direct = ByteBuffer.allocateDirect(frame.length);
+		direct.put(frame);
+
+		final SymbolContext one = SymbolContext.lookup(frame, 1, 4);
+
+		assertSame(one, SymbolContext.lookup(ByteBuffer.wrap(frame), 1, 4));
+		assertSame(one, SymbolContext.lookup(direct, 1, 4));
+
+		final SymbolContext fresh = SymbolContext.lookup(
+				ByteBuffer.wrap("2BUFFER1,7".getBytes(ASCII_CHARSET)), 1, 7);
+
+		assertEquals("BUFFER1", fresh.name);
+		assertSame(fresh, SymbolContext.lookup("BUFFER1".getBytes(ASCII_CHARSET)));
+
+	}
+
+	/**
+	 * Handles must be stable, dense and map back to their context.
+	 */
+	@Test
+	public void testHandle() {
+
+		final SymbolContext one = SymbolContext.lookup("HANDLE1"
+				.getBytes(ASCII_CHARSET));
+		final SymbolContext two = SymbolContext.lookup("HANDLE2"
+				.getBytes(ASCII_CHARSET));
+
+		assertEquals(one.handle + 1, two.handle);
+		assertSame(one, SymbolContext.byHandle(one.handle));
+		assertSame(two, SymbolContext.byHandle(two.handle));
+		assertNull(SymbolContext.byHandle(-1));
+
+		assertEquals(one.handle, DDF_MessageService.symbolHandle("HANDLE1"));
+		assertSame(one.name, DDF_MessageService.symbolName(one.handle));
+		assertSame(one.symbol, one.symbols[0]);
+
+	}
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * The Class TestTimeStampCodec.
+ */
+public class TestTimeStampCodec {
+
+	static final DateTimeZone[] ZONES = {
+			DateTimeZone.UTC, //
+			DateTimeZone.forID("America/Chicago"), //
+			DateTimeZone.forID("America/New_York"), //
+			DateTimeZone.forID("Europe/London"), //
+			DateTimeZone.forID("Australia/Sydney"), //
+	};
+
+	/** span DST transitions in both hemispheres */
+	static final long START = new DateTime(2013, 10, 20, 0, 0, 0, 0,
+			DateTimeZone.UTC).getMillis();
+
+	static final long FINISH = new DateTime(2014, 4, 15, 0, 0, 0, 0,
+			DateTimeZone.UTC).getMillis();
+
+	/** not a divisor of hour, to visit all fields */
+	static final long STEP = 7 * 60 * 1000 + 13 * 1000 + 17;
+
+	/**
+	 * Encode must produce same bytes as joda path.
+	 */
+	@Test
+	public void testEncode() {
+
+		for (final DateTimeZone zone : ZONES) {
+
+			final TimeStampCodec codec = TimeStampCodec.of(zone);
+
+			final ByteBuffer expected = ByteBuffer.allocate(9);
+			final ByteBuffer actual = ByteBuffer.allocate(9);
+
+			for (long millis = START; millis < FINISH; millis += STEP) {
+
+				expected.clear();
+				CodecHelper.encodeTimeStamp(new DateTime(millis, zone),
+						expected);
+
+				actual.clear();
+				codec.encode(millis, actual);
+
+				assertArrayEquals(zone + " " + millis, expected.array(),
+						actual.array());
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Decode must produce same millis as joda path.
+	 */
+	@Test
+	public void testDecode() {
+
+		for (final DateTimeZone zone : ZONES) {
+
+			final TimeStampCodec codec = TimeStampCodec.of(zone);
+
+			final ByteBuffer buffer = ByteBuffer.allocate(9);
+
+			for (long millis = START; millis < FINISH; millis += STEP) {
+
+				buffer.clear();
+				CodecHelper.encodeTimeStamp(new DateTime(millis, zone), buffer);
+
+				buffer.flip();
+				final long expected = CodecHelper.decodeTimeStamp(zone, buffer)
+						.getMillis();
+
+				buffer.rewind();
+				final long actual = codec.decode(buffer);
+
+				assertEquals(zone + " " + millis, expected, actual);
+				assertEquals(9, buffer.position());
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Invalid fields must fail same as joda path.
+	 */
+	@Test
+	public void testInvalid() {
+
+		final TimeStampCodec codec = TimeStampCodec.of(DateTimeZone
+				.forID("America/Chicago"));
+
+		final int[][] fields = { //
+		{ 2014, 2, 30, 10, 0, 0, 0 }, //
+				{ 2014, 13, 1, 10, 0, 0, 0 }, //
+				{ 2014, 1, 1, 24, 0, 0, 0 }, //
+				{ 2014, 1, 1, 10, 60, 0, 0 }, //
+				{ 2014, 1, 1, 10, 0, 0, 1000 }, //
+				/* spring forward gap */
+				{ 2014, 3, 9, 2, 30, 0, 0 }, //
+		};
+
+		for (final int[] f : fields) {
+			try {
+				codec.millisUTC(f[0], f[1], f[2], f[3], f[4], f[5], f[6]);
+				fail("must throw");
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.ddf.message.provider;
+
+import static com.barchart.util.common.ascii.ASCII.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+
+import com.barchart.feed.ddf.util.HelperXML;
+
+public class TestXmlScanner {
+
+	static final String BOOK = "<BOOK askcount=\"10\" askprices=\"110000,110025,110050,110075,110100,110125,110150,110175,110200,110225\" asksizes=\"247,794,646,868,811,1049,830,1244,2287,694\" basecode=\"A\" bidcount=\"10\" bidprices=\"109975,109950,109925,109900,109875,109850,109825,109800,109775,109750\" bidsizes=\"162,582,692,698,953,680,819,931,958,1166\" symbol=\"ESM0\"/>";
+
+	static final String QUOTE = "<QUOTE symbol=\"ESM0\" name=\"E-Mini S&amp;P 500\" exchange=\"GBLX\" basecode=\"A\" pointvalue=\"50.0\" tickincrement=\"25\" ddfexchange=\"M\" lastupdate=\"20100615144110\" bid=\"109975\" bidsize=\"162\" ask=\"110000\" asksize=\"248\" mode=\"R\"><SESSION day=\"E\" session=\"G\" timestamp=\"20100615094112\" open=\"109025\" high=\"110175\" low=\"108850\" last=\"109975\" previous=\"109050\" tradesize=\"2\" volume=\"362318\" tradetime=\"20100615094111\" id=\"combined\"/><SESSION day=\"D\" session=\"G\" timestamp=\"20100614205606\" open=\"109050\" high=\"110600\" low=\"108875\" last=\"-\" previous=\"108925\" tradesize=\"1\" openinterest=\"1482925\" volume=\"887313\" tradetime=\"20100614151457\" id=\"previous\"/></QUOTE>";
+
+	static final String CUVOL = "<CV symbol=\"GEM1\" basecode=\"A\" tickincrement=\"25\" last=\"109975\" lastsize=\"2\" lastcvol=\"12\" date=\"20100615123857\" count=\"3\" data=\"109275,1076:108900,437:109950,3813\"/>";
+
+	static ByteBuffer buffer(final String xml) {
+		return ByteBuffer.wrap(xml.getBytes(ASCII_CHARSET));
+	}
+
+	/** every attribute decodes as through the DOM */
+	static void assertParity(final String xml) {
+
+		final ByteBuffer buffer = buffer(xml);
+
+		final XmlScanner scanner = new XmlScanner();
+		assertTrue(scanner.scan(buffer));
+		assertEquals(0, buffer.position());
+
+		final Element root = HelperXML.xmlDocumentDecode(buffer, true);
+		final NodeList children = root.getElementsByTagName("*");
+
+		assertEquals(children.getLength() + 1, scanner.tagCount());
+
+		for (int tag = 0; tag < scanner.tagCount(); tag++) {
+
+			final Element element = tag == 0 ? root : (Element) children
+					.item(tag - 1);
+
+			assertTrue(scanner.isTag(tag, element.getTagName()));
+
+			final NamedNodeMap attributes = element.getAttributes();
+
+			for (int k = 0; k < attributes.getLength(); k++) {
+
+				final String name = attributes.item(k).getNodeName();
+
+				assertEquals(HelperXML.xmlStringDecode(element, name, false),
+						scanner.string(tag, name, false));
+				assertEquals(HelperXML.xmlLongDecode(element, name, false),
+						scanner.longValue(tag, name, false));
+				assertEquals(
+						HelperXML.xmlIntegerDecode(element, name, false),
+						scanner.integer(tag, name, false));
+				assertEquals(HelperXML.xmlByteDecode(element, name, false),
+						scanner.code(tag, name, false));
+				assertArrayEquals(
+						HelperXML.xmlAsciiDecode(element, name, false),
+						scanner.ascii(tag, name, false));
+
+			}
+
+			assertEquals("", scanner.string(tag, "missing", false));
+
+		}
+
+	}
+
+	@Test
+	public void testParity() {
+		assertParity(BOOK);
+		assertParity(QUOTE);
+		assertParity(CUVOL);
+		assertParity("  <BOOK a = '1'\n b=\"x&#65;&lt;\t\" c=\"\" ></BOOK >\r\n");
+	}
+
+	@Test
+	public void testArray() {
+
+		final XmlScanner scanner = new XmlScanner();
+		assertTrue(scanner.scan(buffer(BOOK)));
+
+		final Element root = HelperXML.xmlDocumentDecode(buffer(BOOK), true);
+
+		assertArrayEquals(HelperXML.xmlLongArrayDecode(root,
+				XmlTagBook.BID_SIZE_ARRAY, COMMA, true), scanner.longArray(0,
+				XmlTagBook.BID_SIZE_ARRAY, COMMA, true));
+
+		assertNull(scanner.longArray(0, "missing", COMMA, false));
+
+	}
+
+	@Test
+	public void testFallback() {
+
+		final XmlScanner scanner = new XmlScanner();
+
+		assertFalse(scanner.scan(buffer("<?xml version=\"1.0\"?><BOOK a=\"1\"/>")));
+		assertFalse(scanner.scan(buffer("<BOOK a=\"1\"><!-- note --></BOOK>")));
+		assertFalse(scanner.scan(buffer("<BOOK a=\"1\"b=\"2\"/>")));
+		assertFalse(scanner.scan(buffer("<BOOK a=\"&nbsp;\"/>")));
+		assertFalse(scanner.scan(buffer("<QUOTE><SESSION><X/></SESSION></QUOTE>")));
+		assertFalse(scanner.scan(buffer("<BOOK a=\"1\">text</BOOK>")));
+		assertFalse(scanner.scan(buffer("<BOOK a=\"1\"></QUOTE>")));
+		assertFalse(scanner.scan(buffer("<BOOK a=\"1\"/>trailer")));
+		assertFalse(scanner.scan(buffer("<BOOK a=\"1\"")));
+
+	}
+
+	/** same message as through the DOM, compared in encoded form */
+	static void assertMessage(final Base scanned, final Base parsed,
+			final String xml) {
+
+		final XmlScanner scanner = new XmlScanner();
+		assertTrue(scanner.scan(buffer(xml)));
+
+		scanned.decodeXML(scanner);
+		parsed.decodeXML(buffer(xml));
+
+		final ByteBuffer expected = ByteBuffer.allocate(64 * 1024);
+		final ByteBuffer actual = ByteBuffer.allocate(64 * 1024);
+
+		parsed.encodeXML(expected);
+		scanned.encodeXML(actual);
+
+		assertEquals(expected.flip(), actual.flip());
+
+	}
+
+	@Test
+	public void testMessage() {
+		assertMessage(new DX_XB_Book(), new DX_XB_Book(), BOOK);
+		assertMessage(new DX_XQ_Quote(), new DX_XQ_Quote(), QUOTE);
+	}
+
+	@Test
+	public void testService() throws Exception {
+
+		final Base message = (Base) DDF_MessageService.decode(buffer("%"
+				+ BOOK));
+
+		final ByteBuffer expected = ByteBuffer.allocate(64 * 1024);
+		final ByteBuffer actual = ByteBuffer.allocate(64 * 1024);
+
+		final DX_XB_Book parsed = new DX_XB_Book();
+		parsed.decodeXML(buffer(BOOK));
+		parsed.encodeXML(expected);
+
+		message.encodeXML(actual);
+
+		assertEquals(expected.flip(), actual.flip());
+
+	}
+
+}
@@ -232,6 +232,22 @@ public enum DDF_Exchange implements Value<DDF_Exchange> {
 		MathExtra.castIntToByte(ENUM_VALUES.length);
 	}
 
+	/** by exchange code; first declared wins for duplicate codes */
+	private final static DDF_Exchange[] CODE_TABLE = new DDF_Exchange[256];
+
+	static {
+		for (final DDF_Exchange known : ENUM_VALUES) {
+			if (CODE_TABLE[known.code & 0xFF] == null) {
+				CODE_TABLE[known.code & 0xFF] = known;
+			}
+		}
+		for (int code = 0; code < 256; code++) {
+			if (CODE_TABLE[code] == null) {
+				CODE_TABLE[code] = UNKNOWN;
+			}
+		}
+	}
+
 	/**
 	 * From code.
 	 *
@@ -239,12 +255,7 @@ public enum DDF_Exchange implements Value<DDF_Exchange> {
 	 * @return the dD f_ exchange
 	 */
 	public final static DDF_Exchange fromCode(final byte code) {
-		for (final DDF_Exchange known : ENUM_VALUES) {
-			if (known.code == code) {
-				return known;
-			}
-		}
-		return UNKNOWN;
+		return CODE_TABLE[code & 0xFF];
 	}
 
 	/**
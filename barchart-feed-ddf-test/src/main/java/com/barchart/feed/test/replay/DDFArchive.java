@@ -0,0 +1,399 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.test.replay;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recorded DDF frames with a seek index, see {@link DDFArchiveWriter}.
+ * <p>
+ * Layout, big endian:
+ *
+ * <pre>
+ * header  : int MAGIC, int VERSION
+ * frames  : { int length, byte[length] frame } ...
+ * index   : int count, { long time, long offset } ...
+ *           int count, { short length, ascii symbol,
+ *                        int count, { long offset } ... } ...
+ * trailer : long index offset, int MAGIC
+ * </pre>
+ *
+ * Time index entry gives the offset of a frame and the largest market time of
+ * all frames before it; entries are sparse, one per
+ * {@link DDFArchiveWriter#TIME_INTERVAL} frames. Symbol index lists the offset
+ * of every market frame of a symbol, in file order.
+ * <p>
+ * File is mapped in {@link #SEGMENT_SIZE} segments, so offsets are not bound
+ * by the int range of a single buffer; a frame may span two segments.
+ */
+class DDFArchive {
+
+	/** file name extension */
+	static final String EXTENSION = ".ddfa";
+
+	/** "DDFA" */
+	static final int MAGIC = 0x44444641;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 8;
+
+	static final int TRAILER_SIZE = 12;
+
+	/** mapped segment size, 1 GB */
+	static final int SEGMENT_SIZE = 1 << 30;
+
+	/** consecutive mapped file regions, all but last of segment size */
+	private final ByteBuffer[] segments;
+
+	private final int segmentSize;
+
+	/** end of frames, start of index */
+	private final long limit;
+
+	private final long[] indexTime;
+
+	private final long[] indexOffset;
+
+	private final Map<String, long[]> symbolOffsets =
+			new HashMap<String, long[]>();
+
+	DDFArchive(final ByteBuffer[] segments, final int segmentSize)
+			throws IOException {
+
+		this.segments = segments;
+		this.segmentSize = segmentSize;
+
+		final long size = (long) (segments.length - 1) * segmentSize
+				+ segments[segments.length - 1].limit();
+
+		if (size < HEADER_SIZE + TRAILER_SIZE
+				|| input(0).readInt() != MAGIC
+				|| input(size - 4).readInt() != MAGIC) {
+			throw new IOException("not a ddf archive");
+		}
+
+		final int version = input(4).readInt();
+
+		if (version != VERSION) {
+			throw new IOException("unsupported archive version : "
+					+ version);
+		}
+
+		limit = input(size - TRAILER_SIZE).readLong();
+
+		if (limit < HEADER_SIZE || limit > size - TRAILER_SIZE) {
+			throw new IOException("invalid index offset : " + limit);
+		}
+
+		final DataInputStream index = input(limit);
+
+		final int timeCount = index.readInt();
+
+		indexTime = new long[timeCount];
+		indexOffset = new long[timeCount];
+
+		for (int k = 0; k < timeCount; k++) {
+			indexTime[k] = index.readLong();
+			indexOffset[k] = index.readLong();
+		}
+
+		final int symbolCount = index.readInt();
+
+		for (int k = 0; k < symbolCount; k++) {
+
+			final char[] name = new char[index.readShort()];
+			for (int c = 0; c < name.length; c++) {
+				name[c] = (char) index.readUnsignedByte();
+			}
+
+			final long[] offsets = new long[index.readInt()];
+			for (int n = 0; n < offsets.length; n++) {
+				offsets[n] = index.readLong();
+			}
+
+			symbolOffsets.put(new String(name), offsets);
+
+		}
+
+	}
+
+	/** memory mapped archive file */
+	static DDFArchive open(final File file) throws IOException {
+		return open(file, SEGMENT_SIZE);
+	}
+
+	/** memory mapped archive file, in segments of given size */
+	static DDFArchive open(final File file, final int segmentSize)
+			throws IOException {
+
+		final FileInputStream input = new FileInputStream(file);
+
+		try {
+
+			final FileChannel channel = input.getChannel();
+			final long size = channel.size();
+
+			final int count = (int) Math.max(1,
+					(size + segmentSize - 1) / segmentSize);
+
+			final ByteBuffer[] segments = new ByteBuffer[count];
+
+			for (int k = 0; k < count; k++) {
+				final long position = (long) k * segmentSize;
+				segments[k] = channel.map(FileChannel.MapMode.READ_ONLY,
+						position, Math.min(segmentSize, size - position));
+			}
+
+			return new DDFArchive(segments, segmentSize);
+
+		} finally {
+			/* mapping stays valid after close */
+			input.close();
+		}
+
+	}
+
+	static boolean isArchive(final String path) {
+		return path.endsWith(EXTENSION);
+	}
+
+	Set<String> symbols() {
+		return Collections.unmodifiableSet(symbolOffsets.keySet());
+	}
+
+	/** number of market frames for symbol */
+	int count(final String symbol) {
+		final long[] offsets = symbolOffsets.get(symbol);
+		return offsets == null ? 0 : offsets.length;
+	}
+
+	/**
+	 * offset of a frame such that all frames before it have market time at
+	 * or before given time
+	 */
+	long seek(final long time) {
+
+		int low = 0;
+		int high = indexTime.length - 1;
+		int found = -1;
+
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (indexTime[mid] <= time) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		return found < 0 ? HEADER_SIZE : indexOffset[found];
+
+	}
+
+	/** all frames from time seek point */
+	FrameSource frames(final long time) {
+		return new Sequential(seek(time));
+	}
+
+	/**
+	 * market frames of given symbols from time seek point, in file order;
+	 * other frames are not read
+	 */
+	FrameSource frames(final long time, final Collection<String> symbols) {
+
+		final long from = seek(time);
+
+		final List<long[]> lists = new ArrayList<long[]>();
+
+		for (final String symbol : symbols) {
+			final long[] offsets = symbolOffsets.get(symbol);
+			if (offsets != null) {
+				lists.add(offsets);
+			}
+		}
+
+		return new Merged(from, lists);
+
+	}
+
+	private byte[] frame(final long offset) {
+		try {
+			final DataInputStream source = input(offset);
+			final byte[] frame = new byte[source.readInt()];
+			source.readFully(frame);
+			return frame;
+		} catch (final IOException e) {
+			/* offsets come from validated index, within mapped file */
+			throw new IllegalStateException("invalid frame offset : "
+					+ offset, e);
+		}
+	}
+
+	private DataInputStream input(final long offset) {
+		return new DataInputStream(new SegmentInput(offset));
+	}
+
+	//
+
+	/** reads mapped segments from a file offset, across segment bounds */
+	private class SegmentInput extends InputStream {
+
+		private long offset;
+
+		SegmentInput(final long offset) {
+			this.offset = offset;
+		}
+
+		/** segment holding current offset, positioned, or null at end */
+		private ByteBuffer segment() {
+			final int index = (int) (offset / segmentSize);
+			if (index >= segments.length) {
+				return null;
+			}
+			final ByteBuffer segment = segments[index].duplicate();
+			final int position = (int) (offset % segmentSize);
+			if (position >= segment.limit()) {
+				return null;
+			}
+			segment.position(position);
+			return segment;
+		}
+
+		@Override
+		public int read() {
+			final ByteBuffer segment = segment();
+			if (segment == null) {
+				return -1;
+			}
+			offset++;
+			return segment.get() & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] target, final int from, final int length) {
+			if (length == 0) {
+				return 0;
+			}
+			final ByteBuffer segment = segment();
+			if (segment == null) {
+				return -1;
+			}
+			final int count = Math.min(length, segment.remaining());
+			segment.get(target, from, count);
+			offset += count;
+			return count;
+		}
+
+	}
+
+	//
+
+	private class Sequential implements FrameSource {
+
+		private long offset;
+
+		Sequential(final long offset) {
+			this.offset = offset;
+		}
+
+		@Override
+		public byte[] next() {
+			if (offset >= limit) {
+				return null;
+			}
+			final byte[] frame = frame(offset);
+			offset += 4 + frame.length;
+			return frame;
+		}
+
+		@Override
+		public void close() {
+			offset = limit;
+		}
+
+	}
+
+	/** merge of per symbol offset lists, each in file order */
+	private class Merged implements FrameSource {
+
+		private final long[][] lists;
+
+		/** next position in each list */
+		private final int[] cursor;
+
+		Merged(final long from, final List<long[]> lists) {
+
+			this.lists = lists.toArray(new long[lists.size()][]);
+			this.cursor = new int[this.lists.length];
+
+			for (int k = 0; k < cursor.length; k++) {
+				cursor[k] = first(this.lists[k], from);
+			}
+
+		}
+
+		/** index of first offset at or after given one */
+		private int first(final long[] offsets, final long from) {
+			int low = 0;
+			int high = offsets.length;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (offsets[mid] < from) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		@Override
+		public byte[] next() {
+
+			int best = -1;
+
+			for (int k = 0; k < lists.length; k++) {
+				if (cursor[k] < lists[k].length
+						&& (best < 0 || lists[k][cursor[k]] < lists[best][cursor[best]])) {
+					best = k;
+				}
+			}
+
+			if (best < 0) {
+				return null;
+			}
+
+			return frame(lists[best][cursor[best]++]);
+
+		}
+
+		@Override
+		public void close() {
+			for (int k = 0; k < lists.length; k++) {
+				cursor[k] = lists[k].length;
+			}
+		}
+
+	}
+
+}
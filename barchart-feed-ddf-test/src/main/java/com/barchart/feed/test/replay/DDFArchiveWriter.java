@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.test.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+
+/**
+ * Converts a DDF message log, plain or ".gz", into a {@link DDFArchive}.
+ * <p>
+ * Frames are stored as read from the log; each one is decoded once here to
+ * find its market time and symbol for the index.
+ */
+public class DDFArchiveWriter {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(DDFArchiveWriter.class);
+
+	/** frames between time index entries */
+	static final int TIME_INTERVAL = 1024;
+
+	/** growable offset list */
+	private static class Offsets {
+
+		long[] array = new long[16];
+		int size;
+
+		void add(final long offset) {
+			if (size == array.length) {
+				final long[] grown = new long[size * 2];
+				System.arraycopy(array, 0, grown, 0, size);
+				array = grown;
+			}
+			array[size++] = offset;
+		}
+
+	}
+
+	private final DataOutputStream output;
+
+	/** bytes written so far */
+	private long offset;
+
+	private long frameCount;
+
+	/** largest market time written so far */
+	private long maxMarketTime = Long.MIN_VALUE;
+
+	/** later times are generated at decode, not recorded */
+	private final long maxTime = System.currentTimeMillis() - 1000;
+
+	private final Offsets timeOffsets = new Offsets();
+
+	private final Offsets timeValues = new Offsets();
+
+	private final Map<String, Offsets> symbolOffsets =
+			new TreeMap<String, Offsets>();
+
+	public DDFArchiveWriter(final File archive) throws IOException {
+
+		output = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(archive), DDFLogDeframer.BLOCK_SIZE));
+
+		output.writeInt(DDFArchive.MAGIC);
+		output.writeInt(DDFArchive.VERSION);
+
+		offset = DDFArchive.HEADER_SIZE;
+
+	}
+
+	/** appends one raw frame, as produced by {@link DDFLogDeframer} */
+	public void write(final byte[] frame) throws IOException {
+
+		if (frameCount % TIME_INTERVAL == 0) {
+			timeValues.add(maxMarketTime);
+			timeOffsets.add(offset);
+		}
+
+		final FeedReplay.Frame decoded = FeedReplay.decode(frame);
+
+		if (decoded != null && decoded.decoded instanceof DDF_MarketBase) {
+
+			final DDF_MarketBase message = (DDF_MarketBase) decoded.decoded;
+
+			final long time = message.getTime().asMillisUTC();
+
+			if (time <= maxTime && time > maxMarketTime) {
+				maxMarketTime = time;
+			}
+
+			final String symbol = message.getSymbol().getName();
+
+			Offsets offsets = symbolOffsets.get(symbol);
+			if (offsets == null) {
+				offsets = new Offsets();
+				symbolOffsets.put(symbol, offsets);
+			}
+			offsets.add(offset);
+
+		}
+
+		output.writeInt(frame.length);
+		output.write(frame);
+
+		offset += 4 + frame.length;
+		frameCount++;
+
+	}
+
+	/** writes index and trailer */
+	public void close() throws IOException {
+
+		final long indexOffset = offset;
+
+		output.writeInt(timeOffsets.size);
+		for (int k = 0; k < timeOffsets.size; k++) {
+			output.writeLong(timeValues.array[k]);
+			output.writeLong(timeOffsets.array[k]);
+		}
+
+		output.writeInt(symbolOffsets.size());
+		for (final Map.Entry<String, Offsets> entry : symbolOffsets.entrySet()) {
+
+			final String symbol = entry.getKey();
+			output.writeShort(symbol.length());
+			output.writeBytes(symbol);
+
+			final Offsets offsets = entry.getValue();
+			output.writeInt(offsets.size);
+			for (int k = 0; k < offsets.size; k++) {
+				output.writeLong(offsets.array[k]);
+			}
+
+		}
+
+		output.writeLong(indexOffset);
+		output.writeInt(DDFArchive.MAGIC);
+
+		output.close();
+
+	}
+
+	public long frameCount() {
+		return frameCount;
+	}
+
+	/** converts whole log into archive file */
+	public static long convert(final URL source, final File archive)
+			throws IOException {
+
+		final DDFLogDeframer deframer = DDFLogDeframer.open(source);
+		final DDFArchiveWriter writer = new DDFArchiveWriter(archive);
+
+		try {
+			byte[] frame;
+			while ((frame = deframer.next()) != null) {
+				writer.write(frame);
+			}
+		} finally {
+			deframer.close();
+			writer.close();
+		}
+
+		log.info("archived {} frames from {} into {}", new Object[] {
+				writer.frameCount(), source, archive });
+
+		return writer.frameCount();
+
+	}
+
+	/** usage : DDFArchiveWriter source.ddf.gz target.ddfa */
+	public static void main(final String[] args) throws Exception {
+
+		if (args.length != 2) {
+			System.err.println("usage : DDFArchiveWriter <log> <archive"
+					+ DDFArchive.EXTENSION + ">");
+			return;
+		}
+
+		convert(new File(args[0]).toURI().toURL(), new File(args[1]));
+
+	}
+
+}
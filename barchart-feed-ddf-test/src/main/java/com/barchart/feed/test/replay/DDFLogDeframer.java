@@ -7,13 +7,17 @@
  */
 package com.barchart.feed.test.replay;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
 
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,9 +29,9 @@ import com.barchart.feed.ddf.util.FeedDDF;
  * 
  * splits stream into DDF message frames;
  * 
- * TODO re-implement w/o "synchronized"
+ * reads stream in blocks, or memory mapped file; single reader only
  */
-class DDFLogDeframer {
+class DDFLogDeframer implements FrameSource {
 
 	private static Logger log = LoggerFactory.getLogger(DDFLogDeframer.class);
 
@@ -35,9 +39,6 @@ class DDFLogDeframer {
 	final static int DDF_TIME_STAMP_MASK = 0x40;
 	final static byte DDF_CENTURY = 0x14;
 
-	private static final DateTimeFormatter timeParser = DateTimeFormat
-			.forPattern("yyyyMMddHHmmssSSS");
-
 	/** state machine: start/reset */
 	private static final int S0_INIT = 0;
 	/** state machine: received DDF message start marker */
@@ -48,17 +49,28 @@ class DDFLogDeframer {
 	private static final int S3_DDF_TIMESTAMP = 3;
 	/** state machine: continue reading in text-only mode */
 	private static final int S4_PRINTABLE = 4;
+	/** state machine: skipping "#millis" receive time line */
+	private static final int S5_RECEIVED = 5;
+
+	/** receive time line marker, written by datalink recorder */
+	static final byte RECEIVED = '#';
 
 	private static final int TIME_STAMP_SIZE = 17;
 
+	static final int BLOCK_SIZE = 64 * 1024;
+
+	/** null when reading mapped file */
 	private final InputStream stream;
+	/** block read from stream, or mapped file */
+	private final ByteBuffer input;
 	/** current stage of state machine */
 	private int stage;
 	/** number of validated incoming bytes */
 	private int count;
 	/** counter of bytes in DDF fixed size time stamp suffix */
 	private int ender;
-	private StringBuilder timestamp;
+	/** time stamp digits, yyyyMMddHHmmssSSS */
+	private final byte[] timestamp = new byte[TIME_STAMP_SIZE];
 
 	private final ByteBuffer buffer = ByteBuffer.allocate(1024);
 
@@ -99,18 +111,106 @@ class DDFLogDeframer {
 
 	public DDFLogDeframer(final InputStream is) {
 		stream = is;
+		input = ByteBuffer.allocate(BLOCK_SIZE);
+		input.flip();
 		init();
 	}
 
+	/** frames from mapped or heap buffer, from position to limit */
+	public DDFLogDeframer(final ByteBuffer mapped) {
+		stream = null;
+		input = mapped;
+		init();
+	}
+
+	/**
+	 * log from url; ".gz" is decompressed, plain local file is memory
+	 * mapped
+	 */
+	public static DDFLogDeframer open(final URL source) throws IOException {
+
+		if ("file".equals(source.getProtocol())
+				&& !source.getPath().endsWith(".gz")) {
+
+			final File file = new File(source.getPath());
+
+			if (file.length() <= Integer.MAX_VALUE) {
+				return new DDFLogDeframer(map(file));
+			}
+
+		}
+
+		final URLConnection conn = source.openConnection();
+
+		if (source.getPath().endsWith(".gz")
+				|| "application/x-gzip".equals(conn.getContentType())) {
+			return new DDFLogDeframer(new GZIPInputStream(
+					conn.getInputStream(), BLOCK_SIZE));
+		}
+
+		return new DDFLogDeframer(conn.getInputStream());
+
+	}
+
+	static MappedByteBuffer map(final File file) throws IOException {
+		final FileInputStream input = new FileInputStream(file);
+		try {
+			final FileChannel channel = input.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			/* mapping stays valid after close */
+			input.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (stream != null) {
+			stream.close();
+		}
+	}
+
+	/** next byte, or -1 at end */
+	private int read() throws IOException {
+
+		if (input.hasRemaining()) {
+			return input.get() & 0xFF;
+		}
+
+		if (stream == null) {
+			return -1;
+		}
+
+		input.clear();
+
+		int count = 0;
+
+		while (count == 0) {
+			count = stream.read(input.array(), 0, input.capacity());
+		}
+
+		if (count < 0) {
+			input.limit(0);
+			return -1;
+		}
+
+		input.limit(count);
+
+		return input.get() & 0xFF;
+
+	}
+
 	/**
 	 * assume JERQ uses LF terminators and optional fixed size time stamp
 	 */
-	protected synchronized byte[] next() throws IOException {
+	@Override
+	public byte[] next() throws IOException {
 
 		while (true) {
 
 			/* read next byte; */
-			final int b = stream.read();
+			final int b = read();
 			if (b == -1) {
 				return null;
 			}
@@ -139,6 +239,9 @@ class DDFLogDeframer {
 							// OK to post empty frames
 							buffer.put(alpha);
 							return copy(buffer);
+						case RECEIVED:
+							stage = S5_RECEIVED;
+							continue;
 						default:
 							stage = S4_PRINTABLE;
 							buffer.put(alpha);
@@ -161,8 +264,7 @@ class DDFLogDeframer {
 						case '2':
 							// time stamp present
 							stage = S3_DDF_TIMESTAMP;
-							timestamp =
-									new StringBuilder().append((char) alpha);
+							timestamp[0] = alpha;
 							ender = 1; // start count
 							continue;
 						case FeedDDF.DDF_TERMINATE:
@@ -176,19 +278,22 @@ class DDFLogDeframer {
 					/* continue stamp count, including terminator */
 					if (ender == TIME_STAMP_SIZE + 1) {
 						if (alpha == FeedDDF.DDF_TERMINATE) {
-							encodeTimeStamp(timestamp.toString(), buffer);
+							encodeTimeStamp(timestamp, buffer);
 							buffer.put(alpha);
 							return copy(buffer);
 						} else if (alpha == FeedDDF.DDF_START) {
-							encodeTimeStamp(timestamp.toString(), buffer);
+							encodeTimeStamp(timestamp, buffer);
 							return copy(buffer, alpha);
 						} else {
 							this.stage = S0_INIT;
 							this.count = 0;
 							return null;
 						}
+					} else if (ender <= TIME_STAMP_SIZE) {
+						timestamp[ender - 1] = alpha;
+						continue;
 					} else {
-						timestamp.append((char) alpha);
+						/* unexpected byte after finish marker; drop it */
 						continue;
 					}
 
@@ -202,6 +307,13 @@ class DDFLogDeframer {
 							continue;
 					}
 
+				case S5_RECEIVED:
+					if (alpha == FeedDDF.DDF_TERMINATE) {
+						/* not a frame */
+						init();
+					}
+					continue;
+
 				default:
 					log.error("ddf frame decoder logic error");
 					init();
@@ -216,24 +328,36 @@ class DDFLogDeframer {
 		return (byte) (timeField | DDF_TIME_STAMP_MASK);
 	}
 
-	//
-	// /** time zone information is discarded */
-	static final void encodeTimeStamp(final String timestamp,
-			final ByteBuffer buffer) {
+	/** digits of yyyyMMddHHmmssSSS stamp at offset */
+	private static int number(final byte[] stamp, final int offset,
+			final int size) {
+		int value = 0;
+		for (int index = offset; index < offset + size; index++) {
+			final int digit = stamp[index] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new IllegalArgumentException("invalid time stamp : "
+						+ new String(stamp));
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
 
-		DateTime dateTime = timeParser.parseDateTime(timestamp);
+	/** time zone information is discarded */
+	static final void encodeTimeStamp(final byte[] stamp,
+			final ByteBuffer buffer) {
 
 		// base fields
 		buffer.put(DDF_CENTURY); // century
-		buffer.put(encodeTimeStampByte(dateTime.getYearOfCentury())); // year
-		buffer.put(encodeTimeStampByte(dateTime.getMonthOfYear())); // month
-		buffer.put(encodeTimeStampByte(dateTime.getDayOfMonth())); // day
-		buffer.put(encodeTimeStampByte(dateTime.getHourOfDay())); // hours
-		buffer.put(encodeTimeStampByte(dateTime.getMinuteOfHour())); // minutes
-		buffer.put(encodeTimeStampByte(dateTime.getSecondOfMinute())); // seconds
+		buffer.put(encodeTimeStampByte(number(stamp, 2, 2))); // year
+		buffer.put(encodeTimeStampByte(number(stamp, 4, 2))); // month
+		buffer.put(encodeTimeStampByte(number(stamp, 6, 2))); // day
+		buffer.put(encodeTimeStampByte(number(stamp, 8, 2))); // hours
+		buffer.put(encodeTimeStampByte(number(stamp, 10, 2))); // minutes
+		buffer.put(encodeTimeStampByte(number(stamp, 12, 2))); // seconds
 
 		// milliseconds
-		final int millisOfSecond = dateTime.getMillisOfSecond();
+		final int millisOfSecond = number(stamp, 14, 3);
 		buffer.put((byte) (millisOfSecond & 0xFF)); // low byte
 		buffer.put((byte) ((millisOfSecond >>> 8) & 0xFF)); // high byte
 
@@ -1,9 +1,10 @@
 package com.barchart.feed.test.replay;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -13,7 +14,16 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.TimeZone;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +38,16 @@ import com.barchart.feed.ddf.message.provider.DDF_SpreadParser;
 /**
  * Replay a DDF message log in original sequence, with optional timing
  * adjustments.
+ * <p>
+ * With {@link Builder#threads(int)}, frames are decoded in batches on a
+ * thread pool while the log is still being read; batches are applied in log
+ * order on the replay thread, so every symbol sees its updates in original
+ * sequence.
+ * <p>
+ * A {@link DDFArchive} source, see {@link DDFArchiveWriter}, is read from its
+ * index: replay seeks directly to the start time, and when symbols are given
+ * only frames of those symbols are read and decoded, so the listener sees
+ * only them as well.
  */
 public class FeedReplay {
 
@@ -38,6 +58,7 @@ public class FeedReplay {
 		private final Set<String> symbols = new HashSet<String>();
 
 		private URL source;
+		private int threads = 0;
 		private double speed = -1;
 		private Date start = null;
 		private Date end = null;
@@ -56,7 +77,8 @@ public class FeedReplay {
 		}
 
 		/**
-		 * Replay from a local file.
+		 * Replay from a local file; a file ending in ".ddfa" is read as an
+		 * indexed archive.
 		 */
 		public Builder source(final File source_) {
 			try {
@@ -98,13 +120,28 @@ public class FeedReplay {
 			return this;
 		}
 
+		/**
+		 * Zero or less, as fast as possible.
+		 */
 		public Builder speed(final long speed_) {
 			speed = speed_;
 			return this;
 		}
 
+		/**
+		 * Decode threads; zero decodes inline on the replay thread.
+		 */
+		public Builder threads(final int threads_) {
+			threads = threads_;
+			return this;
+		}
+
+		/**
+		 * Limit market updates to given symbols; archive source seeks to
+		 * them.
+		 */
 		public Builder symbols(final String... symbols_) {
-			for (final String s : symbols) {
+			for (final String s : symbols_) {
 				symbols.add(s);
 			}
 			return this;
@@ -116,7 +153,8 @@ public class FeedReplay {
 		}
 
 		public FeedReplay build(final DDF_Marketplace marketplace) {
-			return new FeedReplay(marketplace, source, speed, start, end, symbols, listener);
+			return new FeedReplay(marketplace, source, threads, speed, start,
+					end, symbols, listener);
 		}
 
 	}
@@ -129,10 +167,50 @@ public class FeedReplay {
 
 	private static final Logger log = LoggerFactory.getLogger(FeedReplay.class);
 
+	/** frames per decode task */
+	static final int BATCH_SIZE = 1024;
+
+	/** decoded batches waiting to be applied, per decode thread */
+	static final int BATCH_AHEAD = 4;
+
+	/** end of log marker */
+	private static final Future<Frame[]> FINISH = new FutureTask<Frame[]>(
+			new Callable<Frame[]>() {
+				@Override
+				public Frame[] call() {
+					return null;
+				}
+			});
+
+	static {
+		((FutureTask<Frame[]>) FINISH).run();
+	}
+
+	/** raw frame, after spread preamble strip, and its decoded message */
+	static final class Frame {
+
+		final byte[] raw;
+		final DDF_BaseMessage decoded;
+
+		Frame(final byte[] raw, final DDF_BaseMessage decoded) {
+			this.raw = raw;
+			this.decoded = decoded;
+		}
+
+	}
+
 	private final Set<String> symbols = new HashSet<String>();
 
+	private static final byte UNKNOWN = 0;
+	private static final byte SELECTED = 1;
+	private static final byte SKIPPED = 2;
+
+	/* symbol filter decisions by symbol handle; applying thread only */
+	private byte[] selected = new byte[1024];
+
 	private final DDF_Marketplace marketplace;
 	private final URL source;
+	private final int threads;
 	private final double speed;
 	private final Date start;
 	private final Date end;
@@ -140,9 +218,19 @@ public class FeedReplay {
 
 	private Thread thread = null;
 
+	/* replay state, reset by run() */
+	private long maxTime;
+	private long baseline;
+	private long adjustment;
+	private boolean inRange;
+
+	private final AtomicLong messageCount = new AtomicLong();
+	private volatile long elapsedMillis;
+
 	protected FeedReplay(
 			final DDF_Marketplace marketplace_, 
 			final URL source_, 
+			final int threads_,
 			final double speed_, 
 			final Date start_,
 			final Date end_, 
@@ -151,11 +239,14 @@ public class FeedReplay {
 
 		marketplace = marketplace_;
 		source = source_;
+		threads = threads_;
 		start = start_;
 		end = end_;
 		speed = speed_;
 		listener = listener_;
 
+		symbols.addAll(symbols_);
+
 	}
 
 	public static Builder builder() {
@@ -166,138 +257,357 @@ public class FeedReplay {
 
 		thread = Thread.currentThread();
 
-		final long maxTime = System.currentTimeMillis() - 1000;
+		maxTime = System.currentTimeMillis() - 1000;
+		baseline = 0;
+		adjustment = 0;
+		inRange = (start == null && end == null);
+
+		messageCount.set(0);
+		elapsedMillis = 0;
 
-		long baseline = 0;
-		long adjustment = 0;
-		boolean inRange = (start == null && end == null);
+		final long started = System.nanoTime();
 
 		try {
 
-			final DDFLogDeframer deframer;
+			final FrameSource frames = open();
+
+			try {
+				if (threads > 0) {
+					runPipeline(frames);
+				} else {
+					runInline(frames);
+				}
+			} finally {
+				frames.close();
+			}
+
+		} catch (final Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			thread = null;
+			elapsedMillis = (System.nanoTime() - started) / 1000000;
+			log.info("replayed {} messages in {} ms, {} msgs/sec",
+					new Object[] { messageCount(), elapsedMillis(),
+							(long) messagesPerSecond() });
+		}
+
+	}
+
+	private FrameSource open() throws IOException {
+
+		if (!DDFArchive.isArchive(source.getPath())) {
+			return DDFLogDeframer.open(source);
+		}
+
+		final DDFArchive archive;
+
+		try {
+			archive = DDFArchive.open(new File(source.toURI()));
+		} catch (final URISyntaxException e) {
+			throw new IOException(e);
+		}
+
+		final long time = start == null ? Long.MIN_VALUE : start.getTime();
+
+		if (symbols.isEmpty()) {
+			return archive.frames(time);
+		}
+
+		return archive.frames(time, symbols);
+
+	}
+
+	private void runInline(final FrameSource frames) throws Exception {
+
+		for (;;) {
+
+			if (Thread.interrupted()) {
+				log.debug("Thread interrupted, aborting replay");
+				break;
+			}
+
+			final byte[] message = frames.next();
+			if (message == null) {
+				break;
+			}
+
+			final Frame frame = decode(message);
+			if (frame == null) {
+				continue;
+			}
+
+			if (!apply(frame)) {
+				return;
+			}
+
+		}
+
+	}
+
+	/**
+	 * reader thread splits log into batches and submits each to decode pool;
+	 * pending results are queued in submit order and applied here
+	 */
+	private void runPipeline(final FrameSource frames) throws Exception {
+
+		final ExecutorService pool = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+
+					final AtomicLong counter = new AtomicLong(0);
+
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread t = new Thread(r, "Replay decode "
+								+ counter.getAndIncrement());
+						t.setDaemon(true);
+						return t;
+					}
+
+				});
+
+		final BlockingQueue<Future<Frame[]>> queue =
+				new ArrayBlockingQueue<Future<Frame[]>>(threads * BATCH_AHEAD);
+
+		final Thread reader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				try {
+
+					for (;;) {
+
+						final byte[][] batch = new byte[BATCH_SIZE][];
+
+						int size = 0;
+
+						while (size < BATCH_SIZE) {
+							final byte[] message = frames.next();
+							if (message == null) {
+								break;
+							}
+							batch[size++] = message;
+						}
+
+						if (size > 0) {
+							queue.put(pool.submit(decodeTask(batch, size)));
+						}
+
+						if (size < BATCH_SIZE) {
+							queue.put(FINISH);
+							return;
+						}
+
+					}
+
+				} catch (final InterruptedException e) {
+					log.debug("replay reader interrupted");
+				} catch (final Exception e) {
+					final FutureTask<Frame[]> failure = new FutureTask<Frame[]>(
+							new Callable<Frame[]>() {
+								@Override
+								public Frame[] call() throws Exception {
+									throw e;
+								}
+							});
+					failure.run();
+					/* must not be lost, or applier waits forever on full queue */
+					try {
+						queue.put(failure);
+					} catch (final InterruptedException ie) {
+						/* applier gone, nobody to report to */
+						log.debug("replay reader interrupted", e);
+					}
+				}
 
-			final URLConnection conn = source.openConnection();
-			if (source.getPath().endsWith(".gz") || "application/x-gzip".equals(conn.getContentType())) {
-				deframer = new DDFLogDeframer(new GZIPInputStream(conn.getInputStream()));
-			} else {
-				deframer = new DDFLogDeframer(source.openStream());
 			}
 
-			byte[] message;
+		}, "Replay reader");
+
+		reader.setDaemon(true);
+		reader.start();
+
+		try {
+
 			for (;;) {
 
-				if (Thread.interrupted()) {
+				final Frame[] batch;
+
+				try {
+					batch = queue.take().get();
+				} catch (final InterruptedException e) {
 					log.debug("Thread interrupted, aborting replay");
-					break;
+					return;
+				} catch (final ExecutionException e) {
+					throw (Exception) e.getCause();
 				}
 
-				message = deframer.next();
-				if (message == null) {
-					break;
+				if (batch == null) {
+					return;
 				}
 
-				if (message.length < 2) {
-					log.warn("Short message, discarded");
-					continue;
+				for (final Frame frame : batch) {
+
+					if (frame == null) {
+						continue;
+					}
+
+					if (!apply(frame)) {
+						return;
+					}
+
 				}
 
-				/* If message is a spread, rebuild headder */
-				if (message[1] == ASCII._S_) {
-					message = DDF_SpreadParser.stripSpreadPreamble(message);
+				if (Thread.interrupted()) {
+					log.debug("Thread interrupted, aborting replay");
+					return;
 				}
 
-				final DDF_BaseMessage decoded;
+			}
 
-				try {
-					decoded = DDF_MessageService.decode(message);
-				} catch (final Exception e) {
-					log.warn("decode failed : " + new String(message));
-					e.printStackTrace();
-					log.debug(new String(Arrays.toString(message)));
-					continue;
+		} finally {
+			reader.interrupt();
+			pool.shutdownNow();
+		}
+
+	}
+
+	private static Callable<Frame[]> decodeTask(final byte[][] batch,
+			final int size) {
+		return new Callable<Frame[]>() {
+			@Override
+			public Frame[] call() {
+				final Frame[] frames = new Frame[size];
+				for (int index = 0; index < size; index++) {
+					frames[index] = decode(batch[index]);
 				}
+				return frames;
+			}
+		};
+	}
 
-				if (decoded instanceof DDF_MarketBase) {
+	/** null if frame is discarded */
+	static Frame decode(byte[] message) {
 
-					final DDF_MarketBase marketMessage =
-							(DDF_MarketBase) decoded;
+		if (message.length < 2) {
+			log.warn("Short message, discarded");
+			return null;
+		}
 
-					final long time = marketMessage.getTime().asMillisUTC();
+		/* If message is a spread, rebuild headder */
+		if (message[1] == ASCII._S_) {
+			message = DDF_SpreadParser.stripSpreadPreamble(message);
+		}
 
-					if (time > maxTime) {
+		try {
+			return new Frame(message, DDF_MessageService.decode(message));
+		} catch (final Exception e) {
+			log.warn("decode failed : " + new String(message));
+			e.printStackTrace();
+			log.debug(new String(Arrays.toString(message)));
+			return null;
+		}
 
-						// Auto-generated timestamp, skip if not previously
-						// in range
-						if (!inRange) {
-							continue;
-						}
+	}
 
-					} else {
+	/** false when past range end */
+	private boolean apply(final Frame frame) {
 
-						// Before range start, skip
-						if (start != null && time <= start.getTime()) {
-							continue;
-						}
+		final DDF_BaseMessage decoded = frame.decoded;
 
-						// After range end, completed
-						if (end != null && time >= end.getTime()) {
-							return;
-						}
+		if (!(decoded instanceof DDF_MarketBase)) {
+			return true;
+		}
 
-						inRange = true;
+		final DDF_MarketBase marketMessage = (DDF_MarketBase) decoded;
 
-					}
+		final long time = marketMessage.getTime().asMillisUTC();
 
-					if (listener != null) {
-						listener.messageProcessed(decoded, message);
-					}
+		if (time > maxTime) {
 
-					if (speed > 0) {
+			// Auto-generated timestamp, skip if not previously
+			// in range
+			if (!inRange) {
+				return true;
+			}
 
-						if (baseline == 0) {
+		} else {
 
-							// Set baseline time difference
-							baseline = time;
-							adjustment = System.currentTimeMillis() - baseline;
+			// Before range start, skip
+			if (start != null && time <= start.getTime()) {
+				return true;
+			}
 
-						} else {
+			// After range end, completed
+			if (end != null && time >= end.getTime()) {
+				return false;
+			}
 
-							final double delay = (time - baseline) * speed;
-							final double elapsed =
-									(System.currentTimeMillis() - (baseline + adjustment))
-											* speed;
+			inRange = true;
 
-							if (delay > elapsed) {
-								try {
-									Thread.sleep((long) (delay - elapsed));
-								} catch (final InterruptedException e) {
-									e.printStackTrace();
-								}
-							}
-						}
+		}
 
-					}
+		if (listener != null) {
+			listener.messageProcessed(decoded, frame.raw);
+		}
 
-					// log.debug(marketMessage.toString());
+		if (speed > 0) {
 
-					if (marketplace != null) {
-						if (symbols.size() == 0
-								|| symbols.contains(marketMessage.getSymbol()
-										.getName())) {
-							marketplace.make(marketMessage);
-						}
-					}
+			if (baseline == 0) {
+
+				// Set baseline time difference
+				baseline = time;
+				adjustment = System.currentTimeMillis() - baseline;
+
+			} else {
+
+				final double delay = (time - baseline) * speed;
+				final double elapsed =
+						(System.currentTimeMillis() - (baseline + adjustment))
+								* speed;
 
+				if (delay > elapsed) {
+					try {
+						Thread.sleep((long) (delay - elapsed));
+					} catch (final InterruptedException e) {
+						e.printStackTrace();
+					}
 				}
+			}
+
+		}
+
+		// log.debug(marketMessage.toString());
 
+		if (marketplace != null) {
+			if (symbols.size() == 0 || isSelected(marketMessage)) {
+				marketplace.make(marketMessage);
 			}
+		}
 
-		} catch (final Exception e) {
-			throw new RuntimeException(e);
-		} finally {
-			thread = null;
+		messageCount.incrementAndGet();
+
+		return true;
+
+	}
+
+	/** symbol filter decision, made once per symbol handle */
+	private boolean isSelected(final DDF_MarketBase message) {
+
+		final int handle = message.getSymbolHandle();
+
+		if (handle >= selected.length) {
+			selected = Arrays.copyOf(selected,
+					Math.max(handle + 1, 2 * selected.length));
 		}
 
+		if (selected[handle] == UNKNOWN) {
+			selected[handle] = symbols.contains(message.getSymbol().getName())
+					? SELECTED : SKIPPED;
+		}
+
+		return selected[handle] == SELECTED;
+
 	}
 
 	public void cancel() {
@@ -312,4 +622,22 @@ public class FeedReplay {
 		}
 	}
 
+	/** market messages applied by last run */
+	public long messageCount() {
+		return messageCount.get();
+	}
+
+	/** duration of last run, set when run completes */
+	public long elapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public double messagesPerSecond() {
+		final long millis = elapsedMillis;
+		if (millis == 0) {
+			return 0;
+		}
+		return messageCount.get() * 1000.0 / millis;
+	}
+
 }
@@ -0,0 +1,22 @@
+/**
+ * Copyright (C) 2011-2012 Barchart, Inc. <http://www.barchart.com/>
+ *
+ * All rights reserved. Licensed under the OSI BSD License.
+ *
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package com.barchart.feed.test.replay;
+
+import java.io.IOException;
+
+/**
+ * Sequence of raw DDF frames, in recorded order; single reader only.
+ */
+interface FrameSource {
+
+	/** next frame, or null at end */
+	byte[] next() throws IOException;
+
+	void close() throws IOException;
+
+}
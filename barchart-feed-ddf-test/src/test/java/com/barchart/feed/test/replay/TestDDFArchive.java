@@ -0,0 +1,183 @@
+package com.barchart.feed.test.replay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.ddf.message.api.DDF_MarketBase;
+import com.barchart.feed.test.replay.FeedReplay.MessageListener;
+
+public class TestDDFArchive {
+
+	static final String LOG = "/IBM-20140110-week.ddf.gz";
+
+	static File archive;
+
+	static long frameCount;
+
+	@BeforeClass
+	public static void convert() throws Exception {
+
+		archive = File.createTempFile("replay", DDFArchive.EXTENSION);
+		archive.deleteOnExit();
+
+		frameCount = DDFArchiveWriter.convert(
+				TestDDFArchive.class.getResource(LOG), archive);
+
+	}
+
+	/** raw frame and market time of each replayed message */
+	static class Recorder implements MessageListener {
+
+		final List<byte[]> raw = new ArrayList<byte[]>();
+		final List<Long> time = new ArrayList<Long>();
+		final List<String> symbol = new ArrayList<String>();
+
+		@Override
+		public void messageProcessed(final DDF_BaseMessage parsed,
+				final byte[] message) {
+			final DDF_MarketBase market = (DDF_MarketBase) parsed;
+			raw.add(message);
+			time.add(market.getTime().asMillisUTC());
+			symbol.add(market.getSymbol().getName());
+		}
+
+	}
+
+	static Recorder replay(final FeedReplay.Builder builder) {
+		final Recorder recorder = new Recorder();
+		builder.listener(recorder).build(null).run();
+		return recorder;
+	}
+
+	static FeedReplay.Builder log() {
+		return FeedReplay.builder().source(
+				TestDDFArchive.class.getResource(LOG));
+	}
+
+	static FeedReplay.Builder archive() {
+		return FeedReplay.builder().source(archive);
+	}
+
+	static void assertSame(final List<byte[]> expected,
+			final List<byte[]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int index = 0; index < expected.size(); index++) {
+			assertArrayEquals(expected.get(index), actual.get(index));
+		}
+	}
+
+	@Test
+	public void testFrames() throws Exception {
+
+		final DDFArchive index = DDFArchive.open(archive);
+
+		final FrameSource frames = index.frames(Long.MIN_VALUE);
+		final DDFLogDeframer deframer = DDFLogDeframer.open(getClass()
+				.getResource(LOG));
+
+		long count = 0;
+		byte[] frame;
+
+		while ((frame = deframer.next()) != null) {
+			assertArrayEquals(frame, frames.next());
+			count++;
+		}
+
+		assertEquals(null, frames.next());
+		assertEquals(frameCount, count);
+		assertFalse(index.symbols().isEmpty());
+
+	}
+
+	@Test
+	public void testSegments() throws Exception {
+
+		/* odd small segment size, frames and index span segments */
+		final DDFArchive whole = DDFArchive.open(archive);
+		final DDFArchive split = DDFArchive.open(archive, 61);
+
+		assertEquals(whole.symbols(), split.symbols());
+
+		final FrameSource expected = whole.frames(Long.MIN_VALUE);
+		final FrameSource actual = split.frames(Long.MIN_VALUE);
+
+		long count = 0;
+		byte[] frame;
+
+		while ((frame = expected.next()) != null) {
+			assertArrayEquals(frame, actual.next());
+			count++;
+		}
+
+		assertEquals(null, actual.next());
+		assertEquals(frameCount, count);
+
+		final String symbol = whole.symbols().iterator().next();
+		assertEquals(whole.count(symbol), split.count(symbol));
+
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		assertSame(replay(log()).raw, replay(archive()).raw);
+	}
+
+	@Test
+	public void testSeekTime() throws Exception {
+
+		final Recorder all = replay(log());
+
+		final long first = all.time.get(0);
+		final long last = all.time.get(all.time.size() - 1);
+
+		final Date start = new Date(first + (last - first) / 2);
+		final Date end = new Date(start.getTime() + 10 * 60 * 1000);
+
+		final Recorder expected = replay(log().start(start).end(end));
+		final Recorder actual = replay(archive().start(start).end(end));
+
+		assertTrue(expected.raw.size() > 0);
+		assertSame(expected.raw, actual.raw);
+
+		/* seek point is before start, never after first frame in range */
+		final DDFArchive index = DDFArchive.open(archive);
+		assertTrue(index.seek(start.getTime()) > DDFArchive.HEADER_SIZE);
+
+	}
+
+	@Test
+	public void testSeekSymbol() throws Exception {
+
+		final DDFArchive index = DDFArchive.open(archive);
+		final String symbol = index.symbols().iterator().next();
+
+		final Recorder all = replay(log());
+
+		final List<byte[]> expected = new ArrayList<byte[]>();
+		for (int k = 0; k < all.raw.size(); k++) {
+			if (all.symbol.get(k).equals(symbol)) {
+				expected.add(all.raw.get(k));
+			}
+		}
+
+		final Recorder actual = replay(archive().symbols(symbol));
+
+		assertEquals(index.count(symbol), actual.raw.size());
+		assertSame(expected, actual.raw);
+
+		assertEquals(0, replay(archive().symbols("NONE")).raw.size());
+
+	}
+
+}
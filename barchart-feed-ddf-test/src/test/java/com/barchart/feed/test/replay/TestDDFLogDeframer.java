@@ -0,0 +1,175 @@
+package com.barchart.feed.test.replay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.barchart.feed.ddf.message.api.DDF_BaseMessage;
+import com.barchart.feed.test.replay.FeedReplay.MessageListener;
+
+public class TestDDFLogDeframer {
+
+	static final String LOG = "/IBM-20140110-week.ddf.gz";
+
+	/** stream which returns one byte per read, to exercise block refill */
+	static class Trickle extends FilterInputStream {
+
+		Trickle(final InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read(final byte[] array, final int offset, final int size)
+				throws IOException {
+			return super.read(array, offset, Math.min(size, 1));
+		}
+
+	}
+
+	static byte[] unzip(final URL source) throws IOException {
+		final InputStream input = new GZIPInputStream(source.openStream());
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] block = new byte[8192];
+			int count;
+			while ((count = input.read(block)) != -1) {
+				bytes.write(block, 0, count);
+			}
+			return bytes.toByteArray();
+		} finally {
+			input.close();
+		}
+	}
+
+	static List<byte[]> frames(final DDFLogDeframer deframer)
+			throws IOException {
+		final List<byte[]> list = new ArrayList<byte[]>();
+		byte[] frame;
+		while ((frame = deframer.next()) != null) {
+			list.add(frame);
+		}
+		return list;
+	}
+
+	static void assertSame(final List<byte[]> expected,
+			final List<byte[]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int index = 0; index < expected.size(); index++) {
+			assertArrayEquals(expected.get(index), actual.get(index));
+		}
+	}
+
+	@Test
+	public void testTimeStamp() throws Exception {
+
+		final byte[] log = ("\u00012IBM,Z\u0002AN15188,20,0I\u0003"
+				+ "20140110093001258\r\n").getBytes("US-ASCII");
+
+		final DDFLogDeframer deframer = new DDFLogDeframer(
+				new ByteArrayInputStream(log));
+
+		final byte[] frame = deframer.next();
+
+		final int stamp = frame.length - 10;
+
+		assertEquals(0x03, frame[stamp - 1]);
+		assertEquals(DDFLogDeframer.DDF_CENTURY, frame[stamp]);
+		assertEquals(14 | 0x40, frame[stamp + 1]); // year
+		assertEquals(1 | 0x40, frame[stamp + 2]); // month
+		assertEquals(10 | 0x40, frame[stamp + 3]); // day
+		assertEquals(9 | 0x40, frame[stamp + 4]); // hours
+		assertEquals(30 | 0x40, frame[stamp + 5]); // minutes
+		assertEquals(1 | 0x40, frame[stamp + 6]); // seconds
+		assertEquals((byte) (258 & 0xFF), frame[stamp + 7]);
+		assertEquals(258 >>> 8, frame[stamp + 8]);
+		assertEquals('\n', frame[stamp + 9]);
+
+		assertNull(deframer.next());
+
+	}
+
+	@Test
+	public void testBlockParity() throws Exception {
+
+		final URL source = getClass().getResource(LOG);
+
+		final List<byte[]> expected = frames(new DDFLogDeframer(new Trickle(
+				new ByteArrayInputStream(unzip(source)))));
+
+		assertTrue(expected.size() > 1000);
+
+		assertSame(expected, frames(DDFLogDeframer.open(source)));
+
+	}
+
+	@Test
+	public void testMappedParity() throws Exception {
+
+		final URL source = getClass().getResource(LOG);
+
+		final File file = File.createTempFile("replay", ".ddf");
+		file.deleteOnExit();
+
+		final FileOutputStream output = new FileOutputStream(file);
+		output.write(unzip(source));
+		output.close();
+
+		final List<byte[]> expected = frames(new DDFLogDeframer(
+				new ByteArrayInputStream(unzip(source))));
+
+		assertSame(expected, frames(DDFLogDeframer.open(file.toURI().toURL())));
+		assertSame(expected,
+				frames(new DDFLogDeframer(ByteBuffer.wrap(unzip(source)))));
+
+	}
+
+	static List<byte[]> replay(final int threads) {
+
+		final List<byte[]> list = new ArrayList<byte[]>();
+
+		final FeedReplay replay = FeedReplay.builder()
+				.source(TestDDFLogDeframer.class.getResource(LOG))
+				.threads(threads).listener(new MessageListener() {
+					@Override
+					public void messageProcessed(final DDF_BaseMessage parsed,
+							final byte[] raw) {
+						list.add(raw);
+					}
+				}).build(null);
+
+		replay.run();
+
+		assertEquals(list.size(), replay.messageCount());
+
+		return list;
+
+	}
+
+	@Test
+	public void testPipelineOrder() throws Exception {
+
+		final List<byte[]> expected = replay(0);
+
+		assertTrue(expected.size() > FeedReplay.BATCH_SIZE);
+
+		assertSame(expected, replay(4));
+
+	}
+
+}
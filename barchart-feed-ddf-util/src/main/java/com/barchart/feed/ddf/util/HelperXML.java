@@ -22,6 +22,7 @@ import static com.barchart.feed.ddf.util.HelperDDF.timeEncode;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -185,6 +186,71 @@ public final class HelperXML {
 		return null;
 	}
 
+	/**
+	 * Xml document decode from the remaining bytes of a heap or direct
+	 * buffer; buffer position is not changed; no intermediate array copy.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param isThrow
+	 *            the is throw
+	 * @return the element
+	 */
+	public static final Element xmlDocumentDecode(final ByteBuffer buffer,
+			final boolean isThrow) {
+		final InputStream stream = new BufferInputStream(buffer.duplicate());
+		try {
+			final Document document = XML_BUILDER.get().parse(stream);
+			return document.getDocumentElement();
+		} catch (final Exception e) {
+			// will return/throw below
+		}
+		if (isThrow) {
+			final byte[] array = new byte[buffer.remaining()];
+			buffer.duplicate().get(array);
+			throw new RuntimeException("can not decode : \n"
+					+ new String(array));
+		}
+		return null;
+	}
+
+	/** read-only stream view of a byte buffer */
+	private static final class BufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		BufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			return buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] array, final int offset, final int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int count = Math.min(length, buffer.remaining());
+			buffer.get(array, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+	}
+
 	/**
 	 * Xml document encode.
 	 * 
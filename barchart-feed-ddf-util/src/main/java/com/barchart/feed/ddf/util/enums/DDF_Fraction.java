@@ -168,8 +168,22 @@ public enum DDF_Fraction implements EnumCodeByte, EnumByteOrdinal {
 		MathExtra.castIntToByte(ENUM_VALUES.length);
 	}
 
-	// TODO optimize: replace with 2 tableswitch blocks;
-	// http://java.sun.com/docs/books/jvms/second_edition/html/Compiling.doc.html#14942
+	/** by base code; first declared wins for duplicate codes */
+	private final static DDF_Fraction[] BASE_CODE_TABLE = new DDF_Fraction[256];
+
+	static {
+		for (final DDF_Fraction known : ENUM_VALUES) {
+			if (BASE_CODE_TABLE[known.baseCode & 0xFF] == null) {
+				BASE_CODE_TABLE[known.baseCode & 0xFF] = known;
+			}
+		}
+		for (int code = 0; code < 256; code++) {
+			if (BASE_CODE_TABLE[code] == null) {
+				BASE_CODE_TABLE[code] = UNKNOWN;
+			}
+		}
+	}
+
 	/**
 	 * From base code.
 	 * 
@@ -178,12 +192,7 @@ public enum DDF_Fraction implements EnumCodeByte, EnumByteOrdinal {
 	 * @return the dD f_ fraction
 	 */
 	public final static DDF_Fraction fromBaseCode(final byte baseCode) {
-		for (final DDF_Fraction known : ENUM_VALUES) {
-			if (known.baseCode == baseCode) {
-				return known;
-			}
-		}
-		return UNKNOWN;
+		return BASE_CODE_TABLE[baseCode & 0xFF];
 	}
 
 	// TODO optimize: replace with 2 tableswitch blocks;